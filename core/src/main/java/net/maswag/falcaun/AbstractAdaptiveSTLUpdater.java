@@ -21,7 +21,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -49,6 +55,7 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
      * The model checker used to verify properties against a Mealy machine, ensuring that the system meets specified Signal Temporal Logic (STL) requirements.
      */
     @NotNull
+    @Getter
     protected ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> modelChecker;
     /**
      * The oracle used to check for the inclusion of one language in another, which is essential for finding counterexamples to hypotheses.
@@ -83,6 +90,17 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
      * A list of Signal Temporal Logic (STL) formulas that have been disproved by the verification process.
      */
     private final List<TemporalLogic<I>> reportedFormulas = new ArrayList<>();
+    /**
+     * The number of the property oracles executed concurrently in {@link #findCounterExample(MealyMachine, Collection)}.
+     * If it is 1, they are executed sequentially.
+     */
+    @Getter
+    private int parallelism = 1;
+    /**
+     * The executor to run the property oracles concurrently. It is {@code null} if {@link #parallelism} is 1.
+     */
+    @Nullable
+    private ExecutorService executor = null;
 
     /**
      * Constructs an instance of {@link AbstractAdaptiveSTLUpdater}.
@@ -91,12 +109,31 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
      */
     public AbstractAdaptiveSTLUpdater() {
         // Create model checker
-        modelChecker = new LTSminMonitorIOBuilder<String, String>()
+        this(ltsminModelChecker());
+    }
+
+    /**
+     * Creates the model checker using LTSmin, which is used by default.
+     *
+     * @return the model checker running LTSmin in external processes.
+     * @see MealyLTLModelChecker
+     */
+    public static ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> ltsminModelChecker() {
+        return new LTSminMonitorIOBuilder<String, String>()
                 .withString2Input(EDGE_PARSER)
                 .withString2Output(EDGE_PARSER)
                 .create();
     }
 
+    /**
+     * Constructs an instance of {@link AbstractAdaptiveSTLUpdater} with the given model checker.
+     *
+     * @param modelChecker The model checker used to verify properties against a Mealy machine.
+     */
+    protected AbstractAdaptiveSTLUpdater(@NotNull ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> modelChecker) {
+        this.modelChecker = modelChecker;
+    }
+
     //@ requires inclusionOracle != null && emptinessOracle != null
     /**
      * Returns a stream of property oracles used to verify the Signal Temporal Logic (STL) properties.
@@ -126,7 +163,16 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
      * @param memOracle The membership oracle to set.
      */
     public void setMemOracle(@NotNull MembershipOracle.MealyMembershipOracle<String, String> memOracle) {
-        this.memOracle = memOracle;
+        if (memOracle instanceof NumericMembershipOracle) {
+            this.memOracle = memOracle;
+        } else {
+            // The property oracles may be executed concurrently, but the given oracle may not be thread-safe.
+            this.memOracle = queries -> {
+                synchronized (memOracle) {
+                    memOracle.processQueries(queries);
+                }
+            };
+        }
         // Create an emptiness oracle used to disprove properties
         double multiplier = 1.0;
         emptinessOracle = new MealyBFEmptinessOracle<>(this.memOracle, multiplier);
@@ -211,6 +257,46 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
         }
     }
 
+    /**
+     * Sets the number of the property oracles executed concurrently.
+     *
+     * <p>The model checker must be thread-safe, which is the case for LTSmin since each call uses its own files.
+     * The membership queries from the property oracles are executed concurrently only if the membership oracle is a
+     * {@link NumericMembershipOracle}, and serialized otherwise.</p>
+     *
+     * <p>The threads of the previous setting are shut down. Call {@link #close()} to shut down the threads after the
+     * use.</p>
+     *
+     * @param parallelism The number of the threads. If it is 1, the property oracles are executed sequentially.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        close();
+        this.parallelism = parallelism;
+        if (parallelism > 1) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "property-oracle-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Shuts down the threads executing the property oracles concurrently. The following checks are sequential until
+     * {@link #setParallelism(int)} is called again.
+     */
+    public void close() {
+        if (Objects.nonNull(executor)) {
+            executor.shutdown();
+            executor = null;
+        }
+        this.parallelism = 1;
+    }
+
     /**
      * Checks if a given Signal Temporal Logic (STL) formula has been newly falsified.
      *
@@ -250,6 +336,10 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
      * </ul>
      * If any formulas are truly disproved, it calls {@link #notifyFalsifiedProperty(List)} with their indices.
      *
+     * <p>If {@link #setParallelism(int)} is set to more than 1, all the property oracles are executed concurrently
+     * first, and then the above rules are applied in the order of the formulas, so the result does not depend on the
+     * scheduling.</p>
+     *
      * @param hypothesis The Mealy machine to be verified.
      * @param inputs     The alphabet of the Mealy machine's input symbols.
      * @return A query representing a counterexample if one is found; otherwise, null.
@@ -260,11 +350,21 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
     public DefaultQuery<String, Word<String>> findCounterExample(@NotNull MealyMachine<?, String, ?, String> hypothesis, @NotNull Collection<? extends String> inputs) {
         confirmInitialization();
         log.debug("Current list of STL formulas: {}", STLProperties);
+        if (modelChecker instanceof BatchModelChecker) {
+            // Check all the formulas in one exploration. The property oracles use the results.
+            ((BatchModelChecker) modelChecker).prefetch(hypothesis, inputs,
+                    STLProperties.stream().map(TemporalLogic::toLTLString).collect(Collectors.toList()));
+        }
         List<Integer> falsifiedIndices = new ArrayList<>();
         DefaultQuery<String, Word<String>> newFalsifiedResult = null;
         DefaultQuery<String, Word<String>> falsifiedResult = null;
+        IntFunction<DefaultQuery<String, Word<String>>> counterExample =
+                i -> this.propertyOracles.get(i).findCounterExample(hypothesis, inputs);
+        if (Objects.nonNull(executor) && this.size() > 1) {
+            counterExample = findCounterExamplesConcurrently(hypothesis, inputs)::get;
+        }
         for (int i = 0; i < this.size(); i++) {
-            DefaultQuery<String, Word<String>> result = this.propertyOracles.get(i).findCounterExample(hypothesis, inputs);
+            DefaultQuery<String, Word<String>> result = counterExample.apply(i);
             if (Objects.nonNull(result)) {
                 boolean isTrueCounterExample = this.propertyOracles.get(i).isDisproved();
                 if (Objects.isNull(falsifiedResult)) {
@@ -302,6 +402,29 @@ public abstract class AbstractAdaptiveSTLUpdater<I> implements AdaptiveSTLUpdate
         }
     }
 
+    /**
+     * Executes all the property oracles concurrently.
+     *
+     * @return the results of the property oracles in the order of the formulas
+     */
+    private List<DefaultQuery<String, Word<String>>> findCounterExamplesConcurrently(
+            @NotNull MealyMachine<?, String, ?, String> hypothesis, @NotNull Collection<? extends String> inputs) {
+        List<CompletableFuture<DefaultQuery<String, Word<String>>>> futures = new ArrayList<>(this.size());
+        for (PropertyOracle.MealyPropertyOracle<String, String, String> propertyOracle : this.propertyOracles) {
+            futures.add(CompletableFuture.supplyAsync(() -> propertyOracle.findCounterExample(hypothesis, inputs),
+                    Objects.requireNonNull(executor)));
+        }
+        List<DefaultQuery<String, Word<String>>> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<DefaultQuery<String, Word<String>>> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        return results;
+    }
+
     /**
      * Notifies that the STL properties at the specified indices are falsified by the currently learned model.
      * <p>
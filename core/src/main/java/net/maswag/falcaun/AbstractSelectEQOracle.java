@@ -16,6 +16,10 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static com.google.common.primitives.Doubles.min;
@@ -26,10 +30,14 @@ import static com.google.common.primitives.Doubles.min;
  * counterexamples in Mealy machines. It is designed to be extended by specific implementations that define
  * the logic for selecting test cases and evaluating their costs.
  *
+ * <p>If the membership oracle has a SUL pool with multiple SULs, each generation is evaluated concurrently. The results
+ * are merged in the order of the samples, so the search is deterministic given the seed of the random number
+ * generator. Once a counterexample is found, the samples after it are not evaluated.</p>
+ *
  * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
  */
 public abstract class AbstractSelectEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, String>,
-        EvaluationCountable.MealyEquivalenceOracle<String, String> {
+        EvaluationCountable.MealyEquivalenceOracle<String, String>, Stoppable {
     /**
      * Logger instance for this class, used for logging debug and error information during the execution of the equivalence oracle.
      */
@@ -91,6 +99,11 @@ public abstract class AbstractSelectEQOracle implements EquivalenceOracle.MealyE
     @Getter
     private int evaluateCount = 0;
 
+    /**
+     * The condition to stop the search, e.g., another equivalence oracle in the portfolio found a counterexample.
+     */
+    private volatile BooleanSupplier stopCondition = () -> false;
+
     /**
      * Constructs an instance of {@code AbstractSelectEQOracle} with the specified parameters. This constructor initializes the equivalence oracle without a property oracle, relying solely on the cost function provided by the membership oracle to evaluate test cases.
      *
@@ -208,20 +221,20 @@ public abstract class AbstractSelectEQOracle implements EquivalenceOracle.MealyE
             SortedSetMultimap<Double, Word<String>> map = TreeMultimap.create(Comparator.comparingDouble(Double::doubleValue), Comparator.comparingInt(Word::size));
 
             // Evaluate the current samples
-            for (Word<String> sample : currentSamples) {
-                DefaultQuery<String, Word<String>> query = new DefaultQuery<>(sample);
-                int oldCount = memOracle.getEvaluateCount();
-                Double result = memOracle.processQueryWithCost(query);
-                evaluateCount += memOracle.getEvaluateCount() - oldCount;
-                Word<String> hypOutput = hypothesis.computeOutput(query.getInput());
-                minCost = min(result, minCost);
-                if (!Objects.equals(hypOutput, query.getOutput())) {
-                    return query;
+            List<Word<String>> samples = currentSamples.subList(0, Math.min(currentSamples.size(), maxTests - testSize));
+            int oldCount = memOracle.getEvaluateCount();
+            List<Evaluation> evaluations = isParallel() ?
+                    evaluateConcurrently(samples, hypothesis) : evaluateSequentially(samples, hypothesis);
+            evaluateCount += memOracle.getEvaluateCount() - oldCount;
+            for (Evaluation evaluation : evaluations) {
+                minCost = min(evaluation.cost, minCost);
+                if (evaluation.isCounterExample()) {
+                    return evaluation.query;
                 }
                 if (++testSize >= maxTests) {
                     return null;
                 }
-                map.put(result, sample);
+                map.put(evaluation.cost, evaluation.query.getInput());
             }
             LOGGER.debug("Test size: {}", testSize);
 
@@ -234,11 +247,149 @@ public abstract class AbstractSelectEQOracle implements EquivalenceOracle.MealyE
             } else {
                 currentSamples = nextSamples;
             }
-        } while (testSize < maxTests);
+        } while (testSize < maxTests && !isStopRequested());
 
         return null;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * @return {@code true} if the search is stopped by the stop condition or interrupted.
+     */
+    private boolean isStopRequested() {
+        return stopCondition.getAsBoolean() || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * The result of the evaluation of a sample.
+     */
+    private static final class Evaluation {
+        final DefaultQuery<String, Word<String>> query;
+        final Double cost;
+        final Word<String> hypOutput;
+
+        Evaluation(DefaultQuery<String, Word<String>> query, Double cost, Word<String> hypOutput) {
+            this.query = query;
+            this.cost = cost;
+            this.hypOutput = hypOutput;
+        }
+
+        boolean isCounterExample() {
+            return !Objects.equals(hypOutput, query.getOutput());
+        }
+    }
+
+    /**
+     * @return {@code true} if the samples are evaluated concurrently using the SUL pool or the simulation pipeline.
+     */
+    protected boolean isParallel() {
+        return memOracle.getConcurrency() > 1;
+    }
+
+    /**
+     * @return the evaluation of the sample, or {@code null} if the simulation failed or is interrupted.
+     */
+    @Nullable
+    private Evaluation evaluate(Word<String> sample, MealyMachine<?, String, ?, String> hypothesis) {
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(sample);
+        Double cost = memOracle.processQueryWithCost(query);
+        if (Objects.isNull(cost) || Objects.isNull(query.getOutput())) {
+            return null;
+        }
+        return new Evaluation(query, cost, hypothesis.computeOutput(sample));
+    }
+
+    /**
+     * Evaluates the samples until a counterexample is found or the search is stopped.
+     */
+    private List<Evaluation> evaluateSequentially(List<Word<String>> samples, MealyMachine<?, String, ?, String> hypothesis) {
+        List<Evaluation> evaluations = new ArrayList<>(samples.size());
+        for (Word<String> sample : samples) {
+            if (isStopRequested()) {
+                break;
+            }
+            Evaluation evaluation = evaluate(sample, hypothesis);
+            if (Objects.isNull(evaluation)) {
+                break;
+            }
+            evaluations.add(evaluation);
+            if (evaluation.isCounterExample()) {
+                break;
+            }
+        }
+        return evaluations;
+    }
+
+    /**
+     * Evaluates the samples concurrently and returns the evaluations up to the first counterexample in the order of the samples.
+     *
+     * <p>When a counterexample is found, the samples after it are skipped, but the samples before it are still
+     * evaluated so that the result is the same as {@link #evaluateSequentially(List, MealyMachine)}.</p>
+     */
+    private List<Evaluation> evaluateConcurrently(List<Word<String>> samples, MealyMachine<?, String, ?, String> hypothesis) {
+        final AtomicInteger firstCex = new AtomicInteger(Integer.MAX_VALUE);
+        List<CompletableFuture<Evaluation>> futures = new ArrayList<>(samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            final int index = i;
+            final DefaultQuery<String, Word<String>> query = new DefaultQuery<>(samples.get(i));
+            futures.add(memOracle.processQueryWithCostAsync(query,
+                    () -> index > firstCex.get() || stopCondition.getAsBoolean()).thenApply(cost -> {
+                if (Objects.isNull(query.getOutput()) || Objects.isNull(cost)) {
+                    // Skipped or failed
+                    return null;
+                }
+                Evaluation evaluation = new Evaluation(query, cost, hypothesis.computeOutput(query.getInput()));
+                if (evaluation.isCounterExample()) {
+                    firstCex.accumulateAndGet(index, Math::min);
+                }
+                return evaluation;
+            }));
+        }
+        List<Evaluation> evaluations = new ArrayList<>(samples.size());
+        try {
+            for (CompletableFuture<Evaluation> future : futures) {
+                Evaluation evaluation = future.join();
+                if (Objects.isNull(evaluation)) {
+                    break;
+                }
+                evaluations.add(evaluation);
+                if (evaluation.isCounterExample()) {
+                    break;
+                }
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } finally {
+            // Wait for the remaining evaluations not to use the SULs after returning
+            futures.forEach(future -> future.exceptionally(t -> null).join());
+        }
+        return evaluations;
+    }
+
+    /**
+     * Computes the costs of the given words using the SUL pool or the simulation pipeline if it is available.
+     *
+     * @param words The words to evaluate.
+     * @return The costs of the words in the same order.
+     */
+    protected List<Double> evaluateCosts(List<Word<String>> words) {
+        if (!isParallel()) {
+            return words.stream().map(word -> memOracle.processQueryWithCost(new DefaultQuery<>(word))).collect(Collectors.toList());
+        }
+        List<CompletableFuture<Double>> futures = words.stream().map(word ->
+                memOracle.processQueryWithCostAsync(new DefaultQuery<>(word), () -> false)).collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
     /**
      * Generates a random test word of the specified length using the provided list of possible input symbols. This method is used to create initial test cases for evaluation.
      *
@@ -1,6 +1,8 @@
 package net.maswag.falcaun;
 
 import lombok.extern.slf4j.Slf4j;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
 
 import java.util.*;
 import java.util.function.Function;
@@ -46,6 +48,17 @@ public class AdaptiveSTLList<I> extends AbstractAdaptiveSTLUpdater<I> {
      * @param timeWindow    The maximum time window of the STL formulas. This is typically the number of steps in each simulation.
      */
     public AdaptiveSTLList(Collection<? extends TemporalLogic<I>> STLProperties, int timeWindow) {
+        this(STLProperties, timeWindow, ltsminModelChecker());
+    }
+
+    /**
+     * @param STLProperties The list of STL/LTL formulas to verify
+     * @param timeWindow    The maximum time window of the STL formulas. This is typically the number of steps in each simulation.
+     * @param modelChecker  The model checker used instead of LTSmin
+     */
+    public AdaptiveSTLList(Collection<? extends TemporalLogic<I>> STLProperties, int timeWindow,
+                           ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> modelChecker) {
+        super(modelChecker);
         // save original STL formulas to recover when BBC is finished
         this.initialSTLs = new ArrayList<>(STLProperties);
         // target STL/LTL formulas to adaptively strengthen
@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 @Slf4j
 public class ArgParser {
@@ -59,12 +60,130 @@ public class ArgParser {
     private Double mutationProb = null;
     @Getter
     private Double crossoverProb = null;
+    /**
+     * The number of the values of the input signals generated by CMA-ES. By default, each step has its own value.
+     */
+    @Getter
+    private Integer cmaesControlPoints = null;
+    /**
+     * The initial step size of CMA-ES relative to the range of the concrete inputs.
+     */
+    @Getter
+    private double cmaesSigma = 0.3;
     @Getter
     private int maxDepth;
     @Getter
     private boolean adaptiveSTL = true;
     @Getter
     Double simulinkSimulationStep = 0.0025;
+    /**
+     * The maximum number of the simulation states kept in memory. If it is {@code null}, the snapshot cache is disabled.
+     */
+    @Getter
+    private Integer snapshotCacheSize = null;
+    /**
+     * The memory budget of the query caches in bytes. If it is {@code null}, the caches are not bounded.
+     */
+    @Getter
+    private Long cacheBudget = null;
+    /**
+     * Whether the evicted cache entries are kept by soft references.
+     */
+    @Getter
+    private boolean softCache = false;
+    /**
+     * The number of the SUL instances simulated concurrently. They are shared by all the membership and equivalence
+     * queries, e.g., the fitness evaluation of GA.
+     */
+    @Getter
+    private int sulParallelism = 1;
+    /**
+     * The number of the STL/LTL properties model-checked concurrently.
+     */
+    @Getter
+    private int propertyParallelism = 1;
+    /**
+     * Whether the equivalence oracles are run concurrently as a portfolio.
+     */
+    @Getter
+    private boolean portfolio = false;
+    /**
+     * The number of the threads post-processing the simulation results. If it is 0, the pipeline is not used.
+     */
+    @Getter
+    private int pipelineWorkers = 0;
+    /**
+     * The addresses of the SUL workers in the form of {@code host:port,host:port,...}, or {@code null} if the SUL is
+     * simulated in this process.
+     */
+    @Getter
+    private String workers = null;
+    /**
+     * The number of the reconnect attempts to a lost SUL worker.
+     */
+    @Getter
+    private int workerReconnectAttempts = SULCoordinator.DEFAULT_RECONNECT_ATTEMPTS;
+    /**
+     * Whether the learned Mealy machines are model-checked in this JVM instead of LTSmin.
+     */
+    @Getter
+    private boolean jvmModelChecker = false;
+    /**
+     * Whether the model-checking results are reused over the hypotheses. It is effective only with the model checker
+     * in this JVM.
+     */
+    @Getter
+    private boolean incrementalModelChecking = false;
+    /**
+     * Whether the learned Mealy machines are reduced for each property before model checking.
+     */
+    @Getter
+    private boolean reduceHypothesis = false;
+    /**
+     * Whether the counterexamples are shortened before given to the learner.
+     */
+    @Getter
+    private boolean shortenCex = false;
+    /**
+     * Whether the counterexamples are shortened further by delta debugging.
+     */
+    @Getter
+    private boolean deltaDebugCex = false;
+    /**
+     * The counterexamples longer than this are analyzed by the binary search when they are shortened.
+     */
+    @Getter
+    private int binarySearchThreshold = 32;
+    /**
+     * The learning algorithm.
+     */
+    @Getter
+    private BlackBoxVerifier.LearnerKind learnerKind = BlackBoxVerifier.LearnerKind.TTT;
+    /**
+     * Whether the queries of the learner are enlarged so that they are executed concurrently.
+     */
+    @Getter
+    private boolean batchQueries = false;
+    /**
+     * The directory to write the checkpoint of the run, or {@code null} if the run is not checkpointed.
+     */
+    @Getter
+    private String checkpointDirectory = null;
+    /**
+     * Whether the run is resumed from the checkpoint in {@link #checkpointDirectory}.
+     */
+    @Getter
+    private boolean resume = false;
+    /**
+     * The checkpoint directory of a previous run to warm-start the learning, or {@code null} if it is not warm-started.
+     */
+    @Getter
+    private String warmStartDirectory = null;
+    /**
+     * Whether the logged inputs of the warm start are executed again instead of trusting the logged outputs.
+     */
+    @Getter
+    private boolean revalidateWarmStart = false;
 
     ArgParser(String[] args) throws MissingOptionException, IOException {
         options.addOption("h", "help", false, "Print a help message");
@@ -90,9 +209,33 @@ public class ArgParser {
         options.addOption(null, "ga-crossover-prob", true, "The crossover probability for genetic algorithm (should be [0,1])");
         options.addOption(null, "ga-mutation-prob", true, "The mutation probability for genetic algorithm (should be [0,1])");
         options.addOption(null, "ga-selection-kind", true, "Specify the selection method in GA");
+        options.addOption(null, "sul-parallelism", true, "The number of the SUL instances, e.g., MATLAB engines, simulating concurrently. They are used by all the membership and equivalence queries. If it is more than 1, GA is generational instead of steady-state.");
+        options.addOption(null, "ga-parallelism", true, "Deprecated alias of --sul-parallelism");
+        options.addOption(null, "cmaes-control-points", true, "The number of the values of the piecewise-constant input signals searched by CMA-ES. This is the signal length by default.");
+        options.addOption(null, "cmaes-sigma", true, "The initial step size of CMA-ES relative to the range of the inputs. This is 0.3 by default.");
         options.addOption(null, "wp-max-depth", true, "Specify the maximum depth in Wp");
         options.addOption(null, "disable-adaptive-stl", false, "Disable the adaptive STL updater");
         options.addOption(null, "simulink-simulation-step", true, "The simulation step of Simulink model. This is 0.0025 by default.");
+        options.addOption(null, "snapshot-cache", true, "Resume the simulations from the cached states. The argument is the maximum number of the cached states.");
+        options.addOption(null, "property-parallelism", true, "The number of the properties model-checked concurrently");
+        options.addOption(null, "cache-budget", true, "Bound the memory usage of the query caches. The argument is the budget in MiB.");
+        options.addOption(null, "soft-cache", false, "Keep the evicted cache entries by soft references until the garbage collector reclaims them");
+        options.addOption(null, "pipeline-workers", true, "Compute the robustness on the given number of threads while the SULs simulate the next queries");
+        options.addOption(null, "workers", true, "Simulate the SUL on the SUL workers at the given addresses (host:port,host:port,...)");
+        options.addOption(null, "worker-reconnect-attempts", true, "The number of the reconnect attempts to a lost SUL worker. This is " + SULCoordinator.DEFAULT_RECONNECT_ATTEMPTS + " by default.");
+        options.addOption(null, "jvm-model-checker", false, "Model-check the learned Mealy machines in this JVM instead of LTSmin");
+        options.addOption(null, "incremental-model-checking", false, "Reuse the model-checking results of the previous hypotheses (requires --jvm-model-checker)");
+        options.addOption(null, "reduce-hypothesis", false, "Project the outputs of the learned Mealy machines onto the letters in the properties and minimize them before model checking. With --jvm-model-checker, the properties are checked at once on one reduced Mealy machine");
+        options.addOption(null, "shorten-cex", false, "Cut the counterexamples at the first disagreement and analyze the long ones by binary search");
+        options.addOption(null, "delta-debug-cex", false, "Shorten the counterexamples further by delta debugging (implies --shorten-cex)");
+        options.addOption(null, "binary-search-threshold", true, "The counterexamples longer than this are analyzed by binary search with --shorten-cex");
+        options.addOption(null, "learner", true, "The learning algorithm: ttt (default), rs (L* with Rivest-Schapire), kv (Kearns-Vazirani), dhc, or adt. Since adt asks the queries symbol by symbol, use it with --snapshot-cache.");
+        options.addOption(null, "batch-queries", false, "Ask the sibling queries of the learner speculatively in the same batch so that they are executed concurrently");
+        options.addOption(null, "checkpoint-dir", true, "Write the checkpoint of the run, i.e., the simulations and the counterexamples, to the directory");
+        options.addOption(null, "resume", false, "Resume the run from the checkpoint in --checkpoint-dir without simulating the logged queries again");
+        options.addOption(null, "warm-start", true, "Warm-start the learning from the hypothesis and the simulations in the checkpoint directory of a previous run");
+        options.addOption(null, "revalidate-warm-start", false, "Execute the logged inputs of --warm-start again instead of trusting the logged outputs. This is necessary if the model may have changed since the previous run");
+        options.addOption(null, "portfolio", false, "Run the equivalence oracles, e.g., the ones for each property, concurrently and use the first counterexample");
 
         DefaultParser parser = new DefaultParser();
         CommandLine cl;
@@ -243,6 +386,20 @@ public class ArgParser {
                         throw new MissingOptionException("ga-selection-kind must be specified for GA");
                     }
                     break;
+                case "cmaes":
+                    equiv = EquivType.CMAES;
+                    if (cl.hasOption("population-size")) {
+                        populationSize = Integer.parseInt(cl.getOptionValue("population-size"));
+                    }
+                    if (cl.hasOption("cmaes-control-points")) {
+                        cmaesControlPoints = Integer.parseInt(cl.getOptionValue("cmaes-control-points"));
+                    } else {
+                        cmaesControlPoints = length;
+                    }
+                    if (cl.hasOption("cmaes-sigma")) {
+                        cmaesSigma = Double.parseDouble(cl.getOptionValue("cmaes-sigma"));
+                    }
+                    break;
                 default:
                     throw new IllegalArgumentException("unknown equiv. algorithm: " + cl.getOptionValue('E'));
             }
@@ -263,6 +420,100 @@ public class ArgParser {
         if (cl.hasOption("simulink-simulation-step")) {
             simulinkSimulationStep = Double.parseDouble(cl.getOptionValue("simulink-simulation-step"));
         }
+        if (cl.hasOption("snapshot-cache")) {
+            snapshotCacheSize = Integer.parseInt(cl.getOptionValue("snapshot-cache"));
+        }
+        if (cl.hasOption("cache-budget")) {
+            cacheBudget = Long.parseLong(cl.getOptionValue("cache-budget")) * 1024 * 1024;
+        }
+        softCache = cl.hasOption("soft-cache");
+        portfolio = cl.hasOption("portfolio");
+        jvmModelChecker = cl.hasOption("jvm-model-checker");
+        incrementalModelChecking = cl.hasOption("incremental-model-checking");
+        reduceHypothesis = cl.hasOption("reduce-hypothesis");
+        deltaDebugCex = cl.hasOption("delta-debug-cex");
+        shortenCex = cl.hasOption("shorten-cex") || deltaDebugCex;
+        if (cl.hasOption("binary-search-threshold")) {
+            binarySearchThreshold = Integer.parseInt(cl.getOptionValue("binary-search-threshold"));
+        }
+        if (cl.hasOption("learner")) {
+            switch (cl.getOptionValue("learner").toLowerCase()) {
+                case "ttt":
+                    learnerKind = BlackBoxVerifier.LearnerKind.TTT;
+                    break;
+                case "rs":
+                case "lstar":
+                    learnerKind = BlackBoxVerifier.LearnerKind.RIVEST_SCHAPIRE;
+                    break;
+                case "kv":
+                    learnerKind = BlackBoxVerifier.LearnerKind.KEARNS_VAZIRANI;
+                    break;
+                case "dhc":
+                    learnerKind = BlackBoxVerifier.LearnerKind.DHC;
+                    break;
+                case "adt":
+                    learnerKind = BlackBoxVerifier.LearnerKind.ADT;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown learner: " + cl.getOptionValue("learner"));
+            }
+        }
+        batchQueries = cl.hasOption("batch-queries");
+        checkpointDirectory = cl.getOptionValue("checkpoint-dir");
+        resume = cl.hasOption("resume");
+        if (resume && Objects.isNull(checkpointDirectory)) {
+            throw new MissingOptionException("checkpoint-dir must be specified for resume");
+        }
+        warmStartDirectory = cl.getOptionValue("warm-start");
+        revalidateWarmStart = cl.hasOption("revalidate-warm-start");
+        if (Objects.nonNull(warmStartDirectory) && warmStartDirectory.equals(checkpointDirectory) && !resume) {
+            throw new IllegalArgumentException("warm-start must differ from checkpoint-dir since the checkpoint is overwritten");
+        }
+        if (learnerKind == BlackBoxVerifier.LearnerKind.ADT && Objects.isNull(snapshotCacheSize)) {
+            log.warn("--learner adt without --snapshot-cache simulates the entire word again for each symbol");
+        }
+        if (incrementalModelChecking && !jvmModelChecker) {
+            log.warn("--incremental-model-checking is ignored without --jvm-model-checker");
+        }
+        workers = cl.getOptionValue("workers");
+        if (cl.hasOption("pipeline-workers")) {
+            pipelineWorkers = Integer.parseInt(cl.getOptionValue("pipeline-workers"));
+            if (pipelineWorkers < 0) {
+                throw new IllegalArgumentException("pipeline-workers must be non-negative");
+            }
+        }
+        if (cl.hasOption("property-parallelism")) {
+            propertyParallelism = Integer.parseInt(cl.getOptionValue("property-parallelism"));
+            if (propertyParallelism < 1) {
+                throw new IllegalArgumentException("property-parallelism must be positive");
+            }
+        }
+        if (cl.hasOption("ga-parallelism")) {
+            log.warn("--ga-parallelism is deprecated. Use --sul-parallelism, which also applies to the queries other than GA");
+        }
+        if (cl.hasOption("sul-parallelism") || cl.hasOption("ga-parallelism")) {
+            sulParallelism = Integer.parseInt(cl.hasOption("sul-parallelism") ?
+                    cl.getOptionValue("sul-parallelism") : cl.getOptionValue("ga-parallelism"));
+            if (sulParallelism < 1) {
+                throw new IllegalArgumentException("sul-parallelism must be positive");
+            }
+        }
+        if (cl.hasOption("worker-reconnect-attempts")) {
+            workerReconnectAttempts = Integer.parseInt(cl.getOptionValue("worker-reconnect-attempts"));
+            if (workerReconnectAttempts < 0) {
+                throw new IllegalArgumentException("worker-reconnect-attempts must be non-negative");
+            }
+        }
+        if (Objects.nonNull(workers)) {
+            if (Objects.nonNull(snapshotCacheSize)) {
+                throw new IllegalArgumentException("snapshot-cache is not supported with workers since the SUL workers do not save snapshots");
+            }
+            if (sulParallelism > 1) {
+                throw new IllegalArgumentException("sul-parallelism is not supported with workers since the SUL workers simulate concurrently");
+            }
+        } else if (cl.hasOption("worker-reconnect-attempts")) {
+            log.warn("--worker-reconnect-attempts is ignored without --workers");
+        }
     }
 
     private void showHelp() {
@@ -284,6 +535,7 @@ public class ArgParser {
         WP,
         SA,
         GA,
-        PURE_RANDOM
+        PURE_RANDOM,
+        CMAES
     }
 }
@@ -0,0 +1,36 @@
+package net.maswag.falcaun;
+
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Model checker of Mealy machines checking all the properties of a hypothesis at once.
+ *
+ * <p>{@link AbstractAdaptiveSTLUpdater} and {@link BlackBoxVerifier} use this interface instead of checking the
+ * properties one by one if their model checker implements it.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ * @see MealyLTLModelChecker
+ * @see ReducingModelChecker
+ */
+public interface BatchModelChecker extends ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> {
+    /**
+     * Checks all the given properties of the Mealy machine.
+     *
+     * @return the counterexample of each property, or {@code null} if it has no counterexample
+     */
+    List<MealyMachine<?, String, ?, String>> findCounterExamples(MealyMachine<?, String, ?, String> automaton,
+                                                                Collection<? extends String> inputs,
+                                                                List<String> properties);
+
+    /**
+     * Checks all the given properties of the Mealy machine, and keeps the results so that the following calls of
+     * {@link #findCounterExample(Object, Collection, Object)} for the same Mealy machine, e.g., by the property
+     * oracles, use them.
+     */
+    void prefetch(MealyMachine<?, String, ?, String> automaton, Collection<? extends String> inputs,
+                  List<String> properties);
+}
@@ -1,27 +1,39 @@
 package net.maswag.falcaun;
 
-import de.learnlib.acex.AcexAnalyzers;
 import de.learnlib.algorithm.LearningAlgorithm;
+import de.learnlib.algorithm.adt.learner.ADTLearnerBuilder;
+import de.learnlib.algorithm.dhc.mealy.MealyDHC;
+import de.learnlib.algorithm.kv.mealy.KearnsVaziraniMealy;
+import de.learnlib.algorithm.rivestschapire.RivestSchapireMealy;
 import de.learnlib.algorithm.ttt.mealy.TTTLearnerMealy;
+import de.learnlib.oracle.EquivalenceOracle;
 import de.learnlib.oracle.MembershipOracle;
 import de.learnlib.oracle.PropertyOracle;
+import de.learnlib.oracle.SymbolQueryOracle;
 import de.learnlib.oracle.equivalence.*;
 import de.learnlib.oracle.equivalence.mealy.RandomWalkEQOracle;
+import de.learnlib.query.DefaultQuery;
 import de.learnlib.sul.SUL;
 import de.learnlib.util.Experiment;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import net.automatalib.alphabet.Alphabet;
 import net.automatalib.automaton.transducer.MealyMachine;
 import net.automatalib.modelchecker.ltsmin.monitor.LTSminMonitorIOBuilder;
 import net.automatalib.modelchecking.ModelChecker;
 import net.automatalib.serialization.dot.GraphDOT;
 import net.automatalib.serialization.etf.writer.Mealy2ETFWriterIO;
+import net.automatalib.util.automaton.Automata;
 import net.automatalib.visualization.Visualization;
 import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -36,6 +48,7 @@ import static net.automatalib.util.automaton.Automata.stateCover;
  * @param <I> The type of input symbols at each step.
  * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
  */
+@Slf4j
 public class BlackBoxVerifier<I> {
     private static final Function<String, String> EDGE_PARSER = s -> s;
     /**
@@ -59,10 +72,47 @@ public class BlackBoxVerifier<I> {
      * The alphabet of input symbols used in the verification process.
      */
     private final Alphabet<String> inputAlphabet;
+    /**
+     * The learning algorithms available for the learner.
+     */
+    public enum LearnerKind {
+        /**
+         * TTT. It asks few queries, mostly one by one.
+         */
+        TTT,
+        /**
+         * L* with the counterexample processing by Rivest and Schapire. The queries to fill the observation table are
+         * asked at once.
+         */
+        RIVEST_SCHAPIRE,
+        /**
+         * Kearns and Vazirani's algorithm.
+         */
+        KEARNS_VAZIRANI,
+        /**
+         * Direct hypothesis construction. The queries for each new state are asked at once.
+         */
+        DHC,
+        /**
+         * The learner with adaptive distinguishing trees. It asks the queries symbol by symbol, and each of them is
+         * simulated from the beginning unless the simulation states are cached, e.g., by
+         * {@link NumericSULVerifier#setSnapshotCache(SimulationSnapshotCache)}.
+         */
+        ADT
+    }
+
     /**
      * The learning algorithm used to learn the behavior of the black-box system from test cases.
      */
-    private final LearningAlgorithm.MealyLearner<String, String> learner;
+    @Getter
+    @Setter
+    private LearnerKind learnerKind = LearnerKind.TTT;
+    /**
+     * Whether the queries of the learner are enlarged by {@link PrefetchingMembershipOracle}.
+     */
+    @Getter
+    @Setter
+    private boolean queryBatching = false;
     /**
      * The equivalence oracle used to find counterexamples by comparing the learned model with the black-box system.
      */
@@ -99,6 +149,42 @@ public class BlackBoxVerifier<I> {
      * The timeout value in seconds used for equivalence oracle operations.
      */
     private Long timeout = null;
+    /**
+     * The listeners notified of each hypothesis before the equivalence query.
+     */
+    private final List<Consumer<MealyMachine<?, String, ?, String>>> hypothesisListeners = new ArrayList<>();
+    /**
+     * The portfolio running the equivalence oracles concurrently, or {@code null} if they are run one by one.
+     */
+    @Getter
+    @Nullable
+    private PortfolioEQOracle<String, String> portfolio = null;
+    /**
+     * The analyzer of the counterexamples used by the learner.
+     */
+    private final LengthAdaptiveAcexAnalyzer acexAnalyzer = new LengthAdaptiveAcexAnalyzer();
+    /**
+     * The post-processor of the counterexamples, or {@code null} if they are given to the learner as they are.
+     */
+    @Getter
+    @Nullable
+    private CounterExampleShortener counterExampleShortener = null;
+    /**
+     * The checkpoint recording the counterexamples, or {@code null} if the run is not checkpointed. If it has the
+     * counterexamples logged by a previous run, the learner is refined by them first.
+     */
+    @Getter
+    @Setter
+    @Nullable
+    private RunCheckpoint checkpoint = null;
+    /**
+     * The hypothesis learned by a previous run, or {@code null} if the learning is not warm-started. It is the target of
+     * the equivalence checks until the hypothesis agrees with it.
+     */
+    @Getter
+    @Setter
+    @Nullable
+    private MealyMachine<?, String, ?, String> warmStartHypothesis = null;
 
     /**
      * @param memOracle     The membership oracle
@@ -113,13 +199,14 @@ public class BlackBoxVerifier<I> {
         this.verifiedSystem = verifiedSystem;
         // Since the omega membership query is difficult for Simulink model, we allow only finite property
 
-        // create a learner
-        this.learner = new TTTLearnerMealy<>(this.inputAlphabet, memOracle, AcexAnalyzers.LINEAR_FWD);
 
-
-        // Create model checker
-        modelChecker = new LTSminMonitorIOBuilder<String, String>()
-                .withString2Input(EDGE_PARSER).withString2Output(EDGE_PARSER).create();
+        // Use the model checker of the properties, e.g., MealyLTLModelChecker, if any
+        if (properties instanceof AbstractAdaptiveSTLUpdater) {
+            modelChecker = ((AbstractAdaptiveSTLUpdater<I>) properties).getModelChecker();
+        } else {
+            modelChecker = new LTSminMonitorIOBuilder<String, String>()
+                    .withString2Input(EDGE_PARSER).withString2Output(EDGE_PARSER).create();
+        }
 
         // create an equivalence oracle, that first searches for a counter example using the ltl properties, and next
         this.eqOracle = new MealyEQOracleChain<>(this.properties);
@@ -182,16 +269,65 @@ public class BlackBoxVerifier<I> {
     }
 
     public void addEqOracle(PropertyOracle.MealyEquivalenceOracle<String, String> eqOracle) {
+        EquivalenceOracle.MealyEquivalenceOracle<String, String> wrapped;
         if (Objects.nonNull(timeout)) {
             TimeoutEQOracle<String, String> timeoutOracle = new TimeoutEQOracle<>(
                     new StopDisprovedEQOracle<>(eqOracle, this.properties), timeout);
-            this.eqOracle.addOracle(timeoutOracle);
             timeoutOracles.add(timeoutOracle);
+            wrapped = timeoutOracle;
         } else {
-            this.eqOracle.addOracle(new StopDisprovedEQOracle<>(eqOracle, this.properties));
+            wrapped = new StopDisprovedEQOracle<>(eqOracle, this.properties);
+        }
+        if (Objects.nonNull(portfolio)) {
+            String name = eqOracle.getClass().getSimpleName() + "#" + portfolio.getWinCounts().size();
+            portfolio.addOracle(name, wrapped,
+                    eqOracle instanceof EvaluationCountable ? (EvaluationCountable) eqOracle : null,
+                    eqOracle instanceof Stoppable ? (Stoppable) eqOracle : null);
+        } else {
+            this.eqOracle.addOracle(wrapped);
         }
     }
 
+    /**
+     * Run the equivalence oracles added after this call concurrently instead of one by one.
+     * <p>The first counterexample found by any of them is used, and the others are cancelled. Since the oracles run
+     * concurrently, they must be thread-safe with each other, e.g., the random walk oracle stepping the SUL directly must
+     * not be used together.</p>
+     *
+     * @return the portfolio of the equivalence oracles.
+     */
+    public PortfolioEQOracle<String, String> enablePortfolio() {
+        if (Objects.isNull(portfolio)) {
+            portfolio = new PortfolioEQOracle<>();
+            this.eqOracle.addOracle(portfolio);
+        }
+        return portfolio;
+    }
+
+    /**
+     * Shorten the counterexamples of the equivalence oracles before giving them to the learner.
+     *
+     * @param binarySearchThreshold The counterexamples longer than this are analyzed by the binary search instead of
+     *                              the linear search in the learner.
+     * @return the post-processor of the counterexamples.
+     */
+    public CounterExampleShortener enableCounterExampleShortening(int binarySearchThreshold) {
+        if (Objects.isNull(counterExampleShortener)) {
+            counterExampleShortener = new CounterExampleShortener(memOracle);
+        }
+        acexAnalyzer.setBinarySearchThreshold(binarySearchThreshold);
+        return counterExampleShortener;
+    }
+
+    /**
+     * Add a listener notified of each hypothesis before the equivalence query.
+     *
+     * @param listener The listener receiving the hypothesis.
+     */
+    public void addHypothesisListener(Consumer<MealyMachine<?, String, ?, String>> listener) {
+        this.hypothesisListeners.add(listener);
+    }
+
     /**
      * Set timeout to the equivalence oracle added next time.
      *
@@ -201,6 +337,54 @@ public class BlackBoxVerifier<I> {
         this.timeout = timeout;
     }
 
+    /**
+     * Creates the learner of the configured kind.
+     */
+    LearningAlgorithm.MealyLearner<String, String> createLearner() {
+        final MembershipOracle.MealyMembershipOracle<String, String> oracle =
+                queryBatching ? new PrefetchingMembershipOracle(memOracle, inputAlphabet) : memOracle;
+        switch (learnerKind) {
+            case RIVEST_SCHAPIRE:
+                return new RivestSchapireMealy<>(inputAlphabet, oracle);
+            case KEARNS_VAZIRANI:
+                return new KearnsVaziraniMealy<>(inputAlphabet, oracle, true, acexAnalyzer);
+            case DHC:
+                return new MealyDHC<>(inputAlphabet, oracle);
+            case ADT:
+                return new ADTLearnerBuilder<String, String>().withAlphabet(inputAlphabet)
+                        .withOracle(new SymbolQueryAdapter(oracle)).create();
+            default:
+                return new TTTLearnerMealy<>(inputAlphabet, oracle, acexAnalyzer);
+        }
+    }
+
+    /**
+     * The symbol query oracle asking the membership oracle the entire word for each symbol.
+     *
+     * <p>The membership cache only answers the words already asked, and each new symbol makes a new word. Thus, the
+     * entire word is simulated again for each symbol, i.e., a query of length n costs O(n<sup>2</sup>) simulation
+     * steps, unless the membership oracle resumes the simulation from a cached state of the prefix.</p>
+     */
+    private static final class SymbolQueryAdapter implements SymbolQueryOracle<String, String> {
+        private final MembershipOracle.MealyMembershipOracle<String, String> oracle;
+        private final WordBuilder<String> current = new WordBuilder<>();
+
+        SymbolQueryAdapter(MembershipOracle.MealyMembershipOracle<String, String> oracle) {
+            this.oracle = oracle;
+        }
+
+        @Override
+        public String query(String input) {
+            current.append(input);
+            return oracle.answerQuery(current.toWord()).lastSymbol();
+        }
+
+        @Override
+        public void reset() {
+            current.clear();
+        }
+    }
+
     /**
      * @return Returns {@code true} if and only if the given black-box system is verified i.e., no counter example is found.
      */
@@ -208,15 +392,64 @@ public class BlackBoxVerifier<I> {
         for (TimeoutEQOracle<String, String> timeoutOracle : timeoutOracles) {
             timeoutOracle.start();
         }
+        final Iterator<DefaultQuery<String, Word<String>>> replay = Objects.isNull(checkpoint) ?
+                Collections.emptyIterator() : checkpoint.getLoggedCounterExamples().iterator();
         // create an experiment
         Experiment.MealyExperiment<String, String>
-                experiment = new Experiment.MealyExperiment<>(learner, eqOracle, this.inputAlphabet);
+                experiment = new Experiment.MealyExperiment<>(createLearner(), (hypothesis, inputs) -> {
+            if (replay.hasNext()) {
+                // Restore the state of the properties, e.g., the strengthened formulas. The queries are answered by
+                // the caches restored from the checkpoint.
+                properties.findCounterExample(hypothesis, inputs);
+                return replay.next();
+            }
+            hypothesisListeners.forEach(listener -> listener.accept(hypothesis));
+            DefaultQuery<String, Word<String>> counterExample = warmStartCounterExample(hypothesis);
+            if (Objects.isNull(counterExample)) {
+                counterExample = eqOracle.findCounterExample(hypothesis, inputs);
+                if (Objects.nonNull(counterExampleShortener)) {
+                    counterExample = counterExampleShortener.shorten(hypothesis, counterExample);
+                }
+            }
+            if (Objects.nonNull(checkpoint)) {
+                checkpoint.recordRound(hypothesis, this.inputAlphabet, counterExample);
+            }
+            return counterExample;
+        }, this.inputAlphabet);
         this.learnedMealy = experiment.run();
 
         // run the experiment
         return processMealy();
     }
 
+    /**
+     * Finds a counterexample by comparing the hypothesis with the one of the previous run.
+     *
+     * <p>The shortest word separating them is asked to the membership oracle, and it is a counterexample if the system
+     * agrees with the previous hypothesis on it. Otherwise, i.e., if the hypotheses are equivalent or the previous one is
+     * outdated, e.g., by a change of the system, the warm start is finished, and we use the equivalence oracles.</p>
+     *
+     * @return the counterexample, or {@code null} if the warm start is finished.
+     */
+    @Nullable
+    private DefaultQuery<String, Word<String>> warmStartCounterExample(MealyMachine<?, String, ?, String> hypothesis) {
+        if (Objects.isNull(warmStartHypothesis)) {
+            return null;
+        }
+        final Word<String> separatingWord =
+                Automata.findShortestSeparatingWord(hypothesis, warmStartHypothesis, inputAlphabet);
+        if (Objects.nonNull(separatingWord)) {
+            final Word<String> output = memOracle.answerQuery(separatingWord);
+            if (!output.equals(hypothesis.computeOutput(separatingWord))) {
+                return new DefaultQuery<>(Word.epsilon(), separatingWord, output);
+            }
+            log.info("The previous hypothesis is outdated on {}", separatingWord);
+        }
+        log.info("The warm start is finished with {} states", hypothesis.size());
+        warmStartHypothesis = null;
+        return null;
+    }
+
     /**
      * Wirte the DOT of the found counter example.
      *
@@ -261,6 +494,16 @@ public class BlackBoxVerifier<I> {
         writer.writeModel(os, learnedMealy, this.inputAlphabet);
     }
 
+    /**
+     * Write the learned Mealy machine in {@link MealyBinaryFormat} so that it can warm-start another run.
+     *
+     * @param os Write the Mealy machine to {@code os}
+     * @throws IOException The exception by MealyBinaryFormat.write
+     */
+    public void writeBinaryLearnedMealy(OutputStream os) throws IOException {
+        MealyBinaryFormat.write(learnedMealy, this.inputAlphabet, os);
+    }
+
     /**
      * Set the counter example input/output.
      *
@@ -275,11 +518,20 @@ public class BlackBoxVerifier<I> {
         cexInput = new ArrayList<>();
         cexOutput = new ArrayList<>();
         boolean isVerified = true;
-        for (TemporalLogic<I> stlProperty : properties.getSTLProperties()) {
-            String ltlProperty = stlProperty.toLTLString();
-
-            final MealyMachine<?, String, ?, String> cexMealyCandidate =
-                    modelChecker.findCounterExample(learnedMealy, this.inputAlphabet, ltlProperty);
+        final List<TemporalLogic<I>> stlProperties = properties.getSTLProperties();
+        final List<MealyMachine<?, String, ?, String>> cexMealyCandidates;
+        if (modelChecker instanceof BatchModelChecker) {
+            // All the properties are checked in one exploration
+            cexMealyCandidates = ((BatchModelChecker) modelChecker).findCounterExamples(learnedMealy,
+                    this.inputAlphabet, stlProperties.stream().map(TemporalLogic::toLTLString).collect(Collectors.toList()));
+        } else {
+            cexMealyCandidates = stlProperties.stream().map(stlProperty ->
+                    modelChecker.findCounterExample(learnedMealy, this.inputAlphabet, stlProperty.toLTLString()))
+                    .collect(Collectors.toList());
+        }
+        for (int i = 0; i < stlProperties.size(); i++) {
+            final TemporalLogic<I> stlProperty = stlProperties.get(i);
+            final MealyMachine<?, String, ?, String> cexMealyCandidate = cexMealyCandidates.get(i);
             if (!Objects.isNull(cexMealyCandidate)) {
                 // We found the counter example Mealy machine.
                 cexMealy.add(cexMealyCandidate);
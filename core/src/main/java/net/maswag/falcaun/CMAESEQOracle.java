@@ -0,0 +1,285 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.EquivalenceOracle;
+import de.learnlib.oracle.PropertyOracle;
+import de.learnlib.query.DefaultQuery;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.CMAESOptimizer;
+import org.apache.commons.math3.random.JDKRandomGenerator;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Equivalence query using CMA-ES over the concrete input signals.
+ *
+ * <p>The other search-based oracles search the words over the abstract input alphabet. Instead, we search the
+ * piecewise-constant concrete input signals: a signal has {@code controlPoints} values, each held for the same number
+ * of steps, and each value is in the bounding box of the concrete input alphabet. The fitness of a signal is the
+ * robustness of its simulation, so the search follows the robustness between the points of the input mapper.</p>
+ *
+ * <p>Since the learner needs a word over the abstract alphabet, each signal improving the best robustness so far is
+ * snapped to the nearest abstract word, which is executed through the cached membership oracle. If the output of the
+ * snapped word differs from the hypothesis, it is the counterexample. If CMA-ES converges before the budget is
+ * exhausted, it restarts from a random signal.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+class CMAESEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, String>,
+        EvaluationCountable.MealyEquivalenceOracle<String, String>, Stoppable {
+    private final NumericMembershipOracleCost memOracle;
+    private final int length;
+    private final int controlPoints;
+    private final int maxEvaluations;
+    private final int populationSize;
+    private final double sigma;
+    private final Random random;
+    private final PropertyOracle.MealyPropertyOracle<String, String, String> ltlOracle;
+    private volatile BooleanSupplier stopCondition = () -> false;
+
+    /**
+     * @param memOracle      The membership oracle computing the robustness.
+     * @param length         The length of the generated signals.
+     * @param controlPoints  The number of the values of the generated signals. It must be between 1 and {@code length}.
+     * @param maxEvaluations The maximum number of the simulations of the concrete signals in each equivalence query.
+     * @param populationSize The population size of CMA-ES. If it is not positive, the default {@code 4 + 3 ln n} is
+     *                       used, where {@code n} is the number of the variables.
+     * @param sigma          The initial step size relative to the range of the concrete inputs.
+     * @param random         The random number generator for the initial signals and CMA-ES.
+     * @param ltlOracle      The property oracle of the property falsified by this oracle.
+     */
+    CMAESEQOracle(NumericMembershipOracleCost memOracle, int length, int controlPoints, int maxEvaluations,
+                  int populationSize, double sigma, Random random,
+                  PropertyOracle.MealyPropertyOracle<String, String, String> ltlOracle) {
+        if (controlPoints < 1 || controlPoints > length) {
+            throw new IllegalArgumentException("The number of the control points must be between 1 and the length");
+        }
+        this.memOracle = memOracle;
+        this.length = length;
+        this.controlPoints = controlPoints;
+        this.maxEvaluations = maxEvaluations;
+        this.populationSize = populationSize;
+        this.sigma = sigma;
+        this.random = random;
+        this.ltlOracle = ltlOracle;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Thrown to stop CMA-ES when a counterexample is found or the search is stopped.
+     */
+    private static final class StopSearch extends RuntimeException {
+        StopSearch() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The search for one equivalence query.
+     */
+    private final class Search {
+        private final MealyMachine<?, String, ?, String> hypothesis;
+        private final List<String> symbols;
+        private final List<List<Double>> points;
+        private final int dimension;
+        private final double[] lower;
+        private final double[] upper;
+        private int evaluations = 0;
+        private double bestRobustness = Double.POSITIVE_INFINITY;
+        @Nullable
+        private DefaultQuery<String, Word<String>> cexQuery = null;
+
+        Search(MealyMachine<?, String, ?, String> hypothesis, List<String> symbols) {
+            this.hypothesis = hypothesis;
+            this.symbols = symbols;
+            this.points = new ArrayList<>(symbols.size());
+            for (String symbol : symbols) {
+                points.add(memOracle.mapper.mapInput(symbol));
+            }
+            this.dimension = points.get(0).size();
+            this.lower = new double[dimension];
+            this.upper = new double[dimension];
+            Arrays.fill(lower, Double.POSITIVE_INFINITY);
+            Arrays.fill(upper, Double.NEGATIVE_INFINITY);
+            for (List<Double> point : points) {
+                for (int d = 0; d < dimension; d++) {
+                    lower[d] = Math.min(lower[d], point.get(d));
+                    upper[d] = Math.max(upper[d], point.get(d));
+                }
+            }
+        }
+
+        /**
+         * Maps the variable in [0, 1] to the concrete value of the given dimension.
+         */
+        private double denormalize(double x, int d) {
+            return lower[d] + x * (upper[d] - lower[d]);
+        }
+
+        private int controlPointOf(int step) {
+            return step * controlPoints / length;
+        }
+
+        private Word<List<Double>> toConcrete(double[] x) {
+            WordBuilder<List<Double>> builder = new WordBuilder<>(length);
+            for (int step = 0; step < length; step++) {
+                final int offset = controlPointOf(step) * dimension;
+                List<Double> value = new ArrayList<>(dimension);
+                for (int d = 0; d < dimension; d++) {
+                    value.add(denormalize(x[offset + d], d));
+                }
+                builder.append(value);
+            }
+            return builder.toWord();
+        }
+
+        /**
+         * Snaps each value of the signal to the nearest point of the input alphabet, where each dimension is normalized
+         * by its range.
+         */
+        private Word<String> snap(double[] x) {
+            final String[] snapped = new String[controlPoints];
+            for (int c = 0; c < controlPoints; c++) {
+                double bestDistance = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < points.size(); i++) {
+                    double distance = 0;
+                    for (int d = 0; d < dimension; d++) {
+                        if (upper[d] > lower[d]) {
+                            final double diff = x[c * dimension + d] - (points.get(i).get(d) - lower[d]) / (upper[d] - lower[d]);
+                            distance += diff * diff;
+                        }
+                    }
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        snapped[c] = symbols.get(i);
+                    }
+                }
+            }
+            WordBuilder<String> builder = new WordBuilder<>(length);
+            for (int step = 0; step < length; step++) {
+                builder.append(snapped[controlPointOf(step)]);
+            }
+            return builder.toWord();
+        }
+
+        private double fitness(double[] x) {
+            if (stopCondition.getAsBoolean() || Thread.currentThread().isInterrupted()) {
+                throw new StopSearch();
+            }
+            evaluations++;
+            final Double robustness = memOracle.processConcreteWithCost(toConcrete(x));
+            if (Thread.currentThread().isInterrupted()) {
+                throw new StopSearch();
+            }
+            if (Objects.isNull(robustness)) {
+                return Double.MAX_VALUE;
+            }
+            log.trace("Robustness: {}", robustness);
+            if (robustness < bestRobustness) {
+                bestRobustness = robustness;
+                check(snap(x));
+            }
+            // CMA-ES needs finite values
+            return Math.max(-Double.MAX_VALUE, Math.min(Double.MAX_VALUE, robustness));
+        }
+
+        /**
+         * Executes the abstract word and stops the search if it is a counterexample.
+         */
+        private void check(Word<String> word) {
+            DefaultQuery<String, Word<String>> query = new DefaultQuery<>(word);
+            final Double robustness = memOracle.processQueryWithCost(query);
+            if (Objects.nonNull(robustness) && Objects.nonNull(query.getOutput())
+                    && !query.getOutput().equals(hypothesis.computeOutput(word))) {
+                log.debug("CEX with Robustness: {}", robustness);
+                cexQuery = query;
+                throw new StopSearch();
+            }
+        }
+
+        @Nullable
+        DefaultQuery<String, Word<String>> run() {
+            final int n = controlPoints * dimension;
+            final double[] zeros = new double[n];
+            final double[] ones = new double[n];
+            final double[] sigmas = new double[n];
+            Arrays.fill(ones, 1.0);
+            Arrays.fill(sigmas, sigma);
+            final int lambda = populationSize > 0 ? populationSize : 4 + (int) (3 * Math.log(n));
+            final CMAESOptimizer optimizer = new CMAESOptimizer(maxEvaluations, 0, true, 0, 0,
+                    new JDKRandomGenerator(random.nextInt()), false, null);
+            try {
+                while (evaluations < maxEvaluations) {
+                    final double[] guess = new double[n];
+                    for (int i = 0; i < n; i++) {
+                        guess[i] = random.nextDouble();
+                    }
+                    optimizer.optimize(new MaxEval(maxEvaluations - evaluations), new ObjectiveFunction(this::fitness),
+                            GoalType.MINIMIZE, new InitialGuess(guess), new SimpleBounds(zeros, ones),
+                            new CMAESOptimizer.Sigma(sigmas), new CMAESOptimizer.PopulationSize(lambda));
+                    log.debug("CMA-ES converged. The best robustness so far: {}", bestRobustness);
+                }
+            } catch (TooManyEvaluationsException | StopSearch e) {
+                // The budget is exhausted, a counterexample is found, or the search is stopped.
+            }
+            return cexQuery;
+        }
+    }
+
+    /**
+     * @return whether the property is disproved.
+     */
+    private boolean isDisproved() {
+        return ltlOracle.isDisproved();
+    }
+
+    /** {@inheritDoc} */
+    @Nullable
+    @Override
+    @ParametersAreNonnullByDefault
+    public DefaultQuery<String, Word<String>> findCounterExample(MealyMachine<?, String, ?, String> hypothesis, Collection<? extends String> symbolList) {
+        if (isDisproved()) {
+            log.info("The specification is already disproved!!");
+            return null;
+        }
+        // Fail fast on empty inputs
+        if (symbolList.isEmpty()) {
+            log.warn("Passed empty set of inputs to equivalence oracle; no counterexample can be found!");
+            return null;
+        }
+        DefaultQuery<String, Word<String>> cexQuery = new Search(hypothesis, new ArrayList<>(symbolList)).run();
+        if (Objects.nonNull(cexQuery)) {
+            log.info("Counter example is found!! {}", cexQuery);
+            return cexQuery;
+        }
+        log.info("Counter example is NOT found :(");
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>It counts both the simulations of the concrete signals and the ones of the snapped words.</p>
+     */
+    @Override
+    public int getEvaluateCount() {
+        return memOracle.getEvaluateCount();
+    }
+}
@@ -0,0 +1,529 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.incremental.ConflictException;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+
+import javax.annotation.Nullable;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe prefix tree caching the outputs of a Mealy machine.
+ *
+ * <p>This provides the same lookup/insert contract as {@link net.automatalib.incremental.mealy.tree.IncrementalMealyTreeBuilder}.
+ * The children of each node are kept in an {@link AtomicReferenceArray} indexed by the input alphabet and published by
+ * compare-and-set, so lookups never block and concurrent insertions of different words do not interfere.
+ * The insertions share a read lock, and the eviction takes the write lock so that no node is inserted below an evicted
+ * one.
+ * Moreover, {@link #computeIfAbsent(Word, Function)} deduplicates the in-flight computations, i.e., if two threads
+ * request the same word, only one of them computes it and the other waits for the result.</p>
+ *
+ * <p>The number of the nodes can be bounded by {@link #setMaxNodes(int)}. When the bound is exceeded, the least
+ * recently used leaves are evicted until the tree shrinks to {@link #LOW_WATERMARK} of the bound. The words marked by
+ * {@link #pin(Word)} are never evicted. If the soft-reference tier is enabled, the evicted leaves are kept by
+ * {@link SoftReference} and revived on lookup unless the garbage collector has reclaimed them.</p>
+ *
+ * <p>The outputs inserted by {@link #insertProvisionally(Word, Word)}, e.g., from the log of a previous run, are
+ * answered by lookups as the others, but they are not trusted on a conflict: if {@link #insert(Word, Word)} contradicts
+ * a provisional node, the subtree of the node is dropped and replaced by the given output.</p>
+ *
+ * @param <I> the type of the input symbols
+ * @param <O> the type of the output symbols
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public class ConcurrentMealyTreeCache<I, O> {
+    /**
+     * The ratio of the nodes kept after an eviction.
+     */
+    static final double LOW_WATERMARK = 0.9;
+    private final Alphabet<I> alphabet;
+    private final Node<O> root;
+    private final ConcurrentHashMap<Word<I>, CompletableFuture<Word<O>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger nodeCount = new AtomicInteger(1);
+    private final AtomicLong clock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /**
+     * The read lock is held while the tree is extended, and the write lock is held while the tree is shrunk.
+     */
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    /**
+     * The maximum number of the nodes. If it is not positive, the tree is not bounded.
+     */
+    @Getter
+    private volatile int maxNodes = 0;
+    /**
+     * Whether the evicted leaves are kept by soft references.
+     */
+    @Getter
+    private volatile boolean softTier = false;
+    /**
+     * The number of the evicted nodes so far.
+     */
+    @Getter
+    private volatile long evictedNodes = 0;
+    /**
+     * The number of the provisional nodes dropped by the conflicts so far.
+     */
+    @Getter
+    private volatile long droppedNodes = 0;
+    /**
+     * Notified of the word of each provisional node dropped by a conflict, or {@code null} if nobody is notified.
+     */
+    @Nullable
+    private volatile Consumer<Word<I>> dropListener = null;
+
+    /**
+     * @param alphabet the input alphabet. All the symbols in the inserted words must be in this alphabet.
+     */
+    public ConcurrentMealyTreeCache(Alphabet<I> alphabet) {
+        this.alphabet = alphabet;
+        this.root = new Node<>(null, -1, null, alphabet.size());
+    }
+
+    /**
+     * Bounds the number of the nodes in the tree.
+     *
+     * @param maxNodes the maximum number of the nodes. If it is not positive, the tree is not bounded.
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+        evictIfNecessary();
+    }
+
+    /**
+     * Sets the listener notified of the word of each provisional node dropped by a conflict, e.g., to drop the
+     * corresponding entries of another cache.
+     */
+    public void setDropListener(@Nullable Consumer<Word<I>> dropListener) {
+        this.dropListener = dropListener;
+    }
+
+    /**
+     * Enables or disables keeping the evicted leaves by soft references.
+     */
+    public void setSoftTier(boolean softTier) {
+        this.softTier = softTier;
+    }
+
+    /**
+     * Looks up the output for the given input word.
+     *
+     * @param word   the input word
+     * @param output the output word is appended to this builder if the lookup succeeds.
+     *               It may contain a partial output if the lookup fails.
+     * @return {@code true} if and only if the output for the entire word is cached
+     */
+    public boolean lookup(Word<? extends I> word, WordBuilder<? super O> output) {
+        Node<O> current = root;
+        for (I symbol : word) {
+            current = child(current, alphabet.getSymbolIndex(symbol));
+            if (Objects.isNull(current)) {
+                return false;
+            }
+            output.append(current.output);
+        }
+        current.lastAccess = clock.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Inserts the output for the given input word.
+     *
+     * <p>The provisional nodes on the way are confirmed. If the output contradicts a provisional node, its subtree is
+     * dropped.</p>
+     *
+     * @param input  the input word
+     * @param output the output word of the same length as {@code input}
+     * @throws ConflictException if the given output contradicts the cached output that is not provisional
+     */
+    public void insert(Word<? extends I> input, Word<? extends O> output) {
+        if (input.size() != output.size()) {
+            throw new IllegalArgumentException("The input and output words must have the same length");
+        }
+        while (true) {
+            final Node<O> conflict;
+            structureLock.readLock().lock();
+            try {
+                conflict = extend(input, output, false);
+            } finally {
+                structureLock.readLock().unlock();
+            }
+            if (Objects.isNull(conflict)) {
+                break;
+            }
+            drop(conflict);
+        }
+        evictIfNecessary();
+    }
+
+    /**
+     * Inserts the output for the given input word provisionally, e.g., from the log of a previous run of a system
+     * that may have changed since then.
+     *
+     * @param input  the input word
+     * @param output the output word of the same length as {@code input}
+     * @return {@code false} if the given output contradicts the cached output. Then, the word is inserted only up to the
+     * conflict.
+     */
+    public boolean insertProvisionally(Word<? extends I> input, Word<? extends O> output) {
+        if (input.size() != output.size()) {
+            throw new IllegalArgumentException("The input and output words must have the same length");
+        }
+        final Node<O> conflict;
+        structureLock.readLock().lock();
+        try {
+            conflict = extend(input, output, true);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        evictIfNecessary();
+        return Objects.isNull(conflict);
+    }
+
+    /**
+     * Extends the tree by the given word. The caller must hold the read lock.
+     *
+     * @param provisional Whether the given output is provisional.
+     * @return the node conflicting with the given output if it is provisional or the given output is, otherwise
+     * {@code null}
+     * @throws ConflictException if neither the given output nor the conflicting node is provisional
+     */
+    @Nullable
+    private Node<O> extend(Word<? extends I> input, Word<? extends O> output, boolean provisional) {
+        Node<O> current = root;
+        for (int i = 0; i < input.size(); i++) {
+            final int index = alphabet.getSymbolIndex(input.getSymbol(i));
+            final O symbol = output.getSymbol(i);
+            Node<O> child = child(current, index);
+            if (Objects.isNull(child)) {
+                Node<O> created = new Node<>(current, index, symbol, alphabet.size());
+                created.provisional = provisional;
+                if (current.children.compareAndSet(index, null, created)) {
+                    nodeCount.incrementAndGet();
+                    child = created;
+                } else {
+                    // Another thread published the child first
+                    child = current.children.get(index);
+                }
+            }
+            if (!Objects.equals(child.output, symbol)) {
+                if (provisional || child.provisional) {
+                    return child;
+                }
+                throw new ConflictException("Incompatible output symbols: " + child.output + " vs " + symbol);
+            }
+            if (!provisional && child.provisional) {
+                child.provisional = false;
+            }
+            current = child;
+        }
+        current.lastAccess = clock.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Drops the subtree of the given provisional node.
+     */
+    private void drop(Node<O> node) {
+        final Word<I> word;
+        structureLock.writeLock().lock();
+        try {
+            final Node<O> parent = Objects.requireNonNull(node.parent);
+            if (!node.provisional || !parent.children.compareAndSet(node.index, node, null)) {
+                // Confirmed, dropped, or evicted by another thread
+                return;
+            }
+            word = wordOf(node);
+            int count = 0;
+            Deque<Node<O>> stack = new ArrayDeque<>();
+            stack.push(node);
+            while (!stack.isEmpty()) {
+                Node<O> current = stack.pop();
+                current.removed = true;
+                count++;
+                current.forEachChild(stack::push);
+            }
+            nodeCount.addAndGet(-count);
+            droppedNodes += count;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        final Consumer<Word<I>> listener = dropListener;
+        if (Objects.nonNull(listener)) {
+            listener.accept(word);
+        }
+    }
+
+    /**
+     * Returns the cached output for the given word, or computes and caches it if it is not cached.
+     *
+     * <p>If the same word is being computed by another thread, we wait for its result instead of computing it again.</p>
+     *
+     * @param input   the input word
+     * @param compute the function computing the output of the entire word
+     * @return the output of the entire word
+     */
+    public Word<O> computeIfAbsent(Word<I> input, Function<? super Word<I>, ? extends Word<O>> compute) {
+        WordBuilder<O> builder = new WordBuilder<>(input.size());
+        if (lookup(input, builder)) {
+            return builder.toWord();
+        }
+        CompletableFuture<Word<O>> mine = new CompletableFuture<>();
+        CompletableFuture<Word<O>> existing = inFlight.putIfAbsent(input, mine);
+        if (Objects.nonNull(existing)) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            builder.clear();
+            final Word<O> result;
+            if (lookup(input, builder)) {
+                // Inserted while we are registering the computation
+                result = builder.toWord();
+            } else {
+                result = compute.apply(input);
+                insert(input, result);
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(input, mine);
+        }
+    }
+
+    /**
+     * Protects the nodes for the given word and its prefixes from eviction. The word must be already cached.
+     *
+     * @return {@code true} if the word is cached and pinned
+     */
+    public boolean pin(Word<? extends I> word) {
+        structureLock.readLock().lock();
+        try {
+            Node<O> current = root;
+            for (I symbol : word) {
+                current = child(current, alphabet.getSymbolIndex(symbol));
+                if (Objects.isNull(current)) {
+                    return false;
+                }
+                current.pinned = true;
+            }
+            return true;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the protection by {@link #pin(Word)}.
+     */
+    public void clearPins() {
+        Deque<Node<O>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<O> node = stack.pop();
+            node.pinned = false;
+            node.forEachChild(stack::push);
+        }
+    }
+
+    /**
+     * Returns the number of the nodes in the tree including the root.
+     */
+    public int size() {
+        return nodeCount.get();
+    }
+
+    /**
+     * Returns the estimated memory usage of the tree in bytes. The output symbols are not included.
+     */
+    public long estimatedBytes() {
+        return size() * estimatedBytesPerNode();
+    }
+
+    /**
+     * Returns the estimated memory usage of a node in bytes, i.e., the header and the fields of the node and the child array.
+     */
+    public long estimatedBytesPerNode() {
+        return 64 + 4L * alphabet.size();
+    }
+
+    /**
+     * Returns the number of the nodes reachable from the root including the root. This traverses the entire tree.
+     */
+    int reachableNodes() {
+        int count = 0;
+        Deque<Node<O>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            count++;
+            stack.pop().forEachChild(stack::push);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the child of the node, reviving it from the soft-reference tier if necessary.
+     */
+    @Nullable
+    private Node<O> child(Node<O> node, int index) {
+        Node<O> child = node.children.get(index);
+        if (Objects.isNull(child) && Objects.nonNull(node.softChildren)) {
+            structureLock.readLock().lock();
+            try {
+                if (node.removed) {
+                    // The node is evicted after a lock-free lookup reached it
+                    return null;
+                }
+                SoftReference<Node<O>> reference = node.softChildren.remove(index);
+                Node<O> revived = Objects.isNull(reference) ? null : reference.get();
+                if (Objects.nonNull(revived)) {
+                    revived.removed = false;
+                    if (node.children.compareAndSet(index, null, revived)) {
+                        nodeCount.incrementAndGet();
+                    }
+                }
+                child = node.children.get(index);
+            } finally {
+                structureLock.readLock().unlock();
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Returns the input word reaching the given node.
+     */
+    private Word<I> wordOf(Node<O> node) {
+        List<I> symbols = new ArrayList<>();
+        for (Node<O> current = node; current != root; current = Objects.requireNonNull(current.parent)) {
+            symbols.add(alphabet.getSymbol(current.index));
+        }
+        Collections.reverse(symbols);
+        return Word.fromList(symbols);
+    }
+
+    private void evictIfNecessary() {
+        final int bound = maxNodes;
+        if (bound > 0 && nodeCount.get() > bound && evictionLock.tryLock()) {
+            try {
+                structureLock.writeLock().lock();
+                try {
+                    if (nodeCount.get() > bound) {
+                        evict((int) (bound * LOW_WATERMARK));
+                    }
+                } finally {
+                    structureLock.writeLock().unlock();
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used leaves until the number of the nodes is at most the given target.
+     * The caller must hold the write lock.
+     */
+    private void evict(int target) {
+        PriorityQueue<Node<O>> leaves = new PriorityQueue<>(Comparator.comparingLong(node -> node.lastAccess));
+        Deque<Node<O>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<O> node = stack.pop();
+            if (node.isLeaf()) {
+                if (node != root && !node.pinned) {
+                    leaves.add(node);
+                }
+            } else {
+                node.forEachChild(stack::push);
+            }
+        }
+        while (nodeCount.get() > target && !leaves.isEmpty()) {
+            Node<O> leaf = leaves.poll();
+            Node<O> parent = Objects.requireNonNull(leaf.parent);
+            if (!leaf.isLeaf() || !parent.children.compareAndSet(leaf.index, leaf, null)) {
+                continue;
+            }
+            leaf.removed = true;
+            nodeCount.decrementAndGet();
+            evictedNodes++;
+            if (softTier) {
+                parent.softChildren().put(leaf.index, new SoftReference<>(leaf));
+            }
+            if (parent != root && !parent.pinned && parent.isLeaf()) {
+                parent.lastAccess = Math.max(parent.lastAccess, leaf.lastAccess);
+                leaves.add(parent);
+            }
+        }
+    }
+
+    private static final class Node<O> {
+        @Nullable
+        final Node<O> parent;
+        final int index;
+        final O output;
+        final AtomicReferenceArray<Node<O>> children;
+        volatile Map<Integer, SoftReference<Node<O>>> softChildren;
+        volatile long lastAccess;
+        volatile boolean pinned;
+        /**
+         * Whether the node is detached from the tree by the eviction.
+         */
+        volatile boolean removed;
+        /**
+         * Whether the output is inserted by {@link #insertProvisionally(Word, Word)} and not confirmed yet.
+         */
+        volatile boolean provisional;
+
+        Node(@Nullable Node<O> parent, int index, O output, int alphabetSize) {
+            this.parent = parent;
+            this.index = index;
+            this.output = output;
+            this.children = new AtomicReferenceArray<>(alphabetSize);
+        }
+
+        boolean isLeaf() {
+            for (int i = 0; i < children.length(); i++) {
+                if (Objects.nonNull(children.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void forEachChild(Consumer<Node<O>> consumer) {
+            for (int i = 0; i < children.length(); i++) {
+                Node<O> child = children.get(i);
+                if (Objects.nonNull(child)) {
+                    consumer.accept(child);
+                }
+            }
+        }
+
+        synchronized Map<Integer, SoftReference<Node<O>>> softChildren() {
+            if (Objects.isNull(softChildren)) {
+                softChildren = new ConcurrentHashMap<>();
+            }
+            return softChildren;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.maswag.falcaun;
+
+import de.learnlib.sul.SUL;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A SUL wrapper answering the steps from a {@link ConcurrentMealyTreeCache} if possible.
+ *
+ * <p>The wrapped SUL is started only when a step is not cached. Then, the input fed so far is replayed on it.
+ * The forked SULs share the same cache, which is safe for concurrent use.</p>
+ *
+ * @param <I> the type of the input symbols
+ * @param <O> the type of the output symbols
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public class ConcurrentSULCache<I, O> implements SUL<I, O> {
+    private final SUL<I, O> delegate;
+    private final ConcurrentMealyTreeCache<I, O> cache;
+    private final WordBuilder<I> inputs = new WordBuilder<>();
+    private final WordBuilder<O> outputs = new WordBuilder<>();
+    private boolean delegateStarted = false;
+
+    /**
+     * @param alphabet the input alphabet
+     * @param delegate the SUL to execute on cache misses
+     */
+    public ConcurrentSULCache(Alphabet<I> alphabet, SUL<I, O> delegate) {
+        this(delegate, new ConcurrentMealyTreeCache<>(alphabet));
+    }
+
+    ConcurrentSULCache(SUL<I, O> delegate, ConcurrentMealyTreeCache<I, O> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cache shared by the forked SULs.
+     */
+    public ConcurrentMealyTreeCache<I, O> getCache() {
+        return cache;
+    }
+
+    @Override
+    public void pre() {
+        inputs.clear();
+        outputs.clear();
+        delegateStarted = false;
+    }
+
+    @Override
+    public void post() {
+        if (delegateStarted) {
+            cache.insert(inputs.toWord(), outputs.toWord());
+            delegate.post();
+            delegateStarted = false;
+        }
+    }
+
+    @Nullable
+    @Override
+    public O step(@Nullable I in) {
+        inputs.append(in);
+        if (!delegateStarted) {
+            WordBuilder<O> cached = new WordBuilder<>(inputs.size());
+            Word<I> word = inputs.toWord();
+            if (cache.lookup(word, cached)) {
+                O output = cached.toWord().lastSymbol();
+                outputs.append(output);
+                return output;
+            }
+            // Replay the prefix on the actual SUL
+            delegate.pre();
+            delegateStarted = true;
+            for (I symbol : word.prefix(word.size() - 1)) {
+                delegate.step(symbol);
+            }
+        }
+        O output = delegate.step(in);
+        outputs.append(output);
+        return output;
+    }
+
+    @Override
+    public boolean canFork() {
+        return delegate.canFork();
+    }
+
+    @Nonnull
+    @Override
+    public SUL<I, O> fork() {
+        return new ConcurrentSULCache<>(delegate.fork(), cache);
+    }
+
+    /**
+     * Returns the number of the cached nodes.
+     */
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,145 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.MembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Shortens the counterexamples of the equivalence oracles before they are given to the learner.
+ *
+ * <p>Since the output of a Mealy machine for a prefix is the prefix of the output, the counterexample is cut right
+ * after the first position where the outputs of the hypothesis and the system disagree. This requires no query. If the
+ * delta debugging is enabled, we additionally try to remove the chunks of the counterexample while it is still a
+ * counterexample. Since the candidates are asked to the membership oracle, they are answered by the cache if possible,
+ * and the number of such queries is bounded.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class CounterExampleShortener {
+    private final MembershipOracle.MealyMembershipOracle<String, String> memOracle;
+    /**
+     * Whether the counterexamples are shortened further by delta debugging.
+     */
+    @Getter
+    @Setter
+    private boolean deltaDebugging = false;
+    /**
+     * The maximum number of the membership queries for the delta debugging of each counterexample.
+     */
+    @Getter
+    @Setter
+    private int maxDeltaDebuggingQueries = 100;
+    /**
+     * The total number of the symbols removed from the counterexamples.
+     */
+    @Getter
+    private long removedSymbols = 0;
+
+    /**
+     * @param memOracle The membership oracle used for the delta debugging.
+     */
+    public CounterExampleShortener(MembershipOracle.MealyMembershipOracle<String, String> memOracle) {
+        this.memOracle = memOracle;
+    }
+
+    /**
+     * Shortens the given counterexample of the hypothesis.
+     *
+     * @return the shortened counterexample, or the given one if it cannot be shortened.
+     */
+    @Nullable
+    public DefaultQuery<String, Word<String>> shorten(MealyMachine<?, String, ?, String> hypothesis,
+                                                      @Nullable DefaultQuery<String, Word<String>> counterExample) {
+        if (Objects.isNull(counterExample) || Objects.isNull(counterExample.getOutput())) {
+            return counterExample;
+        }
+        final int originalLength = counterExample.getInput().size();
+        DefaultQuery<String, Word<String>> result = cut(hypothesis, counterExample);
+        if (deltaDebugging && result.getPrefix().isEmpty()) {
+            result = deltaDebug(hypothesis, result);
+        }
+        removedSymbols += originalLength - result.getInput().size();
+        if (result.getInput().size() < originalLength) {
+            log.debug("Shortened the counterexample from {} to {} symbols", originalLength, result.getInput().size());
+        }
+        return result;
+    }
+
+    /**
+     * Cuts the counterexample after the first disagreement of the outputs.
+     */
+    private static DefaultQuery<String, Word<String>> cut(MealyMachine<?, String, ?, String> hypothesis,
+                                                         DefaultQuery<String, Word<String>> counterExample) {
+        final int disagreement = firstDisagreement(hypothesis.computeSuffixOutput(counterExample.getPrefix(),
+                counterExample.getSuffix()), counterExample.getOutput());
+        if (disagreement < 0 || disagreement + 1 == counterExample.getSuffix().size()) {
+            // It is not a counterexample of this hypothesis or it is already the shortest
+            return counterExample;
+        }
+        return new DefaultQuery<>(counterExample.getPrefix(), counterExample.getSuffix().prefix(disagreement + 1),
+                counterExample.getOutput().prefix(disagreement + 1));
+    }
+
+    /**
+     * Returns the first position where the outputs differ, or -1 if they are the same.
+     */
+    private static int firstDisagreement(@Nullable Word<String> hypothesisOutput, Word<String> systemOutput) {
+        if (Objects.isNull(hypothesisOutput)) {
+            return -1;
+        }
+        final int length = Math.min(hypothesisOutput.size(), systemOutput.size());
+        for (int i = 0; i < length; i++) {
+            if (!Objects.equals(hypothesisOutput.getSymbol(i), systemOutput.getSymbol(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the chunks of the counterexample by the complement-only variant of ddmin.
+     */
+    private DefaultQuery<String, Word<String>> deltaDebug(MealyMachine<?, String, ?, String> hypothesis,
+                                                          DefaultQuery<String, Word<String>> counterExample) {
+        DefaultQuery<String, Word<String>> current = counterExample;
+        int granularity = 2;
+        int queries = 0;
+        while (current.getInput().size() >= 2 && queries < maxDeltaDebuggingQueries) {
+            final Word<String> input = current.getInput();
+            final int chunk = (input.size() + granularity - 1) / granularity;
+            boolean reduced = false;
+            for (int begin = 0; begin < input.size() && queries < maxDeltaDebuggingQueries; begin += chunk) {
+                final int end = Math.min(begin + chunk, input.size());
+                final Word<String> candidate = input.prefix(begin).concat(input.subWord(end));
+                if (candidate.isEmpty()) {
+                    continue;
+                }
+                queries++;
+                final Word<String> output = memOracle.answerQuery(candidate);
+                final int disagreement = firstDisagreement(hypothesis.computeOutput(candidate), output);
+                if (disagreement >= 0) {
+                    current = new DefaultQuery<>(Word.epsilon(), candidate.prefix(disagreement + 1),
+                            output.prefix(disagreement + 1));
+                    granularity = Math.max(granularity - 1, 2);
+                    reduced = true;
+                    break;
+                }
+            }
+            if (!reduced) {
+                if (granularity >= input.size()) {
+                    break;
+                }
+                granularity = Math.min(granularity * 2, input.size());
+            }
+        }
+        return current;
+    }
+}
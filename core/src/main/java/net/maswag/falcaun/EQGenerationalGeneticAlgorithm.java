@@ -37,7 +37,8 @@ public class EQGenerationalGeneticAlgorithm extends GenerationalGeneticAlgorithm
             LOGGER.debug("Stop because it reached maxEvaluations");
             return true;
         }
-        return ltlOracle.isDisproved() || problem.isStopped();
+        // Cancelled, e.g., by another equivalence oracle in the portfolio
+        return ltlOracle.isDisproved() || problem.isStopped() || problem.isCancelled();
     }
 
     /**
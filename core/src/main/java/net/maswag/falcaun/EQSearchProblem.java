@@ -1,7 +1,6 @@
 package net.maswag.falcaun;
 
 import de.learnlib.query.DefaultQuery;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.automatalib.automaton.transducer.MealyMachine;
 import net.automatalib.word.Word;
@@ -12,10 +11,14 @@ import org.uma.jmetal.solution.IntegerSolution;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
 
 /**
  * <p>EQSearchProblem class.</p>
  *
+ * <p>{@link #evaluate(IntegerSolution)} can be called concurrently if the SUL pool of the membership oracle is set.
+ * If multiple threads find counterexamples, the first one recorded is kept.</p>
+ *
  * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
  */
 @Slf4j
@@ -24,10 +27,12 @@ public class EQSearchProblem extends AbstractIntegerProblem implements Evaluatio
     private final NumericMembershipOracleCost memOracle;
     private MealyMachine<?, String, ?, String> hypothesis;
     private final int length;
-    private DefaultQuery<String, Word<String>> cexQuery;
-    private boolean stopped = false;
-    @Getter
-    private int evaluateCount = 0;
+    private volatile DefaultQuery<String, Word<String>> cexQuery;
+    private volatile boolean stopped = false;
+    /**
+     * The condition to cancel the search, e.g., another equivalence oracle in the portfolio found a counterexample.
+     */
+    private volatile BooleanSupplier stopCondition = () -> false;
 
     EQSearchProblem(NumericMembershipOracleCost memOracle, int length) {
         this.memOracle = memOracle;
@@ -51,25 +56,46 @@ public class EQSearchProblem extends AbstractIntegerProblem implements Evaluatio
     /** {@inheritDoc} */
     @Override
     public void evaluate(IntegerSolution integerSolution) {
+        if (isCancelled()) {
+            integerSolution.setObjective(0, Double.POSITIVE_INFINITY);
+            return;
+        }
         WordBuilder<String> currentSample = new WordBuilder<>();
         for (int i = 0; i < integerSolution.getNumberOfVariables(); i++) {
             int value = integerSolution.getVariableValue(i);
             currentSample.append(symbolList.get(value));
         }
         DefaultQuery<String, Word<String>> query = new DefaultQuery<>(currentSample.toWord());
-        int oldCount = memOracle.getEvaluateCount();
-        double robustness = memOracle.processQueryWithCost(query);
-        evaluateCount += memOracle.getEvaluateCount() - oldCount;
+        final Double robustness = memOracle.processQueryWithCost(query);
+        if (Objects.isNull(robustness) || Objects.isNull(query.getOutput())) {
+            // The simulation failed or is interrupted
+            integerSolution.setObjective(0, Double.POSITIVE_INFINITY);
+            return;
+        }
         integerSolution.setObjective(0, robustness);
         log.trace("Robustness: {}", robustness);
         Word<String> hypOutput = hypothesis.computeOutput(query.getInput());
         if (!Objects.equals(hypOutput, query.getOutput())) {
             log.debug("CEX with Robustness: {}", robustness);
-            stopped = true;
-            cexQuery = query;
+            synchronized (this) {
+                if (!stopped) {
+                    cexQuery = query;
+                    stopped = true;
+                }
+            }
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The membership oracle is used only by this problem, so we count its evaluations.</p>
+     */
+    @Override
+    public int getEvaluateCount() {
+        return memOracle.getEvaluateCount();
+    }
+
     DefaultQuery<String, Word<String>> getCexQuery() {
         return cexQuery;
     }
@@ -79,7 +105,21 @@ public class EQSearchProblem extends AbstractIntegerProblem implements Evaluatio
         stopped = false;
     }
 
+    /**
+     * @return {@code true} if a counterexample is found.
+     */
     boolean isStopped() {
         return stopped;
     }
+
+    void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * @return {@code true} if the search is cancelled by the stop condition or interrupted.
+     */
+    boolean isCancelled() {
+        return stopCondition.getAsBoolean() || Thread.currentThread().isInterrupted();
+    }
 }
@@ -35,7 +35,8 @@ public class EQSteadyStateGeneticAlgorithm extends SteadyStateGeneticAlgorithm<I
             LOGGER.debug("Stop because it reached maxEvaluations");
             return true;
         }
-        return ltlOracle.isDisproved() || problem.isStopped();
+        // Cancelled, e.g., by another equivalence oracle in the portfolio
+        return ltlOracle.isDisproved() || problem.isStopped() || problem.isCancelled();
     }
 
     /**
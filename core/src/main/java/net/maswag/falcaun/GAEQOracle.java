@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
 
 /**
  * Equivalence query using genetic algorithm
@@ -30,9 +32,12 @@ import java.util.List;
  * @author Masaki Waga
  *
  * <p>We use uniform crossover and random mutation.</p>
+ *
+ * <p>If the membership oracle has a SUL pool with multiple SULs, we use generational GA and evaluate each generation
+ * concurrently. Otherwise, we use steady-state GA, which evaluates only two offspring per iteration.</p>
  */
 class GAEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, String>,
-        EvaluationCountable.MealyEquivalenceOracle<String, String> {
+        EvaluationCountable.MealyEquivalenceOracle<String, String>, Stoppable {
     private final Algorithm<IntegerSolution> algorithm;
     private final EQSearchProblem problem;
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(GAEQOracle.class);
@@ -60,6 +65,21 @@ class GAEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, Str
                 break;
         }
 
+        NumericSULPool sulPool = memOracle.getSulPool();
+        if (Objects.nonNull(sulPool) && sulPool.size() > 1) {
+            LOGGER.debug("Use generational GA with {} parallel evaluations", sulPool.size());
+            this.algorithm = new EQGenerationalGeneticAlgorithm(
+                    problem,
+                    maxEvaluations,
+                    populationSize,
+                    crossoverOperator,
+                    mutationOperator,
+                    selection,
+                    new ParallelSolutionListEvaluator<>(sulPool.getExecutor(),
+                            () -> problem.isStopped() || problem.isCancelled()),
+                    ltlOracle);
+            return;
+        }
         // We use steady state GA because, otherwise, it converged to a suboptimal point. Perhaps we can improve by parameter tuning.
         // See also https://www.researchgate.net/post/Whats_the_difference_between_the_steady_state_genetic_algorithm_and_the_generational_genetic_algorithm
         this.algorithm = new EQSteadyStateGeneticAlgorithm(
@@ -108,4 +128,10 @@ class GAEQOracle implements EquivalenceOracle.MealyEquivalenceOracle<String, Str
     public int getEvaluateCount() {
         return problem.getEvaluateCount();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        problem.setStopCondition(stopCondition);
+    }
 }
@@ -38,9 +38,23 @@ public class HillClimbingEQOracle extends AbstractSelectEQOracle {
      * @return the stream returning the neighborhood of the given word
      */
     Stream<Word<String>> neighborhoodStream(Word<String> input) {
+        return neighborhoodBlocks(input).flatMap(List::stream);
+    }
+
+    /**
+     * Generate the stream returning the neighborhood of the given word, grouped by the changed position.
+     *
+     * <p>The random order of the symbols for each position is decided when the stream reaches the position. Thus, the
+     * callers consuming the neighbors block by block use the random numbers in the same order as
+     * {@link #neighborhoodStream(Word)}.</p>
+     *
+     * @param input the input word
+     * @return the stream returning the neighbors changing each position
+     */
+    Stream<List<Word<String>>> neighborhoodBlocks(Word<String> input) {
         List<Integer> indices = IntStream.range(0, input.length()).boxed().collect(Collectors.toList());
         Collections.shuffle(indices, this.random);
-        return indices.stream().flatMap(
+        return indices.stream().map(
                 index -> {
                     List<String> symbolList = new ArrayList<>(this.symbolList);
                     Collections.shuffle(symbolList, this.random);
@@ -49,7 +63,7 @@ public class HillClimbingEQOracle extends AbstractSelectEQOracle {
                         List<String> tmp = input.stream().collect(Collectors.toList());
                         tmp.set(index, s);
                         return Word.fromList(tmp);
-                    });
+                    }).collect(Collectors.toList());
                 });
     }
 }
@@ -68,27 +68,35 @@ public class IOContinuousSignal<I> extends AbstractIOSignal<I> {
         List<IOSignal<I>> result = new ArrayList<>();
 
         while (!inputPrefixes.isEmpty()) {
-            Word<I> inputPrefix = inputPrefixes.poll();
-            if (inputPrefix.isEmpty()) {
-                result.add(new IOContinuousSignal<>(inputPrefix,
-                        Objects.requireNonNull(outputPrefixes.poll()),
-                        new ValueWithTime<>(), // We use the empty values
-                        signalStep));
-            } else {
-                // The first signal is at 0
-                double endTime = signalStep * (inputPrefix.size() - 1);
-                int i = Collections.binarySearch(continuousOutputSignal.timestamps, endTime);
-                int index = i >= 0 ? i : i <= -continuousOutputSignal.size() - 1 ? continuousOutputSignal.size() - 1 : -i - 1;
-                endTime = continuousOutputSignal.timestamps.get(index);
-                result.add(new IOContinuousSignal<>(inputPrefix,
-                        Objects.requireNonNull(outputPrefixes.poll()),
-                        continuousOutputSignal.range(Double.NEGATIVE_INFINITY, endTime),
-                        signalStep));
-            }
+            result.add(makePrefix(inputPrefixes.poll(), Objects.requireNonNull(outputPrefixes.poll())));
         }
         return result;
     }
 
+    @Override
+    public IOSignal<I> prefix(int length) {
+        return makePrefix(inputSignal.prefix(length), outputSignal.prefix(length));
+    }
+
+    private IOContinuousSignal<I> makePrefix(Word<I> inputPrefix, Word<I> outputPrefix) {
+        if (inputPrefix.isEmpty()) {
+            return new IOContinuousSignal<>(inputPrefix,
+                    outputPrefix,
+                    new ValueWithTime<>(), // We use the empty values
+                    signalStep);
+        } else {
+            // The first signal is at 0
+            double endTime = signalStep * (inputPrefix.size() - 1);
+            int i = Collections.binarySearch(continuousOutputSignal.timestamps, endTime);
+            int index = i >= 0 ? i : i <= -continuousOutputSignal.size() - 1 ? continuousOutputSignal.size() - 1 : -i - 1;
+            endTime = continuousOutputSignal.timestamps.get(index);
+            return new IOContinuousSignal<>(inputPrefix,
+                    outputPrefix,
+                    continuousOutputSignal.range(Double.NEGATIVE_INFINITY, endTime),
+                    signalStep);
+        }
+    }
+
     @Override
     public List<IOSignal<I>> suffixes(boolean longestFirst) {
         double endTime = Double.POSITIVE_INFINITY;
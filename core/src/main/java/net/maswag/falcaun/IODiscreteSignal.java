@@ -33,6 +33,11 @@ public class IODiscreteSignal<I> extends AbstractIOSignal<I> {
         return result;
     }
 
+    @Override
+    public IOSignal<I> prefix(int length) {
+        return new IODiscreteSignal<>(inputSignal.prefix(length), outputSignal.prefix(length));
+    }
+
     @Override
     public List<IOSignal<I>> suffixes(boolean longestFirst) {
         Queue<Word<I>> inputSuffixes = new LinkedList<>(inputSignal.suffixes(longestFirst));
@@ -39,6 +39,17 @@ public interface IOSignal<I> {
      */
     List<IOSignal<I>> prefixes(boolean longestFirst);
 
+    /**
+     * Returns the prefix of the signal with the given length.
+     * <p>The result is the same as {@code prefixes(false).get(length)}.</p>
+     *
+     * @param length the length of the prefix
+     * @return the prefix of the signal with the given length.
+     */
+    default IOSignal<I> prefix(int length) {
+        return prefixes(false).get(length);
+    }
+
     /**
      * Constructs all suffixes of the signal.
      *
@@ -0,0 +1,514 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.*;
+
+/**
+ * Monitor of an LTL formula in the syntax of LTSmin produced by {@link TemporalLogic#toLTLString()},
+ * e.g., {@code [] ( ( output == "a" ) || X ( ( input == "b" ) ) )}.
+ *
+ * <p>The formula is translated to the negation normal form, and the monitor is constructed on the fly by formula
+ * progression. Each state of the monitor is the obligations for the rest of the word in disjunctive normal form, and a
+ * word is rejected when the obligations become unsatisfiable, i.e., the word is a bad prefix of the formula. Since the
+ * transitions are memoized, each of them is computed only once for each monitor. An empty proposition, e.g.,
+ * {@code ( )}, is false because it is produced from an empty set of the satisfying atomic propositions.</p>
+ *
+ * <p>We detect the bad prefixes whose obligations are syntactically false, which is the case for the safety
+ * properties used in falsification, e.g., {@code []}, {@code X}, and the bounded temporal operators. For a formula with
+ * a bad prefix not detected in this way, e.g., {@code [] ( p ) && <> ( ! p )}, the monitor does not reject the word
+ * and no counterexample is reported. The methods are thread-safe.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ * @see MealyLTLModelChecker
+ */
+class LTLMonitor {
+    /**
+     * The state rejecting every word.
+     */
+    static final int REJECTING = 0;
+    /**
+     * The state accepting every word.
+     */
+    static final int SATISFIED = 1;
+    private static final Set<Set<Integer>> FALSE_DNF = Collections.emptySet();
+    private static final Set<Set<Integer>> TRUE_DNF = Collections.singleton(Collections.emptySet());
+
+    private enum Kind {
+        TRUE, FALSE, INPUT, NOT_INPUT, OUTPUT, NOT_OUTPUT, AND, OR, NEXT, GLOBALLY, EVENTUALLY, UNTIL, RELEASE
+    }
+
+    /**
+     * A subformula in the negation normal form. The subformulas are referred to by their indices.
+     */
+    @Value
+    private static class Formula {
+        Kind kind;
+        String symbol;
+        int left;
+        int right;
+    }
+
+    /**
+     * The original formula.
+     */
+    @Getter
+    private final String formula;
+    private final List<Formula> formulas = new ArrayList<>();
+    private final Map<Formula, Integer> formulaIndices = new HashMap<>();
+    private final List<Set<Set<Integer>>> states = new ArrayList<>();
+    private final Map<Set<Set<Integer>>, Integer> stateIndices = new HashMap<>();
+    private final List<Map<String, Map<String, Integer>>> transitions = new ArrayList<>();
+    /**
+     * The initial state of the monitor.
+     */
+    @Getter
+    private final int initialState;
+
+    /**
+     * @param formula the LTL formula in the syntax of LTSmin
+     * @throws IllegalArgumentException if the formula cannot be parsed
+     */
+    LTLMonitor(String formula) {
+        this.formula = formula;
+        addState(FALSE_DNF);
+        addState(TRUE_DNF);
+        this.initialState = addState(obligation(new Parser(formula).parse().toNNF(this, false)));
+    }
+
+    /**
+     * Returns the number of the states constructed so far.
+     */
+    synchronized int size() {
+        return states.size();
+    }
+
+    /**
+     * Returns if the state rejects every word.
+     */
+    boolean isRejecting(int state) {
+        return state == REJECTING;
+    }
+
+    /**
+     * Returns if the state accepts every word.
+     */
+    boolean isSatisfied(int state) {
+        return state == SATISFIED;
+    }
+
+    /**
+     * Returns the successor of the state for a transition of a Mealy machine.
+     *
+     * @param state  the current state
+     * @param input  the input of the transition
+     * @param output the output of the transition
+     * @return the successor state
+     */
+    synchronized int successor(int state, String input, String output) {
+        Map<String, Integer> cached = transitions.get(state).get(input);
+        if (Objects.nonNull(cached) && cached.containsKey(output)) {
+            return cached.get(output);
+        }
+        Map<Integer, Set<Set<Integer>>> progressed = new HashMap<>();
+        Set<Set<Integer>> result = FALSE_DNF;
+        for (Set<Integer> clause : states.get(state)) {
+            Set<Set<Integer>> conjunction = TRUE_DNF;
+            for (int obligation : clause) {
+                conjunction = and(conjunction, progress(obligation, input, output, progressed));
+                if (conjunction.isEmpty()) {
+                    break;
+                }
+            }
+            result = or(result, conjunction);
+        }
+        final int successor = addState(result);
+        transitions.get(state).computeIfAbsent(input, i -> new HashMap<>()).put(output, successor);
+        return successor;
+    }
+
+    private int addState(Set<Set<Integer>> dnf) {
+        Integer index = stateIndices.get(dnf);
+        if (Objects.isNull(index)) {
+            index = states.size();
+            states.add(dnf);
+            stateIndices.put(dnf, index);
+            transitions.add(new HashMap<>());
+        }
+        return index;
+    }
+
+    private int formula(Kind kind, String symbol, int left, int right) {
+        // Simplify the trivial cases so that the true and false obligations do not appear in the states
+        switch (kind) {
+            case AND:
+                if (isKind(left, Kind.FALSE) || isKind(right, Kind.TRUE)) {
+                    return left;
+                } else if (isKind(right, Kind.FALSE) || isKind(left, Kind.TRUE)) {
+                    return right;
+                }
+                break;
+            case OR:
+                if (isKind(left, Kind.TRUE) || isKind(right, Kind.FALSE)) {
+                    return left;
+                } else if (isKind(right, Kind.TRUE) || isKind(left, Kind.FALSE)) {
+                    return right;
+                }
+                break;
+            case NEXT:
+            case GLOBALLY:
+            case EVENTUALLY:
+                if (isKind(left, Kind.TRUE) || isKind(left, Kind.FALSE)) {
+                    return left;
+                }
+                break;
+            case UNTIL:
+            case RELEASE:
+                if (isKind(right, Kind.TRUE) || isKind(right, Kind.FALSE)) {
+                    return right;
+                }
+                break;
+            default:
+                break;
+        }
+        return formulaIndices.computeIfAbsent(new Formula(kind, symbol, left, right), f -> {
+            formulas.add(f);
+            return formulas.size() - 1;
+        });
+    }
+
+    private boolean isKind(int index, Kind kind) {
+        return formulas.get(index).kind == kind;
+    }
+
+    private Set<Set<Integer>> obligation(int index) {
+        switch (formulas.get(index).kind) {
+            case TRUE:
+                return TRUE_DNF;
+            case FALSE:
+                return FALSE_DNF;
+            default:
+                return Collections.singleton(Collections.singleton(index));
+        }
+    }
+
+    /**
+     * Progresses the obligation by a transition, i.e., computes the obligations for the rest of the word.
+     */
+    private Set<Set<Integer>> progress(int index, String input, String output, Map<Integer, Set<Set<Integer>>> progressed) {
+        Set<Set<Integer>> result = progressed.get(index);
+        if (Objects.nonNull(result)) {
+            return result;
+        }
+        final Formula f = formulas.get(index);
+        switch (f.kind) {
+            case TRUE:
+                result = TRUE_DNF;
+                break;
+            case FALSE:
+                result = FALSE_DNF;
+                break;
+            case INPUT:
+                result = f.symbol.equals(input) ? TRUE_DNF : FALSE_DNF;
+                break;
+            case NOT_INPUT:
+                result = f.symbol.equals(input) ? FALSE_DNF : TRUE_DNF;
+                break;
+            case OUTPUT:
+                result = f.symbol.equals(output) ? TRUE_DNF : FALSE_DNF;
+                break;
+            case NOT_OUTPUT:
+                result = f.symbol.equals(output) ? FALSE_DNF : TRUE_DNF;
+                break;
+            case AND:
+                result = and(progress(f.left, input, output, progressed), progress(f.right, input, output, progressed));
+                break;
+            case OR:
+                result = or(progress(f.left, input, output, progressed), progress(f.right, input, output, progressed));
+                break;
+            case NEXT:
+                result = obligation(f.left);
+                break;
+            case GLOBALLY:
+                result = and(progress(f.left, input, output, progressed), obligation(index));
+                break;
+            case EVENTUALLY:
+                result = or(progress(f.left, input, output, progressed), obligation(index));
+                break;
+            case UNTIL:
+                result = or(progress(f.right, input, output, progressed),
+                        and(progress(f.left, input, output, progressed), obligation(index)));
+                break;
+            case RELEASE:
+                result = and(progress(f.right, input, output, progressed),
+                        or(progress(f.left, input, output, progressed), obligation(index)));
+                break;
+            default:
+                throw new IllegalStateException("Unknown formula: " + f.kind);
+        }
+        progressed.put(index, result);
+        return result;
+    }
+
+    private static Set<Set<Integer>> or(Set<Set<Integer>> left, Set<Set<Integer>> right) {
+        if (left.isEmpty() || right.equals(TRUE_DNF)) {
+            return right;
+        } else if (right.isEmpty() || left.equals(TRUE_DNF)) {
+            return left;
+        }
+        List<Set<Integer>> clauses = new ArrayList<>(left);
+        clauses.addAll(right);
+        return minimize(clauses);
+    }
+
+    private static Set<Set<Integer>> and(Set<Set<Integer>> left, Set<Set<Integer>> right) {
+        if (left.isEmpty() || right.equals(TRUE_DNF)) {
+            return left;
+        } else if (right.isEmpty() || left.equals(TRUE_DNF)) {
+            return right;
+        }
+        List<Set<Integer>> clauses = new ArrayList<>(left.size() * right.size());
+        for (Set<Integer> l : left) {
+            for (Set<Integer> r : right) {
+                Set<Integer> clause = new HashSet<>(l);
+                clause.addAll(r);
+                clauses.add(clause);
+            }
+        }
+        return minimize(clauses);
+    }
+
+    /**
+     * Removes the clauses subsumed by another clause so that the equivalent obligations are represented by the same set.
+     */
+    private static Set<Set<Integer>> minimize(List<Set<Integer>> clauses) {
+        clauses.sort(Comparator.comparingInt(Set::size));
+        List<Set<Integer>> minimal = new ArrayList<>();
+        for (Set<Integer> clause : clauses) {
+            if (minimal.stream().noneMatch(clause::containsAll)) {
+                minimal.add(Collections.unmodifiableSet(clause));
+            }
+        }
+        return Collections.unmodifiableSet(new HashSet<>(minimal));
+    }
+
+    /**
+     * The abstract syntax tree of the formula before the translation to the negation normal form.
+     */
+    private static final class Syntax {
+        final String operator;
+        final String symbol;
+        final Syntax left;
+        final Syntax right;
+
+        Syntax(String operator, String symbol, Syntax left, Syntax right) {
+            this.operator = operator;
+            this.symbol = symbol;
+            this.left = left;
+            this.right = right;
+        }
+
+        int toNNF(LTLMonitor monitor, boolean negated) {
+            switch (operator) {
+                case "true":
+                    return monitor.formula(negated ? Kind.FALSE : Kind.TRUE, null, -1, -1);
+                case "false":
+                    return monitor.formula(negated ? Kind.TRUE : Kind.FALSE, null, -1, -1);
+                case "input":
+                    return monitor.formula(negated ? Kind.NOT_INPUT : Kind.INPUT, symbol, -1, -1);
+                case "output":
+                    return monitor.formula(negated ? Kind.NOT_OUTPUT : Kind.OUTPUT, symbol, -1, -1);
+                case "!":
+                    return left.toNNF(monitor, !negated);
+                case "&&":
+                    return monitor.formula(negated ? Kind.OR : Kind.AND, null,
+                            left.toNNF(monitor, negated), right.toNNF(monitor, negated));
+                case "||":
+                    return monitor.formula(negated ? Kind.AND : Kind.OR, null,
+                            left.toNNF(monitor, negated), right.toNNF(monitor, negated));
+                case "->":
+                    return new Syntax("||", null, new Syntax("!", null, left, null), right).toNNF(monitor, negated);
+                case "<->":
+                    return new Syntax("&&", null, new Syntax("->", null, left, right),
+                            new Syntax("->", null, right, left)).toNNF(monitor, negated);
+                case "X":
+                    return monitor.formula(Kind.NEXT, null, left.toNNF(monitor, negated), -1);
+                case "[]":
+                    return monitor.formula(negated ? Kind.EVENTUALLY : Kind.GLOBALLY, null,
+                            left.toNNF(monitor, negated), -1);
+                case "<>":
+                    return monitor.formula(negated ? Kind.GLOBALLY : Kind.EVENTUALLY, null,
+                            left.toNNF(monitor, negated), -1);
+                case "U":
+                    return monitor.formula(negated ? Kind.RELEASE : Kind.UNTIL, null,
+                            left.toNNF(monitor, negated), right.toNNF(monitor, negated));
+                case "R":
+                    return monitor.formula(negated ? Kind.UNTIL : Kind.RELEASE, null,
+                            left.toNNF(monitor, negated), right.toNNF(monitor, negated));
+                default:
+                    throw new IllegalStateException("Unknown operator: " + operator);
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser of the LTL formulas in the syntax of LTSmin. The binary temporal operators bind tighter
+     * than the Boolean operators, and the implications are right associative.
+     */
+    private static final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private final String formula;
+        private int position = 0;
+
+        Parser(String formula) {
+            this.formula = formula;
+            int i = 0;
+            while (i < formula.length()) {
+                final char c = formula.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '"') {
+                    final int end = formula.indexOf('"', i + 1);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Unterminated string in the LTL formula: " + formula);
+                    }
+                    tokens.add(formula.substring(i, end + 1));
+                    i = end + 1;
+                } else if (Character.isLetterOrDigit(c) || c == '_') {
+                    int end = i;
+                    while (end < formula.length() &&
+                            (Character.isLetterOrDigit(formula.charAt(end)) || formula.charAt(end) == '_')) {
+                        end++;
+                    }
+                    tokens.add(formula.substring(i, end));
+                    i = end;
+                } else {
+                    String symbol = null;
+                    for (String candidate : Arrays.asList("<->", "->", "&&", "||", "==", "!=", "[]", "<>", "!", "(", ")")) {
+                        if (formula.startsWith(candidate, i)) {
+                            symbol = candidate;
+                            break;
+                        }
+                    }
+                    if (Objects.isNull(symbol)) {
+                        throw new IllegalArgumentException("Unexpected character '" + c + "' in the LTL formula: " + formula);
+                    }
+                    tokens.add(symbol);
+                    i += symbol.length();
+                }
+            }
+        }
+
+        Syntax parse() {
+            if (tokens.isEmpty()) {
+                return new Syntax("false", null, null, null);
+            }
+            Syntax result = parseEquivalence();
+            if (position < tokens.size()) {
+                throw error("Unexpected token " + tokens.get(position));
+            }
+            return result;
+        }
+
+        private Syntax parseEquivalence() {
+            Syntax left = parseImplication();
+            while (accept("<->")) {
+                left = new Syntax("<->", null, left, parseImplication());
+            }
+            return left;
+        }
+
+        private Syntax parseImplication() {
+            Syntax left = parseDisjunction();
+            if (accept("->")) {
+                return new Syntax("->", null, left, parseImplication());
+            }
+            return left;
+        }
+
+        private Syntax parseDisjunction() {
+            Syntax left = parseConjunction();
+            while (accept("||")) {
+                left = new Syntax("||", null, left, parseConjunction());
+            }
+            return left;
+        }
+
+        private Syntax parseConjunction() {
+            Syntax left = parseBinaryTemporal();
+            while (accept("&&")) {
+                left = new Syntax("&&", null, left, parseBinaryTemporal());
+            }
+            return left;
+        }
+
+        private Syntax parseBinaryTemporal() {
+            Syntax left = parseUnary();
+            if (accept("U")) {
+                return new Syntax("U", null, left, parseBinaryTemporal());
+            } else if (accept("R")) {
+                return new Syntax("R", null, left, parseBinaryTemporal());
+            }
+            return left;
+        }
+
+        private Syntax parseUnary() {
+            for (String operator : Arrays.asList("!", "X", "[]", "<>")) {
+                if (accept(operator)) {
+                    return new Syntax(operator, null, parseUnary(), null);
+                }
+            }
+            return parseAtomic();
+        }
+
+        private Syntax parseAtomic() {
+            if (accept("(")) {
+                if (accept(")")) {
+                    // The empty disjunction of atomic propositions
+                    return new Syntax("false", null, null, null);
+                }
+                Syntax result = parseEquivalence();
+                expect(")");
+                return result;
+            } else if (accept("true") || accept("false")) {
+                return new Syntax(tokens.get(position - 1), null, null, null);
+            } else if (accept("input") || accept("output")) {
+                final String signal = tokens.get(position - 1);
+                final boolean negated;
+                if (accept("==")) {
+                    negated = false;
+                } else if (accept("!=")) {
+                    negated = true;
+                } else {
+                    throw error("== or != is expected after " + signal);
+                }
+                if (position >= tokens.size() || !tokens.get(position).startsWith("\"")) {
+                    throw error("A string literal is expected after " + signal);
+                }
+                final String quoted = tokens.get(position++);
+                Syntax atomic = new Syntax(signal, quoted.substring(1, quoted.length() - 1), null, null);
+                return negated ? new Syntax("!", null, atomic, null) : atomic;
+            }
+            throw error(position < tokens.size() ? "Unexpected token " + tokens.get(position) : "Unexpected end");
+        }
+
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error(token + " is expected");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " in the LTL formula: " + formula);
+        }
+    }
+}
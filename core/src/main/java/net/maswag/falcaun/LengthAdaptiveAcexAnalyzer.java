@@ -0,0 +1,33 @@
+package net.maswag.falcaun;
+
+import de.learnlib.acex.AbstractCounterexample;
+import de.learnlib.acex.AcexAnalyzer;
+import de.learnlib.acex.AcexAnalyzers;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Analyzer of the abstract counterexamples switching from the linear search to the binary search for the long ones.
+ *
+ * <p>The linear search often finds the breakpoint with few queries for short counterexamples, while the number of its
+ * queries grows linearly in the length. The binary search needs only logarithmically many queries.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public class LengthAdaptiveAcexAnalyzer implements AcexAnalyzer {
+    /**
+     * The counterexamples longer than this are analyzed by the binary search. By default, the binary search is not
+     * used.
+     */
+    @Getter
+    @Setter
+    private int binarySearchThreshold = Integer.MAX_VALUE;
+
+    @Override
+    public int analyzeAbstractCounterexample(AbstractCounterexample<?> acex, int low, int high) {
+        if (high - low > binarySearchThreshold) {
+            return AcexAnalyzers.BINARY_SEARCH_FWD.analyzeAbstractCounterexample(acex, low, high);
+        }
+        return AcexAnalyzers.LINEAR_FWD.analyzeAbstractCounterexample(acex, low, high);
+    }
+}
@@ -0,0 +1,129 @@
+package net.maswag.falcaun;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The binary format of the learned Mealy machines so that they can be read back, e.g., to warm-start the learning.
+ *
+ * <p>The format starts with {@link #MAGIC} and {@link #VERSION}, followed by the input alphabet, i.e., its size (int)
+ * and the symbols in the modified UTF-8 of {@link DataOutput#writeUTF(String)}, and the number of the states (int).
+ * The states reachable from the initial state are numbered in the breadth-first order, and the initial state is 0.
+ * Then, for each state and each input symbol in the order, the successor (int) and the output (UTF-8) of the
+ * transition follow. Undefined transitions are written as the successor {@code -1} without the output.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public final class MealyBinaryFormat {
+    static final int MAGIC = 0x46434e4d; // "FCNM"
+    static final byte VERSION = 1;
+
+    private MealyBinaryFormat() {
+    }
+
+    /**
+     * Writes the part of the Mealy machine reachable from its initial state.
+     *
+     * @param mealy  The Mealy machine to write.
+     * @param inputs The input alphabet of the Mealy machine.
+     * @param os     Write the Mealy machine to {@code os}.
+     */
+    public static <S, T> void write(MealyMachine<S, String, T, String> mealy, Alphabet<String> inputs, OutputStream os)
+            throws IOException {
+        final S initial = mealy.getInitialState();
+        if (Objects.isNull(initial)) {
+            throw new IllegalArgumentException("The Mealy machine has no initial state");
+        }
+        final Map<S, Integer> index = new HashMap<>();
+        final List<S> states = new ArrayList<>();
+        index.put(initial, 0);
+        states.add(initial);
+        for (int i = 0; i < states.size(); i++) {
+            for (String input : inputs) {
+                final S successor = mealy.getSuccessor(states.get(i), input);
+                if (Objects.nonNull(successor) && !index.containsKey(successor)) {
+                    index.put(successor, states.size());
+                    states.add(successor);
+                }
+            }
+        }
+
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(inputs.size());
+        for (String input : inputs) {
+            out.writeUTF(input);
+        }
+        out.writeInt(states.size());
+        for (S state : states) {
+            for (String input : inputs) {
+                final T transition = mealy.getTransition(state, input);
+                if (Objects.isNull(transition)) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(index.get(mealy.getSuccessor(transition)));
+                    out.writeUTF(mealy.getTransitionOutput(transition));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a Mealy machine written by {@link #write(MealyMachine, Alphabet, OutputStream)}.
+     *
+     * @param is Read the Mealy machine from {@code is}.
+     * @return the Mealy machine. Its input alphabet is obtained by {@link CompactMealy#getInputAlphabet()}.
+     */
+    public static CompactMealy<String, String> read(InputStream is) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The input is not a Mealy machine written by FalCAuN");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        final int alphabetSize = readSize(in);
+        final List<String> symbols = new ArrayList<>(alphabetSize);
+        for (int i = 0; i < alphabetSize; i++) {
+            symbols.add(in.readUTF());
+        }
+        final Alphabet<String> inputs = Alphabets.fromList(symbols);
+        final int size = readSize(in);
+        if (size == 0) {
+            throw new IOException("The Mealy machine has no states");
+        }
+        final CompactMealy<String, String> mealy = new CompactMealy<>(inputs, size);
+        mealy.addInitialState();
+        for (int i = 1; i < size; i++) {
+            mealy.addState();
+        }
+        for (int state = 0; state < size; state++) {
+            for (String input : symbols) {
+                final int successor = in.readInt();
+                if (successor == -1) {
+                    continue;
+                } else if (successor < 0 || successor >= size) {
+                    throw new IOException("Invalid successor: " + successor);
+                }
+                mealy.addTransition(state, input, successor, in.readUTF());
+            }
+        }
+        return mealy;
+    }
+
+    private static int readSize(DataInput in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative size: " + size);
+        }
+        return size;
+    }
+}
@@ -75,6 +75,10 @@ public class MealyFixedSetEQOracle implements EquivalenceOracle.MealyEquivalence
 
         // Evaluate fixed inputs
         for (Word<String> sample : fixedSamples) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.debug("Interrupted before processing the fixed samples");
+                return null;
+            }
             DefaultQuery<String, Word<String>> query = new DefaultQuery<>(sample);
             memOracle.processQuery(query);
             evaluateCount++;
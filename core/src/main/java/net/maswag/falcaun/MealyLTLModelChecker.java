@@ -0,0 +1,634 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Model checker of the learned Mealy machines against the LTL formulas in this JVM, which can be used instead of
+ * LTSmin.
+ *
+ * <p>The formula is translated to a monitor (see {@link LTLMonitor}), and we explore the product of the Mealy machine
+ * and the monitor by breadth-first search. If a rejecting state of the monitor is reachable, we return the shortest
+ * path to it as the counterexample. Similarly to the monitors of LTSmin, the counterexample is a Mealy machine only
+ * defined on the path, and its last state has no transition. No file is written and no process is spawned.</p>
+ *
+ * <p>The monitors are cached over the calls, so each formula is translated only once even though it is checked in
+ * every learning round.</p>
+ *
+ * <p>In the incremental mode, the product states from which no violation is reachable are remembered over the calls,
+ * keyed by the signature of the hypothesis state and the monitor state. The signature is the digest of the part of the
+ * hypothesis reachable from the state, so it changes only for the states reaching a changed transition, and the other
+ * product states are not explored again after the hypothesis is refined. If the initial product state is already
+ * proven, the property is not checked at all.</p>
+ *
+ * <p>Multiple properties can be checked in one exploration of the product with the vector of the monitors (see
+ * {@link #findCounterExamples(MealyMachine, Collection, List)}). By {@link #prefetch(MealyMachine, Collection, List)},
+ * the property oracles checking the same hypothesis one by one share such an exploration.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ * @see StaticSTLList#StaticSTLList(Collection, ModelChecker.MealyModelChecker)
+ */
+@Slf4j
+public class MealyLTLModelChecker implements BatchModelChecker {
+    /**
+     * The outputs whose transitions are not explored.
+     */
+    private Collection<? super String> skipOutputs = Collections.emptySet();
+
+    @Override
+    public Collection<? super String> getSkipOutputs() {
+        return skipOutputs;
+    }
+
+    @Override
+    public void setSkipOutputs(Collection<? super String> skipOutputs) {
+        this.skipOutputs = skipOutputs;
+        // The proven product states and the counterexamples depend on the skipped transitions
+        provenStates.clear();
+        synchronized (batchResults) {
+            batchResults.clear();
+        }
+    }
+
+    /**
+     * If {@code true}, the results of the previous calls are reused. See the class documentation.
+     */
+    @Getter
+    @Setter
+    private boolean incremental = false;
+
+    /**
+     * The maximum number of the monitors kept in memory. If it is not positive, the monitors are not cached.
+     */
+    @Getter
+    @Setter
+    private int maxCachedMonitors = 1024;
+    /**
+     * The monitors of the formulas checked so far in the least-recently-used order. Since the formulas do not change
+     * over the learning rounds while the hypothesis does, each formula is translated only once, and its memoized
+     * transitions are reused in the later rounds.
+     */
+    private final LinkedHashMap<String, LTLMonitor> monitors = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LTLMonitor> eldest) {
+            return size() > maxCachedMonitors;
+        }
+    };
+    private final AtomicInteger monitorCacheHits = new AtomicInteger();
+    private final AtomicInteger monitorCacheMisses = new AtomicInteger();
+    /**
+     * The product states proven not to reach any violation for each monitor. The entries are removed with the monitors.
+     */
+    private final Map<LTLMonitor, Set<ProvenState>> provenStates = Collections.synchronizedMap(new WeakHashMap<>());
+    private final AtomicInteger skippedChecks = new AtomicInteger();
+    private final AtomicInteger prunedStates = new AtomicInteger();
+    /**
+     * The transitions of the last hypothesis and the signatures of its states. Since the property oracles check the
+     * same hypothesis one after another, the signatures are computed once for each hypothesis.
+     */
+    @Nullable
+    private List<Object> lastStructure;
+    /**
+     * The maximum number of the product states explored by {@link #findCounterExamples(MealyMachine, Collection, List)}.
+     * If the product is larger, the remaining properties are checked one by one.
+     */
+    @Getter
+    @Setter
+    private int maxBatchProductStates = 100_000;
+    /**
+     * The counterexamples found by the last batch checking with the hypothesis it was for. The single-property checks
+     * of the same hypothesis use them instead of exploring the product again.
+     */
+    @Nullable
+    private List<Object> batchStructure;
+    private final Map<String, Optional<MealyMachine<?, String, ?, String>>> batchResults = new HashMap<>();
+    private final AtomicInteger batchHits = new AtomicInteger();
+    @Nullable
+    private String[] lastSignatures;
+
+    /**
+     * Returns the monitor of the given formula, reusing the cached one if any.
+     *
+     * <p>The monitors are keyed by the formula without the white spaces. The alphabet is not a part of the key since
+     * the monitors are constructed on the fly for the transitions of the given Mealy machine.</p>
+     */
+    LTLMonitor monitor(String property) {
+        final String key = normalize(property);
+        synchronized (monitors) {
+            LTLMonitor monitor = monitors.get(key);
+            if (Objects.nonNull(monitor)) {
+                monitorCacheHits.incrementAndGet();
+                return monitor;
+            }
+            monitorCacheMisses.incrementAndGet();
+            monitor = new LTLMonitor(property);
+            if (maxCachedMonitors > 0) {
+                monitors.put(key, monitor);
+            }
+            return monitor;
+        }
+    }
+
+    /**
+     * Removes the white spaces outside the string literals so that the formulas differing only in the spacing share
+     * the monitor.
+     */
+    static String normalize(String property) {
+        StringBuilder builder = new StringBuilder(property.length());
+        boolean quoted = false;
+        for (char c : property.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (quoted || !Character.isWhitespace(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the number of the formulas whose monitor is reused from the cache.
+     */
+    public int getMonitorCacheHits() {
+        return monitorCacheHits.get();
+    }
+
+    /**
+     * Returns the number of the formulas translated to a monitor.
+     */
+    public int getMonitorCacheMisses() {
+        return monitorCacheMisses.get();
+    }
+
+    /**
+     * Removes all the cached monitors.
+     */
+    public void clearMonitorCache() {
+        synchronized (monitors) {
+            monitors.clear();
+        }
+        provenStates.clear();
+    }
+
+    /**
+     * Returns the number of the checks skipped in the incremental mode because the property is already proven for the
+     * hypothesis.
+     */
+    public int getSkippedChecks() {
+        return skippedChecks.get();
+    }
+
+    /**
+     * Returns the number of the product states not explored in the incremental mode because they are already proven.
+     */
+    public int getPrunedStates() {
+        return prunedStates.get();
+    }
+
+    /**
+     * Returns the number of the single-property checks answered by the last batch checking.
+     */
+    public int getBatchHits() {
+        return batchHits.get();
+    }
+
+    /**
+     * A product state from which no violation is reachable.
+     */
+    @Value
+    private static class ProvenState {
+        String signature;
+        int monitorState;
+    }
+
+    /**
+     * The transitions of a Mealy machine with the states numbered in the iteration order.
+     */
+    static final class Structure<S> {
+        final List<S> states;
+        final List<String> inputs;
+        final int[][] successors;
+        final String[][] outputs;
+        /**
+         * The comparable representation of the transitions and the initial state. Since the hypothesis of the learner
+         * is modified in place, we compare the transitions rather than the object.
+         */
+        final List<Object> key = new ArrayList<>();
+
+        <T> Structure(MealyMachine<S, String, T, String> automaton, Collection<? extends String> inputs) {
+            this.states = new ArrayList<>(automaton.getStates());
+            this.inputs = new ArrayList<>(inputs);
+            Map<S, Integer> indices = new HashMap<>();
+            for (S state : states) {
+                indices.put(state, indices.size());
+            }
+            this.successors = new int[states.size()][this.inputs.size()];
+            this.outputs = new String[states.size()][this.inputs.size()];
+            key.add(this.inputs);
+            key.add(indices.get(automaton.getInitialState()));
+            for (int i = 0; i < states.size(); i++) {
+                for (int j = 0; j < this.inputs.size(); j++) {
+                    final T transition = automaton.getTransition(states.get(i), this.inputs.get(j));
+                    successors[i][j] = Objects.isNull(transition) ? -1 : indices.get(automaton.getSuccessor(transition));
+                    outputs[i][j] = Objects.isNull(transition) ? null : automaton.getTransitionOutput(transition);
+                    key.add(successors[i][j]);
+                    key.add(outputs[i][j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the signature of each state of the given Mealy machine, i.e., the digest of the transitions reachable
+     * from the state numbered in the breadth-first order. The states with the same signature have isomorphic reachable
+     * parts, even if they are in different hypotheses, and thus the same product states with the monitor are reachable
+     * from them.
+     */
+    synchronized <S, T> Map<S, String> signatures(MealyMachine<S, String, T, String> automaton,
+                                                  Collection<? extends String> inputs) {
+        final Structure<S> structure = new Structure<>(automaton, inputs);
+        if (!structure.key.equals(lastStructure)) {
+            lastSignatures = new String[structure.states.size()];
+            for (int i = 0; i < structure.states.size(); i++) {
+                lastSignatures[i] = signature(i, structure.inputs, structure.successors, structure.outputs);
+            }
+            lastStructure = structure.key;
+        }
+        Map<S, String> result = new HashMap<>();
+        for (int i = 0; i < structure.states.size(); i++) {
+            result.put(structure.states.get(i), lastSignatures[i]);
+        }
+        return result;
+    }
+
+    private static String signature(int state, List<String> inputs, int[][] successors, String[][] outputs) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // The lengths are prepended so that the encoding is unambiguous
+        for (String input : inputs) {
+            digest.update((input.length() + ":" + input).getBytes(StandardCharsets.UTF_8));
+        }
+        int[] numbers = new int[successors.length];
+        Arrays.fill(numbers, -1);
+        List<Integer> order = new ArrayList<>();
+        numbers[state] = 0;
+        order.add(state);
+        for (int k = 0; k < order.size(); k++) {
+            final int current = order.get(k);
+            for (int j = 0; j < inputs.size(); j++) {
+                final int successor = successors[current][j];
+                if (successor < 0) {
+                    digest.update("-".getBytes(StandardCharsets.UTF_8));
+                    continue;
+                }
+                if (numbers[successor] < 0) {
+                    numbers[successor] = order.size();
+                    order.add(successor);
+                }
+                final String output = String.valueOf(outputs[current][j]);
+                digest.update((numbers[successor] + "," + output.length() + ":" + output).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    @Nullable
+    @Override
+    public MealyMachine<?, String, ?, String> findCounterExample(MealyMachine<?, String, ?, String> automaton,
+                                                                Collection<? extends String> inputs, String property) {
+        synchronized (batchResults) {
+            final Optional<MealyMachine<?, String, ?, String>> result = batchResults.get(normalize(property));
+            if (Objects.nonNull(result) && new Structure<>(automaton, inputs).key.equals(batchStructure)) {
+                batchHits.incrementAndGet();
+                return result.orElse(null);
+            }
+        }
+        return findCounterExample(automaton, inputs, monitor(property));
+    }
+
+    /**
+     * Checks all the given properties in one exploration of the hypothesis, and keeps the results so that the
+     * following calls of {@link #findCounterExample(MealyMachine, Collection, String)} for the same hypothesis, e.g., by
+     * the property oracles, do not explore the product again.
+     */
+    @Override
+    public void prefetch(MealyMachine<?, String, ?, String> automaton, Collection<? extends String> inputs,
+                         List<String> properties) {
+        List<MealyMachine<?, String, ?, String>> results = findCounterExamples(automaton, inputs, properties);
+        synchronized (batchResults) {
+            batchResults.clear();
+            for (int i = 0; i < properties.size(); i++) {
+                batchResults.put(normalize(properties.get(i)), Optional.ofNullable(results.get(i)));
+            }
+            batchStructure = new Structure<>(automaton, inputs).key;
+        }
+    }
+
+    /**
+     * Checks all the given properties in one exploration of the product of the Mealy machine and the monitors.
+     *
+     * <p>Each product state has the vector of the monitor states, and the transitions of the Mealy machine are looked
+     * up once for all the properties. Once a property is violated, satisfied, or proven in the incremental mode, it is
+     * dropped from the vector so that it does not split the product states. Since the exploration is breadth-first,
+     * the counterexample of each property is one of the shortest ones, as in the single-property check.</p>
+     *
+     * @return the counterexample of each property, or {@code null} if it has no counterexample
+     */
+    @Override
+    public List<MealyMachine<?, String, ?, String>> findCounterExamples(MealyMachine<?, String, ?, String> automaton,
+                                                                       Collection<? extends String> inputs,
+                                                                       List<String> properties) {
+        List<LTLMonitor> monitorList = new ArrayList<>(properties.size());
+        properties.forEach(property -> monitorList.add(monitor(property)));
+        return new ArrayList<>(checkAll(automaton, inputs, monitorList));
+    }
+
+    /**
+     * The monitor state of a property dropped from the product.
+     */
+    private static final int DROPPED = -1;
+
+    /**
+     * A state of the product of the Mealy machine and multiple monitors.
+     */
+    private static final class BatchState<S> {
+        final S state;
+        final int[] monitorStates;
+        @Nullable
+        final BatchState<S> parent;
+        final String input;
+        final String output;
+
+        BatchState(S state, int[] monitorStates, @Nullable BatchState<S> parent, String input, String output) {
+            this.state = state;
+            this.monitorStates = monitorStates;
+            this.parent = parent;
+            this.input = input;
+            this.output = output;
+        }
+
+        List<String[]> path() {
+            List<String[]> path = new ArrayList<>();
+            for (BatchState<S> current = this; Objects.nonNull(current.parent); current = current.parent) {
+                path.add(new String[]{current.input, current.output});
+            }
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    <S, T> List<CompactMealy<String, String>> checkAll(MealyMachine<S, String, T, String> automaton,
+                                                       Collection<? extends String> inputs,
+                                                       List<LTLMonitor> monitorList) {
+        final int size = monitorList.size();
+        List<CompactMealy<String, String>> results = new ArrayList<>(Collections.nCopies(size, null));
+        final S initial = automaton.getInitialState();
+        if (Objects.isNull(initial)) {
+            return results;
+        }
+        final Map<S, String> signatures = incremental ? signatures(automaton, inputs) : null;
+        List<Set<ProvenState>> proven = new ArrayList<>(size);
+        int[] initialStates = new int[size];
+        int alive = 0;
+        for (int i = 0; i < size; i++) {
+            final LTLMonitor monitor = monitorList.get(i);
+            proven.add(incremental ? provenStates.computeIfAbsent(monitor, m -> ConcurrentHashMap.newKeySet()) : null);
+            initialStates[i] = monitor.getInitialState();
+            if (monitor.isRejecting(initialStates[i])) {
+                results.set(i, toCounterExample(Collections.emptyList(), inputs));
+                initialStates[i] = DROPPED;
+            } else if (monitor.isSatisfied(initialStates[i])) {
+                initialStates[i] = DROPPED;
+            } else if (incremental && proven.get(i).contains(new ProvenState(signatures.get(initial), initialStates[i]))) {
+                skippedChecks.incrementAndGet();
+                initialStates[i] = DROPPED;
+            } else {
+                alive++;
+            }
+        }
+        if (alive == 0) {
+            return results;
+        }
+        Map<S, Set<List<Integer>>> visited = new HashMap<>();
+        visited.computeIfAbsent(initial, s -> new HashSet<>()).add(toList(initialStates));
+        int visitedStates = 1;
+        Deque<BatchState<S>> queue = new ArrayDeque<>();
+        queue.add(new BatchState<>(initial, initialStates, null, null, null));
+        while (!queue.isEmpty()) {
+            if (visitedStates > maxBatchProductStates) {
+                log.debug("The product of {} monitors is too large. Checking them one by one", size);
+                for (int i = 0; i < size; i++) {
+                    if (Objects.isNull(results.get(i)) && initialStates[i] != DROPPED) {
+                        results.set(i, findCounterExample(automaton, inputs, monitorList.get(i)));
+                    }
+                }
+                return results;
+            }
+            final BatchState<S> current = queue.poll();
+            for (String input : inputs) {
+                final T transition = automaton.getTransition(current.state, input);
+                if (Objects.isNull(transition)) {
+                    continue;
+                }
+                final String output = automaton.getTransitionOutput(transition);
+                if (skipOutputs.contains(output)) {
+                    continue;
+                }
+                final S successor = automaton.getSuccessor(transition);
+                final BatchState<S> child = new BatchState<>(successor, new int[size], current, input, output);
+                boolean active = false;
+                for (int i = 0; i < size; i++) {
+                    final int monitorState = current.monitorStates[i];
+                    if (monitorState == DROPPED || Objects.nonNull(results.get(i))) {
+                        child.monitorStates[i] = DROPPED;
+                        continue;
+                    }
+                    final LTLMonitor monitor = monitorList.get(i);
+                    final int next = monitor.successor(monitorState, input, output);
+                    if (monitor.isRejecting(next)) {
+                        results.set(i, toCounterExample(child.path(), inputs));
+                        child.monitorStates[i] = DROPPED;
+                    } else if (monitor.isSatisfied(next)) {
+                        child.monitorStates[i] = DROPPED;
+                    } else if (incremental && proven.get(i).contains(new ProvenState(signatures.get(successor), next))) {
+                        prunedStates.incrementAndGet();
+                        child.monitorStates[i] = DROPPED;
+                    } else {
+                        child.monitorStates[i] = next;
+                        active = true;
+                    }
+                }
+                if (active && visited.computeIfAbsent(successor, s -> new HashSet<>()).add(toList(child.monitorStates))) {
+                    visitedStates++;
+                    queue.add(child);
+                }
+            }
+        }
+        if (incremental) {
+            // No violation of the properties without counterexamples is reachable from the explored product states
+            visited.forEach((state, vectors) -> vectors.forEach(vector -> {
+                for (int i = 0; i < size; i++) {
+                    if (Objects.isNull(results.get(i)) && vector.get(i) != DROPPED) {
+                        proven.get(i).add(new ProvenState(signatures.get(state), vector.get(i)));
+                    }
+                }
+            }));
+        }
+        return results;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /**
+     * A state of the product of the Mealy machine and the monitor with the transition reaching it.
+     */
+    private static final class ProductState<S> {
+        final S state;
+        final int monitorState;
+        @Nullable
+        final ProductState<S> parent;
+        final String input;
+        final String output;
+
+        ProductState(S state, int monitorState, @Nullable ProductState<S> parent, String input, String output) {
+            this.state = state;
+            this.monitorState = monitorState;
+            this.parent = parent;
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    @Nullable
+    <S, T> CompactMealy<String, String> findCounterExample(MealyMachine<S, String, T, String> automaton,
+                                                           Collection<? extends String> inputs, LTLMonitor monitor) {
+        final S initial = automaton.getInitialState();
+        if (Objects.isNull(initial)) {
+            return null;
+        }
+        final ProductState<S> root = new ProductState<>(initial, monitor.getInitialState(), null, null, null);
+        if (monitor.isRejecting(root.monitorState)) {
+            return toCounterExample(root, inputs);
+        } else if (monitor.isSatisfied(root.monitorState)) {
+            return null;
+        }
+        final Map<S, String> signatures = incremental ? signatures(automaton, inputs) : null;
+        final Set<ProvenState> proven = incremental ?
+                provenStates.computeIfAbsent(monitor, m -> ConcurrentHashMap.newKeySet()) : null;
+        if (Objects.nonNull(proven) && proven.contains(new ProvenState(signatures.get(initial), root.monitorState))) {
+            skippedChecks.incrementAndGet();
+            log.trace("{} is already proven for the hypothesis", monitor.getFormula());
+            return null;
+        }
+        Map<S, Set<Integer>> visited = new HashMap<>();
+        visited.computeIfAbsent(initial, s -> new HashSet<>()).add(root.monitorState);
+        Deque<ProductState<S>> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            final ProductState<S> current = queue.poll();
+            for (String input : inputs) {
+                final T transition = automaton.getTransition(current.state, input);
+                if (Objects.isNull(transition)) {
+                    continue;
+                }
+                final String output = automaton.getTransitionOutput(transition);
+                if (skipOutputs.contains(output)) {
+                    continue;
+                }
+                final int next = monitor.successor(current.monitorState, input, output);
+                if (monitor.isSatisfied(next)) {
+                    continue;
+                }
+                final S successor = automaton.getSuccessor(transition);
+                final ProductState<S> child = new ProductState<>(successor, next, current, input, output);
+                if (monitor.isRejecting(next)) {
+                    return toCounterExample(child, inputs);
+                }
+                if (Objects.nonNull(proven) && proven.contains(new ProvenState(signatures.get(successor), next))) {
+                    prunedStates.incrementAndGet();
+                    continue;
+                }
+                if (visited.computeIfAbsent(successor, s -> new HashSet<>()).add(next)) {
+                    queue.add(child);
+                }
+            }
+        }
+        if (Objects.nonNull(proven)) {
+            // No violation is reachable from any of the explored product states
+            visited.forEach((state, monitorStates) -> monitorStates.forEach(monitorState ->
+                    proven.add(new ProvenState(signatures.get(state), monitorState))));
+        }
+        log.trace("No counterexample of {}: explored {} monitor states", monitor.getFormula(), monitor.size());
+        return null;
+    }
+
+    private static <S> CompactMealy<String, String> toCounterExample(ProductState<S> last,
+                                                                     Collection<? extends String> inputs) {
+        List<String[]> path = new ArrayList<>();
+        for (ProductState<S> current = last; Objects.nonNull(current.parent); current = current.parent) {
+            path.add(new String[]{current.input, current.output});
+        }
+        Collections.reverse(path);
+        return toCounterExample(path, inputs);
+    }
+
+    /**
+     * Makes the counterexample from the pairs of the input and the output on the path.
+     */
+    static CompactMealy<String, String> toCounterExample(List<String[]> path, Collection<? extends String> inputs) {
+        CounterExample counterExample = new CounterExample(Alphabets.fromCollection(inputs));
+        int state = counterExample.addInitialState();
+        for (String[] step : path) {
+            final int next = counterExample.addState();
+            counterExample.addTransition(state, step[0], next, step[1]);
+            state = next;
+        }
+        counterExample.violatingState = state;
+        return counterExample;
+    }
+
+    /**
+     * The path to the violation. Similarly to the counterexamples of LTSmin, only the words reaching the last state,
+     * where the property is violated, have the output so that the emptiness oracles do not accept its proper prefixes.
+     */
+    private static final class CounterExample extends CompactMealy<String, String> {
+        private int violatingState;
+
+        CounterExample(Alphabet<String> alphabet) {
+            super(alphabet);
+        }
+
+        @Nullable
+        @Override
+        public Word<String> computeStateOutput(Integer state, Iterable<? extends String> input) {
+            return Objects.equals(getSuccessor(state, input), violatingState) ? super.computeStateOutput(state, input) : null;
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package net.maswag.falcaun;
 
+import de.learnlib.exception.SULException;
 import de.learnlib.oracle.MembershipOracle;
 import de.learnlib.query.Query;
-import net.automatalib.incremental.mealy.tree.IncrementalMealyTreeBuilder;
 import net.automatalib.word.Word;
 import net.automatalib.word.WordBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
-import java.util.List;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -22,58 +27,436 @@ public class NumericMembershipOracle implements MembershipOracle.MealyMembership
 
     protected final NumericSUL sul;
     protected final NumericSULMapper mapper;
-    IncrementalMealyTreeBuilder<String, String> cache;
+    ConcurrentMealyTreeCache<String, String> cache;
+    /**
+     * The cache of the simulation states. If it is {@code null}, we always simulate from the initial state.
+     */
+    @Nullable
+    SimulationSnapshotCache snapshotCache;
 
-    IncrementalMealyTreeBuilder<String, String> getCache() {
+    /**
+     * The cache of the robustness values. If it is not {@code null}, the executed traces are recorded to it.
+     */
+    @Nullable
+    RobustnessCache robustnessCache;
+
+    /**
+     * The pool of the SULs to execute the queries concurrently. If it is {@code null}, we always use {@link #sul}.
+     */
+    @Nullable
+    NumericSULPool sulPool;
+
+    /**
+     * The checkpoint of the run. If it is not {@code null}, the executed traces are recorded to it.
+     */
+    @Nullable
+    RunCheckpoint checkpoint;
+
+    @Nullable
+    RunCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    void setCheckpoint(@Nullable RunCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    @Nullable
+    NumericSULPool getSulPool() {
+        return sulPool;
+    }
+
+    void setSulPool(@Nullable NumericSULPool sulPool) {
+        this.sulPool = sulPool;
+    }
+
+    @Nullable
+    RobustnessCache getRobustnessCache() {
+        return robustnessCache;
+    }
+
+    void setRobustnessCache(@Nullable RobustnessCache robustnessCache) {
+        this.robustnessCache = robustnessCache;
+        setDropListener();
+    }
+
+    @Nullable
+    SimulationSnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+
+    void setSnapshotCache(@Nullable SimulationSnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    ConcurrentMealyTreeCache<String, String> getCache() {
         return cache;
     }
 
-    void setCache(IncrementalMealyTreeBuilder<String, String> cache) {
+    void setCache(ConcurrentMealyTreeCache<String, String> cache) {
         this.cache = cache;
+        setDropListener();
+    }
+
+    /**
+     * Drops the provisional traces from the robustness cache when the membership cache drops them.
+     */
+    private void setDropListener() {
+        if (Objects.nonNull(cache) && Objects.nonNull(robustnessCache)) {
+            cache.setDropListener(robustnessCache::dropProvisional);
+        }
     }
 
     NumericMembershipOracle(NumericSUL sul, NumericSULMapper mapper) {
         this.sul = sul;
         this.mapper = mapper;
-        this.cache = new IncrementalMealyTreeBuilder<>(mapper.constructAbstractAlphabet());
+        this.cache = new ConcurrentMealyTreeCache<>(mapper.constructAbstractAlphabet());
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The queries are scheduled by {@link #schedule(Collection, boolean)}: we execute only the maximal words, and the
+     * other queries are answered by the cache. If the SUL pool is set, the queries are executed concurrently, and they
+     * are answered in the given order.</p>
+     */
     @Override
     public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+        if (queries.size() > 1 && !executeScheduled(queries)) {
+            return;
+        }
+        if (Objects.nonNull(sulPool) && sulPool.size() > 1 && queries.size() > 1) {
+            processQueriesConcurrently(queries);
+            return;
+        }
+        for (Query<String, Word<String>> q : queries) {
+            final Word<String> abstractOutput;
+            try {
+                // If another thread is executing the same word, we wait for its result.
+                abstractOutput = cache.computeIfAbsent(q.getInput(), this::execute);
+            } catch (SULException e) {
+                LOGGER.error("An error occurred in SimulinkSUL::execute: {}", e.getMessage());
+                e.printStackTrace();
+                return;
+            }
+
+            final Word<String> output = abstractOutput.suffix(q.getSuffix().length());
+            q.answer(output);
+        }
+    }
+
+    private void processQueriesConcurrently(Collection<? extends Query<String, Word<String>>> queries) {
+        final List<CompletableFuture<Word<String>>> futures = new ArrayList<>(queries.size());
+        for (Query<String, Word<String>> q : queries) {
+            futures.add(CompletableFuture.supplyAsync(() -> cache.computeIfAbsent(q.getInput(), this::execute),
+                    Objects.requireNonNull(sulPool).getExecutor()));
+        }
+        int i = 0;
         for (Query<String, Word<String>> q : queries) {
-            final Word<String> abstractInput = q.getInput();
-            WordBuilder<String> abstractOutputBuilder = new WordBuilder<>(abstractInput.size());
-
-            if (!cache.lookup(abstractInput, abstractOutputBuilder)) {
-                abstractOutputBuilder.clear();
-                final Word<List<Double>> concreteInput = Word.fromList(
-                        abstractInput.stream().map(mapper::mapInput).collect(Collectors.toList()));
-                assert concreteInput.size() == q.getInput().size();
-
-                // TODO: Fix here to handle ExtendedSignals
-                final IOSignal<List<Double>> concreteOutput;
-                try {
-                    concreteOutput = sul.execute(concreteInput);
-                } catch (Exception e) {
-                    LOGGER.error("An error occurred in SimulinkSUL::execute: {}", e.getMessage());
-                    e.printStackTrace();
-                    return;
+            final Word<String> abstractOutput;
+            try {
+                abstractOutput = futures.get(i++).join();
+            } catch (CompletionException e) {
+                LOGGER.error("An error occurred in SimulinkSUL::execute: {}", e.getCause().getMessage());
+                e.getCause().printStackTrace();
+                futures.forEach(future -> future.cancel(false));
+                return;
+            }
+            q.answer(abstractOutput.suffix(q.getSuffix().length()));
+        }
+    }
+
+    /**
+     * Executes the words scheduled for the queries and records the results to the cache.
+     *
+     * @return {@code false} if an error occurred in the SUL.
+     */
+    private boolean executeScheduled(Collection<? extends Query<String, Word<String>>> queries) {
+        final boolean branchPoints = Objects.nonNull(snapshotCache) && sul.canSnapshot();
+        final List<Word<String>> uncached =
+                queries.stream().map(Query::getInput).filter(this::isUncached).collect(Collectors.toList());
+        final List<Word<String>> scheduled = schedule(uncached, branchPoints);
+        if (new HashSet<>(scheduled).equals(new HashSet<>(uncached))) {
+            // Nothing to share. The queries are executed as they are.
+            return true;
+        }
+        try {
+            if (Objects.nonNull(sulPool) && sulPool.size() > 1) {
+                // The branch points are executed first so that the words below them resume from their snapshots
+                final Set<Word<String>> maximal = new HashSet<>(schedule(scheduled, false));
+                final List<Word<String>> firstPhase = scheduled.stream().filter(word -> !maximal.contains(word))
+                        .collect(Collectors.toList());
+                for (List<Word<String>> phase : Arrays.asList(firstPhase, new ArrayList<>(maximal))) {
+                    final List<CompletableFuture<Word<String>>> futures = new ArrayList<>(phase.size());
+                    for (Word<String> word : phase) {
+                        futures.add(CompletableFuture.supplyAsync(() -> cache.computeIfAbsent(word, this::execute),
+                                sulPool.getExecutor()));
+                    }
+                    futures.forEach(CompletableFuture::join);
+                }
+            } else {
+                for (Word<String> word : scheduled) {
+                    cache.computeIfAbsent(word, this::execute);
                 }
-                assert concreteOutput.size() == concreteInput.size();
-                abstractOutputBuilder.append(concreteOutput.stream().map(mapper::mapOutput).collect(Collectors.toList()));
+            }
+        } catch (SULException | CompletionException e) {
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            LOGGER.error("An error occurred in SimulinkSUL::execute: {}", cause.getMessage());
+            cause.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isUncached(Word<String> word) {
+        return !cache.lookup(word, new WordBuilder<>(word.size()));
+    }
 
-                assert concreteOutput.size() == abstractOutputBuilder.toWord().size();
-                cache.insert(abstractInput, abstractOutputBuilder.toWord());
+    /**
+     * Schedules the execution of the given words.
+     *
+     * <p>The words are sorted in the depth-first order of their prefix trie, and the words that are proper prefixes of
+     * another word are removed since their outputs are obtained from the longer one. If {@code branchPoints} is
+     * {@code true}, the longest common prefixes of the adjacent words, i.e., the branching nodes of the trie, are also
+     * executed just before the words below them so that their snapshots are reused.</p>
+     *
+     * @param words        the words to execute
+     * @param branchPoints whether the branching nodes are executed
+     * @return the words to execute in the order
+     */
+    static List<Word<String>> schedule(Collection<Word<String>> words, boolean branchPoints) {
+        final List<Word<String>> sorted = words.stream().distinct().sorted(NumericMembershipOracle::compareWords)
+                .collect(Collectors.toList());
+        List<Word<String>> maximal = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            // The words having the current one as a prefix follow it
+            if (i + 1 == sorted.size() || !sorted.get(i).isPrefixOf(sorted.get(i + 1))) {
+                maximal.add(sorted.get(i));
             }
+        }
+        if (!branchPoints) {
+            return maximal;
+        }
+        Set<Word<String>> result = new HashSet<>(maximal);
+        for (int i = 1; i < maximal.size(); i++) {
+            final Word<String> branch = maximal.get(i - 1).longestCommonPrefix(maximal.get(i));
+            if (!branch.isEmpty()) {
+                result.add(branch);
+            }
+        }
+        return result.stream().sorted(NumericMembershipOracle::compareWords).collect(Collectors.toList());
+    }
 
-            final Word<String> output = abstractOutputBuilder.toWord().suffix(q.getSuffix().length());
-            q.answer(output);
+    /**
+     * Compares the words lexicographically, where a prefix precedes the longer words.
+     */
+    private static int compareWords(Word<String> left, Word<String> right) {
+        final int length = Math.min(left.size(), right.size());
+        for (int i = 0; i < length; i++) {
+            final int result = left.getSymbol(i).compareTo(right.getSymbol(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(left.size(), right.size());
+    }
+
+    /**
+     * Execute the SUL for the given abstract input and returns the abstract output.
+     */
+    private Word<String> execute(Word<String> abstractInput) {
+        final Word<List<Double>> concreteInput = Word.fromList(
+                abstractInput.stream().map(mapper::mapInput).collect(Collectors.toList()));
+
+        // TODO: Fix here to handle ExtendedSignals
+        final IOSignal<List<Double>> concreteOutput;
+        try {
+            concreteOutput = simulate(abstractInput, concreteInput);
+        } catch (SULException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SULException(e);
+        }
+        assert concreteOutput.size() == concreteInput.size();
+        return Word.fromList(concreteOutput.stream().map(mapper::mapOutput).collect(Collectors.toList()));
+    }
+
+    /**
+     * Execute the SUL for the given input.
+     *
+     * <p>If the snapshot cache is enabled, we resume the simulation from the deepest cached prefix of the input
+     * and save the final state to the cache. The trace is also recorded to the robustness cache and the checkpoint if
+     * they are enabled.</p>
+     *
+     * <p>If the SUL pool is set, we borrow an idle SUL from the pool. Otherwise, the executions on the SUL are serialized.
+     * In both cases, this method can be called concurrently.</p>
+     *
+     * @param abstractInput the abstract input used as the key of the snapshot cache
+     * @param concreteInput the concrete input to feed
+     * @return the signal of the entire execution
+     */
+    protected IOSignal<List<Double>> simulate(Word<String> abstractInput, Word<List<Double>> concreteInput)
+            throws InterruptedException, ExecutionException {
+        final IOSignal<List<Double>> result;
+        if (Objects.isNull(sulPool)) {
+            // The SUL is shared by the oracles possibly used from multiple threads
+            final ReentrantLock lock = SULExecutors.lockOf(sul);
+            lock.lock();
+            try {
+                result = resume(sul, abstractInput, concreteInput);
+            } finally {
+                lock.unlock();
+            }
+        } else {
+            final NumericSUL borrowed = sulPool.borrow();
+            try {
+                result = resume(borrowed, abstractInput, concreteInput);
+            } finally {
+                sulPool.giveBack(borrowed);
+            }
+        }
+        record(abstractInput, result);
+        return result;
+    }
+
+    /**
+     * Execute an idle SUL in the pool for the given input asynchronously by {@link NumericSUL#executeAsync(Word)}.
+     *
+     * <p>If the simulation resumes from the snapshot cache, the SUL is stepped by {@link #simulate(Word, Word)} on the
+     * executor of the pool instead. Otherwise, this is the same as {@link #simulate(Word, Word)}.</p>
+     *
+     * @param abstractInput the abstract input used as the key of the caches
+     * @param concreteInput the concrete input to feed
+     * @param skip          the condition to skip the simulation. It is checked just after an idle SUL is taken.
+     * @return the future completed with the signal of the entire execution, or with {@code null} if it is skipped
+     */
+    CompletableFuture<IOSignal<List<Double>>> simulateAsync(Word<String> abstractInput, Word<List<Double>> concreteInput,
+                                                            BooleanSupplier skip) {
+        final NumericSULPool pool = Objects.requireNonNull(sulPool);
+        if (Objects.nonNull(snapshotCache) && sul.canSnapshot()) {
+            return SULExecutors.callAsync(() -> skip.getAsBoolean() ? null : simulate(abstractInput, concreteInput),
+                    pool.getExecutor());
+        }
+        return pool.borrowAsync().thenCompose(borrowed -> {
+            if (skip.getAsBoolean()) {
+                pool.giveBack(borrowed);
+                return CompletableFuture.<IOSignal<List<Double>>>completedFuture(null);
+            }
+            return borrowed.executeAsync(concreteInput).whenComplete((signal, e) -> pool.giveBack(borrowed));
+        }).thenApply(result -> {
+            if (Objects.nonNull(result)) {
+                record(abstractInput, result);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Records the simulated trace to the robustness cache and the checkpoint if they are enabled.
+     */
+    private void record(Word<String> abstractInput, IOSignal<List<Double>> result) {
+        if (Objects.nonNull(robustnessCache)) {
+            robustnessCache.insert(abstractInput, result);
+        }
+        if (Objects.nonNull(checkpoint)) {
+            checkpoint.recordSimulation(abstractInput, result);
+        }
+    }
+
+    /**
+     * Execute the SUL for the given concrete input without any cache, e.g., for the inputs out of the input mapper.
+     *
+     * <p>If the SUL pool is set, we borrow an idle SUL from the pool. Otherwise, the executions on the SUL are serialized.</p>
+     *
+     * @param concreteInput the concrete input to feed
+     * @return the signal of the entire execution
+     */
+    protected IOSignal<List<Double>> simulateConcrete(Word<List<Double>> concreteInput)
+            throws InterruptedException, ExecutionException {
+        if (Objects.isNull(sulPool)) {
+            final ReentrantLock lock = SULExecutors.lockOf(sul);
+            lock.lock();
+            try {
+                return sul.execute(concreteInput);
+            } finally {
+                lock.unlock();
+            }
+        }
+        final NumericSUL borrowed = sulPool.borrow();
+        try {
+            return borrowed.execute(concreteInput);
+        } finally {
+            sulPool.giveBack(borrowed);
+        }
+    }
+
+    private IOSignal<List<Double>> resume(NumericSUL sul, Word<String> abstractInput, Word<List<Double>> concreteInput)
+            throws InterruptedException, ExecutionException {
+        if (Objects.isNull(snapshotCache) || !sul.canSnapshot()) {
+            return sul.execute(concreteInput);
         }
+        final SimulationSnapshotCache.Snapshot snapshot = snapshotCache.lookup(abstractInput, sul);
+        final Object[] finalState = new Object[1];
+        final IOSignal<List<Double>> result;
+        try {
+            if (Objects.isNull(snapshot)) {
+                result = sul.executeFrom(null, null, concreteInput, handle -> finalState[0] = handle);
+            } else {
+                LOGGER.trace("Resume the simulation from the prefix of length {}", snapshot.getLength());
+                result = sul.executeFrom(snapshot.getHandle(), snapshot.getSignal(),
+                        concreteInput.subWord(snapshot.getLength()), handle -> finalState[0] = handle);
+            }
+            if (Objects.nonNull(finalState[0])) {
+                snapshotCache.save(abstractInput, sul, finalState[0], result);
+            }
+        } finally {
+            if (Objects.nonNull(snapshot)) {
+                snapshotCache.unpin(snapshot);
+            }
+            // The snapshots of this SUL evicted by the other SULs are released here, while this SUL is not simulating
+            snapshotCache.releaseDeferred(sul);
+        }
+        return result;
     }
 
     void cacheInsert(Word<String> abstractInput, Word<String> abstractOutput) {
         cache.insert(abstractInput, abstractOutput);
     }
+
+    /**
+     * Records the trace simulated in a previous run to the caches without executing the SUL.
+     *
+     * @param abstractInput  the abstract input of the trace
+     * @param concreteSignal the concrete signal of the trace
+     * @see RunCheckpoint#resume(java.nio.file.Path, java.util.function.BiConsumer)
+     */
+    void restore(Word<String> abstractInput, IOSignal<List<Double>> concreteSignal) {
+        cache.insert(abstractInput,
+                Word.fromList(concreteSignal.stream().map(mapper::mapOutput).collect(Collectors.toList())));
+        if (Objects.nonNull(robustnessCache)) {
+            robustnessCache.insert(abstractInput, concreteSignal);
+        }
+    }
+
+    /**
+     * Records the trace simulated in a previous run, possibly of a different version of the SUL, to the caches
+     * provisionally. If an execution of the SUL contradicts the trace later, the trace is dropped from the membership
+     * and the robustness caches.
+     *
+     * @param abstractInput  the abstract input of the trace
+     * @param concreteSignal the concrete signal of the trace
+     * @return {@code false} if the trace contradicts the cached outputs. Then, it is not recorded to the robustness cache.
+     * @see ConcurrentMealyTreeCache#insertProvisionally(Word, Word)
+     */
+    boolean restoreProvisionally(Word<String> abstractInput, IOSignal<List<Double>> concreteSignal) {
+        if (!cache.insertProvisionally(abstractInput,
+                Word.fromList(concreteSignal.stream().map(mapper::mapOutput).collect(Collectors.toList())))) {
+            return false;
+        }
+        if (Objects.nonNull(robustnessCache)) {
+            robustnessCache.insertProvisionally(abstractInput, concreteSignal);
+        }
+        return true;
+    }
 }
 
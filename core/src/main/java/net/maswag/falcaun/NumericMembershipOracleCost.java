@@ -1,15 +1,18 @@
 package net.maswag.falcaun;
 
 import de.learnlib.query.Query;
-import lombok.Getter;
-import net.automatalib.incremental.mealy.IncrementalMealyBuilder;
-import net.automatalib.incremental.mealy.tree.IncrementalMealyTreeBuilder;
 import net.automatalib.word.Word;
 import net.automatalib.word.WordBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -19,19 +22,54 @@ import java.util.stream.Collectors;
  * This class extends {@link NumericMembershipOracle} and implements {@link EvaluationCountable}.
  * It processes queries to determine the output signals for given inputs and calculates the associated costs
  * using a provided cost function. The results are cached to improve efficiency.
+ * The robustness values are stored in a {@link RobustnessCache} that can be shared by the oracles for different properties.
  */
 class NumericMembershipOracleCost extends NumericMembershipOracle implements EvaluationCountable {
     private static final Logger LOGGER = LoggerFactory.getLogger(NumericMembershipOracleCost.class);
-    private IncrementalMealyBuilder<String, Double> costCache;
-    private Function<IOSignal<List<Double>>, Double> costFunc;
-    private Set<NumericMembershipOracleCost> notifiedSet = new HashSet<>();
-    @Getter
-    private int evaluateCount = 0;
+    private final Function<IOSignal<List<Double>>, Double> costFunc;
+    /**
+     * The index of the cost function in the robustness cache.
+     */
+    private int slot;
+    private final AtomicInteger evaluateCount = new AtomicInteger();
+    /**
+     * The pipeline separating the simulations from the post-processing. If it is {@code null}, each query is processed
+     * by a single thread.
+     */
+    @Nullable
+    private SimulationPipeline pipeline;
 
     NumericMembershipOracleCost(NumericSUL sul, NumericSULMapper mapper, Function<IOSignal<List<Double>>, Double> costFunc) {
+        this(sul, mapper, costFunc, new RobustnessCache(mapper));
+    }
+
+    /**
+     * @param robustnessCache The robustness cache, typically shared with the other oracles. The cost function is
+     *                        registered to it.
+     */
+    NumericMembershipOracleCost(NumericSUL sul, NumericSULMapper mapper, Function<IOSignal<List<Double>>, Double> costFunc,
+                                RobustnessCache robustnessCache) {
         super(sul, mapper);
         this.costFunc = costFunc;
-        this.costCache = new IncrementalMealyTreeBuilder<>(mapper.constructAbstractAlphabet());
+        this.setRobustnessCache(robustnessCache);
+    }
+
+    /**
+     * Use the given robustness cache, typically shared with the other oracles, and register the cost function to it.
+     */
+    @Override
+    void setRobustnessCache(RobustnessCache robustnessCache) {
+        super.setRobustnessCache(Objects.requireNonNull(robustnessCache));
+        this.slot = robustnessCache.register(costFunc);
+    }
+
+    @Nullable
+    SimulationPipeline getPipeline() {
+        return pipeline;
+    }
+
+    void setPipeline(@Nullable SimulationPipeline pipeline) {
+        this.pipeline = pipeline;
     }
 
     /**
@@ -52,79 +90,178 @@ class NumericMembershipOracleCost extends NumericMembershipOracle implements Eva
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEvaluateCount() {
+        return evaluateCount.get();
+    }
+
+    /**
+     * Answers the query and returns its robustness. This can be called concurrently if the SUL pool is set.
+     *
+     * @return the robustness, or {@code null} if the simulation failed or is interrupted. If it is interrupted, the
+     * interruption flag of the current thread is set.
+     */
     Double processQueryWithCost(Query<String, Word<String>> q) {
-        final Word<String> abstractInput = q.getInput();
-        WordBuilder<String> abstractOutputBuilder = new WordBuilder<>(abstractInput.size());
-        WordBuilder<Double> costBuilder = new WordBuilder<>(abstractInput.size());
+        final Double cached = lookupCost(q);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
+        final IOSignal<List<Double>> concreteSignal;
+        try {
+            concreteSignal = simulateQuery(q);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            return null;
+        }
+        return postProcess(q, concreteSignal);
+    }
 
-        if (!cache.lookup(abstractInput, abstractOutputBuilder) || !costCache.lookup(abstractInput, costBuilder) || Objects.requireNonNull(costBuilder.toWord().lastSymbol()).isInfinite()) {
-            evaluateCount++;
-            abstractOutputBuilder.clear();
-            costBuilder.clear();
+    /**
+     * Simulates the SUL for the concrete input, which may be out of the input mapper, and returns its robustness.
+     * Neither the signal nor the robustness is cached since the caches are indexed by the abstract inputs. This can be
+     * called concurrently if the SUL pool is set.
+     *
+     * @return the robustness, or {@code null} if the simulation failed.
+     */
+    @Nullable
+    Double processConcreteWithCost(Word<List<Double>> concreteInput) {
+        evaluateCount.incrementAndGet();
+        try {
+            return costOf(simulateConcrete(concreteInput));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Answers the query and computes its robustness asynchronously.
+     *
+     * <p>If the pipeline is set, the simulation and the post-processing run on its stages. Otherwise, if the SUL pool is
+     * set, an idle SUL in the pool is executed by {@link NumericSUL#executeAsync(Word)}, and the query is answered when
+     * the execution completes. Otherwise, the query is processed immediately.</p>
+     *
+     * @param q    the query to answer
+     * @param skip the condition to skip the query. It is checked just before the simulation, and if it holds,
+     *             the query is not answered, and the future is completed with {@code null}.
+     * @return the future completed with the robustness
+     */
+    CompletableFuture<Double> processQueryWithCostAsync(Query<String, Word<String>> q, BooleanSupplier skip) {
+        if (Objects.nonNull(pipeline)) {
+            final Double cached = lookupCost(q);
+            if (Objects.nonNull(cached)) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            return pipeline.submit(() -> skip.getAsBoolean() ? null : simulateQuery(q),
+                    signal -> Objects.isNull(signal) ? null : postProcess(q, signal));
+        }
+        if (Objects.nonNull(sulPool) && sulPool.size() > 1) {
+            final Double cached = lookupCost(q);
+            if (Objects.nonNull(cached)) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            final Word<String> abstractInput = q.getInput();
             final Word<List<Double>> concreteInput = Word.fromList(
                     abstractInput.stream().map(mapper::mapInput).collect(Collectors.toList()));
+            return simulateAsync(abstractInput, concreteInput, () -> {
+                if (skip.getAsBoolean()) {
+                    return true;
+                }
+                evaluateCount.incrementAndGet();
+                return false;
+            }).handleAsync((signal, e) -> {
+                if (Objects.nonNull(e)) {
+                    LOGGER.error(e instanceof CompletionException ? e.getCause().getMessage() : e.getMessage());
+                    return null;
+                }
+                return Objects.isNull(signal) ? null : postProcess(q, signal);
+            }, sulPool.getExecutor());
+        }
+        return CompletableFuture.completedFuture(skip.getAsBoolean() ? null : processQueryWithCost(q));
+    }
 
-            final IOSignal<List<Double>> concreteSignal;
-            try {
-                concreteSignal = sul.execute(concreteInput);
-            } catch (Exception e) {
-                LOGGER.error(e.getMessage());
-                return null;
-            }
-            assert concreteSignal.size() == concreteInput.size();
-            List<Double> robustness = concreteSignal.prefixes(false).stream()
-                    .map(word -> new IODiscreteSignal<>(word.getInputSignal(),
-                            Word.fromList(word.stream().map(mapper::mapConcrete).collect(Collectors.toList()))))
-                    .map(costFunc).collect(Collectors.toList())
-                    .subList(1, concreteInput.length() + 1); // remove the additional element by prefixes
-            assert concreteSignal.size() == abstractInput.size();
-            assert robustness.size() == abstractInput.size();
-            costBuilder.append(robustness);
-
-            abstractOutputBuilder.append(
-                    concreteSignal.stream().map(mapper::mapOutput).collect(Collectors.toList()));
-
-            assert concreteSignal.size() == abstractOutputBuilder.size();
-
-            cache.insert(abstractInput, abstractOutputBuilder.toWord());
-            costCache.insert(abstractInput, costBuilder.toWord());
-            // for assert
-            WordBuilder<Double> tmpCostBuilder = new WordBuilder<>();
-            costCache.lookup(abstractInput, tmpCostBuilder);
-            assert (Objects.equals(tmpCostBuilder.toWord(), costBuilder.toWord()));
-            for (NumericMembershipOracleCost notified : notifiedSet) {
-                notified.cacheInsert(abstractInput, concreteSignal, abstractOutputBuilder.toWord());
-            }
-            tmpCostBuilder.clear();
-            costCache.lookup(abstractInput, tmpCostBuilder);
-            assert (Objects.equals(tmpCostBuilder.toWord(), costBuilder.toWord()));
-            if (Objects.requireNonNull(costBuilder.toWord().lastSymbol()).isInfinite()) {
-                LOGGER.warn("Infinite robustness is detected. {} {}", costBuilder.toWord().lastSymbol(), abstractInput);
-                LOGGER.warn("Raw Output: {}", concreteSignal);
-            }
+    /**
+     * Returns the number of the queries worth processing at once by {@link #processQueryWithCostAsync(Query, BooleanSupplier)}.
+     */
+    int getConcurrency() {
+        if (Objects.nonNull(pipeline)) {
+            return pipeline.getConcurrency();
         }
+        return Objects.isNull(sulPool) ? 1 : sulPool.size();
+    }
 
-        final Word<String> output = abstractOutputBuilder.toWord().suffix(q.getSuffix().length());
-        q.answer(output);
-        return costBuilder.toWord().lastSymbol();
+    /**
+     * Answers the query by the caches if both the output and the robustness are cached.
+     *
+     * @return the cached robustness, or {@code null} if the query must be simulated.
+     */
+    @Nullable
+    private Double lookupCost(Query<String, Word<String>> q) {
+        final Word<String> abstractInput = q.getInput();
+        WordBuilder<String> abstractOutputBuilder = new WordBuilder<>(abstractInput.size());
+        if (!cache.lookup(abstractInput, abstractOutputBuilder)) {
+            return null;
+        }
+        final Double robustness = Objects.requireNonNull(robustnessCache).lookup(abstractInput, slot);
+        if (Objects.isNull(robustness) || robustness.isInfinite()) {
+            return null;
+        }
+        q.answer(abstractOutputBuilder.toWord().suffix(q.getSuffix().length()));
+        return robustness;
     }
 
-    private void cacheInsert(Word<String> abstractInput, IOSignal<List<Double>> concreteSignal, Word<String> abstractOutput) {
-        super.cacheInsert(abstractInput, abstractOutput);
-        Word<Double> robustness = Word.fromList(concreteSignal.prefixes(false).stream()
-                .map(word -> new IODiscreteSignal<>(word.getInputSignal(),
-                        Word.fromList(word.stream().map(mapper::mapConcrete).collect(Collectors.toList()))))
-                .map(costFunc).collect(Collectors.toList())
-                .subList(1, abstractInput.length() + 1)); // remove the additional element by prefixes
-        costCache.insert(abstractInput, robustness);
+    /**
+     * The first stage: simulates the SUL for the query.
+     */
+    private IOSignal<List<Double>> simulateQuery(Query<String, Word<String>> q) throws InterruptedException, ExecutionException {
+        evaluateCount.incrementAndGet();
+        final Word<String> abstractInput = q.getInput();
+        final Word<List<Double>> concreteInput = Word.fromList(
+                abstractInput.stream().map(mapper::mapInput).collect(Collectors.toList()));
+        final IOSignal<List<Double>> concreteSignal = simulate(abstractInput, concreteInput);
+        assert concreteSignal.size() == concreteInput.size();
+        return concreteSignal;
     }
 
-    boolean addNotified(NumericMembershipOracleCost notified) {
-        return notifiedSet.add(notified);
+    /**
+     * The second stage: maps the simulated signal, inserts it to the cache, computes the robustness, and answers the query.
+     */
+    private Double postProcess(Query<String, Word<String>> q, IOSignal<List<Double>> concreteSignal) {
+        final Word<String> abstractInput = q.getInput();
+        final Word<String> abstractOutput = Word.fromList(
+                concreteSignal.stream().map(mapper::mapOutput).collect(Collectors.toList()));
+        assert concreteSignal.size() == abstractOutput.size();
+
+        cache.insert(abstractInput, abstractOutput);
+        Double robustness = Objects.requireNonNull(robustnessCache).lookup(abstractInput, slot);
+        if (Objects.isNull(robustness)) {
+            // The trace is evicted from the robustness cache after it is inserted
+            robustness = costOf(concreteSignal);
+        }
+        if (robustness.isInfinite()) {
+            LOGGER.warn("Infinite robustness is detected. {} {}", robustness, abstractInput);
+            LOGGER.warn("Raw Output: {}", concreteSignal);
+        }
+
+        q.answer(abstractOutput.suffix(q.getSuffix().length()));
+        return robustness;
     }
 
-    boolean addNotifiedAll(Collection<NumericMembershipOracleCost> notified) {
-        return notifiedSet.addAll(notified);
+    /**
+     * Computes the robustness of the simulated signal without the robustness cache. The outputs are mapped by the
+     * signal mapper as in {@link RobustnessCache}.
+     */
+    private Double costOf(IOSignal<List<Double>> concreteSignal) {
+        return costFunc.apply(new IODiscreteSignal<>(concreteSignal.getInputSignal(),
+                Word.fromList(concreteSignal.stream().map(mapper::mapConcrete).collect(Collectors.toList()))));
     }
 }
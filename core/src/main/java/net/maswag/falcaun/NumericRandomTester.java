@@ -0,0 +1,260 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.word.Word;
+import org.apache.commons.math3.random.SobolSequenceGenerator;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Pure random tester of a {@link NumericSUL} executing the samples concurrently on a {@link NumericSULPool}.
+ *
+ * <p>The samples are generated in batches over the abstract input alphabet, and each batch is executed by the SULs in
+ * the pool. The trace of each sample is mapped once, and all the properties not falsified yet are evaluated on it.
+ * Since the samples are generated and checked in a fixed order, the found counterexamples do not depend on the
+ * scheduling. The test stops when all the properties are falsified, the timeout is reached, or the number of the
+ * simulations reaches the limit.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class NumericRandomTester {
+    /**
+     * How to sample the input words.
+     */
+    public enum Sampling {
+        /**
+         * Each symbol is sampled independently and uniformly.
+         */
+        UNIFORM,
+        /**
+         * For each position, the symbols are distributed evenly over the samples in a batch.
+         */
+        LATIN_HYPERCUBE,
+        /**
+         * The samples are taken from a Sobol sequence whose dimension is the length of the words.
+         */
+        SOBOL
+    }
+
+    private final NumericSULPool sulPool;
+    private final NumericSULMapper mapper;
+    private final List<String> abstractInputAlphabet;
+    private final int length;
+    private final List<String> properties;
+    private final List<? extends TemporalLogic.STLCost> costFunc;
+    /**
+     * The timeout in seconds. If it is not positive, the test is not bounded by time.
+     */
+    @Setter
+    private long timeout = 0;
+    /**
+     * The maximum number of the simulations. If it is not positive, the test is not bounded by the simulations.
+     */
+    @Setter
+    private int maxSimulations = 0;
+    @Setter
+    private Sampling sampling = Sampling.UNIFORM;
+    @Setter
+    private Random random = new Random();
+    /**
+     * The number of the samples generated at once. By default, it is four times the size of the pool.
+     */
+    @Setter
+    private int batchSize;
+    @Getter
+    private final List<Word<String>> cexInput = new ArrayList<>();
+    @Getter
+    private final List<TemporalLogic.STLCost> cexProperty = new ArrayList<>();
+    @Getter
+    private final List<Word<String>> cexOutput = new ArrayList<>();
+    private final AtomicInteger simulations = new AtomicInteger();
+    private SobolSequenceGenerator sobol;
+
+    /**
+     * @param sulPool    The SULs to execute the samples.
+     * @param mapper     The I/O mapper between abstract/concrete signals.
+     * @param length     The length of the sampled words.
+     * @param properties The string representations of the properties used in the log.
+     * @param costFunc   The STL properties to be falsified.
+     */
+    public NumericRandomTester(NumericSULPool sulPool, NumericSULMapper mapper, int length, List<String> properties,
+                               List<? extends TemporalLogic.STLCost> costFunc) {
+        if (properties.size() != costFunc.size()) {
+            throw new IllegalArgumentException("The numbers of the properties and the cost functions must be the same");
+        }
+        this.sulPool = sulPool;
+        this.mapper = mapper;
+        this.abstractInputAlphabet = new ArrayList<>(mapper.constructAbstractAlphabet());
+        this.length = length;
+        this.properties = properties;
+        this.costFunc = costFunc;
+        this.batchSize = 4 * sulPool.size();
+    }
+
+    /**
+     * Returns the number of the simulations in the last run.
+     */
+    public int getSimulations() {
+        return simulations.get();
+    }
+
+    /**
+     * @return Returns {@code true} if and only if no counterexample is found.
+     */
+    public boolean run() {
+        cexInput.clear();
+        cexProperty.clear();
+        cexOutput.clear();
+        simulations.set(0);
+        sobol = sampling == Sampling.SOBOL ? new SobolSequenceGenerator(length) : null;
+        final long deadline = timeout > 0 ? System.nanoTime() + timeout * 1000000000 : Long.MAX_VALUE;
+        List<Integer> unfalsified = new ArrayList<>();
+        for (int i = 0; i < costFunc.size(); i++) {
+            unfalsified.add(i);
+        }
+        log.info("Starting pure random test with {} SULs", sulPool.size());
+        while (!unfalsified.isEmpty() && System.nanoTime() < deadline && !budgetExhausted()) {
+            final List<Integer> targets = new ArrayList<>(unfalsified);
+            List<Word<String>> samples = generateBatch();
+            List<CompletableFuture<double[]>> futures = new ArrayList<>(samples.size());
+            List<IOSignal<List<Double>>[]> signals = new ArrayList<>(samples.size());
+            for (Word<String> sample : samples) {
+                @SuppressWarnings("unchecked")
+                final IOSignal<List<Double>>[] signal = new IOSignal[1];
+                signals.add(signal);
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    // The budget is shared by the SULs
+                    if (System.nanoTime() >= deadline || !claimSimulation()) {
+                        return null;
+                    }
+                    signal[0] = execute(sample);
+                    return evaluate(signal[0], targets);
+                }, sulPool.getExecutor()));
+            }
+            for (int j = 0; j < samples.size(); j++) {
+                final double[] robustness;
+                try {
+                    robustness = futures.get(j).join();
+                } catch (CompletionException e) {
+                    log.error("Failed to execute the SUL: {}", e.getCause().getMessage());
+                    continue;
+                }
+                if (Objects.isNull(robustness)) {
+                    continue;
+                }
+                for (int k = 0; k < targets.size(); k++) {
+                    final int index = targets.get(k);
+                    if (robustness[k] < 0 && unfalsified.contains(index)) {
+                        recordCounterExample(index, samples.get(j), signals.get(j)[0], robustness[k]);
+                        unfalsified.remove(Integer.valueOf(index));
+                    }
+                }
+            }
+        }
+        log.info("Pure random test finished after {} simulations", simulations.get());
+        return cexProperty.isEmpty();
+    }
+
+    private boolean budgetExhausted() {
+        return maxSimulations > 0 && simulations.get() >= maxSimulations;
+    }
+
+    private boolean claimSimulation() {
+        if (maxSimulations <= 0) {
+            simulations.incrementAndGet();
+            return true;
+        }
+        return simulations.getAndUpdate(n -> n < maxSimulations ? n + 1 : n) < maxSimulations;
+    }
+
+    private IOSignal<List<Double>> execute(Word<String> abstractInput) {
+        final Word<List<Double>> concreteInput = mapper.mapInput(abstractInput);
+        try {
+            NumericSUL sul = sulPool.borrow();
+            try {
+                return sul.execute(concreteInput);
+            } finally {
+                sulPool.giveBack(sul);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Evaluates the given properties on the trace. The trace is mapped only once for all the properties.
+     */
+    private double[] evaluate(IOSignal<List<Double>> concreteSignal, List<Integer> targets) {
+        final IOSignal<List<Double>> mapped = new IODiscreteSignal<>(concreteSignal.getInputSignal(),
+                Word.fromList(concreteSignal.stream().map(mapper::mapConcrete).collect(Collectors.toList())));
+        double[] robustness = new double[targets.size()];
+        for (int k = 0; k < targets.size(); k++) {
+            robustness[k] = costFunc.get(targets.get(k)).apply(mapped);
+        }
+        return robustness;
+    }
+
+    private void recordCounterExample(int index, Word<String> abstractInput, IOSignal<List<Double>> concreteSignal,
+                                      double robustness) {
+        log.info("Property_violated: {}", properties.get(index));
+        log.info("Counter example for property: {}", abstractInput);
+        log.info("Concrete output: {}", concreteSignal.getOutputSignal());
+        log.info("Robustness: {}", robustness);
+        cexInput.add(abstractInput);
+        cexProperty.add(costFunc.get(index));
+        cexOutput.add(Word.fromList(concreteSignal.stream().map(mapper::mapOutput).collect(Collectors.toList())));
+    }
+
+    /**
+     * Generates the next batch of the samples by the configured sampling method.
+     */
+    List<Word<String>> generateBatch() {
+        final int numSyms = abstractInputAlphabet.size();
+        int[][] indices = new int[batchSize][length];
+        switch (sampling) {
+            case LATIN_HYPERCUBE:
+                for (int j = 0; j < length; j++) {
+                    // Stratify [0, 1) into batchSize intervals and assign them to the samples in a random order
+                    List<Integer> strata = new ArrayList<>();
+                    for (int i = 0; i < batchSize; i++) {
+                        strata.add(i);
+                    }
+                    Collections.shuffle(strata, random);
+                    for (int i = 0; i < batchSize; i++) {
+                        double u = (strata.get(i) + random.nextDouble()) / batchSize;
+                        indices[i][j] = Math.min((int) (u * numSyms), numSyms - 1);
+                    }
+                }
+                break;
+            case SOBOL:
+                for (int i = 0; i < batchSize; i++) {
+                    double[] point = sobol.nextVector();
+                    for (int j = 0; j < length; j++) {
+                        indices[i][j] = Math.min((int) (point[j] * numSyms), numSyms - 1);
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < batchSize; i++) {
+                    for (int j = 0; j < length; j++) {
+                        indices[i][j] = random.nextInt(numSyms);
+                    }
+                }
+        }
+        List<Word<String>> batch = new ArrayList<>(batchSize);
+        for (int[] word : indices) {
+            batch.add(Word.fromList(Arrays.stream(word).mapToObj(abstractInputAlphabet::get).collect(Collectors.toList())));
+        }
+        return batch;
+    }
+}
@@ -3,9 +3,14 @@ package net.maswag.falcaun;
 import de.learnlib.sul.SUL;
 import net.automatalib.word.Word;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Systems under learning with numerical I/O.
@@ -27,6 +32,29 @@ public interface NumericSUL extends SUL<List<Double>, IOSignalPiece<List<Double>
         return new IODiscreteSignal<>(inputSignal, Word.fromList(outputs));
     }
 
+    /**
+     * Execute the SUL asynchronously by feeding the entire input.
+     *
+     * <p>By default, {@link #execute(Word)} runs on a virtual thread if available (see {@link SULExecutors}), and the
+     * concurrent executions of this SUL are serialized by {@link SULExecutors#lockOf(NumericSUL)}. The SULs whose
+     * backend is asynchronous by nature, e.g., a simulator in another process, should override this method to complete
+     * the future directly.</p>
+     *
+     * @param inputSignal the input signal
+     * @return the future completed with the signal of the execution, or exceptionally if the execution fails
+     */
+    default CompletableFuture<IOSignal<List<Double>>> executeAsync(Word<List<Double>> inputSignal) {
+        return SULExecutors.callAsync(() -> {
+            final ReentrantLock lock = SULExecutors.lockOf(this);
+            lock.lockInterruptibly();
+            try {
+                return this.execute(inputSignal);
+            } finally {
+                lock.unlock();
+            }
+        }, SULExecutors.blocking());
+    }
+
     /**
      * Returns the number of SUL executions
      */
@@ -49,4 +77,83 @@ public interface NumericSUL extends SUL<List<Double>, IOSignalPiece<List<Double>
     default void post() {
         // do nothing
     }
+
+    /**
+     * Returns whether this SUL supports {@link #snapshot()} and {@link #restore(Object)}.
+     *
+     * @return {@code true} if and only if the internal state of this SUL can be saved and restored.
+     */
+    default boolean canSnapshot() {
+        return false;
+    }
+
+    /**
+     * Saves the current internal state of the SUL, i.e., the state after the steps fed since the last {@link #pre()}.
+     *
+     * <p>The returned handle is opaque to the caller. If it is {@link java.io.Serializable}, it may be written to disk.</p>
+     *
+     * @return the handle to restore the current state by {@link #restore(Object)}
+     * @throws UnsupportedOperationException if {@link #canSnapshot()} is {@code false}
+     */
+    default Object snapshot() {
+        throw new UnsupportedOperationException("This SUL does not support snapshots");
+    }
+
+    /**
+     * Restores the internal state saved by {@link #snapshot()}. This is used instead of {@link #pre()}.
+     *
+     * <p>The handle must remain valid after this call so that the same state can be restored again.
+     * Restoring a state counts as an execution of the SUL.</p>
+     *
+     * @param handle the handle returned by {@link #snapshot()}
+     * @throws UnsupportedOperationException if {@link #canSnapshot()} is {@code false}
+     */
+    default void restore(Object handle) {
+        throw new UnsupportedOperationException("This SUL does not support snapshots");
+    }
+
+    /**
+     * Releases the resources held by the handle returned by {@link #snapshot()}. The handle is not used afterward.
+     *
+     * @param handle the handle returned by {@link #snapshot()}
+     */
+    default void release(Object handle) {
+        // do nothing
+    }
+
+    /**
+     * Execute the SUL by feeding {@code suffix} from the state saved in {@code handle}, and save the final state.
+     *
+     * <p>The returned signal covers the entire execution including the prefix, i.e., it is the same as the result of
+     * {@link #execute(Word)} for the concatenation of the prefix and {@code suffix}.
+     * Continuous-time SULs supporting snapshots must override this method to construct the continuous signal.</p>
+     *
+     * @param handle           the state to start from. If it is {@code null}, we start from the initial state.
+     * @param prefixSignal     the signal observed until the state saved in {@code handle}. This is ignored if {@code handle} is {@code null}.
+     * @param suffix           the input signal fed after the saved state
+     * @param snapshotConsumer receives the handle of the final state before {@link #post()} is called
+     * @return the signal of the entire execution
+     */
+    default IOSignal<List<Double>> executeFrom(@Nullable Object handle, @Nullable IOSignal<List<Double>> prefixSignal,
+                                               Word<List<Double>> suffix, Consumer<Object> snapshotConsumer)
+            throws InterruptedException, ExecutionException {
+        List<List<Double>> outputs = new ArrayList<>();
+        Word<List<Double>> inputs = suffix;
+        if (Objects.isNull(handle)) {
+            this.pre();
+        } else {
+            this.restore(handle);
+            if (Objects.nonNull(prefixSignal)) {
+                outputs.addAll(prefixSignal.getOutputSignal().asList());
+                inputs = prefixSignal.getInputSignal().concat(suffix);
+            }
+        }
+        for (List<Double> input : suffix) {
+            outputs.add(this.step(input).getOutputSignal());
+        }
+        snapshotConsumer.accept(this.snapshot());
+        this.post();
+        assert inputs.size() == outputs.size();
+        return new IODiscreteSignal<>(inputs, Word.fromList(outputs));
+    }
 }
@@ -0,0 +1,184 @@
+package net.maswag.falcaun;
+
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.word.Word;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of {@link NumericSUL} instances executed concurrently.
+ *
+ * <p>Each instance is used by at most one thread at a time: a thread borrows an instance by {@link #borrow()} and
+ * returns it by {@link #giveBack(NumericSUL)}. The pool also owns an executor with one thread per instance so that the
+ * oracles can dispatch the simulations without creating threads.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class NumericSULPool implements AutoCloseable {
+    private final List<NumericSUL> instances;
+    private final BlockingQueue<NumericSUL> idle;
+    private final ExecutorService executor;
+
+    /**
+     * The factory of the SUL instances.
+     */
+    @FunctionalInterface
+    public interface Factory {
+        NumericSUL create() throws Exception;
+    }
+
+    /**
+     * @param instances The SUL instances. They must not share any state.
+     */
+    public NumericSULPool(List<? extends NumericSUL> instances) {
+        if (instances.isEmpty()) {
+            throw new IllegalArgumentException("The pool must contain at least one SUL");
+        }
+        this.instances = Collections.unmodifiableList(new ArrayList<>(instances));
+        this.idle = new ArrayBlockingQueue<>(instances.size(), true, instances);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(instances.size(), runnable -> {
+            Thread thread = new Thread(runnable, "sul-pool-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Constructs a pool of the given size by calling the factory.
+     *
+     * @param size    The number of the SUL instances.
+     * @param factory The factory of the SUL instances.
+     */
+    public static NumericSULPool fromFactory(int size, Factory factory) throws Exception {
+        List<NumericSUL> instances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            instances.add(factory.create());
+        }
+        return new NumericSULPool(instances);
+    }
+
+    /**
+     * Constructs a pool of the given size by forking the given SUL. The given SUL is the first instance of the pool.
+     *
+     * @param sul  The SUL to fork. It must support {@link NumericSUL#fork()}, and the forked SULs must be {@link NumericSUL}.
+     * @param size The number of the SUL instances.
+     */
+    public static NumericSULPool fromFork(NumericSUL sul, int size) {
+        if (size > 1 && !sul.canFork()) {
+            throw new IllegalArgumentException("The SUL does not support fork");
+        }
+        List<NumericSUL> instances = new ArrayList<>(size);
+        instances.add(sul);
+        for (int i = 1; i < size; i++) {
+            Object forked = sul.fork();
+            if (!(forked instanceof NumericSUL)) {
+                throw new IllegalArgumentException("The forked SUL is not a NumericSUL: " + forked.getClass());
+            }
+            instances.add((NumericSUL) forked);
+        }
+        return new NumericSULPool(instances);
+    }
+
+    /**
+     * Returns the number of the SUL instances.
+     */
+    public int size() {
+        return instances.size();
+    }
+
+    /**
+     * Returns the SUL instances in the pool.
+     */
+    public List<NumericSUL> getInstances() {
+        return instances;
+    }
+
+    /**
+     * Returns the executor with one thread per SUL instance.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Takes an idle SUL instance, waiting until one is returned if all the instances are in use.
+     */
+    public NumericSUL borrow() throws InterruptedException {
+        return idle.take();
+    }
+
+    /**
+     * Returns a SUL instance taken by {@link #borrow()}.
+     */
+    public void giveBack(NumericSUL sul) {
+        if (!idle.offer(sul)) {
+            throw new IllegalStateException("The SUL is returned more than once");
+        }
+    }
+
+    /**
+     * Execute an idle SUL instance asynchronously by feeding the entire input.
+     *
+     * <p>The instance is borrowed on a virtual thread if available, and executed by
+     * {@link NumericSUL#executeAsync(Word)}. Since the instance is given back when the execution completes, at most
+     * {@link #size()} executions run at once.</p>
+     *
+     * @param inputSignal the input signal
+     * @return the future completed with the signal of the execution
+     */
+    public CompletableFuture<IOSignal<List<Double>>> executeAsync(Word<List<Double>> inputSignal) {
+        return borrowAsync().thenCompose(sul -> sul.executeAsync(inputSignal).whenComplete((signal, e) -> giveBack(sul)));
+    }
+
+    /**
+     * Takes an idle SUL instance asynchronously. The returned instance must be returned by {@link #giveBack(NumericSUL)}.
+     */
+    CompletableFuture<NumericSUL> borrowAsync() {
+        return SULExecutors.callAsync(this::borrow, SULExecutors.blocking());
+    }
+
+    /**
+     * Returns the total number of the executions of the SUL instances.
+     */
+    public int getCounter() {
+        return instances.stream().mapToInt(NumericSUL::getCounter).sum();
+    }
+
+    /**
+     * Returns the total simulation time of the SUL instances. This can be longer than the wall-clock time.
+     */
+    public double getSimulationTimeSecond() {
+        return instances.stream().mapToDouble(NumericSUL::getSimulationTimeSecond).sum();
+    }
+
+    /**
+     * Clear the counters and the time measures of the SUL instances.
+     */
+    public void clear() {
+        instances.forEach(NumericSUL::clear);
+    }
+
+    /**
+     * Stop the executor and close all the SUL instances.
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        Exception exception = null;
+        for (NumericSUL sul : instances) {
+            try {
+                sul.close();
+            } catch (Exception e) {
+                log.error("Failed to close a SUL: {}", e.getMessage());
+                exception = Objects.isNull(exception) ? e : exception;
+            }
+        }
+        if (Objects.nonNull(exception)) {
+            throw exception;
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package net.maswag.falcaun;
 
 import lombok.extern.slf4j.Slf4j;
+import de.learnlib.query.DefaultQuery;
 import de.learnlib.sul.SUL;
 import de.learnlib.oracle.PropertyOracle.MealyPropertyOracle;
 import de.learnlib.mapper.MappedSUL;
 import net.automatalib.alphabet.Alphabet;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.util.automaton.Automata;
 import net.automatalib.word.Word;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
-import static de.learnlib.filter.cache.sul.SULCaches.createTreeCache;
-
 /**
  * Verifies a Numeric System Under Learning (NumericSUL) against specified properties using various equivalence oracles and model checking techniques.
  *
@@ -30,6 +37,18 @@ public class NumericSULVerifier {
     private final BlackBoxVerifier<List<Double>> verifier;
     private final NumericMembershipOracle memOracle;
     private final List<NumericMembershipOracleCost> memOracleCosts = new ArrayList<>();
+    /**
+     * The robustness values shared by the cost functions of all the properties.
+     */
+    private final RobustnessCache robustnessCache;
+    private final ConcurrentSULCache<List<Double>, IOSignalPiece<List<Double>>> concreteSULCache;
+    private final ConcurrentSULCache<String, String> abstractSULCache;
+    private ScheduledExecutorService cacheReporter = null;
+    /**
+     * The pipeline shared by the cost oracles, or {@code null} if each query is processed by a single thread.
+     */
+    @Nullable
+    private SimulationPipeline pipeline = null;
     private final EvaluationCountable.Sum evaluationCountables = new EvaluationCountable.Sum();
     private final double signalStep;
 
@@ -49,14 +68,100 @@ public class NumericSULVerifier {
         Alphabet<List<Double>> concreteInputAlphabet = mapper.constructConcreteAlphabet();
         Alphabet<String> abstractInputAlphabet = mapper.constructAbstractAlphabet();
 
-        this.simulink = createTreeCache(concreteInputAlphabet, rawSUL);
+        this.concreteSULCache = new ConcurrentSULCache<>(concreteInputAlphabet, rawSUL);
+        this.simulink = concreteSULCache;
 
-        SUL<String, String> mappedSimulink = new MappedSUL<>(mapper, simulink);
-        mappedSimulink = createTreeCache(abstractInputAlphabet, mappedSimulink);
+        this.abstractSULCache = new ConcurrentSULCache<>(abstractInputAlphabet, new MappedSUL<>(mapper, simulink));
         // create a regular membership oracle
         this.memOracle = new NumericMembershipOracle(rawSUL, this.mapper);
+        this.robustnessCache = new RobustnessCache(this.mapper);
+        this.memOracle.setRobustnessCache(this.robustnessCache);
         properties.setMemOracle(memOracle);
-        verifier = new BlackBoxVerifier<>(this.memOracle, mappedSimulink, properties, abstractInputAlphabet);
+        verifier = new BlackBoxVerifier<>(this.memOracle, abstractSULCache, properties, abstractInputAlphabet);
+        verifier.addHypothesisListener(this::pinLearnerWords);
+    }
+
+    /**
+     * Bound the memory usage of the query caches.
+     * <p>The budget is split into the membership cache (1/4), the robustness cache (1/2), and the SUL caches (1/8 each).
+     * The number of the nodes in each cache is bounded by the estimated memory usage per node.</p>
+     *
+     * @param budgetBytes The memory budget in bytes. If it is not positive, the caches are not bounded.
+     * @param softTier    Whether the evicted entries are kept by soft references.
+     */
+    public void setCacheBudget(long budgetBytes, boolean softTier) {
+        ConcurrentMealyTreeCache<String, String> memCache = this.memOracle.getCache();
+        memCache.setSoftTier(softTier);
+        memCache.setMaxNodes(toMaxNodes(budgetBytes / 4, memCache.estimatedBytesPerNode()));
+        this.robustnessCache.setSoftTier(softTier);
+        this.robustnessCache.setMaxNodes(toMaxNodes(budgetBytes / 2, this.robustnessCache.estimatedBytesPerNode()));
+        for (ConcurrentMealyTreeCache<?, ?> cache :
+                Arrays.asList(concreteSULCache.getCache(), abstractSULCache.getCache())) {
+            cache.setSoftTier(softTier);
+            cache.setMaxNodes(toMaxNodes(budgetBytes / 8, cache.estimatedBytesPerNode()));
+        }
+    }
+
+    private static int toMaxNodes(long budgetBytes, long bytesPerNode) {
+        return budgetBytes <= 0 ? 0 : (int) Math.max(1, Math.min(Integer.MAX_VALUE, budgetBytes / bytesPerNode));
+    }
+
+    /**
+     * Periodically report the number of the nodes and the estimated memory usage of the query caches.
+     *
+     * @param seconds The interval of the reports in seconds. If it is not positive, the reports are stopped.
+     */
+    public void setCacheReportInterval(long seconds) {
+        if (Objects.nonNull(cacheReporter)) {
+            cacheReporter.shutdownNow();
+            cacheReporter = null;
+        }
+        if (seconds > 0) {
+            cacheReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            cacheReporter.scheduleAtFixedRate(this::reportCacheFootprint, seconds, seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Log the number of the nodes and the estimated memory usage of the query caches.
+     */
+    public void reportCacheFootprint() {
+        ConcurrentMealyTreeCache<String, String> memCache = this.memOracle.getCache();
+        log.info("Membership cache: {} nodes, {} bytes, {} evicted, {} provisional ones dropped", memCache.size(),
+                memCache.estimatedBytes(), memCache.getEvictedNodes(), memCache.getDroppedNodes());
+        log.info("Robustness cache: {} nodes, {} bytes, {} evicted", robustnessCache.nodeCount(),
+                robustnessCache.estimatedBytes(), robustnessCache.getEvictedNodes());
+        log.info("Concrete SUL cache: {} nodes, {} bytes, {} evicted", concreteSULCache.size(),
+                concreteSULCache.getCache().estimatedBytes(), concreteSULCache.getCache().getEvictedNodes());
+        log.info("Abstract SUL cache: {} nodes, {} bytes, {} evicted", abstractSULCache.size(),
+                abstractSULCache.getCache().estimatedBytes(), abstractSULCache.getCache().getEvictedNodes());
+    }
+
+    /**
+     * Pin the words the learner may ask again, i.e., the access sequences of the hypothesis and their extensions by
+     * an input symbol, followed by the sequences distinguishing the states.
+     */
+    private void pinLearnerWords(MealyMachine<?, String, ?, String> hypothesis) {
+        ConcurrentMealyTreeCache<String, String> memCache = this.memOracle.getCache();
+        if (memCache.getMaxNodes() <= 0) {
+            return;
+        }
+        memCache.clearPins();
+        Alphabet<String> alphabet = this.mapper.constructAbstractAlphabet();
+        List<Word<String>> suffixes = new ArrayList<>(Automata.characterizingSet(hypothesis, alphabet));
+        suffixes.add(Word.epsilon());
+        for (Word<String> accessSequence : Automata.stateCover(hypothesis, alphabet)) {
+            for (Word<String> suffix : suffixes) {
+                memCache.pin(accessSequence.concat(suffix));
+                for (String symbol : alphabet) {
+                    memCache.pin(accessSequence.append(symbol).concat(suffix));
+                }
+            }
+        }
     }
 
     /**
@@ -71,14 +176,160 @@ public class NumericSULVerifier {
                                      ? extends EvaluationCountable.MealyEquivalenceOracle<String, String>> constructor) {
         // Define the cost function from a discrete input signal to a double using the Simulink model and the STL formula
         NumericMembershipOracleCost oracle =
-                new NumericMembershipOracleCost(this.rawSUL, this.mapper, costFunc);
+                new NumericMembershipOracleCost(this.rawSUL, this.mapper, costFunc, this.robustnessCache);
         oracle.setCache(this.memOracle.getCache());
+        oracle.setSnapshotCache(this.memOracle.getSnapshotCache());
+        oracle.setSulPool(this.memOracle.getSulPool());
+        oracle.setPipeline(this.pipeline);
+        oracle.setCheckpoint(this.memOracle.getCheckpoint());
         memOracleCosts.add(oracle);
         EvaluationCountable.MealyEquivalenceOracle<String, String> eqOracle = constructor.apply(oracle);
         evaluationCountables.add(eqOracle);
         this.verifier.addEqOracle(eqOracle);
     }
 
+    /**
+     * Enable the cache of the simulation states so that the executions resume from the deepest cached prefix.
+     * <p>This must be called before adding the equivalence oracles. It has no effect if the SUL does not support snapshots.</p>
+     *
+     * @param snapshotCache The cache of the simulation states.
+     */
+    public void setSnapshotCache(SimulationSnapshotCache snapshotCache) {
+        if (!this.rawSUL.canSnapshot()) {
+            log.warn("The SUL does not support snapshots. The snapshot cache is not used.");
+        }
+        this.memOracle.setSnapshotCache(snapshotCache);
+        for (NumericMembershipOracleCost oracle : memOracleCosts) {
+            oracle.setSnapshotCache(snapshotCache);
+        }
+    }
+
+    /**
+     * Execute the membership queries concurrently using the SULs in the given pool.
+     * <p>The pool may contain the SUL given to the constructor. The counters and the simulation time are summed over the pool.</p>
+     *
+     * @param sulPool The pool of the SULs. They must behave identically to the SUL given to the constructor.
+     */
+    public void setSULPool(NumericSULPool sulPool) {
+        this.memOracle.setSulPool(sulPool);
+        for (NumericMembershipOracleCost oracle : memOracleCosts) {
+            oracle.setSulPool(sulPool);
+        }
+    }
+
+    /**
+     * Separate the simulations from the post-processing of the cost oracles, i.e., the output mapping, the cache
+     * insertion, and the robustness computation, so that they run concurrently.
+     * <p>This must be called after {@link #setSULPool(NumericSULPool)} so that one simulation worker is used for
+     * each SUL in the pool.</p>
+     *
+     * @param postWorkers The number of the threads for the post-processing.
+     */
+    public void setPipeline(int postWorkers) {
+        if (Objects.nonNull(this.pipeline)) {
+            this.pipeline.close();
+        }
+        NumericSULPool sulPool = this.memOracle.getSulPool();
+        int simulationWorkers = Objects.isNull(sulPool) ? 1 : sulPool.size();
+        this.pipeline = new SimulationPipeline(simulationWorkers, postWorkers, 2 * postWorkers);
+        for (NumericMembershipOracleCost oracle : memOracleCosts) {
+            oracle.setPipeline(this.pipeline);
+        }
+    }
+
+    /**
+     * Write the checkpoint of the run to the given directory. The checkpoint already in the directory is discarded.
+     *
+     * @param directory The directory of the checkpoint.
+     * @see RunCheckpoint
+     */
+    public void setCheckpoint(Path directory) throws IOException {
+        useCheckpoint(new RunCheckpoint(directory));
+    }
+
+    /**
+     * Resume the run from the checkpoint in the given directory and keep writing the checkpoint there.
+     * <p>The logged simulations are restored to the caches, and the learner is refined by the logged counterexamples
+     * in {@link #run()}, so no query answered before is simulated again unless it is evicted from the caches. This
+     * must be called after the cache budget is set.</p>
+     *
+     * @param directory The directory of the checkpoint.
+     */
+    public void resume(Path directory) throws IOException {
+        RunCheckpoint checkpoint = RunCheckpoint.resume(directory, this.memOracle::restore);
+        log.info("Resume from {}: {} simulations and {} counterexamples are restored", directory,
+                checkpoint.getSimulationCount(), checkpoint.getLoggedCounterExamples().size());
+        useCheckpoint(checkpoint);
+    }
+
+    /**
+     * Warm-start the learning from the hypothesis and the simulations of a previous run checkpointed in the given
+     * directory.
+     * <p>The logged simulations are replayed into the caches, and the hypothesis of the previous run is the target of
+     * the equivalence checks until the learned hypothesis agrees with it. If the system may have changed since the
+     * previous run, the logged inputs can be executed again instead. They are executed in one batch, i.e., only the
+     * maximal words, and the equivalence oracles are not used until the previous hypothesis is learned or turns out to
+     * be outdated. This must be called after the checkpoint of this run is set so that it also records the replayed
+     * simulations.</p>
+     * <p>Without the revalidation, the logged outputs are cached provisionally: if a simulation of this run contradicts
+     * them, the contradicted ones are dropped from the membership cache and simulated again on demand, and the logged
+     * simulations contradicting the caches are skipped. However, the answers given to the learner before the
+     * contradiction are not revised, so this mode is sound only if the system is unchanged since the previous run.</p>
+     *
+     * @param directory  The directory of the checkpoint of the previous run.
+     * @param revalidate Whether the logged inputs are executed again instead of trusting the logged outputs.
+     * @see BlackBoxVerifier#setWarmStartHypothesis(MealyMachine)
+     */
+    public void warmStart(Path directory, boolean revalidate) throws IOException {
+        final MealyMachine<?, String, ?, String> hypothesis = RunCheckpoint.readModel(directory);
+        final long simulations;
+        if (revalidate) {
+            List<DefaultQuery<String, Word<String>>> queries = new ArrayList<>();
+            simulations = RunCheckpoint.readSimulations(directory,
+                    (abstractInput, signal) -> queries.add(new DefaultQuery<>(abstractInput)));
+            this.memOracle.processQueries(queries);
+        } else {
+            final RunCheckpoint checkpoint = this.memOracle.getCheckpoint();
+            final AtomicLong skipped = new AtomicLong();
+            simulations = RunCheckpoint.readSimulations(directory, (abstractInput, signal) -> {
+                if (!this.memOracle.restoreProvisionally(abstractInput, signal)) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                // Keep the simulations for the warm start of the next run
+                if (Objects.nonNull(checkpoint)) {
+                    checkpoint.recordSimulation(abstractInput, signal);
+                }
+            });
+            if (skipped.get() > 0) {
+                log.warn("{} simulations in {} contradict the caches and are skipped. The system may have changed " +
+                        "since the previous run: use the revalidation of the warm start.", skipped.get(), directory);
+            }
+        }
+        log.info("Warm start from {}: a hypothesis with {} states and {} simulations", directory, hypothesis.size(),
+                simulations);
+        this.verifier.setWarmStartHypothesis(hypothesis);
+    }
+
+    private void useCheckpoint(RunCheckpoint checkpoint) throws IOException {
+        if (Objects.nonNull(this.memOracle.getCheckpoint())) {
+            this.memOracle.getCheckpoint().close();
+        }
+        this.memOracle.setCheckpoint(checkpoint);
+        for (NumericMembershipOracleCost oracle : memOracleCosts) {
+            oracle.setCheckpoint(checkpoint);
+        }
+        this.verifier.setCheckpoint(checkpoint);
+    }
+
+    /**
+     * @return the pool of the SULs, or {@code null} if the queries are executed sequentially.
+     */
+    @Nullable
+    public NumericSULPool getSULPool() {
+        return this.memOracle.getSulPool();
+    }
+
     public void addWpMethodEQOracle(int maxDepth) {
         this.verifier.addWpMethodEQOracle(maxDepth);
     }
@@ -118,6 +369,38 @@ public class NumericSULVerifier {
         this.verifier.setTimeout(timeout);
     }
 
+    /**
+     * Run the equivalence oracles added after this call concurrently. The first counterexample is used, and the others
+     * are cancelled.
+     *
+     * @see BlackBoxVerifier#enablePortfolio()
+     */
+    public void enablePortfolio() {
+        this.verifier.enablePortfolio();
+    }
+
+    /**
+     * Set the learning algorithm.
+     *
+     * @param learnerKind   The kind of the learner.
+     * @param queryBatching Whether the queries of the learner are enlarged by the sibling queries so that they are
+     *                      executed concurrently on the SUL pool.
+     * @see BlackBoxVerifier#createLearner()
+     */
+    public void setLearner(BlackBoxVerifier.LearnerKind learnerKind, boolean queryBatching) {
+        this.verifier.setLearnerKind(learnerKind);
+        this.verifier.setQueryBatching(queryBatching);
+    }
+
+    /**
+     * Shorten the counterexamples of the equivalence oracles before giving them to the learner.
+     *
+     * @see BlackBoxVerifier#enableCounterExampleShortening(int)
+     */
+    public CounterExampleShortener enableCounterExampleShortening(int binarySearchThreshold) {
+        return this.verifier.enableCounterExampleShortening(binarySearchThreshold);
+    }
+
     public void addHillClimbingEQOracle(TemporalLogic.STLCost costFunc,
                                         int length,
                                         Random random,
@@ -228,6 +511,30 @@ public class NumericSULVerifier {
                 new GAEQOracle(oracle, length, maxTests, selectionKind, generationSize, crossoverProb, mutationProbability, ltlOracle));
     }
 
+    /**
+     * add a CMA-ES-based equivalence oracle searching the concrete input signals
+     *
+     * @param costFunc       The cost function assigning a Double to each OutputSignal. This is typically an STL formula.
+     * @param length         length of the generated signals
+     * @param controlPoints  the number of the values of each generated signal
+     * @param maxTests       maximum number of the simulations of the concrete signals
+     * @param populationSize size of the population. If it is not positive, the default of CMA-ES is used.
+     * @param sigma          the initial step size relative to the range of the concrete inputs
+     * @param random         The random number generator
+     * @param ltlOracle      the LTL formula
+     */
+    public void addCMAESEQOracle(Function<IOSignal<List<Double>>, Double> costFunc,
+                                 int length,
+                                 int controlPoints,
+                                 int maxTests,
+                                 int populationSize,
+                                 double sigma,
+                                 Random random,
+                                 MealyPropertyOracle<String, String, String> ltlOracle) {
+        this.addSimulinkEqOracle(costFunc, oracle ->
+                new CMAESEQOracle(oracle, length, controlPoints, maxTests, populationSize, sigma, random, ltlOracle));
+    }
+
     public List<Word<String>> getCexAbstractInput() {
         return verifier.getCexInput();
     }
@@ -252,12 +559,6 @@ public class NumericSULVerifier {
      * @return Returns {@code true} if and only if the Simulink model is verified i.e., no counter example is found.
      */
     public boolean run() {
-        Set<NumericMembershipOracleCost> tmp = new HashSet<>(memOracleCosts);
-        for (NumericMembershipOracleCost memOracleCost : memOracleCosts) {
-            tmp.remove(memOracleCost);
-            memOracleCost.addNotifiedAll(tmp);
-        }
-
         return verifier.run();
     }
 
@@ -290,6 +591,16 @@ public class NumericSULVerifier {
         verifier.writeETFLearnedMealy(os);
     }
 
+    /**
+     * Write the learned Mealy machine in {@link MealyBinaryFormat}.
+     *
+     * @param os Write the Mealy machine to {@code os}
+     * @throws IOException The exception by MealyBinaryFormat.write
+     */
+    public void writeBinaryLearnedMealy(OutputStream os) throws IOException {
+        verifier.writeBinaryLearnedMealy(os);
+    }
+
     /**
      * Visualize the found counter example.
      */
@@ -308,7 +619,11 @@ public class NumericSULVerifier {
      * @return the number of the Simulink executions
      */
     public int getSimulinkCount() {
-        return this.rawSUL.getCounter();
+        NumericSULPool sulPool = this.memOracle.getSulPool();
+        if (Objects.nonNull(sulPool) && !sulPool.getInstances().contains(this.rawSUL)) {
+            return sulPool.getCounter() + this.rawSUL.getCounter();
+        }
+        return Objects.isNull(sulPool) ? this.rawSUL.getCounter() : sulPool.getCounter();
     }
 
     public int getSimulinkCountForEqTest() {
@@ -333,14 +648,52 @@ public class NumericSULVerifier {
         }
     }
 
+    public void addCMAESEQOracleAll(int length, int controlPoints, int maxTest, int populationSize, double sigma, Random random) {
+        for (int i = 0; i < this.getProperties().size(); i++) {
+            this.addCMAESEQOracle(this.getProperties().getSTLProperties().get(i),
+                    length, controlPoints, maxTest, populationSize, sigma, random, this.getProperties().list().get(i));
+        }
+    }
+
     /**
      * Close the MATLAB engine. This method must be called when the object is no longer used.
      */
     public void close() throws Exception {
+        setCacheReportInterval(0);
+        if (Objects.nonNull(this.memOracle.getCheckpoint())) {
+            this.memOracle.getCheckpoint().close();
+        }
+        if (Objects.nonNull(this.pipeline)) {
+            this.pipeline.close();
+        }
+        if (Objects.nonNull(this.verifier.getPortfolio())) {
+            log.info("Counterexamples found by each equivalence oracle: {}", this.verifier.getPortfolio().getWinCounts());
+            this.verifier.getPortfolio().close();
+        }
+        if (this.getProperties() instanceof AbstractAdaptiveSTLUpdater) {
+            ((AbstractAdaptiveSTLUpdater<?>) this.getProperties()).close();
+        }
+        if (Objects.nonNull(this.memOracle.getSnapshotCache())) {
+            SimulationSnapshotCache snapshotCache = this.memOracle.getSnapshotCache();
+            log.info("Snapshot cache: {} hits, {} misses, {} steps skipped",
+                    snapshotCache.getHitCount(), snapshotCache.getMissCount(), snapshotCache.getSavedSteps());
+            snapshotCache.close();
+        }
+        NumericSULPool sulPool = this.memOracle.getSulPool();
+        if (Objects.nonNull(sulPool)) {
+            sulPool.close();
+            if (sulPool.getInstances().contains(this.rawSUL)) {
+                return;
+            }
+        }
         this.rawSUL.close();
     }
 
     public double getSimulationTimeSecond() {
-        return this.rawSUL.getSimulationTimeSecond();
+        NumericSULPool sulPool = this.memOracle.getSulPool();
+        if (Objects.nonNull(sulPool) && !sulPool.getInstances().contains(this.rawSUL)) {
+            return sulPool.getSimulationTimeSecond() + this.rawSUL.getSimulationTimeSecond();
+        }
+        return Objects.isNull(sulPool) ? this.rawSUL.getSimulationTimeSecond() : sulPool.getSimulationTimeSecond();
     }
 }
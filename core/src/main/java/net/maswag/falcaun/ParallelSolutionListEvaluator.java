@@ -0,0 +1,99 @@
+package net.maswag.falcaun;
+
+import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.Solution;
+import org.uma.jmetal.util.evaluator.SolutionListEvaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Evaluates the solutions concurrently using the given executor.
+ *
+ * <p>Unlike {@link org.uma.jmetal.util.evaluator.impl.MultithreadedSolutionListEvaluator}, this does not use the common
+ * fork-join pool, so the number of the concurrent evaluations is bounded by the executor, e.g., the one of a
+ * {@link NumericSULPool}. Once the stop condition holds, the solutions not evaluated yet are skipped, and their
+ * objectives are set to the positive infinity.</p>
+ *
+ * @param <S> the type of the solutions
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+class ParallelSolutionListEvaluator<S extends Solution<?>> implements SolutionListEvaluator<S> {
+    private final transient ExecutorService executor;
+    private final transient BooleanSupplier stopped;
+
+    /**
+     * @param executor the executor to evaluate the solutions. It is not shut down by this evaluator.
+     * @param stopped  the condition to skip the remaining evaluations, e.g., a counterexample is found.
+     */
+    ParallelSolutionListEvaluator(ExecutorService executor, BooleanSupplier stopped) {
+        this.executor = executor;
+        this.stopped = stopped;
+    }
+
+    @Override
+    public List<S> evaluate(List<S> solutionList, Problem<S> problem) {
+        List<Future<?>> futures = new ArrayList<>(solutionList.size());
+        final AtomicBoolean aborted = new AtomicBoolean(false);
+        for (S solution : solutionList) {
+            futures.add(executor.submit(() -> {
+                if (aborted.get() || stopped.getAsBoolean()) {
+                    for (int i = 0; i < solution.getNumberOfObjectives(); i++) {
+                        solution.setObjective(i, Double.POSITIVE_INFINITY);
+                    }
+                } else {
+                    problem.evaluate(solution);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            await(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            aborted.set(true);
+            await(futures);
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+        return solutionList;
+    }
+
+    /**
+     * Waits for the remaining evaluations so that they do not use the SULs after returning. The evaluations not
+     * started yet are skipped by the abort flag, and the running ones are not interrupted because they may be in the
+     * middle of a simulation.
+     */
+    private static void await(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        // The executor is owned by the caller
+    }
+}
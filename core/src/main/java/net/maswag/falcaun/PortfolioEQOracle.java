@@ -0,0 +1,263 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.EquivalenceOracle;
+import de.learnlib.query.DefaultQuery;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An equivalence oracle running the registered equivalence oracles concurrently.
+ *
+ * <p>The first valid counterexample, i.e., a query on which the hypothesis is wrong, wins. Then, the other oracles are
+ * cancelled, and we wait for them to stop before returning so that they do not use the hypothesis being refined. The
+ * oracles registered with a {@link Stoppable} are stopped by its stop condition, which is checked between the
+ * simulations, so their running simulations are not interrupted. The other oracles are cancelled by interruption.
+ * If an oracle fails, we keep waiting for the others. The failure is rethrown only if all the oracles fail.</p>
+ *
+ * <p>The registered oracles must be thread-safe with each other. The oracles using a {@link NumericMembershipOracle}
+ * are, since its caches are thread-safe and its SUL executions are either serialized or dispatched to a
+ * {@link NumericSULPool}. The oracles stepping a non-forkable SUL directly, e.g., random walk, are not.</p>
+ *
+ * @param <I> Input symbol
+ * @param <O> Output symbol
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class PortfolioEQOracle<I, O> implements EquivalenceOracle.MealyEquivalenceOracle<I, O>, AutoCloseable {
+    private final List<Strategy<I, O>> strategies = new ArrayList<>();
+    private final ExecutorService executor;
+    /**
+     * The name of the strategy found the last counterexample, or {@code null} if no counterexample is found.
+     */
+    @Getter
+    @Nullable
+    private String lastWinner = null;
+
+    public PortfolioEQOracle() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers an equivalence oracle.
+     *
+     * @param name      The name of the strategy used in the report.
+     * @param eqOracle  The equivalence oracle.
+     * @param countable The counter of the simulations by the oracle, or {@code null} if it is not available.
+     */
+    public void addOracle(String name, MealyEquivalenceOracle<I, O> eqOracle, @Nullable EvaluationCountable countable) {
+        addOracle(name, eqOracle, countable, null);
+    }
+
+    /**
+     * Registers an equivalence oracle that can be stopped cooperatively.
+     *
+     * @param name      The name of the strategy used in the report.
+     * @param eqOracle  The equivalence oracle.
+     * @param countable The counter of the simulations by the oracle, or {@code null} if it is not available.
+     * @param stoppable The oracle stopped by the stop condition, or {@code null} if the oracle is cancelled by
+     *                  interruption.
+     */
+    public void addOracle(String name, MealyEquivalenceOracle<I, O> eqOracle, @Nullable EvaluationCountable countable,
+                          @Nullable Stoppable stoppable) {
+        strategies.add(new Strategy<>(name, eqOracle, countable, stoppable));
+    }
+
+    /**
+     * Returns the number of the counterexamples found by each strategy so far.
+     */
+    public Map<String, Integer> getWinCounts() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        strategies.forEach(strategy -> result.put(strategy.name, strategy.wins));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    @ParametersAreNonnullByDefault
+    public DefaultQuery<I, Word<O>> findCounterExample(MealyMachine<?, I, ?, O> hypothesis, Collection<? extends I> inputs) {
+        lastWinner = null;
+        if (strategies.isEmpty()) {
+            return null;
+        }
+        CompletionService<Map.Entry<Strategy<I, O>, DefaultQuery<I, Word<O>>>> completionService =
+                new ExecutorCompletionService<>(executor);
+        List<Future<Map.Entry<Strategy<I, O>, DefaultQuery<I, Word<O>>>>> futures = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        for (Strategy<I, O> strategy : strategies) {
+            strategy.startCount = strategy.count();
+            if (Objects.nonNull(strategy.stoppable)) {
+                strategy.stoppable.setStopCondition(stopped::get);
+            }
+            Run run = new Run();
+            runs.add(run);
+            futures.add(completionService.submit(() -> {
+                if (!run.claim()) {
+                    return new AbstractMap.SimpleImmutableEntry<>(strategy, null);
+                }
+                try {
+                    return new AbstractMap.SimpleImmutableEntry<>(strategy,
+                            strategy.eqOracle.findCounterExample(hypothesis, inputs));
+                } finally {
+                    run.finish();
+                }
+            }));
+        }
+        DefaultQuery<I, Word<O>> result = null;
+        Throwable failure = null;
+        int failures = 0;
+        try {
+            for (int i = 0; i < futures.size() && Objects.isNull(result); i++) {
+                final Map.Entry<Strategy<I, O>, DefaultQuery<I, Word<O>>> entry;
+                try {
+                    entry = completionService.take().get();
+                } catch (ExecutionException e) {
+                    // Keep waiting for the other strategies
+                    log.error("An equivalence oracle failed", e.getCause());
+                    failures++;
+                    if (Objects.isNull(failure)) {
+                        failure = e.getCause();
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                    continue;
+                }
+                DefaultQuery<I, Word<O>> query = entry.getValue();
+                if (Objects.nonNull(query) && isValid(hypothesis, query)) {
+                    result = query;
+                    entry.getKey().wins++;
+                    lastWinner = entry.getKey().name;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped.set(true);
+            for (int i = 0; i < futures.size(); i++) {
+                // The stoppable oracles are not interrupted in the middle of a simulation
+                futures.get(i).cancel(Objects.isNull(strategies.get(i).stoppable));
+            }
+            awaitRuns(runs);
+            for (Strategy<I, O> strategy : strategies) {
+                if (Objects.nonNull(strategy.stoppable)) {
+                    strategy.stoppable.setStopCondition(() -> false);
+                }
+            }
+        }
+        if (Objects.nonNull(failure) && failures == futures.size()) {
+            // No strategy searched the counterexample, so the hypothesis is not checked at all
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException("All the equivalence oracles failed", failure);
+        }
+        report(result);
+        return result;
+    }
+
+    private boolean isValid(MealyMachine<?, I, ?, O> hypothesis, DefaultQuery<I, Word<O>> query) {
+        return !Objects.equals(hypothesis.computeSuffixOutput(query.getPrefix(), query.getSuffix()), query.getOutput());
+    }
+
+    /**
+     * Waits for the cancelled strategies to stop. We cannot use {@link Future#get()} for it because it returns
+     * immediately after the cancellation.
+     */
+    private void awaitRuns(List<Run> runs) {
+        boolean interrupted = false;
+        for (Run run : runs) {
+            if (run.claim()) {
+                // The strategy has not started, and it never starts.
+                run.finish();
+            }
+            while (true) {
+                try {
+                    run.finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(@Nullable DefaultQuery<I, Word<O>> result) {
+        StringJoiner simulations = new StringJoiner(", ");
+        for (Strategy<I, O> strategy : strategies) {
+            if (Objects.nonNull(strategy.countable)) {
+                simulations.add(strategy.name + ": " + (strategy.count() - strategy.startCount));
+            }
+        }
+        if (Objects.nonNull(result)) {
+            log.info("{} found a counterexample. Simulations: [{}]", lastWinner, simulations);
+        } else {
+            log.info("No counterexample is found. Simulations: [{}]", simulations);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class Strategy<I, O> {
+        final String name;
+        final MealyEquivalenceOracle<I, O> eqOracle;
+        @Nullable
+        final EvaluationCountable countable;
+        @Nullable
+        final Stoppable stoppable;
+        int startCount;
+        int wins = 0;
+
+        Strategy(String name, MealyEquivalenceOracle<I, O> eqOracle, @Nullable EvaluationCountable countable,
+                 @Nullable Stoppable stoppable) {
+            this.name = name;
+            this.eqOracle = eqOracle;
+            this.countable = countable;
+            this.stoppable = stoppable;
+        }
+
+        int count() {
+            return Objects.isNull(countable) ? 0 : countable.getEvaluateCount();
+        }
+    }
+
+    /**
+     * The state of an execution of a strategy. The strategy runs only if its task claims the run first.
+     */
+    private static final class Run {
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void finish() {
+            finished.countDown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.MembershipOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import lombok.Getter;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.word.Word;
+
+import java.util.*;
+
+/**
+ * Membership oracle enlarging the query batches of the learner by the sibling queries.
+ *
+ * <p>Many learners, e.g., TTT, ask the queries one by one, while the membership oracle executes a batch concurrently on
+ * the SUL pool. Since a learner asking a query {@code (u a, v)} typically asks {@code (u b, v)} for the other input
+ * symbols {@code b} soon, e.g., when it sifts the transitions of a new state, we ask them speculatively in the same
+ * batch. If the prefix is empty, the last symbol of the suffix is varied instead. The answers of the speculative
+ * queries are discarded, so this is useful only if the given membership oracle caches them, e.g.,
+ * {@link NumericMembershipOracle}.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public class PrefetchingMembershipOracle implements MembershipOracle.MealyMembershipOracle<String, String> {
+    private final MembershipOracle.MealyMembershipOracle<String, String> delegate;
+    private final Alphabet<String> alphabet;
+    /**
+     * The number of the speculative queries asked so far.
+     */
+    @Getter
+    private long speculativeQueries = 0;
+
+    /**
+     * @param delegate The membership oracle answering the queries. It should cache the answers.
+     * @param alphabet The input alphabet.
+     */
+    public PrefetchingMembershipOracle(MembershipOracle.MealyMembershipOracle<String, String> delegate,
+                                       Alphabet<String> alphabet) {
+        this.delegate = delegate;
+        this.alphabet = alphabet;
+    }
+
+    @Override
+    public void processQueries(Collection<? extends Query<String, Word<String>>> queries) {
+        Set<Word<String>> asked = new HashSet<>();
+        queries.forEach(query -> asked.add(query.getInput()));
+        List<Query<String, Word<String>>> batch = new ArrayList<>(queries);
+        for (Query<String, Word<String>> query : queries) {
+            final Word<String> prefix = query.getPrefix();
+            final Word<String> suffix = query.getSuffix();
+            final boolean varyPrefix = !prefix.isEmpty();
+            if (!varyPrefix && suffix.isEmpty()) {
+                continue;
+            }
+            for (String symbol : alphabet) {
+                final DefaultQuery<String, Word<String>> sibling = varyPrefix ?
+                        new DefaultQuery<>(prefix.prefix(-1).append(symbol), suffix) :
+                        new DefaultQuery<>(prefix, suffix.prefix(-1).append(symbol));
+                if (asked.add(sibling.getInput())) {
+                    batch.add(sibling);
+                    speculativeQueries++;
+                }
+            }
+        }
+        delegate.processQueries(batch);
+    }
+}
@@ -0,0 +1,257 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
+import net.automatalib.util.automaton.minimizer.hopcroft.HopcroftMinimization;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static net.automatalib.util.automaton.Automata.stateCover;
+
+/**
+ * Model checker reducing the Mealy machine for each property before passing it to another model checker, e.g., LTSmin.
+ *
+ * <p>The reduction consists of the following steps.</p>
+ * <ol>
+ *     <li>The outputs not appearing in the atomic propositions of the property cannot be distinguished by the property,
+ *     so they are replaced with one of them.</li>
+ *     <li>The resulting Mealy machine is minimized.</li>
+ *     <li>The inputs not appearing in the property and having the same transitions in all the states are merged.</li>
+ * </ol>
+ *
+ * <p>The reduced Mealy machine satisfies the property if and only if the original one does. The counterexample found
+ * for the reduced Mealy machine is mapped back by executing its input on the original one, so it has the original
+ * outputs.</p>
+ *
+ * <p>When all the properties are checked at once, e.g., by {@link #prefetch(MealyMachine, Collection, List)}, the Mealy
+ * machine is reduced once for the atomic propositions of all of them, and the reduced one is passed to the delegate as
+ * a {@link BatchModelChecker} if it is. Thus, the batch checking and the incremental checking of
+ * {@link MealyLTLModelChecker} work on the reduced Mealy machine, at the cost of a weaker reduction. After a prefetch,
+ * the following single-property checks of the same Mealy machine reuse the reduced one so that the delegate finds its
+ * results. If the delegate is not a {@link BatchModelChecker}, there is nothing to find, so the prefetch does nothing
+ * and each property is checked on the Mealy machine reduced for it.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class ReducingModelChecker implements BatchModelChecker {
+    /**
+     * The atomic propositions in the LTL formulas, e.g., {@code output == "a"}. See {@link TemporalLogic#toLTLString()}.
+     */
+    private static final Pattern ATOMIC = Pattern.compile("(input|output)\\s*[!=]=\\s*\"([^\"]*)\"");
+
+    @Getter
+    private final ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> delegate;
+    /**
+     * The Mealy machine reduced by the last {@link #prefetch(MealyMachine, Collection, List)}, or {@code null} if it is
+     * not called yet or the delegate is not a {@link BatchModelChecker}.
+     */
+    @Nullable
+    private volatile Prefetched prefetched = null;
+
+    /**
+     * @param delegate The model checker of the reduced Mealy machines.
+     */
+    public ReducingModelChecker(ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<? super String> getSkipOutputs() {
+        return delegate.getSkipOutputs();
+    }
+
+    @Override
+    public void setSkipOutputs(Collection<? super String> skipOutputs) {
+        delegate.setSkipOutputs(skipOutputs);
+    }
+
+    /**
+     * The Mealy machine reduced for a property and its input alphabet.
+     */
+    static final class Reduction {
+        final CompactMealy<String, String> mealy;
+        final List<String> inputs;
+
+        Reduction(CompactMealy<String, String> mealy, List<String> inputs) {
+            this.mealy = mealy;
+            this.inputs = inputs;
+        }
+    }
+
+    /**
+     * The Mealy machine reduced for the properties of a prefetch with the transitions of the original one.
+     */
+    private static final class Prefetched {
+        final List<Object> key;
+        final Set<String> properties;
+        final Reduction reduction;
+
+        Prefetched(List<Object> key, Set<String> properties, Reduction reduction) {
+            this.key = key;
+            this.properties = properties;
+            this.reduction = reduction;
+        }
+    }
+
+    @Nullable
+    @Override
+    public MealyMachine<?, String, ?, String> findCounterExample(MealyMachine<?, String, ?, String> automaton,
+                                                                Collection<? extends String> inputs, String property) {
+        final Prefetched current = prefetched;
+        final Reduction reduction;
+        if (Objects.nonNull(current) && current.properties.contains(property) &&
+                current.key.equals(new MealyLTLModelChecker.Structure<>(automaton, inputs).key)) {
+            // Reuse the reduced Mealy machine so that the delegate finds the prefetched results
+            reduction = current.reduction;
+        } else {
+            reduction = reduce(automaton, inputs, property);
+        }
+        return restore(delegate.findCounterExample(reduction.mealy, reduction.inputs, property), reduction,
+                automaton, inputs);
+    }
+
+    @Override
+    public List<MealyMachine<?, String, ?, String>> findCounterExamples(MealyMachine<?, String, ?, String> automaton,
+                                                                       Collection<? extends String> inputs,
+                                                                       List<String> properties) {
+        final Reduction reduction = reduce(automaton, inputs, properties);
+        List<MealyMachine<?, String, ?, String>> results = new ArrayList<>(properties.size());
+        if (delegate instanceof BatchModelChecker) {
+            results.addAll(((BatchModelChecker) delegate).findCounterExamples(reduction.mealy, reduction.inputs, properties));
+        } else {
+            for (String property : properties) {
+                results.add(delegate.findCounterExample(reduction.mealy, reduction.inputs, property));
+            }
+        }
+        results.replaceAll(result -> restore(result, reduction, automaton, inputs));
+        return results;
+    }
+
+    @Override
+    public void prefetch(MealyMachine<?, String, ?, String> automaton, Collection<? extends String> inputs,
+                         List<String> properties) {
+        if (!(delegate instanceof BatchModelChecker)) {
+            // The weaker reduction for all the properties does not pay off without the prefetched results
+            return;
+        }
+        final Reduction reduction = reduce(automaton, inputs, properties);
+        ((BatchModelChecker) delegate).prefetch(reduction.mealy, reduction.inputs, properties);
+        prefetched = new Prefetched(new MealyLTLModelChecker.Structure<>(automaton, inputs).key,
+                new HashSet<>(properties), reduction);
+    }
+
+    /**
+     * Maps the counterexample for the reduced Mealy machine back to the original one.
+     */
+    @Nullable
+    private MealyMachine<?, String, ?, String> restore(@Nullable MealyMachine<?, String, ?, String> result,
+                                                       Reduction reduction, MealyMachine<?, String, ?, String> automaton,
+                                                       Collection<? extends String> inputs) {
+        if (Objects.isNull(result)) {
+            return null;
+        }
+        final List<Word<String>> cover = stateCover(result, Alphabets.fromCollection(reduction.inputs));
+        final Word<String> input = cover.get(cover.size() - 1);
+        final Word<String> output = automaton.computeOutput(input);
+        List<String[]> path = new ArrayList<>(input.size());
+        for (int i = 0; i < input.size(); i++) {
+            path.add(new String[]{input.getSymbol(i), output.getSymbol(i)});
+        }
+        return MealyLTLModelChecker.toCounterExample(path, inputs);
+    }
+
+    /**
+     * Reduces the Mealy machine for the given property.
+     */
+    <S, T> Reduction reduce(MealyMachine<S, String, T, String> automaton, Collection<? extends String> inputs,
+                            String property) {
+        return reduce(automaton, inputs, Collections.singletonList(property));
+    }
+
+    /**
+     * Reduces the Mealy machine for all the given properties, i.e., for the union of their atomic propositions.
+     */
+    <S, T> Reduction reduce(MealyMachine<S, String, T, String> automaton, Collection<? extends String> inputs,
+                            List<String> properties) {
+        final Set<String> relevantInputs = new HashSet<>();
+        final Set<String> relevantOutputs = new HashSet<>();
+        for (String property : properties) {
+            final Matcher matcher = ATOMIC.matcher(property);
+            while (matcher.find()) {
+                (matcher.group(1).equals("input") ? relevantInputs : relevantOutputs).add(matcher.group(2));
+            }
+        }
+        final Alphabet<String> alphabet = Alphabets.fromCollection(inputs);
+
+        // Project the outputs. The skipped outputs are kept since the model checker refers to them.
+        final List<S> states = new ArrayList<>(automaton.getStates());
+        String representative = null;
+        for (S state : states) {
+            for (String input : alphabet) {
+                final T transition = automaton.getTransition(state, input);
+                if (Objects.nonNull(transition)) {
+                    final String output = automaton.getTransitionOutput(transition);
+                    if (isIrrelevant(output, relevantOutputs) &&
+                            (Objects.isNull(representative) || output.compareTo(representative) < 0)) {
+                        representative = output;
+                    }
+                }
+            }
+        }
+        CompactMealy<String, String> projected = new CompactMealy<>(alphabet);
+        Map<S, Integer> indices = new HashMap<>();
+        for (S state : states) {
+            indices.put(state, projected.addState());
+        }
+        if (Objects.nonNull(automaton.getInitialState())) {
+            projected.setInitialState(indices.get(automaton.getInitialState()));
+        }
+        for (S state : states) {
+            for (String input : alphabet) {
+                final T transition = automaton.getTransition(state, input);
+                if (Objects.nonNull(transition)) {
+                    final String output = automaton.getTransitionOutput(transition);
+                    projected.addTransition(indices.get(state), input, indices.get(automaton.getSuccessor(transition)),
+                            isIrrelevant(output, relevantOutputs) ? representative : output);
+                }
+            }
+        }
+
+        final CompactMealy<String, String> minimized = HopcroftMinimization.minimizeMealy(projected, alphabet);
+
+        // Merge the irrelevant inputs with the same transitions
+        List<String> reducedInputs = new ArrayList<>();
+        Set<List<Object>> columns = new HashSet<>();
+        for (String input : alphabet) {
+            if (relevantInputs.contains(input)) {
+                reducedInputs.add(input);
+                continue;
+            }
+            List<Object> column = new ArrayList<>();
+            for (Integer state : minimized.getStates()) {
+                column.add(minimized.getSuccessor(state, input));
+                column.add(minimized.getOutput(state, input));
+            }
+            if (columns.add(column)) {
+                reducedInputs.add(input);
+            }
+        }
+        log.debug("Reduced the Mealy machine from {} states and {} inputs to {} states and {} inputs",
+                states.size(), alphabet.size(), minimized.size(), reducedInputs.size());
+        return new Reduction(minimized, reducedInputs);
+    }
+
+    private boolean isIrrelevant(String output, Set<String> relevantOutputs) {
+        return !relevantOutputs.contains(output) && !getSkipOutputs().contains(output);
+    }
+}
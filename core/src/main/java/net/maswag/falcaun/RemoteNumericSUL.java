@@ -0,0 +1,231 @@
+package net.maswag.falcaun;
+
+import de.learnlib.exception.SULException;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link NumericSUL} executed by a SUL worker, typically in another process, through {@link SULWorkerProtocol}.
+ *
+ * <p>If the connection is lost during {@link #execute(Word)}, e.g., because the worker crashed, we reconnect once
+ * by the connector and retry the execution. The step-wise executions are not retried since the state of the SUL is
+ * lost.</p>
+ *
+ * <p>The executions by {@link #execute(Word)} and {@link #executeAsync(Word)} are serialized by a
+ * {@link ReentrantLock}, so the blocking I/O on a virtual thread does not pin its carrier thread.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class RemoteNumericSUL implements NumericSUL {
+    /**
+     * Opens a connection to a SUL worker.
+     */
+    @FunctionalInterface
+    public interface Connector {
+        Socket connect() throws IOException;
+    }
+
+    private final Connector connector;
+    @Nullable
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private volatile int counter = 0;
+    private final TimeMeasure simulationTime = new TimeMeasure();
+    /**
+     * Serializes the requests on the connection.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param connector the connector to the worker. It is called again when the connection is lost.
+     */
+    public RemoteNumericSUL(Connector connector) throws IOException {
+        this.connector = connector;
+        connect();
+    }
+
+    /**
+     * Connects to the worker listening on the given port of the loopback address.
+     */
+    public static RemoteNumericSUL localhost(int port) throws IOException {
+        return new RemoteNumericSUL(() -> new Socket(InetAddress.getLoopbackAddress(), port));
+    }
+
+    private void connect() throws IOException {
+        disconnect();
+        Socket newSocket = connector.connect();
+        newSocket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(newSocket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(newSocket.getOutputStream()));
+        this.socket = newSocket;
+        SULWorkerProtocol.readHeader(in);
+    }
+
+    private void disconnect() {
+        if (Objects.nonNull(socket)) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Failed to close the connection: {}", e.getMessage());
+            }
+            socket = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IOSignal<List<Double>> execute(Word<List<Double>> inputSignal) throws InterruptedException, ExecutionException {
+        lock.lockInterruptibly();
+        counter++;
+        simulationTime.start();
+        try {
+            try {
+                return request(inputSignal);
+            } catch (IOException e) {
+                log.warn("The connection to the SUL worker is lost: {}. Reconnecting", e.getMessage());
+                try {
+                    connect();
+                    return request(inputSignal);
+                } catch (IOException retryException) {
+                    disconnect();
+                    throw new ExecutionException(retryException);
+                } catch (IllegalStateException retryException) {
+                    // The worker reported an error for the retried simulation
+                    throw new ExecutionException(retryException);
+                }
+            } catch (IllegalStateException e) {
+                throw new ExecutionException(e);
+            }
+        } finally {
+            simulationTime.stop();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The request waits for the worker on a virtual thread if available. The concurrent executions are serialized
+     * by the lock of this SUL.</p>
+     */
+    @Override
+    public CompletableFuture<IOSignal<List<Double>>> executeAsync(Word<List<Double>> inputSignal) {
+        return SULExecutors.callAsync(() -> execute(inputSignal), SULExecutors.blocking());
+    }
+
+    private IOSignal<List<Double>> request(Word<List<Double>> inputSignal) throws IOException {
+        if (Objects.isNull(socket)) {
+            connect();
+        }
+        out.writeByte(SULWorkerProtocol.EXECUTE);
+        SULWorkerProtocol.writeWord(out, inputSignal);
+        out.flush();
+        SULWorkerProtocol.readStatus(in);
+        return SULWorkerProtocol.readSignal(in, inputSignal);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void pre() {
+        counter++;
+        try {
+            if (Objects.isNull(socket)) {
+                connect();
+            }
+            out.writeByte(SULWorkerProtocol.PRE);
+            out.flush();
+            SULWorkerProtocol.readStatus(in);
+        } catch (IOException e) {
+            disconnect();
+            throw new SULException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public IOSignalPiece<List<Double>> step(@Nullable List<Double> inputSignal) {
+        if (Objects.isNull(inputSignal)) {
+            return null;
+        }
+        simulationTime.start();
+        try {
+            out.writeByte(SULWorkerProtocol.STEP);
+            SULWorkerProtocol.writeVector(out, inputSignal);
+            out.flush();
+            SULWorkerProtocol.readStatus(in);
+            return new IOSignalPiece<>(inputSignal, SULWorkerProtocol.readVector(in));
+        } catch (IOException e) {
+            disconnect();
+            throw new SULException(e);
+        } finally {
+            simulationTime.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void post() {
+        try {
+            out.writeByte(SULWorkerProtocol.POST);
+            out.flush();
+            SULWorkerProtocol.readStatus(in);
+        } catch (IOException e) {
+            disconnect();
+            throw new SULException(e);
+        }
+    }
+
+    @Override
+    public int getCounter() {
+        return counter;
+    }
+
+    @Override
+    public double getSimulationTimeSecond() {
+        return simulationTime.getSecond();
+    }
+
+    @Override
+    public void clear() {
+        counter = 0;
+        simulationTime.reset();
+    }
+
+    /**
+     * Stops the worker and closes the connection.
+     */
+    @Override
+    public void close() {
+        if (Objects.nonNull(socket)) {
+            try {
+                out.writeByte(SULWorkerProtocol.SHUTDOWN);
+                out.flush();
+                SULWorkerProtocol.readStatus(in);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Failed to stop the SUL worker: {}", e.getMessage());
+            }
+        }
+        disconnect();
+    }
+}
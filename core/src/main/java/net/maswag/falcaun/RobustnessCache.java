@@ -0,0 +1,347 @@
+package net.maswag.falcaun;
+
+import net.automatalib.word.Word;
+
+import lombok.Getter;
+import javax.annotation.Nullable;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * A cache of the robustness values shared by the cost functions of multiple properties.
+ *
+ * <p>Each node of the prefix trie corresponds to an abstract input word, and it stores the robustness vector with one
+ * slot per registered cost function and the concrete signal of a trace visiting the node. The slots are computed
+ * lazily when they are looked up for the first time, so inserting a trace does not evaluate any cost function.</p>
+ *
+ * <p>The number of the nodes can be bounded by {@link #setMaxNodes(int)}. When the bound is exceeded, the least
+ * recently used leaves are evicted. If the soft-reference tier is enabled, the traces are held by
+ * {@link SoftReference} so that the garbage collector can reclaim them under memory pressure. The computed robustness
+ * values remain available even after the trace is reclaimed.</p>
+ *
+ * <p>The traces inserted by {@link #insertProvisionally(Word, IOSignal)}, e.g., from the log of a previous run, are
+ * replaced by the traces inserted by {@link #insert(Word, IOSignal)} on the same path, and they are removed by
+ * {@link #dropProvisional(Word)} when the membership cache drops the contradicted outputs.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+class RobustnessCache {
+    private final NumericSULMapper mapper;
+    private final List<Function<IOSignal<List<Double>>, Double>> costFunctions = new ArrayList<>();
+    private final Node root = new Node(null, null);
+    private int nodeCount = 1;
+    private long clock = 0;
+    /**
+     * The maximum number of the nodes. If it is not positive, the trie is not bounded.
+     */
+    @Getter
+    private int maxNodes = 0;
+    /**
+     * Whether the traces are held by soft references.
+     */
+    @Getter
+    private boolean softTier = false;
+    /**
+     * The number of the evicted nodes so far.
+     */
+    @Getter
+    private long evictedNodes = 0;
+
+    RobustnessCache(NumericSULMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Registers a cost function.
+     *
+     * @param costFunc the cost function computing the robustness of a concrete signal
+     * @return the index of the slot for the cost function
+     */
+    synchronized int register(Function<IOSignal<List<Double>>, Double> costFunc) {
+        costFunctions.add(costFunc);
+        return costFunctions.size() - 1;
+    }
+
+    /**
+     * Returns the number of the registered cost functions.
+     */
+    synchronized int size() {
+        return costFunctions.size();
+    }
+
+    /**
+     * Returns the number of the nodes in the trie including the root.
+     */
+    synchronized int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the estimated memory usage of the trie in bytes. The traces are estimated only for the nodes holding them strongly.
+     */
+    synchronized long estimatedBytes() {
+        long bytes = 0;
+        Set<IOSignal<List<Double>>> traces = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            // header, fields, the children map, and the robustness vector
+            bytes += 96 + 48L * node.children.size() + 16L * costFunctions.size();
+            IOSignal<List<Double>> trace = node.getTrace();
+            if (Objects.nonNull(trace) && !softTier && traces.add(trace)) {
+                bytes += 64L * trace.size();
+            }
+            stack.addAll(node.children.values());
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the estimated memory usage of a node in bytes assuming that each step of a trace is shared by one node.
+     */
+    synchronized long estimatedBytesPerNode() {
+        return 160 + 16L * costFunctions.size();
+    }
+
+    /**
+     * Bounds the number of the nodes in the trie.
+     *
+     * @param maxNodes the maximum number of the nodes. If it is not positive, the trie is not bounded.
+     */
+    synchronized void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+        evictIfNecessary();
+    }
+
+    /**
+     * Enables or disables holding the traces by soft references. This affects only the traces inserted afterward.
+     */
+    synchronized void setSoftTier(boolean softTier) {
+        this.softTier = softTier;
+    }
+
+    /**
+     * Records the concrete signal for the given abstract input.
+     *
+     * <p>The robustness values of the last node are discarded so that they are recomputed from the given signal.</p>
+     *
+     * @param abstractInput  the abstract input
+     * @param concreteSignal the concrete signal obtained by executing the SUL for {@code abstractInput}
+     */
+    synchronized void insert(Word<String> abstractInput, IOSignal<List<Double>> concreteSignal) {
+        assert abstractInput.size() == concreteSignal.size();
+        final Supplier<IOSignal<List<Double>>> trace = toSupplier(concreteSignal);
+        Node current = root;
+        for (String symbol : abstractInput) {
+            final Node parent = current;
+            current = current.children.computeIfAbsent(symbol, s -> {
+                nodeCount++;
+                return new Node(parent, s);
+            });
+            if (current.provisional) {
+                // The prefix of the trace of this run is trusted more than the provisional trace
+                current.provisional = false;
+                current.trace = trace;
+                current.robustness = null;
+            } else if (Objects.isNull(current.getTrace())) {
+                current.trace = trace;
+            }
+        }
+        current.trace = trace;
+        current.robustness = null;
+        current.lastAccess = ++clock;
+        evictIfNecessary();
+    }
+
+    /**
+     * Records the concrete signal for the given abstract input provisionally, e.g., from the log of a previous run of a
+     * system that may have changed since then. The traces already recorded are kept.
+     *
+     * @param abstractInput  the abstract input
+     * @param concreteSignal the concrete signal recorded for {@code abstractInput}
+     */
+    synchronized void insertProvisionally(Word<String> abstractInput, IOSignal<List<Double>> concreteSignal) {
+        assert abstractInput.size() == concreteSignal.size();
+        final Supplier<IOSignal<List<Double>>> trace = toSupplier(concreteSignal);
+        Node current = root;
+        for (String symbol : abstractInput) {
+            final Node parent = current;
+            current = current.children.computeIfAbsent(symbol, s -> {
+                nodeCount++;
+                Node created = new Node(parent, s);
+                created.provisional = true;
+                return created;
+            });
+            if (Objects.isNull(current.getTrace())) {
+                current.trace = trace;
+            }
+        }
+        current.lastAccess = ++clock;
+        evictIfNecessary();
+    }
+
+    /**
+     * Removes the provisional nodes for the given abstract input and its extensions.
+     *
+     * <p>Since {@link #insert(Word, IOSignal)} confirms all the nodes on its path, the descendants of a provisional node
+     * are provisional.</p>
+     */
+    synchronized void dropProvisional(Word<String> abstractInput) {
+        final Node node = find(abstractInput);
+        if (Objects.isNull(node)) {
+            return;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            final Node current = stack.pop();
+            if (current.provisional) {
+                Objects.requireNonNull(current.parent).children.remove(current.symbol);
+                nodeCount -= countNodes(current);
+            } else {
+                stack.addAll(current.children.values());
+            }
+        }
+    }
+
+    private static int countNodes(Node node) {
+        int count = 0;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            count++;
+            stack.addAll(stack.pop().children.values());
+        }
+        return count;
+    }
+
+    private Supplier<IOSignal<List<Double>>> toSupplier(IOSignal<List<Double>> concreteSignal) {
+        if (softTier) {
+            return new SoftReference<>(concreteSignal)::get;
+        } else {
+            return () -> concreteSignal;
+        }
+    }
+
+    /**
+     * Returns the robustness of the given abstract input for the cost function in the given slot.
+     *
+     * <p>The cost function is evaluated without holding the lock of this cache so that the robustness values of
+     * different traces can be computed concurrently.</p>
+     *
+     * @param abstractInput the abstract input
+     * @param slot          the index returned by {@link #register(Function)}
+     * @return the robustness, or {@code null} if no trace for {@code abstractInput} is recorded
+     */
+    @Nullable
+    Double lookup(Word<String> abstractInput, int slot) {
+        final Node node;
+        final IOSignal<List<Double>> trace;
+        final Function<IOSignal<List<Double>>, Double> costFunc;
+        synchronized (this) {
+            node = find(abstractInput);
+            if (Objects.isNull(node)) {
+                return null;
+            }
+            node.lastAccess = ++clock;
+            if (Objects.nonNull(node.robustness) && node.robustness.length > slot && Objects.nonNull(node.robustness[slot])) {
+                return node.robustness[slot];
+            }
+            trace = node.getTrace();
+            if (Objects.isNull(trace)) {
+                return null;
+            }
+            costFunc = costFunctions.get(slot);
+        }
+        final Double robustness = costFunc.apply(mappedPrefix(trace, abstractInput.size()));
+        synchronized (this) {
+            if (Objects.isNull(node.robustness) || node.robustness.length <= slot) {
+                node.robustness = Objects.isNull(node.robustness) ? new Double[costFunctions.size()] :
+                        Arrays.copyOf(node.robustness, costFunctions.size());
+            }
+            node.robustness[slot] = robustness;
+        }
+        return robustness;
+    }
+
+    /**
+     * Makes the signal given to the cost functions, i.e., the prefix of the recorded trace with the concrete outputs.
+     */
+    private IOSignal<List<Double>> mappedPrefix(IOSignal<List<Double>> trace, int length) {
+        IOSignal<List<Double>> prefix = trace.prefix(length);
+        return new IODiscreteSignal<>(prefix.getInputSignal(),
+                Word.fromList(prefix.stream().map(mapper::mapConcrete).collect(Collectors.toList())));
+    }
+
+    @Nullable
+    private Node find(Word<String> abstractInput) {
+        Node current = root;
+        for (String symbol : abstractInput) {
+            current = current.children.get(symbol);
+            if (Objects.isNull(current)) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private void evictIfNecessary() {
+        if (maxNodes <= 0 || nodeCount <= maxNodes) {
+            return;
+        }
+        final int target = (int) (maxNodes * ConcurrentMealyTreeCache.LOW_WATERMARK);
+        PriorityQueue<Node> leaves = new PriorityQueue<>(Comparator.comparingLong(node -> node.lastAccess));
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.children.isEmpty()) {
+                if (node != root) {
+                    leaves.add(node);
+                }
+            } else {
+                stack.addAll(node.children.values());
+            }
+        }
+        while (nodeCount > target && !leaves.isEmpty()) {
+            Node leaf = leaves.poll();
+            Node parent = Objects.requireNonNull(leaf.parent);
+            parent.children.remove(leaf.symbol);
+            nodeCount--;
+            evictedNodes++;
+            if (parent != root && parent.children.isEmpty()) {
+                parent.lastAccess = Math.max(parent.lastAccess, leaf.lastAccess);
+                leaves.add(parent);
+            }
+        }
+    }
+
+    private static class Node {
+        @Nullable
+        final Node parent;
+        @Nullable
+        final String symbol;
+        final Map<String, Node> children = new HashMap<>();
+        Supplier<IOSignal<List<Double>>> trace;
+        Double[] robustness;
+        long lastAccess;
+        /**
+         * Whether the trace is inserted by {@link #insertProvisionally(Word, IOSignal)} and not confirmed yet.
+         */
+        boolean provisional;
+
+        Node(@Nullable Node parent, @Nullable String symbol) {
+            this.parent = parent;
+            this.symbol = symbol;
+        }
+
+        @Nullable
+        IOSignal<List<Double>> getTrace() {
+            return Objects.isNull(trace) ? null : trace.get();
+        }
+    }
+}
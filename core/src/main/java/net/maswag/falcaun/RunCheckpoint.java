@@ -0,0 +1,323 @@
+package net.maswag.falcaun;
+
+import de.learnlib.query.DefaultQuery;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.serialization.dot.GraphDOT;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The checkpoint of a black-box checking run written to a local directory so that the run can be resumed after it is
+ * killed.
+ *
+ * <p>The checkpoint consists of two append-only logs: the simulations executed by {@link NumericMembershipOracle},
+ * i.e., the abstract inputs and the concrete signals, and the counterexamples given to the learner. On resume, the
+ * simulations are replayed into the membership and the robustness caches, and the learner is refined again by the
+ * logged counterexamples. Since the learner asks the same queries for the same answers, the learner, its hypothesis,
+ * and the state of the {@link AdaptiveSTLUpdater} are restored without any simulation. The latest hypothesis is also
+ * written in {@link MealyBinaryFormat} and in DOT for inspection. The hypothesis and the simulations of a finished run
+ * can warm-start another run by {@link #readModel(Path)} and {@link #readSimulations(Path, BiConsumer)}.</p>
+ *
+ * <p>Each record is its length (int) followed by the payload. A truncated record at the end, e.g., by a kill during
+ * the write, is discarded on resume. The logs are flushed at each equivalence query and at least every
+ * {@link #getFlushInterval()} milliseconds during the simulations. The files are written by {@link FileOutputStream}
+ * rather than {@link FileChannel}, which is closed by an interrupt of the writing thread, e.g., a cancelled oracle of
+ * the portfolio. If a write fails, the checkpoint is disabled with an error since the logs may miss a record.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class RunCheckpoint implements AutoCloseable {
+    static final String SIMULATIONS = "simulations.bin";
+    static final String COUNTER_EXAMPLES = "counterexamples.bin";
+    static final String HYPOTHESIS = "hypothesis.dot";
+    static final String MODEL = "hypothesis.bin";
+
+    /**
+     * The directory of the checkpoint.
+     */
+    @Getter
+    private final Path directory;
+    private final DataOutputStream simulations;
+    private final DataOutputStream counterExamples;
+    /**
+     * The counterexamples logged before the resume in the order given to the learner.
+     */
+    @Getter
+    private final List<DefaultQuery<String, Word<String>>> loggedCounterExamples;
+    /**
+     * The number of the simulations in the log including the replayed ones.
+     */
+    @Getter
+    private long simulationCount = 0;
+    /**
+     * The maximum interval of the flushes during the simulations in milliseconds.
+     */
+    @Getter
+    @Setter
+    private long flushInterval = 60_000;
+    private long lastFlush = System.currentTimeMillis();
+    /**
+     * Whether the checkpoint is disabled by a failure of a write.
+     */
+    @Getter
+    private volatile boolean disabled = false;
+
+    /**
+     * Starts a new checkpoint. The logs already in the directory are discarded.
+     *
+     * @param directory The directory of the checkpoint. It is created if it does not exist.
+     */
+    public RunCheckpoint(Path directory) throws IOException {
+        this(directory, null);
+    }
+
+    private RunCheckpoint(Path directory, @Nullable BiConsumer<Word<String>, IOSignal<List<Double>>> replay)
+            throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        final Path simulationFile = directory.resolve(SIMULATIONS);
+        final Path counterExampleFile = directory.resolve(COUNTER_EXAMPLES);
+        if (replay == null) {
+            Files.deleteIfExists(simulationFile);
+            Files.deleteIfExists(counterExampleFile);
+            this.loggedCounterExamples = Collections.emptyList();
+        } else {
+            this.simulationCount = readRecords(simulationFile, true, simulationReader(replay));
+            List<DefaultQuery<String, Word<String>>> counterExamples = new ArrayList<>();
+            readRecords(counterExampleFile, true, in -> {
+                final Word<String> prefix = readSymbols(in);
+                final Word<String> suffix = readSymbols(in);
+                counterExamples.add(new DefaultQuery<>(prefix, suffix, readSymbols(in)));
+            });
+            this.loggedCounterExamples = Collections.unmodifiableList(counterExamples);
+        }
+        this.simulations = open(simulationFile);
+        this.counterExamples = open(counterExampleFile);
+    }
+
+    /**
+     * Resumes the checkpoint in the given directory. The new records are appended to the existing logs.
+     *
+     * @param directory The directory of the checkpoint.
+     * @param replay    The consumer of the logged simulations, i.e., the abstract inputs and the concrete signals.
+     */
+    public static RunCheckpoint resume(Path directory, BiConsumer<Word<String>, IOSignal<List<Double>>> replay)
+            throws IOException {
+        return new RunCheckpoint(directory, replay);
+    }
+
+    /**
+     * Reads the simulations logged in the given directory without modifying it.
+     *
+     * @param directory The directory of the checkpoint.
+     * @param replay    The consumer of the logged simulations, i.e., the abstract inputs and the concrete signals.
+     * @return the number of the logged simulations
+     */
+    public static long readSimulations(Path directory, BiConsumer<Word<String>, IOSignal<List<Double>>> replay)
+            throws IOException {
+        return readRecords(directory.resolve(SIMULATIONS), false, simulationReader(replay));
+    }
+
+    /**
+     * Reads the latest hypothesis written in the given directory.
+     *
+     * @param directory The directory of the checkpoint.
+     */
+    public static CompactMealy<String, String> readModel(Path directory) throws IOException {
+        try (InputStream is = Files.newInputStream(directory.resolve(MODEL))) {
+            return MealyBinaryFormat.read(is);
+        }
+    }
+
+    private static RecordReader simulationReader(BiConsumer<Word<String>, IOSignal<List<Double>>> replay) {
+        return in -> {
+            final Word<String> abstractInput = readSymbols(in);
+            final Word<List<Double>> concreteInput = SULWorkerProtocol.readWord(in);
+            replay.accept(abstractInput, SULWorkerProtocol.readSignal(in, concreteInput));
+        };
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)));
+    }
+
+    /**
+     * Disables the checkpoint after a failure of a write. The following records are ignored.
+     */
+    private void disable(IOException e) {
+        disabled = true;
+        log.error("Failed to write the checkpoint to {}. The checkpoint is disabled, and the run cannot be resumed " +
+                "from the later state: {}", directory, e.toString());
+    }
+
+    /**
+     * Records a simulation. This can be called concurrently.
+     *
+     * @param abstractInput The abstract input of the simulation.
+     * @param signal        The concrete signal of the simulation.
+     */
+    synchronized void recordSimulation(Word<String> abstractInput, IOSignal<List<Double>> signal) {
+        if (disabled) {
+            return;
+        }
+        try {
+            writeRecord(simulations, out -> {
+                writeSymbols(out, abstractInput);
+                SULWorkerProtocol.writeWord(out, signal.getInputSignal());
+                SULWorkerProtocol.writeSignal(out, signal);
+            });
+            simulationCount++;
+            if (System.currentTimeMillis() - lastFlush >= flushInterval) {
+                flush();
+            }
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    /**
+     * Records the result of an equivalence query and flushes the logs.
+     *
+     * @param hypothesis     The hypothesis of the equivalence query.
+     * @param inputs         The input alphabet of the hypothesis.
+     * @param counterExample The counterexample given to the learner, or {@code null} if there is none.
+     */
+    synchronized void recordRound(MealyMachine<?, String, ?, String> hypothesis, Alphabet<String> inputs,
+                                  @Nullable DefaultQuery<String, Word<String>> counterExample) {
+        if (disabled) {
+            return;
+        }
+        try {
+            if (counterExample != null) {
+                writeRecord(counterExamples, out -> {
+                    writeSymbols(out, counterExample.getPrefix());
+                    writeSymbols(out, counterExample.getSuffix());
+                    writeSymbols(out, counterExample.getOutput());
+                });
+            }
+            flush();
+            final Path temporaryModel = directory.resolve(MODEL + ".tmp");
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(temporaryModel.toFile()))) {
+                MealyBinaryFormat.write(hypothesis, inputs, os);
+            }
+            Files.move(temporaryModel, directory.resolve(MODEL), StandardCopyOption.REPLACE_EXISTING);
+            final Path temporary = directory.resolve(HYPOTHESIS + ".tmp");
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporary.toFile()),
+                    StandardCharsets.UTF_8))) {
+                GraphDOT.write(hypothesis, inputs, writer);
+            }
+            Files.move(temporary, directory.resolve(HYPOTHESIS), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    private void flush() throws IOException {
+        simulations.flush();
+        counterExamples.flush();
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (!disabled) {
+                flush();
+            }
+        } finally {
+            simulations.close();
+            counterExamples.close();
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private interface RecordReader {
+        void read(DataInput in) throws IOException;
+    }
+
+    private static void writeRecord(DataOutputStream stream, RecordWriter writer) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        writer.write(new DataOutputStream(payload));
+        stream.writeInt(payload.size());
+        payload.writeTo(stream);
+    }
+
+    /**
+     * Reads the records in the file.
+     *
+     * @param truncate Whether the file is truncated after the last complete record.
+     * @return the number of the complete records
+     */
+    private static long readRecords(Path file, boolean truncate, RecordReader reader) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long count = 0;
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                final byte[] payload;
+                try {
+                    final int length = in.readInt();
+                    if (length < 0) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+                valid += Integer.BYTES + payload.length;
+                count++;
+            }
+        }
+        if (truncate && valid < Files.size(file)) {
+            log.warn("Discard the truncated record at the end of {}", file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return count;
+    }
+
+    private static void writeSymbols(DataOutput out, Word<String> word) throws IOException {
+        out.writeInt(word.size());
+        for (String symbol : word) {
+            out.writeUTF(symbol);
+        }
+    }
+
+    private static Word<String> readSymbols(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative length: " + length);
+        }
+        List<String> symbols = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            symbols.add(in.readUTF());
+        }
+        return Word.fromList(symbols);
+    }
+}
@@ -4,7 +4,10 @@ import de.learnlib.oracle.PropertyOracle;
 import de.learnlib.query.DefaultQuery;
 import net.automatalib.word.Word;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.stream.Collectors;
 
@@ -42,10 +45,20 @@ public class SAEQOracle extends HillClimbingEQOracle {
         this.alpha = alpha;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the SUL pool is available, the neighbors are evaluated concurrently in chunks. A chunk is at most the
+     * number of the remaining picks, and it does not cross the neighbors changing different positions. Thus, the
+     * concurrent evaluation simulates the same neighbors as the sequential one, and it uses the random numbers in the
+     * same order, i.e., the next generation is the same.</p>
+     */
     @Override
     protected List<Word<String>> createNextGeneration(List<Word<String>> goodSamples) {
         iteration++;
+        if (isParallel()) {
+            return createNextGenerationConcurrently(goodSamples);
+        }
         return goodSamples.stream().flatMap(src -> {
             double srcCost = onlyEval(src);
             return neighborhoodStream(src)
@@ -53,6 +66,35 @@ public class SAEQOracle extends HillClimbingEQOracle {
         }).collect(Collectors.toList());
     }
 
+    private List<Word<String>> createNextGenerationConcurrently(List<Word<String>> goodSamples) {
+        final int chunkSize = this.memOracle.getConcurrency();
+        List<Double> srcCosts = evaluateCosts(goodSamples);
+        List<Word<String>> result = new ArrayList<>();
+        for (int i = 0; i < goodSamples.size(); i++) {
+            final double srcCost = srcCosts.get(i);
+            // The next block is generated only after the picks from the current one, as in the sequential evaluation.
+            Iterator<List<Word<String>>> blocks = neighborhoodBlocks(goodSamples.get(i)).iterator();
+            int picked = 0;
+            while (picked < this.childrenSize && blocks.hasNext()) {
+                List<Word<String>> neighbors = blocks.next();
+                for (int begin = 0; begin < neighbors.size() && picked < this.childrenSize; ) {
+                    // The sequential evaluation stops at the last pick, so it evaluates at least the remaining picks.
+                    final int end = Math.min(begin + Math.min(chunkSize, this.childrenSize - picked), neighbors.size());
+                    List<Word<String>> chunk = neighbors.subList(begin, end);
+                    List<Double> dstCosts = evaluateCosts(chunk);
+                    for (int j = 0; j < chunk.size() && picked < this.childrenSize; j++) {
+                        if (shouldPick(srcCost, dstCosts.get(j))) {
+                            result.add(chunk.get(j));
+                            picked++;
+                        }
+                    }
+                    begin = end;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * @param srcCost the cost of src
      * @param dstCost the cost of dst
@@ -0,0 +1,336 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatches the simulations to the SUL workers, e.g., {@link SULWorker}, running on multiple hosts.
+ *
+ * <p>The coordinator process runs the learner and the equivalence oracles, and only the simulations are executed by the
+ * workers. Since all the queries go through the membership oracles of the coordinator, the traces are cached centrally
+ * by them. The simulations are queued, and each worker takes the next one when it becomes idle. If the connection to a
+ * worker is lost, its simulation is dispatched again to another worker, and we try to reconnect to the worker in the
+ * background. An error reported by a worker, e.g., an exception in the model, is not re-dispatched since it is
+ * deterministic.</p>
+ *
+ * <p>Since each simulation is executed from the initial state, the results are the same as those of a single-node
+ * run, provided that the SUL is deterministic.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class SULCoordinator implements AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final long RECONNECT_INTERVAL_MILLIS = 1000;
+    /**
+     * The default number of the reconnect attempts to a lost worker.
+     */
+    public static final int DEFAULT_RECONNECT_ATTEMPTS = 10;
+
+    private final List<InetSocketAddress> addresses;
+    private final BlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private final AtomicInteger aliveWorkers;
+    private volatile boolean closed = false;
+    private final AtomicInteger redispatchCount = new AtomicInteger();
+    /**
+     * The number of the reconnect attempts to a lost worker. If it is not positive, we do not reconnect.
+     */
+    @Getter
+    private final int maxReconnectAttempts;
+
+    private static final class Task {
+        final Word<List<Double>> input;
+        final CompletableFuture<IOSignal<List<Double>>> future = new CompletableFuture<>();
+
+        Task(Word<List<Double>> input) {
+            this.input = input;
+        }
+    }
+
+    /**
+     * @param addresses            the addresses of the workers
+     * @param maxReconnectAttempts the number of the attempts to reconnect to a lost worker
+     */
+    public SULCoordinator(List<InetSocketAddress> addresses, int maxReconnectAttempts) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is necessary");
+        }
+        this.addresses = new ArrayList<>(addresses);
+        this.maxReconnectAttempts = maxReconnectAttempts;
+        this.aliveWorkers = new AtomicInteger(addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            final InetSocketAddress address = addresses.get(i);
+            Thread thread = new Thread(() -> dispatch(address), "coordinator-" + address);
+            thread.setDaemon(true);
+            dispatchers.add(thread);
+        }
+        dispatchers.forEach(Thread::start);
+    }
+
+    /**
+     * Parses the addresses of the workers in the form of {@code host:port,host:port,...}.
+     */
+    public static List<InetSocketAddress> parseAddresses(String addresses) {
+        return Arrays.stream(addresses.split(",")).map(String::trim).filter(address -> !address.isEmpty()).map(address -> {
+            final int colon = address.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("The worker address must be host:port: " + address);
+            }
+            return InetSocketAddress.createUnresolved(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1)));
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the number of the workers.
+     */
+    public int size() {
+        return addresses.size();
+    }
+
+    /**
+     * Returns the number of the simulations dispatched again because of a lost worker.
+     */
+    public int getRedispatchCount() {
+        return redispatchCount.get();
+    }
+
+    /**
+     * Returns the number of the workers currently connected or being reconnected.
+     */
+    public int getAliveWorkers() {
+        return aliveWorkers.get();
+    }
+
+    /**
+     * Submits a simulation.
+     *
+     * @param input the input signal
+     * @return the future completed with the signal of the execution
+     */
+    public CompletableFuture<IOSignal<List<Double>>> submit(Word<List<Double>> input) {
+        Task task = new Task(input);
+        if (closed || aliveWorkers.get() == 0) {
+            task.future.completeExceptionally(new IllegalStateException("No SUL worker is available"));
+        } else {
+            tasks.add(task);
+            if (aliveWorkers.get() == 0) {
+                // All the workers are lost while adding the task
+                failPendingTasks();
+            }
+        }
+        return task.future;
+    }
+
+    /**
+     * Executes the simulations and returns the results in the same order.
+     */
+    public List<IOSignal<List<Double>>> executeBatch(List<Word<List<Double>>> inputs)
+            throws InterruptedException, ExecutionException {
+        List<CompletableFuture<IOSignal<List<Double>>>> futures =
+                inputs.stream().map(this::submit).collect(Collectors.toList());
+        List<IOSignal<List<Double>>> results = new ArrayList<>(inputs.size());
+        for (CompletableFuture<IOSignal<List<Double>>> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    /**
+     * Makes a pool of the SULs executed by this coordinator so that the membership oracles dispatch as many
+     * simulations as the workers at once. The SULs in the pool share this coordinator, and closing the pool closes it.
+     */
+    public NumericSULPool toNumericSULPool() {
+        List<NumericSUL> instances = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            instances.add(new CoordinatedSUL());
+        }
+        return new NumericSULPool(instances);
+    }
+
+    private void dispatch(InetSocketAddress address) {
+        RemoteNumericSUL sul = null;
+        int failures = 0;
+        try {
+            while (!closed) {
+                if (Objects.isNull(sul)) {
+                    try {
+                        sul = new RemoteNumericSUL(() -> connect(address));
+                        failures = 0;
+                        log.debug("Connected to the SUL worker {}", address);
+                    } catch (IOException e) {
+                        if (++failures > Math.max(maxReconnectAttempts, 0)) {
+                            log.error("Gave up the SUL worker {}: {}", address, e.getMessage());
+                            return;
+                        }
+                        Thread.sleep(RECONNECT_INTERVAL_MILLIS);
+                        continue;
+                    }
+                }
+                Task task = tasks.take();
+                if (task.future.isDone()) {
+                    continue;
+                }
+                try {
+                    task.future.complete(sul.execute(task.input));
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        log.warn("Lost the SUL worker {}: {}. Dispatching the simulation again", address,
+                                e.getCause().getMessage());
+                        redispatchCount.incrementAndGet();
+                        tasks.add(task);
+                        sul.close();
+                        sul = null;
+                        if (maxReconnectAttempts <= 0) {
+                            return;
+                        }
+                    } else {
+                        task.future.completeExceptionally(Objects.isNull(e.getCause()) ? e : e.getCause());
+                    }
+                } catch (RuntimeException e) {
+                    // Do not let the client wait for the task forever
+                    log.error("Failed to simulate on the SUL worker {}: {}", address, e.getMessage());
+                    task.future.completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.trace("The dispatcher for {} is stopped", address);
+        } finally {
+            if (Objects.nonNull(sul)) {
+                sul.close();
+            }
+            if (aliveWorkers.decrementAndGet() == 0) {
+                failPendingTasks();
+            }
+        }
+    }
+
+    private static Socket connect(InetSocketAddress address) throws IOException {
+        Socket socket = new Socket();
+        try {
+            InetSocketAddress resolved = address.isUnresolved() ?
+                    new InetSocketAddress(address.getHostString(), address.getPort()) : address;
+            socket.connect(resolved, CONNECT_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    private void failPendingTasks() {
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            task.future.completeExceptionally(new IllegalStateException("No SUL worker is available"));
+        }
+    }
+
+    /**
+     * Stops the dispatchers and the workers. The pending simulations fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dispatchers.forEach(Thread::interrupt);
+        for (Thread dispatcher : dispatchers) {
+            try {
+                dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        failPendingTasks();
+    }
+
+    /**
+     * A SUL executed by the workers of the coordinator.
+     *
+     * <p>The step-wise execution is emulated by executing the entire prefix for each step. It is slow, and it is used
+     * only by the oracles stepping the SUL directly, e.g., random walk.</p>
+     */
+    private class CoordinatedSUL implements NumericSUL {
+        private volatile int counter = 0;
+        private final TimeMeasure simulationTime = new TimeMeasure();
+        @Nullable
+        private List<List<Double>> steps;
+
+        @Override
+        public IOSignal<List<Double>> execute(Word<List<Double>> inputSignal) throws InterruptedException, ExecutionException {
+            counter++;
+            simulationTime.start();
+            try {
+                return submit(inputSignal).get();
+            } finally {
+                simulationTime.stop();
+            }
+        }
+
+        @Override
+        public CompletableFuture<IOSignal<List<Double>>> executeAsync(Word<List<Double>> inputSignal) {
+            counter++;
+            return submit(inputSignal);
+        }
+
+        @Override
+        public void pre() {
+            counter++;
+            steps = new ArrayList<>();
+        }
+
+        @Nullable
+        @Override
+        public IOSignalPiece<List<Double>> step(@Nullable List<Double> input) {
+            if (Objects.isNull(input)) {
+                return null;
+            }
+            Objects.requireNonNull(steps, "step is called before pre").add(input);
+            try {
+                IOSignal<List<Double>> signal = submit(Word.fromList(steps)).get();
+                return new IOSignalPiece<>(input, signal.getOutputSignal().lastSymbol());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        public void post() {
+            steps = null;
+        }
+
+        @Override
+        public int getCounter() {
+            return counter;
+        }
+
+        @Override
+        public double getSimulationTimeSecond() {
+            return simulationTime.getSecond();
+        }
+
+        @Override
+        public void clear() {
+            counter = 0;
+            simulationTime.reset();
+        }
+
+        @Override
+        public void close() {
+            SULCoordinator.this.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.maswag.falcaun;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The executor shared by the blocking SULs executed asynchronously, e.g., by {@link NumericSUL#executeAsync(net.automatalib.word.Word)}.
+ *
+ * <p>On Java 21 or later, each task runs on its own virtual thread, so that the blocking simulations do not occupy the
+ * platform threads. Since we target Java 17, the virtual-thread executor is looked up reflectively, and we fall back to
+ * a cached pool of daemon threads if it is unavailable.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+final class SULExecutors {
+    private static final ExecutorService BLOCKING = createBlockingExecutor();
+    /**
+     * The locks serializing the executions of each SUL. We do not use the monitors of the SULs since a virtual thread
+     * blocked in a {@code synchronized} block pins its carrier thread.
+     */
+    private static final Map<NumericSUL, ReentrantLock> LOCKS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private SULExecutors() {
+    }
+
+    /**
+     * Returns the executor for the blocking SUL executions. It must not be shut down.
+     */
+    static ExecutorService blocking() {
+        return BLOCKING;
+    }
+
+    /**
+     * Returns the lock serializing the executions of the given SUL, e.g., by {@link NumericSUL#executeAsync} and by
+     * the membership oracles sharing it.
+     */
+    static ReentrantLock lockOf(NumericSUL sul) {
+        return LOCKS.computeIfAbsent(sul, key -> new ReentrantLock());
+    }
+
+    /**
+     * Returns {@code true} if and only if the blocking SUL executions run on virtual threads.
+     */
+    static boolean isVirtual() {
+        return !(BLOCKING instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Runs the blocking task on the executor and completes the returned future with its result.
+     *
+     * <p>The {@link java.util.concurrent.ExecutionException} thrown by the task is unwrapped so that the future
+     * completes exceptionally with its cause.</p>
+     */
+    static <T> CompletableFuture<T> callAsync(Callable<T> task, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(Objects.isNull(e.getCause()) ? e : e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static ExecutorService createBlockingExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.debug("The blocking SUL executions run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Virtual threads are unavailable. The blocking SUL executions run on a cached thread pool");
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sul-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package net.maswag.falcaun;
+
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * The reference implementation of a SUL worker serving a {@link NumericSUL} by {@link SULWorkerProtocol}.
+ *
+ * <p>Since a SUL is not thread-safe, the connections are served one by one. The worker is usually run in a separate
+ * process by {@link SULWorkerPool} so that a crash or a leak of the SUL does not affect the learner. It can also be
+ * run in a thread, e.g., for testing.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class SULWorker implements AutoCloseable {
+    private final NumericSUL sul;
+    private final ServerSocket serverSocket;
+    private volatile boolean shutdown = false;
+    /**
+     * The connection being served, or {@code null} if no client is connected.
+     */
+    @Nullable
+    private volatile Socket current = null;
+
+    /**
+     * @param sul  the SUL to serve
+     * @param port the port to listen on the loopback address. If it is 0, an ephemeral port is used.
+     */
+    public SULWorker(NumericSUL sul, int port) throws IOException {
+        this(sul, port, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * @param sul         the SUL to serve
+     * @param port        the port to listen on. If it is 0, an ephemeral port is used.
+     * @param bindAddress the address to listen on, e.g., the wildcard address to accept a coordinator on another host.
+     */
+    public SULWorker(NumericSUL sul, int port, InetAddress bindAddress) throws IOException {
+        this.sul = sul;
+        this.serverSocket = new ServerSocket(port, 1, bindAddress);
+    }
+
+    /**
+     * Returns the port this worker listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Serves the connections until {@link SULWorkerProtocol#SHUTDOWN} is requested or this worker is closed.
+     */
+    public void serve() {
+        while (!shutdown) {
+            try (Socket socket = serverSocket.accept()) {
+                socket.setTcpNoDelay(true);
+                current = socket;
+                serveConnection(socket);
+            } catch (IOException e) {
+                if (!shutdown && !serverSocket.isClosed()) {
+                    log.warn("The connection is lost: {}", e.getMessage());
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(SULWorkerProtocol.MAGIC);
+        out.writeByte(SULWorkerProtocol.VERSION);
+        out.flush();
+        while (true) {
+            final int operation = in.read();
+            if (operation < 0) {
+                // The client closed the connection
+                return;
+            }
+            switch (operation) {
+                case SULWorkerProtocol.EXECUTE:
+                    handleExecute(in, out);
+                    break;
+                case SULWorkerProtocol.PRE:
+                    handle(out, sul::pre);
+                    break;
+                case SULWorkerProtocol.STEP:
+                    handleStep(in, out);
+                    break;
+                case SULWorkerProtocol.POST:
+                    handle(out, sul::post);
+                    break;
+                case SULWorkerProtocol.SHUTDOWN:
+                    out.writeByte(SULWorkerProtocol.OK);
+                    out.flush();
+                    close();
+                    return;
+                default:
+                    throw new IOException("Unknown operation: " + operation);
+            }
+            out.flush();
+        }
+    }
+
+    private void handleExecute(DataInputStream in, DataOutputStream out) throws IOException {
+        final Word<List<Double>> input = SULWorkerProtocol.readWord(in);
+        final IOSignal<List<Double>> signal;
+        try {
+            signal = sul.execute(input);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            SULWorkerProtocol.writeError(out, e);
+            return;
+        } catch (Exception e) {
+            log.error("Failed to execute the SUL: {}", e.getMessage());
+            SULWorkerProtocol.writeError(out, e);
+            return;
+        }
+        out.writeByte(SULWorkerProtocol.OK);
+        SULWorkerProtocol.writeSignal(out, signal);
+    }
+
+    private void handleStep(DataInputStream in, DataOutputStream out) throws IOException {
+        final List<Double> input = SULWorkerProtocol.readVector(in);
+        final List<Double> output;
+        try {
+            output = sul.step(input).getOutputSignal();
+        } catch (RuntimeException e) {
+            SULWorkerProtocol.writeError(out, e);
+            return;
+        }
+        out.writeByte(SULWorkerProtocol.OK);
+        SULWorkerProtocol.writeVector(out, output);
+    }
+
+    private void handle(DataOutputStream out, Runnable action) throws IOException {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            SULWorkerProtocol.writeError(out, e);
+            return;
+        }
+        out.writeByte(SULWorkerProtocol.OK);
+    }
+
+    /**
+     * Stops serving, drops the current connection, and closes the SUL.
+     */
+    @Override
+    public void close() {
+        shutdown = true;
+        try {
+            serverSocket.close();
+            Socket socket = current;
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close the server socket: {}", e.getMessage());
+        }
+        try {
+            sul.close();
+        } catch (Exception e) {
+            log.warn("Failed to close the SUL: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a worker process.
+     *
+     * <p>Usage: {@code SULWorker <port> <class> [bind-address]}, where {@code <class>} is the name of a class implementing
+     * {@link NumericSUL} or {@link NumericSULPool.Factory} with a constructor without arguments. The worker listens on
+     * the loopback address unless {@code bind-address} is given, e.g., {@code 0.0.0.0} for a worker serving
+     * {@link SULCoordinator} on another host. The port is printed to
+     * the standard output after the worker starts listening. The other lines of the standard output, e.g., logs, are
+     * ignored by {@link SULWorkerPool}.</p>
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: SULWorker <port> <NumericSUL or NumericSULPool.Factory class> [bind-address]");
+            System.exit(1);
+        }
+        InetAddress bindAddress = args.length == 3 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        try (SULWorker worker = new SULWorker(instantiate(args[1]), Integer.parseInt(args[0]), bindAddress)) {
+            System.out.println(SULWorkerProtocol.PORT_PREFIX + worker.getPort());
+            System.out.flush();
+            worker.serve();
+        }
+    }
+
+    static NumericSUL instantiate(String className) throws Exception {
+        Class<?> clazz = Class.forName(className);
+        java.lang.reflect.Constructor<?> constructor = clazz.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object instance = constructor.newInstance();
+        if (instance instanceof NumericSUL) {
+            return (NumericSUL) instance;
+        } else if (instance instanceof NumericSULPool.Factory) {
+            return ((NumericSULPool.Factory) instance).create();
+        }
+        throw new IllegalArgumentException(className + " is neither a NumericSUL nor a NumericSULPool.Factory");
+    }
+}
@@ -0,0 +1,190 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spawns SUL worker processes on the local host and connects a {@link RemoteNumericSUL} to each of them.
+ *
+ * <p>Each worker runs in its own process, so the SULs are executed in parallel without sharing any state, e.g., the
+ * GIL of a Python interpreter, and a crash of a SUL does not take down the learner. If a worker dies, it is spawned
+ * again on the next execution. The remote SULs are used through {@link #toNumericSULPool()}.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class SULWorkerPool implements AutoCloseable {
+    private final List<String> command;
+    private final Process[] processes;
+    private final int[] ports;
+    /**
+     * The clients connected to the workers.
+     */
+    @Getter
+    private final List<RemoteNumericSUL> instances;
+
+    /**
+     * Spawns the workers by the given command. The command must start a worker printing its port as described in
+     * {@link SULWorkerProtocol}.
+     *
+     * @param size    the number of the workers
+     * @param command the command to start a worker
+     */
+    public SULWorkerPool(int size, List<String> command) throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool must contain at least one worker");
+        }
+        this.command = new ArrayList<>(command);
+        this.processes = new Process[size];
+        this.ports = new int[size];
+        List<RemoteNumericSUL> clients = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                spawn(i);
+                final int index = i;
+                clients.add(new RemoteNumericSUL(() -> connect(index)));
+            }
+        } catch (IOException | RuntimeException e) {
+            destroyAll();
+            throw e;
+        }
+        this.instances = Collections.unmodifiableList(clients);
+    }
+
+    /**
+     * Spawns the workers running {@link SULWorker} on the JVM and the class path of the current process.
+     *
+     * @param size     the number of the workers
+     * @param sulClass the class implementing {@link NumericSUL} or {@link NumericSULPool.Factory} with a constructor without arguments
+     */
+    public static SULWorkerPool javaWorkers(int size, Class<?> sulClass) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new SULWorkerPool(size, Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+                SULWorker.class.getName(), "0", sulClass.getName()));
+    }
+
+    /**
+     * Makes a pool of the remote SULs so that the membership oracles execute them concurrently.
+     * The pool owns the remote SULs, and closing it stops the workers.
+     */
+    public NumericSULPool toNumericSULPool() {
+        return new NumericSULPool(instances);
+    }
+
+    /**
+     * Returns the number of the workers.
+     */
+    public int size() {
+        return processes.length;
+    }
+
+    /**
+     * Returns the process of the worker of the given index.
+     */
+    synchronized Process getProcess(int index) {
+        return processes[index];
+    }
+
+    private void spawn(int index) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = builder.start();
+        processes[index] = process;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(SULWorkerProtocol.PORT_PREFIX)) {
+                ports[index] = Integer.parseInt(line.substring(SULWorkerProtocol.PORT_PREFIX.length()).trim());
+                log.debug("SUL worker {} (pid {}) listens on port {}", index, process.pid(), ports[index]);
+                drain(reader, index);
+                return;
+            }
+            log.debug("SUL worker {}: {}", index, line);
+        }
+        process.destroyForcibly();
+        throw new IOException("The SUL worker " + index + " exited without telling its port");
+    }
+
+    /**
+     * Keeps reading the standard output of a worker so that it does not block on a full pipe.
+     */
+    private void drain(BufferedReader reader, int index) {
+        Thread thread = new Thread(() -> {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.debug("SUL worker {}: {}", index, line);
+                }
+            } catch (IOException e) {
+                log.trace("The output of the SUL worker {} is closed", index);
+            }
+        }, "sul-worker-output-" + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Connects to the worker of the given index, spawning it again if it is dead.
+     */
+    private synchronized Socket connect(int index) throws IOException {
+        try {
+            if (processes[index].isAlive()) {
+                return new Socket(InetAddress.getLoopbackAddress(), ports[index]);
+            }
+        } catch (IOException e) {
+            try {
+                // The worker may be exiting
+                if (!processes[index].waitFor(1, TimeUnit.SECONDS)) {
+                    throw e;
+                }
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        }
+        log.warn("The SUL worker {} exited with {}. Spawning it again", index, processes[index].exitValue());
+        spawn(index);
+        return new Socket(InetAddress.getLoopbackAddress(), ports[index]);
+    }
+
+    private void destroyAll() {
+        for (Process process : processes) {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Stops the workers. The workers not stopping in a few seconds are killed.
+     */
+    @Override
+    public void close() {
+        for (RemoteNumericSUL instance : instances) {
+            instance.close();
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
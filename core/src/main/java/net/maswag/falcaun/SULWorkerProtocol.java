@@ -0,0 +1,189 @@
+package net.maswag.falcaun;
+
+import net.automatalib.word.Word;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary protocol between {@link RemoteNumericSUL} and a SUL worker, e.g., {@link SULWorker}.
+ *
+ * <p>The protocol is language-neutral: all the integers and the doubles are big-endian as in {@link DataOutput}, and a
+ * worker can be implemented in any language. A worker listens on a local TCP port, prints {@code PORT <port>} as the
+ * first line of its standard output, and serves the connections one by one. On each connection, the worker first
+ * sends {@link #MAGIC} and {@link #VERSION}. Then, the client sends a request, which is an operation code followed by
+ * its arguments, and the worker replies a response, which is a status followed by its result.</p>
+ *
+ * <ul>
+ *     <li>{@link #EXECUTE} (word) &rarr; signal: executes the SUL for the entire input word.</li>
+ *     <li>{@link #PRE} &rarr; nothing: resets the SUL to the initial state.</li>
+ *     <li>{@link #STEP} (vector) &rarr; vector: feeds one input and returns the output.</li>
+ *     <li>{@link #POST} &rarr; nothing: finishes the execution started by {@link #PRE}.</li>
+ *     <li>{@link #SHUTDOWN} &rarr; nothing: closes the connection and stops the worker.</li>
+ * </ul>
+ *
+ * <p>A vector is its dimension (int) followed by the values (doubles). A word is its length (int) and the dimension
+ * (int) followed by the values in the row-major order. A signal is the output word followed by a byte indicating if
+ * it is continuous. A continuous signal is followed by the signal step (double), the number of the sampled points
+ * (int), the dimension (int), and the timestamp and the values of each point. The inputs are not sent back. A
+ * response starts with {@link #OK} or {@link #ERROR}, and the latter is followed by the message in the modified
+ * UTF-8 of {@link DataOutput#writeUTF(String)}.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+final class SULWorkerProtocol {
+    static final int MAGIC = 0x46434e57; // "FCNW"
+    static final byte VERSION = 1;
+
+    static final byte EXECUTE = 1;
+    static final byte PRE = 2;
+    static final byte STEP = 3;
+    static final byte POST = 4;
+    static final byte SHUTDOWN = 5;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    /**
+     * The prefix of the line telling the port of a worker.
+     */
+    static final String PORT_PREFIX = "PORT ";
+
+    private SULWorkerProtocol() {
+    }
+
+    static void writeVector(DataOutput out, List<Double> vector) throws IOException {
+        out.writeInt(vector.size());
+        for (double value : vector) {
+            out.writeDouble(value);
+        }
+    }
+
+    static List<Double> readVector(DataInput in) throws IOException {
+        return readValues(in, readDimension(in));
+    }
+
+    static void writeWord(DataOutput out, Word<List<Double>> word) throws IOException {
+        final int dimension = word.isEmpty() ? 0 : word.getSymbol(0).size();
+        out.writeInt(word.size());
+        out.writeInt(dimension);
+        for (List<Double> vector : word) {
+            if (vector.size() != dimension) {
+                throw new IllegalArgumentException("The dimension of the word is not uniform");
+            }
+            for (double value : vector) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    static Word<List<Double>> readWord(DataInput in) throws IOException {
+        final int length = readDimension(in);
+        final int dimension = readDimension(in);
+        List<List<Double>> vectors = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            vectors.add(readValues(in, dimension));
+        }
+        return Word.fromList(vectors);
+    }
+
+    /**
+     * Writes the outputs of the signal. The inputs are not written since the client knows them.
+     */
+    static void writeSignal(DataOutput out, IOSignal<List<Double>> signal) throws IOException {
+        writeWord(out, signal.getOutputSignal());
+        if (signal instanceof IOContinuousSignal) {
+            IOContinuousSignal<List<Double>> continuous = (IOContinuousSignal<List<Double>>) signal;
+            ValueWithTime<List<Double>> values = continuous.getContinuousOutputSignal();
+            out.writeBoolean(true);
+            out.writeDouble(continuous.getSignalStep());
+            final int dimension = values.isEmpty() ? 0 : values.values.get(0).size();
+            out.writeInt(values.size());
+            out.writeInt(dimension);
+            for (int i = 0; i < values.size(); i++) {
+                out.writeDouble(values.timestamps.get(i));
+                for (double value : values.values.get(i)) {
+                    out.writeDouble(value);
+                }
+            }
+        } else {
+            out.writeBoolean(false);
+        }
+    }
+
+    /**
+     * Reads the signal written by {@link #writeSignal(DataOutput, IOSignal)}.
+     *
+     * @param input the input word sent to the worker
+     */
+    static IOSignal<List<Double>> readSignal(DataInput in, Word<List<Double>> input) throws IOException {
+        final Word<List<Double>> output = readWord(in);
+        if (output.size() != input.size()) {
+            throw new IOException("The length of the output " + output.size() + " differs from the input " + input.size());
+        }
+        if (!in.readBoolean()) {
+            return new IODiscreteSignal<>(input, output);
+        }
+        final double signalStep = in.readDouble();
+        final int size = readDimension(in);
+        final int dimension = readDimension(in);
+        List<Double> timestamps = new ArrayList<>(size);
+        List<List<Double>> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            timestamps.add(in.readDouble());
+            values.add(readValues(in, dimension));
+        }
+        return new IOContinuousSignal<>(input, output, new ValueWithTime<>(timestamps, values), signalStep);
+    }
+
+    static void writeError(DataOutput out, Throwable e) throws IOException {
+        out.writeByte(ERROR);
+        out.writeUTF(String.valueOf(e.getMessage()));
+    }
+
+    /**
+     * Reads the status of a response.
+     *
+     * @throws IllegalStateException if the worker replies an error
+     */
+    static void readStatus(DataInput in) throws IOException {
+        final byte status = in.readByte();
+        if (status == ERROR) {
+            throw new IllegalStateException("The SUL worker failed: " + in.readUTF());
+        } else if (status != OK) {
+            throw new IOException("Unknown status: " + status);
+        }
+    }
+
+    /**
+     * Reads the header sent by the worker on each connection.
+     */
+    static void readHeader(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("The peer is not a SUL worker");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported protocol version: " + version);
+        }
+    }
+
+    private static int readDimension(DataInput in) throws IOException {
+        final int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Negative size: " + size);
+        }
+        return size;
+    }
+
+    private static List<Double> readValues(DataInput in, int dimension) throws IOException {
+        List<Double> vector = new ArrayList<>(dimension);
+        for (int i = 0; i < dimension; i++) {
+            vector.add(in.readDouble());
+        }
+        return vector;
+    }
+}
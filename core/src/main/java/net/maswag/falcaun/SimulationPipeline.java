@@ -0,0 +1,126 @@
+package net.maswag.falcaun;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A two-stage pipeline separating the simulations from their post-processing, e.g., the output mapping and the
+ * robustness computation.
+ *
+ * <p>The simulations run on the simulation workers, and their results are passed to the post-processing workers through
+ * a bounded queue. When the queue is full, the simulation workers wait before starting the next simulation. Thus,
+ * the SULs keep simulating while the robustness of the previous traces is computed, and the traces waiting for the
+ * post-processing do not pile up in memory.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+class SimulationPipeline implements AutoCloseable {
+    private final ExecutorService simulationExecutor;
+    private final BlockingQueue<Runnable> postQueue;
+    private final List<Thread> postWorkers = new ArrayList<>();
+    /**
+     * The number of the threads running the simulations.
+     */
+    @Getter
+    private final int simulationWorkers;
+
+    /**
+     * @param simulationWorkers the number of the threads running the simulations, typically the size of the SUL pool.
+     * @param postWorkers       the number of the threads post-processing the simulation results.
+     * @param queueCapacity     the maximum number of the simulation results waiting for the post-processing.
+     */
+    SimulationPipeline(int simulationWorkers, int postWorkers, int queueCapacity) {
+        if (simulationWorkers < 1 || postWorkers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The numbers of the workers and the queue capacity must be positive");
+        }
+        this.simulationWorkers = simulationWorkers;
+        this.postQueue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.simulationExecutor = Executors.newFixedThreadPool(simulationWorkers, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-simulation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < postWorkers; i++) {
+            Thread thread = new Thread(this::runPostWorker, "pipeline-post-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            this.postWorkers.add(thread);
+        }
+    }
+
+    /**
+     * Returns the number of the tasks worth submitting at once to keep all the workers busy.
+     */
+    int getConcurrency() {
+        return simulationWorkers + postWorkers.size();
+    }
+
+    /**
+     * Submits a task to the pipeline.
+     *
+     * @param simulation  the first stage run on a simulation worker.
+     * @param postProcess the second stage run on a post-processing worker.
+     * @return the future completed with the result of the post-processing. If it is cancelled before the simulation
+     * starts, the simulation is skipped.
+     */
+    <S, R> CompletableFuture<R> submit(Callable<S> simulation, Function<S, R> postProcess) {
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            simulationExecutor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                final S simulated;
+                try {
+                    simulated = simulation.call();
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    // Blocks if the post-processing workers are behind
+                    postQueue.put(() -> {
+                        try {
+                            future.complete(postProcess.apply(simulated));
+                        } catch (RuntimeException e) {
+                            future.completeExceptionally(e);
+                        }
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void runPostWorker() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                postQueue.take().run();
+            }
+        } catch (InterruptedException e) {
+            log.trace("A post-processing worker is stopped");
+        }
+    }
+
+    /**
+     * Stops the workers. The pending tasks are discarded.
+     */
+    @Override
+    public void close() {
+        simulationExecutor.shutdownNow();
+        postWorkers.forEach(Thread::interrupt);
+    }
+}
@@ -0,0 +1,403 @@
+package net.maswag.falcaun;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.automatalib.word.Word;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * A cache of the simulation states saved by {@link NumericSUL#snapshot()}, indexed by a prefix trie of abstract inputs.
+ *
+ * <p>Each node of the trie corresponds to an abstract input word, and it may hold a snapshot of the SUL after feeding
+ * the corresponding concrete input. When we execute a query, we resume the simulation from the snapshot of the deepest
+ * cached prefix of the query instead of the initial state.</p>
+ *
+ * <p>The number of the snapshots kept in memory is bounded. When the bound is exceeded, the least recently used snapshot
+ * is written to the spill directory if it is {@link Serializable} and the disk budget allows, and it is released
+ * otherwise. The snapshots on the disk are also evicted in the least recently used order.</p>
+ *
+ * <p>A snapshot returned by {@link #lookup(Word, NumericSUL)} is pinned until it is passed to
+ * {@link #unpin(Snapshot)}, and it is never evicted while it is pinned. Since a snapshot must be released by the SUL that
+ * created it, e.g., on the MATLAB engine of that SUL, the evicted snapshots are not released immediately but queued for
+ * their owner. The queue of a SUL is drained by {@link #releaseDeferred(NumericSUL)} on the thread using that SUL.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+@Slf4j
+public class SimulationSnapshotCache implements AutoCloseable {
+    private final Node root = new Node(null, null);
+    /**
+     * The maximum number of the snapshots kept in memory.
+     */
+    @Getter
+    private final int maxSnapshots;
+    /**
+     * The directory to write the evicted snapshots. If it is {@code null}, the evicted snapshots are discarded.
+     */
+    @Nullable
+    private final Path spillDirectory;
+    /**
+     * The maximum total size of the snapshots written to the disk in bytes.
+     */
+    @Getter
+    private final long maxDiskBytes;
+    /**
+     * The nodes with an in-memory snapshot in the least recently used order.
+     */
+    private final LinkedHashSet<Node> memoryNodes = new LinkedHashSet<>();
+    /**
+     * The nodes with an on-disk snapshot in the least recently used order.
+     */
+    private final LinkedHashSet<Node> diskNodes = new LinkedHashSet<>();
+    /**
+     * The evicted snapshots to be released by their owners.
+     */
+    private final Map<NumericSUL, List<Object>> deferredReleases = new HashMap<>();
+    @Getter
+    private long diskBytes = 0;
+    private int fileCounter = 0;
+    /**
+     * The number of the executions resumed from a snapshot.
+     */
+    @Getter
+    private int hitCount = 0;
+    /**
+     * The number of the executions started from the initial state.
+     */
+    @Getter
+    private int missCount = 0;
+    /**
+     * The number of the steps we skipped by resuming from a snapshot.
+     */
+    @Getter
+    private long savedSteps = 0;
+
+    /**
+     * Constructs a snapshot cache only using memory.
+     *
+     * @param maxSnapshots The maximum number of the snapshots kept in memory.
+     */
+    public SimulationSnapshotCache(int maxSnapshots) {
+        this(maxSnapshots, null, 0);
+    }
+
+    /**
+     * Constructs a snapshot cache using both memory and disk.
+     *
+     * @param maxSnapshots   The maximum number of the snapshots kept in memory.
+     * @param spillDirectory The directory to write the snapshots evicted from memory.
+     * @param maxDiskBytes   The maximum total size of the snapshots written to the disk in bytes.
+     */
+    public SimulationSnapshotCache(int maxSnapshots, @Nullable Path spillDirectory, long maxDiskBytes) {
+        if (maxSnapshots < 1) {
+            throw new IllegalArgumentException("The number of snapshots must be positive: " + maxSnapshots);
+        }
+        this.maxSnapshots = maxSnapshots;
+        this.spillDirectory = spillDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * A snapshot found in the cache.
+     */
+    @Getter
+    public static class Snapshot {
+        @Getter(AccessLevel.NONE)
+        private final Node node;
+        /**
+         * The length of the cached prefix.
+         */
+        private final int length;
+        /**
+         * The handle to be passed to {@link NumericSUL#restore(Object)}.
+         */
+        private final Object handle;
+        /**
+         * The signal observed until the snapshot.
+         */
+        private final IOSignal<List<Double>> signal;
+
+        Snapshot(Node node, int length, Object handle, IOSignal<List<Double>> signal) {
+            this.node = node;
+            this.length = length;
+            this.handle = handle;
+            this.signal = signal;
+        }
+    }
+
+    /**
+     * Finds the snapshot of the deepest prefix of the given word saved by the given SUL.
+     *
+     * @param abstractInput The abstract input word to execute.
+     * @param sul           The SUL to restore the snapshot.
+     * @return The snapshot of the deepest cached prefix or {@code null} if no prefix is cached. The snapshot is pinned
+     * until it is passed to {@link #unpin(Snapshot)}.
+     */
+    @Nullable
+    public synchronized Snapshot lookup(Word<String> abstractInput, NumericSUL sul) {
+        Node current = root;
+        Node deepest = null;
+        int deepestLength = 0;
+        for (int i = 0; i < abstractInput.size(); i++) {
+            current = current.children.get(abstractInput.getSymbol(i));
+            if (Objects.isNull(current)) {
+                break;
+            }
+            if (current.owner == sul && current.hasSnapshot()) {
+                deepest = current;
+                deepestLength = i + 1;
+            }
+        }
+        if (Objects.isNull(deepest)) {
+            missCount++;
+            return null;
+        }
+        // Pin it first so that loading it from the disk does not evict it
+        deepest.pins++;
+        if (!load(deepest)) {
+            deepest.pins--;
+            missCount++;
+            return null;
+        }
+        memoryNodes.remove(deepest);
+        memoryNodes.add(deepest);
+        hitCount++;
+        savedSteps += deepestLength;
+        return new Snapshot(deepest, deepestLength, deepest.handle, deepest.signal);
+    }
+
+    /**
+     * Unpins the snapshot returned by {@link #lookup(Word, NumericSUL)} after the simulation from it.
+     *
+     * @param snapshot The snapshot no longer used.
+     */
+    public synchronized void unpin(Snapshot snapshot) {
+        if (snapshot.node.pins > 0) {
+            snapshot.node.pins--;
+        }
+        evict();
+    }
+
+    /**
+     * Releases the evicted snapshots created by the given SUL. This must be called by the thread using the SUL.
+     *
+     * @param sul The SUL used by the current thread.
+     */
+    public void releaseDeferred(NumericSUL sul) {
+        final List<Object> handles;
+        synchronized (this) {
+            handles = deferredReleases.remove(sul);
+        }
+        if (Objects.nonNull(handles)) {
+            handles.forEach(sul::release);
+        }
+    }
+
+    /**
+     * Saves the snapshot after feeding the given word.
+     *
+     * <p>If a snapshot of the same word is already cached, the given snapshot is released.</p>
+     *
+     * @param abstractInput The abstract input word fed to the SUL.
+     * @param sul           The SUL that created the snapshot.
+     * @param handle        The handle returned by {@link NumericSUL#snapshot()}.
+     * @param signal        The signal observed by feeding the concrete input of {@code abstractInput}.
+     */
+    public synchronized void save(Word<String> abstractInput, NumericSUL sul, Object handle, IOSignal<List<Double>> signal) {
+        if (abstractInput.isEmpty()) {
+            sul.release(handle);
+            return;
+        }
+        Node current = root;
+        for (String symbol : abstractInput) {
+            final Node parent = current;
+            current = current.children.computeIfAbsent(symbol, s -> new Node(parent, s));
+        }
+        if (current.hasSnapshot()) {
+            sul.release(handle);
+            return;
+        }
+        current.owner = sul;
+        current.handle = handle;
+        current.signal = signal;
+        memoryNodes.add(current);
+        evict();
+    }
+
+    /**
+     * Returns the number of the snapshots kept in memory.
+     */
+    public synchronized int memorySize() {
+        return memoryNodes.size();
+    }
+
+    /**
+     * Returns the number of the snapshots written to the disk.
+     */
+    public synchronized int diskSize() {
+        return diskNodes.size();
+    }
+
+    /**
+     * Releases all the snapshots in the cache including the deferred ones. This must be called when none of the SULs
+     * is in use.
+     */
+    public synchronized void clear() {
+        for (Node node : new ArrayList<>(memoryNodes)) {
+            node.pins = 0;
+            remove(node);
+        }
+        for (Node node : new ArrayList<>(diskNodes)) {
+            remove(node);
+        }
+        root.children.clear();
+        deferredReleases.forEach((sul, handles) -> handles.forEach(sul::release));
+        deferredReleases.clear();
+    }
+
+    @Override
+    public void close() {
+        this.clear();
+    }
+
+    private void evict() {
+        while (memoryNodes.size() > maxSnapshots) {
+            // The pinned snapshots are kept even if the bound is exceeded until they are unpinned
+            final Optional<Node> eldest = memoryNodes.stream().filter(node -> node.pins == 0).findFirst();
+            if (!eldest.isPresent()) {
+                break;
+            }
+            if (!spill(eldest.get())) {
+                remove(eldest.get());
+            }
+        }
+        while (diskBytes > maxDiskBytes && !diskNodes.isEmpty()) {
+            remove(diskNodes.iterator().next());
+        }
+    }
+
+    /**
+     * Writes the snapshot of the node to the disk and releases it in memory.
+     *
+     * @return {@code true} if the snapshot is written.
+     */
+    private boolean spill(Node node) {
+        if (Objects.isNull(spillDirectory) || maxDiskBytes <= 0 || !(node.handle instanceof Serializable)) {
+            return false;
+        }
+        try {
+            Files.createDirectories(spillDirectory);
+            Path file = spillDirectory.resolve("snapshot" + (fileCounter++) + ".bin");
+            try (ObjectOutputStream stream = new ObjectOutputStream(Files.newOutputStream(file))) {
+                stream.writeObject(node.handle);
+            }
+            long size = Files.size(file);
+            if (size > maxDiskBytes) {
+                Files.deleteIfExists(file);
+                return false;
+            }
+            deferRelease(node.owner, node.handle);
+            node.handle = null;
+            node.file = file;
+            node.fileSize = size;
+            diskBytes += size;
+            memoryNodes.remove(node);
+            diskNodes.add(node);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to write a snapshot to the disk: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads the snapshot of the node to memory if it is on the disk.
+     *
+     * @return {@code true} if the snapshot is in memory.
+     */
+    private boolean load(Node node) {
+        if (Objects.isNull(node.file)) {
+            return true;
+        }
+        try (ObjectInputStream stream = new ObjectInputStream(Files.newInputStream(node.file))) {
+            Object handle = stream.readObject();
+            deleteFile(node);
+            node.handle = handle;
+            memoryNodes.add(node);
+            evict();
+            return node.hasSnapshot();
+        } catch (IOException | ClassNotFoundException e) {
+            log.warn("Failed to read a snapshot from the disk: {}", e.getMessage());
+            remove(node);
+            return false;
+        }
+    }
+
+    private void deleteFile(Node node) {
+        try {
+            Files.deleteIfExists(node.file);
+        } catch (IOException e) {
+            log.warn("Failed to delete a snapshot file: {}", e.getMessage());
+        }
+        diskBytes -= node.fileSize;
+        diskNodes.remove(node);
+        node.file = null;
+        node.fileSize = 0;
+    }
+
+    /**
+     * Removes the snapshot of the node and prunes the nodes without any snapshots.
+     */
+    private void remove(Node node) {
+        if (Objects.nonNull(node.handle)) {
+            deferRelease(node.owner, node.handle);
+            node.handle = null;
+            memoryNodes.remove(node);
+        }
+        if (Objects.nonNull(node.file)) {
+            deleteFile(node);
+        }
+        node.owner = null;
+        node.signal = null;
+        while (Objects.nonNull(node.parent) && !node.hasSnapshot() && node.children.isEmpty()) {
+            node.parent.children.remove(node.symbol);
+            node = node.parent;
+        }
+    }
+
+    private void deferRelease(NumericSUL owner, Object handle) {
+        deferredReleases.computeIfAbsent(owner, sul -> new ArrayList<>()).add(handle);
+    }
+
+    private static class Node {
+        @Nullable
+        final Node parent;
+        @Nullable
+        final String symbol;
+        final Map<String, Node> children = new HashMap<>();
+        NumericSUL owner;
+        Object handle;
+        IOSignal<List<Double>> signal;
+        Path file;
+        long fileSize;
+        /**
+         * The number of the simulations resuming from the snapshot.
+         */
+        int pins = 0;
+
+        Node(@Nullable Node parent, @Nullable String symbol) {
+            this.parent = parent;
+            this.symbol = symbol;
+        }
+
+        boolean hasSnapshot() {
+            return Objects.nonNull(handle) || Objects.nonNull(file);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package net.maswag.falcaun;
 
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
+
 import java.util.*;
 
 /**
@@ -26,6 +29,16 @@ public class StaticSTLList<I> extends AbstractAdaptiveSTLUpdater<I> {
         this.addSTLProperties(STLProperties);
     }
 
+    /**
+     * @param STLProperties The STL/LTL formulas to verify
+     * @param modelChecker  The model checker used instead of LTSmin
+     */
+    public StaticSTLList(Collection<? extends TemporalLogic<I>> STLProperties,
+                         ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> modelChecker) {
+        super(modelChecker);
+        this.addSTLProperties(STLProperties);
+    }
+
     @Override
     public boolean allDisproved() {
         return getSTLProperties().size() == disprovedIndices.size();
@@ -0,0 +1,22 @@
+package net.maswag.falcaun;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * An equivalence oracle that can be stopped cooperatively, e.g., by {@link PortfolioEQOracle} when another oracle finds
+ * a counterexample.
+ *
+ * <p>The stop condition is checked between the simulations, so a running simulation is completed instead of being
+ * interrupted.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public interface Stoppable {
+    /**
+     * Sets the condition to stop the search for a counterexample. If it holds, the oracle returns {@code null} as soon
+     * as the running simulations finish.
+     *
+     * @param stopCondition the condition to stop the search
+     */
+    void setStopCondition(BooleanSupplier stopCondition);
+}
@@ -1,39 +1,44 @@
 package net.maswag.falcaun;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the time between {@link #start()} and {@link #stop()}.
+ *
+ * <p>This is thread-safe: each thread measures its own interval, and the intervals of all the threads are accumulated.</p>
+ */
 public class TimeMeasure {
-    private long accumulatedTime = 0;
-    private boolean measuring = false;
-    private long startTime;
+    private final AtomicLong accumulatedTime = new AtomicLong();
+    private final ThreadLocal<Long> startTime = new ThreadLocal<>();
 
     public void start() {
-        if (measuring) {
+        if (startTime.get() != null) {
             throw new RuntimeException("start is called before stop is called");
         }
-        startTime = System.nanoTime();
-        measuring = true;
+        startTime.set(System.nanoTime());
     }
 
     public void stop() {
-        if (measuring) {
+        Long start = startTime.get();
+        if (start != null) {
             long endTime = System.nanoTime();
-            accumulatedTime += endTime - startTime;
-            measuring = false;
+            accumulatedTime.addAndGet(endTime - start);
+            startTime.remove();
         } else {
             throw new RuntimeException("stop is called before start is called");
         }
     }
 
     public void reset() {
-        startTime = 0;
-        accumulatedTime = 0;
-        measuring = false;
+        startTime.remove();
+        accumulatedTime.set(0);
     }
 
     public double getSecond() {
-        return this.accumulatedTime / 1000000000.0;
+        return this.accumulatedTime.get() / 1000000000.0;
     }
 
     public double getNanosecond() {
-        return this.accumulatedTime;
+        return this.accumulatedTime.get();
     }
 }
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.util.Pair;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -134,6 +135,28 @@ public class ValueWithTime<T> {
                 }));
     }
 
+    /**
+     * Concatenate the given values after this signal.
+     * <p>The values of {@code other} at or before the end of this signal are ignored.</p>
+     *
+     * @param other The values following this signal
+     */
+    public ValueWithTime<T> concat(ValueWithTime<T> other) {
+        if (this.isEmpty()) {
+            return other;
+        }
+        double end = timestamps.get(timestamps.size() - 1);
+        List<Double> newTimestamps = new ArrayList<>(timestamps);
+        List<T> newValues = new ArrayList<>(values);
+        for (int i = 0; i < other.size(); i++) {
+            if (other.timestamps.get(i) > end) {
+                newTimestamps.add(other.timestamps.get(i));
+                newValues.add(other.values.get(i));
+            }
+        }
+        return new ValueWithTime<>(newTimestamps, newValues);
+    }
+
     /**
      * Stream the List of values between each signal step.
      * <p>The i-th element is the list of values between (i-1) * signalStep and i * signalStep </p>
@@ -194,6 +194,25 @@ class ArgParserTest {
         assertThrows(MissingOptionException.class, this::parse);
     }
 
+    @Test
+    void workersWithSnapshotCache() throws MissingOptionException, IOException {
+        addSTLString();
+        addInputMapper();
+        addOutputMapper();
+        addHC();
+        addLength();
+        addStepTime();
+        addParamNames();
+        addInitScript();
+        args.add("--workers=localhost:4000");
+        args.add("--worker-reconnect-attempts=3");
+        parse();
+        assertEquals("localhost:4000", argParser.getWorkers());
+        assertEquals(3, argParser.getWorkerReconnectAttempts());
+        args.add("--snapshot-cache=16");
+        assertThrows(IllegalArgumentException.class, this::parse);
+    }
+
     @Test
     void missingSAAlpha() {
         addInputMapper();
@@ -349,6 +368,30 @@ class ArgParserTest {
 
     }
 
+    @Test
+    void sulParallelism() throws MissingOptionException, IOException {
+        addSTLString();
+        addInputMapper();
+        addOutputMapper();
+        addHC();
+        addLength();
+        addStepTime();
+        addParamNames();
+        addInitScript();
+        args.add("--sul-parallelism=3");
+        parse();
+        assertEquals(3, argParser.getSulParallelism());
+
+        // The deprecated name is still accepted
+        args.remove("--sul-parallelism=3");
+        args.add("--ga-parallelism=2");
+        parse();
+        assertEquals(2, argParser.getSulParallelism());
+
+        args.add("--workers=localhost:1234");
+        assertThrows(IllegalArgumentException.class, this::parse);
+    }
+
     @Nested
     class Success {
 
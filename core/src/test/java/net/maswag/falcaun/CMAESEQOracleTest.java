@@ -0,0 +1,112 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.PropertyOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CMAESEQOracleTest {
+    private final Alphabet<String> alphabet = Alphabets.fromArray("a", "b");
+    private NumericSULMapper mapper;
+    private PropertyOracle.MealyPropertyOracle<String, String, String> ltlOracle;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 5.0);
+        mapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Collections.singletonList('h'), Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        ltlOracle = mock(PropertyOracle.MealyPropertyOracle.class);
+        when(ltlOracle.isDisproved()).thenReturn(false);
+    }
+
+    @Test
+    void findCounterExample() {
+        // The hypothesis claiming that the sum never exceeds 5.0
+        CompactMealy<String, String> hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("l").loop()
+                .create();
+        SimulationSnapshotCacheTest.AccumulatorSUL sul = new SimulationSnapshotCacheTest.AccumulatorSUL();
+        NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(sul, mapper,
+                signal -> 5.0 - signal.getOutputSignal().lastSymbol().get(0));
+        CMAESEQOracle eqOracle = new CMAESEQOracle(memOracle, 4, 2, 200, 0, 0.3, new Random(1), ltlOracle);
+
+        DefaultQuery<String, Word<String>> cex = eqOracle.findCounterExample(hypothesis, alphabet);
+        assertNotNull(cex);
+        assertEquals(4, cex.getInput().size());
+        // The values are held for two steps
+        assertEquals(cex.getInput().getSymbol(0), cex.getInput().getSymbol(1));
+        assertEquals(cex.getInput().getSymbol(2), cex.getInput().getSymbol(3));
+        assertNotEquals(hypothesis.computeOutput(cex.getInput()), cex.getOutput());
+        assertEquals(memOracle.getEvaluateCount(), eqOracle.getEvaluateCount());
+        assertEquals(sul.getCounter(), eqOracle.getEvaluateCount());
+    }
+
+    @Test
+    void derivedSignal() {
+        // The second output is derived from the sum by the signal mapper
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> derivedMapper = new HashMap<>();
+        derivedMapper.put('l', 10.0);
+        NumericSULMapper derivedSignalMapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Arrays.asList('x', 'h'), Arrays.asList(new HashMap<>(), derivedMapper),
+                SimpleSignalMapper.parse(Collections.singletonList("signal(0) + signal(0)")));
+        // The hypothesis claiming that the doubled sum never exceeds 10.0
+        CompactMealy<String, String> hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("xl").loop()
+                .create();
+        NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(
+                new SimulationSnapshotCacheTest.AccumulatorSUL(), derivedSignalMapper,
+                signal -> 10.0 - signal.getOutputSignal().lastSymbol().get(1));
+        CMAESEQOracle eqOracle = new CMAESEQOracle(memOracle, 4, 2, 200, 0, 0.3, new Random(1), ltlOracle);
+
+        DefaultQuery<String, Word<String>> cex = eqOracle.findCounterExample(hypothesis, alphabet);
+        assertNotNull(cex);
+        assertNotEquals(hypothesis.computeOutput(cex.getInput()), cex.getOutput());
+    }
+
+    @Test
+    void budget() {
+        // The exact hypothesis of the sums of length 2, which are at most 4.0
+        CompactMealy<String, String> hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("l").loop()
+                .create();
+        SimulationSnapshotCacheTest.AccumulatorSUL sul = new SimulationSnapshotCacheTest.AccumulatorSUL();
+        NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(sul, mapper,
+                signal -> 5.0 - signal.getOutputSignal().lastSymbol().get(0));
+        CMAESEQOracle eqOracle = new CMAESEQOracle(memOracle, 2, 2, 50, 4, 0.3, new Random(1), ltlOracle);
+
+        assertNull(eqOracle.findCounterExample(hypothesis, alphabet));
+        // The concrete simulations are bounded by the budget, and the snapped words are at most the four words
+        assertTrue(eqOracle.getEvaluateCount() <= 50 + 4);
+        assertTrue(eqOracle.getEvaluateCount() >= 50);
+    }
+
+    @Test
+    void invalidControlPoints() {
+        NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(
+                new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper, signal -> 0.0);
+        assertThrows(IllegalArgumentException.class,
+                () -> new CMAESEQOracle(memOracle, 2, 3, 50, 0, 0.3, new Random(1), ltlOracle));
+    }
+}
@@ -0,0 +1,213 @@
+package net.maswag.falcaun;
+
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.incremental.ConflictException;
+import net.automatalib.word.Word;
+import net.automatalib.word.WordBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentMealyTreeCacheTest {
+    private ConcurrentMealyTreeCache<Character, Integer> cache;
+
+    /**
+     * The output is the number of 'a' fed so far.
+     */
+    private static Word<Integer> countA(Word<Character> input) {
+        List<Integer> result = new ArrayList<>();
+        int count = 0;
+        for (Character c : input) {
+            if (c == 'a') {
+                count++;
+            }
+            result.add(count);
+        }
+        return Word.fromList(result);
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new ConcurrentMealyTreeCache<>(Alphabets.characters('a', 'c'));
+    }
+
+    @Test
+    void lookupInsert() {
+        Word<Character> input = Word.fromCharSequence("abca");
+        assertFalse(cache.lookup(input, new WordBuilder<>()));
+        cache.insert(input, countA(input));
+        WordBuilder<Integer> builder = new WordBuilder<>();
+        assertTrue(cache.lookup(input.prefix(2), builder));
+        assertEquals(countA(input.prefix(2)), builder.toWord());
+        assertEquals(5, cache.size());
+        assertThrows(ConflictException.class,
+                () -> cache.insert(Word.fromCharSequence("ab"), Word.fromSymbols(0, 0)));
+    }
+
+    @Test
+    void concurrentInsert() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Word<Character>> inputs = new ArrayList<>();
+            for (int i = 0; i < 81; i++) {
+                StringBuilder builder = new StringBuilder();
+                for (int j = i, k = 0; k < 4; j /= 3, k++) {
+                    builder.append((char) ('a' + j % 3));
+                }
+                inputs.add(Word.fromCharSequence(builder));
+            }
+            List<Future<?>> futures = inputs.stream()
+                    .map(input -> executor.submit(() -> cache.insert(input, countA(input))))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            // 1 + 3 + 9 + 27 + 81
+            assertEquals(121, cache.size());
+            for (Word<Character> input : inputs) {
+                WordBuilder<Integer> builder = new WordBuilder<>();
+                assertTrue(cache.lookup(input, builder));
+                assertEquals(countA(input), builder.toWord());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void deduplicateInFlight() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger computed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Word<Character> input = Word.fromCharSequence("aab");
+        try {
+            Future<Word<Integer>> first = executor.submit(() -> cache.computeIfAbsent(input, word -> {
+                computed.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return countA(word);
+            }));
+            started.await();
+            Future<Word<Integer>> second = executor.submit(() -> cache.computeIfAbsent(input, word -> {
+                computed.incrementAndGet();
+                return countA(word);
+            }));
+            release.countDown();
+            assertEquals(countA(input), first.get());
+            assertEquals(countA(input), second.get());
+            assertEquals(1, computed.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        Word<Character> old = Word.fromCharSequence("aaa");
+        Word<Character> pinned = Word.fromCharSequence("bbb");
+        Word<Character> recent = Word.fromCharSequence("ccc");
+        cache.insert(pinned, countA(pinned));
+        assertTrue(cache.pin(pinned));
+        cache.insert(old, countA(old));
+        cache.insert(recent, countA(recent));
+        assertEquals(10, cache.size());
+
+        cache.setMaxNodes(8);
+        // The tree shrinks to 90% of the bound by evicting the subtree of "aaa"
+        assertEquals(7, cache.size());
+        assertEquals(3, cache.getEvictedNodes());
+        assertFalse(cache.lookup(old, new WordBuilder<>()));
+        assertTrue(cache.lookup(pinned, new WordBuilder<>()));
+        assertTrue(cache.lookup(recent, new WordBuilder<>()));
+
+        // Without the pin, "bbb" is evicted next since it is less recently used than "ccc"
+        cache.clearPins();
+        cache.lookup(recent, new WordBuilder<>());
+        cache.setMaxNodes(5);
+        assertFalse(cache.lookup(pinned, new WordBuilder<>()));
+        assertTrue(cache.lookup(recent, new WordBuilder<>()));
+    }
+
+    @Test
+    void reviveFromSoftTier() {
+        cache.setSoftTier(true);
+        Word<Character> input = Word.fromCharSequence("abc");
+        cache.insert(input, countA(input));
+        cache.insert(Word.fromCharSequence("b"), countA(Word.fromCharSequence("b")));
+        cache.setMaxNodes(3);
+        assertTrue(cache.size() <= 3);
+        // The evicted nodes are revived since there is no memory pressure
+        WordBuilder<Integer> builder = new WordBuilder<>();
+        assertTrue(cache.lookup(input, builder));
+        assertEquals(countA(input), builder.toWord());
+    }
+
+    @Test
+    void dropProvisional() {
+        Word<Character> input = Word.fromCharSequence("abc");
+        assertTrue(cache.insertProvisionally(input, countA(input)));
+        // "a" is confirmed, and the conflict at "ab" drops "ab" and "abc"
+        cache.insert(Word.fromCharSequence("ab"), Word.fromSymbols(1, 2));
+        assertEquals(2, cache.getDroppedNodes());
+        assertFalse(cache.lookup(input, new WordBuilder<>()));
+        WordBuilder<Integer> builder = new WordBuilder<>();
+        assertTrue(cache.lookup(Word.fromCharSequence("ab"), builder));
+        assertEquals(Word.fromSymbols(1, 2), builder.toWord());
+        assertEquals(3, cache.size());
+
+        // The confirmed outputs are kept
+        assertFalse(cache.insertProvisionally(input, countA(input)));
+        assertThrows(ConflictException.class, () -> cache.insert(Word.fromCharSequence("a"), Word.fromSymbols(0)));
+    }
+
+    @Test
+    void concurrentInsertAndEvict() throws InterruptedException, ExecutionException {
+        cache.setMaxNodes(30);
+        cache.setSoftTier(true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final Random random = new Random(thread);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        StringBuilder builder = new StringBuilder();
+                        for (int k = 0; k < 6; k++) {
+                            builder.append((char) ('a' + random.nextInt(3)));
+                        }
+                        Word<Character> input = Word.fromCharSequence(builder);
+                        if (random.nextBoolean()) {
+                            cache.insert(input, countA(input));
+                        } else {
+                            WordBuilder<Integer> output = new WordBuilder<>();
+                            if (cache.lookup(input, output)) {
+                                assertEquals(countA(input), output.toWord());
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            // No node is counted after it is detached by the eviction
+            assertEquals(cache.reachableNodes(), cache.size());
+            assertTrue(cache.size() <= 30 + 8 * 6);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
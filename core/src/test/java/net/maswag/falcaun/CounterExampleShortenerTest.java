@@ -0,0 +1,113 @@
+package net.maswag.falcaun;
+
+import de.learnlib.acex.AbstractCounterexample;
+import de.learnlib.driver.simulator.MealySimulatorSUL;
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CounterExampleShortenerTest {
+    private final Alphabet<String> alphabet = Alphabets.fromArray("a", "b");
+    private CompactMealy<String, String> system;
+    private CompactMealy<String, String> hypothesis;
+    private final AtomicInteger queries = new AtomicInteger();
+    private CounterExampleShortener shortener;
+
+    @BeforeEach
+    void setUp() {
+        // The system outputs "x" after "b" has been given, and the hypothesis always outputs "y"
+        system = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("y").loop()
+                .from("q0").on("b").withOutput("x").to("q1")
+                .from("q1").on("a", "b").withOutput("x").loop()
+                .create();
+        hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("y").loop()
+                .create();
+        SULOracle<String, String> oracle = new SULOracle<>(new MealySimulatorSUL<>(system));
+        shortener = new CounterExampleShortener(queryBatch -> {
+            queries.addAndGet(queryBatch.size());
+            oracle.processQueries(queryBatch);
+        });
+    }
+
+    private DefaultQuery<String, Word<String>> counterExample(Word<String> input) {
+        return new DefaultQuery<>(Word.epsilon(), input, system.computeOutput(input));
+    }
+
+    @Test
+    void cut() {
+        DefaultQuery<String, Word<String>> result =
+                shortener.shorten(hypothesis, counterExample(Word.fromSymbols("a", "a", "b", "a", "b", "a")));
+        assertEquals(Word.fromSymbols("a", "a", "b"), result.getInput());
+        assertEquals(Word.fromSymbols("y", "y", "x"), result.getOutput());
+        assertEquals(3, shortener.getRemovedSymbols());
+        assertEquals(0, queries.get());
+
+        // The prefix is kept
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a"),
+                Word.fromSymbols("b", "a"), system.computeSuffixOutput(Word.fromSymbols("a"), Word.fromSymbols("b", "a")));
+        result = shortener.shorten(hypothesis, query);
+        assertEquals(Word.fromSymbols("a"), result.getPrefix());
+        assertEquals(Word.fromSymbols("b"), result.getSuffix());
+        assertNull(shortener.shorten(hypothesis, null));
+    }
+
+    @Test
+    void deltaDebugging() {
+        shortener.setDeltaDebugging(true);
+        DefaultQuery<String, Word<String>> result =
+                shortener.shorten(hypothesis, counterExample(Word.fromSymbols("a", "a", "a", "a", "a", "b", "a")));
+        assertEquals(Word.fromSymbols("b"), result.getInput());
+        assertEquals(Word.fromSymbols("x"), result.getOutput());
+        assertTrue(queries.get() > 0);
+
+        queries.set(0);
+        shortener.setMaxDeltaDebuggingQueries(0);
+        result = shortener.shorten(hypothesis, counterExample(Word.fromSymbols("a", "a", "b")));
+        assertEquals(3, result.getInput().size());
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    void binarySearch() {
+        final int length = 64;
+        final int breakpoint = 40;
+        final AtomicInteger effects = new AtomicInteger();
+        AbstractCounterexample<Boolean> acex = new AbstractCounterexample<>() {
+            @Override
+            public int getLength() {
+                return length;
+            }
+
+            @Override
+            public boolean checkEffects(Boolean eff1, Boolean eff2) {
+                return eff1.equals(eff2);
+            }
+
+            @Override
+            public Boolean effect(int index) {
+                effects.incrementAndGet();
+                return index > breakpoint;
+            }
+        };
+        LengthAdaptiveAcexAnalyzer analyzer = new LengthAdaptiveAcexAnalyzer();
+        assertEquals(breakpoint, analyzer.analyzeAbstractCounterexample(acex));
+        final int linearEffects = effects.getAndSet(0);
+        analyzer.setBinarySearchThreshold(32);
+        assertEquals(breakpoint, analyzer.analyzeAbstractCounterexample(acex));
+        assertTrue(effects.get() < linearEffects);
+    }
+}
@@ -0,0 +1,53 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.PropertyOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GAEQOracleTest {
+    @Test
+    @SuppressWarnings("unchecked")
+    void parallelEvaluation() throws Exception {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        NumericSULMapper mapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Collections.singletonList('h'), Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        Alphabet<String> alphabet = Alphabets.fromArray("a", "b");
+        // The hypothesis claiming that the sum never exceeds 3.0
+        CompactMealy<String, String> hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("l").loop()
+                .create();
+        PropertyOracle.MealyPropertyOracle<String, String, String> ltlOracle =
+                mock(PropertyOracle.MealyPropertyOracle.class);
+        when(ltlOracle.isDisproved()).thenReturn(false);
+
+        try (NumericSULPool pool = NumericSULPool.fromFactory(4, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+            NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(pool.getInstances().get(0), mapper,
+                    signal -> 3.0 - signal.getOutputSignal().lastSymbol().get(0));
+            memOracle.setSulPool(pool);
+            GAEQOracle eqOracle = new GAEQOracle(memOracle, 3, 200, ArgParser.GASelectionKind.Tournament,
+                    8, 0.5, 0.5, ltlOracle);
+
+            DefaultQuery<String, Word<String>> cex = eqOracle.findCounterExample(hypothesis, alphabet);
+            assertNotNull(cex);
+            assertNotEquals(hypothesis.computeOutput(cex.getInput()), cex.getOutput());
+            assertEquals(memOracle.getEvaluateCount(), eqOracle.getEvaluateCount());
+            assertEquals(pool.getCounter(), eqOracle.getEvaluateCount());
+        }
+    }
+}
@@ -1,14 +1,16 @@
 package net.maswag.falcaun;
 
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
 import net.automatalib.word.Word;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 
 class HillClimbingEQOracleTest {
     private HillClimbingEQOracle eqOracle;
@@ -26,4 +28,76 @@ class HillClimbingEQOracleTest {
         List<Word<String>> output2 = eqOracle.createNextGeneration(input);
         Assertions.assertNotEquals(output1, output2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void sameCounterExampleWithPool() throws Exception {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        inputMapper.put('c', -1.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 9.0);
+        NumericSULMapper mapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Collections.singletonList('h'), Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        Alphabet<String> alphabet = Alphabets.fromArray("a", "b", "c");
+        // The hypothesis claiming that the sum never exceeds 9.0
+        CompactMealy<String, String> hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b", "c").withOutput("l").loop()
+                .create();
+
+        List<DefaultQuery<String, Word<String>>> counterExamples = new ArrayList<>();
+        // The chunk size of the concurrent evaluation depends on the pool size, but the result must not
+        for (int poolSize : new int[]{2, 4, 4}) {
+            try (NumericSULPool pool = NumericSULPool.fromFactory(poolSize, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+                NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(pool.getInstances().get(0), mapper,
+                        signal -> 9.0 - signal.getOutputSignal().lastSymbol().get(0));
+                memOracle.setSulPool(pool);
+                SAEQOracle oracle = new SAEQOracle(memOracle, 6, new Random(1), 1000, 3, 4, false, 0.9);
+                counterExamples.add(oracle.findCounterExample(hypothesis, alphabet));
+            }
+        }
+        // The same holds when the robustness is computed on the pipeline
+        try (NumericSULPool pool = NumericSULPool.fromFactory(2, SimulationSnapshotCacheTest.AccumulatorSUL::new);
+             SimulationPipeline pipeline = new SimulationPipeline(2, 3, 2)) {
+            NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(pool.getInstances().get(0), mapper,
+                    signal -> 9.0 - signal.getOutputSignal().lastSymbol().get(0));
+            memOracle.setSulPool(pool);
+            memOracle.setPipeline(pipeline);
+            SAEQOracle oracle = new SAEQOracle(memOracle, 6, new Random(1), 1000, 3, 4, false, 0.9);
+            counterExamples.add(oracle.findCounterExample(hypothesis, alphabet));
+        }
+        Assertions.assertNotNull(counterExamples.get(0));
+        for (DefaultQuery<String, Word<String>> counterExample : counterExamples) {
+            Assertions.assertEquals(counterExamples.get(0).getInput(), counterExample.getInput());
+            Assertions.assertEquals(counterExamples.get(0).getOutput(), counterExample.getOutput());
+        }
+    }
+
+    @Test
+    void sameGenerationAsSequential() throws Exception {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        inputMapper.put('c', -1.0);
+        NumericSULMapper mapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Collections.singletonList('h'), Collections.singletonList(new HashMap<>()), new SimpleSignalMapper());
+        List<Word<String>> samples = Arrays.asList(Word.fromSymbols("a", "c", "b", "a"), Word.fromSymbols("c", "c", "a", "b"));
+
+        NumericMembershipOracleCost sequentialOracle = new NumericMembershipOracleCost(new SimulationSnapshotCacheTest.AccumulatorSUL(),
+                mapper, signal -> 3.0 - signal.getOutputSignal().lastSymbol().get(0));
+        SAEQOracle sequential = new SAEQOracle(sequentialOracle, 4, new Random(2), 1000, 2, 3, false, 0.9);
+        sequential.symbolList = Arrays.asList("a", "b", "c");
+        List<Word<String>> expected = sequential.createNextGeneration(samples);
+        try (NumericSULPool pool = NumericSULPool.fromFactory(4, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+            NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(pool.getInstances().get(0), mapper,
+                    signal -> 3.0 - signal.getOutputSignal().lastSymbol().get(0));
+            memOracle.setSulPool(pool);
+            SAEQOracle concurrent = new SAEQOracle(memOracle, 4, new Random(2), 1000, 2, 3, false, 0.9);
+            concurrent.symbolList = Arrays.asList("a", "b", "c");
+            // The same neighbors are picked with the same random numbers, and no more neighbors are simulated
+            Assertions.assertEquals(expected, concurrent.createNextGeneration(samples));
+            Assertions.assertEquals(sequentialOracle.getEvaluateCount(), memOracle.getEvaluateCount());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.maswag.falcaun;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.Automata;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MealyBinaryFormatTest {
+    private final Alphabet<String> alphabet = Alphabets.fromArray("a", "b");
+
+    private static CompactMealy<String, String> roundTrip(CompactMealy<String, String> mealy) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        MealyBinaryFormat.write(mealy, mealy.getInputAlphabet(), os);
+        return MealyBinaryFormat.read(new ByteArrayInputStream(os.toByteArray()));
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        CompactMealy<String, String> mealy = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("x").to("q1")
+                .from("q0").on("b").withOutput("y").loop()
+                .from("q1").on("a").withOutput("z").to("q0")
+                .from("q1").on("b").withOutput("x").to("q2")
+                .from("q2").on("a", "b").withOutput("y").to("q1")
+                // unreachable
+                .from("q3").on("a", "b").withOutput("x").loop()
+                .create();
+        CompactMealy<String, String> result = roundTrip(mealy);
+        assertEquals(alphabet, result.getInputAlphabet());
+        assertEquals(3, result.size());
+        assertNull(Automata.findSeparatingWord(mealy, result, alphabet));
+    }
+
+    @Test
+    void partial() throws IOException {
+        CompactMealy<String, String> mealy = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("x").to("q1")
+                .create();
+        CompactMealy<String, String> result = roundTrip(mealy);
+        assertEquals(2, result.size());
+        assertEquals(Word.fromSymbols("x"), result.computeOutput(Word.fromSymbols("a")));
+        assertNull(result.getTransition(result.getInitialState(), "b"));
+    }
+
+    @Test
+    void invalid() {
+        assertThrows(IOException.class, () -> MealyBinaryFormat.read(new ByteArrayInputStream(new byte[]{0, 1, 2, 3, 4})));
+    }
+}
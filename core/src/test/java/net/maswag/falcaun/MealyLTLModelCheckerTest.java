@@ -0,0 +1,250 @@
+package net.maswag.falcaun;
+
+import de.learnlib.driver.simulator.MealySimulatorSUL;
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.sul.SUL;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static net.automatalib.util.automaton.Automata.stateCover;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MealyLTLModelCheckerTest {
+    private final MealyLTLModelChecker modelChecker = new MealyLTLModelChecker();
+    private Alphabet<String> alphabet;
+    private CompactMealy<String, String> mealy;
+
+    @BeforeEach
+    void setUp() {
+        alphabet = Alphabets.fromArray("a", "b");
+        // "a" toggles the state, and the output is "q" only when leaving q1
+        mealy = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("p").to("q1")
+                .from("q0").on("b").withOutput("p").loop()
+                .from("q1").on("a").withOutput("q").to("q0")
+                .from("q1").on("b").withOutput("p").loop()
+                .create();
+    }
+
+    /**
+     * Returns the input word of the counterexample, or {@code null} if there is no counterexample.
+     */
+    private Word<String> counterExample(String property) {
+        MealyMachine<?, String, ?, String> result = modelChecker.findCounterExample(mealy, alphabet, property);
+        if (Objects.isNull(result)) {
+            return null;
+        }
+        List<Word<String>> cover = stateCover(result, alphabet);
+        Word<String> input = cover.get(cover.size() - 1);
+        // The counterexample is a path of the Mealy machine
+        assertEquals(mealy.computeOutput(input), result.computeOutput(input));
+        return input;
+    }
+
+    @Test
+    void globally() {
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("[] ( ( output == \"p\" ) )"));
+        assertNull(counterExample("[] ( ( output == \"p\" ) || ( output == \"q\" ) )"));
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("[] ( ( output != \"q\" ) )"));
+        // The implication is checked at each position
+        assertEquals(Word.fromSymbols("a", "b"),
+                counterExample("[] ( ( input == \"a\" ) -> X ( ( input == \"a\" ) ) )"));
+    }
+
+    @Test
+    void next() {
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("X ( ( output == \"p\" ) )"));
+        assertNull(counterExample("X ( ( output == \"p\" ) || ( input == \"a\" ) )"));
+        assertEquals(Word.fromSymbols("b"), counterExample("!( ( input == \"b\" ) )"));
+    }
+
+    @Test
+    void untilAndRelease() {
+        // "b" satisfies the formula immediately, and "a a" is a bad prefix
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("( output == \"p\" ) U ( input == \"b\" )"));
+        // The eventualities have no bad prefix
+        assertNull(counterExample("<> ( output == \"r\" )"));
+        assertNull(counterExample("[] ( <> ( output == \"q\" ) )"));
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("( input == \"b\" ) R ( output == \"p\" )"));
+    }
+
+    @Test
+    void emptyProposition() {
+        assertEquals(Word.epsilon(), counterExample("[] ( ( ) )"));
+        assertEquals(Word.fromSymbols("a"), counterExample("( input == \"b\" ) || X ( ( ) )"));
+        assertThrows(IllegalArgumentException.class, () -> counterExample("[] ( output = \"p\" )"));
+    }
+
+    @Test
+    void boundedOperators() {
+        TemporalLogic.LTLFormula formula = new LTLFactory().parse("[]_[0,2] (output == p)");
+        assertEquals(Word.fromSymbols("a", "a"), counterExample(formula.toLTLString()));
+        formula = new LTLFactory().parse("<>_[0,1] (output == q)");
+        assertEquals(Word.fromSymbols("a", "b"), counterExample(formula.toLTLString()));
+    }
+
+    @Test
+    void skipOutputs() {
+        modelChecker.setSkipOutputs(Collections.singleton("q"));
+        assertNull(counterExample("[] ( ( output == \"p\" ) )"));
+    }
+
+    @Test
+    void monitorCache() {
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("[] ( ( output == \"p\" ) )"));
+        assertEquals(1, modelChecker.getMonitorCacheMisses());
+        // The formula differing only in the spacing shares the monitor
+        assertEquals(Word.fromSymbols("a", "a"), counterExample("[]((output==\"p\"))"));
+        assertSame(modelChecker.monitor("[] ( ( output == \"p\" ) )"), modelChecker.monitor("[] ((output == \"p\"))"));
+        assertNotSame(modelChecker.monitor("[] ( ( output == \"p\" ) )"), modelChecker.monitor("[] ( ( output == \" p\" ) )"));
+        assertEquals(2, modelChecker.getMonitorCacheMisses());
+        assertEquals(4, modelChecker.getMonitorCacheHits());
+
+        modelChecker.setMaxCachedMonitors(1);
+        modelChecker.monitor("X ( output == \"p\" )");
+        modelChecker.monitor("[] ( ( output == \"p\" ) )");
+        assertEquals(4, modelChecker.getMonitorCacheMisses());
+    }
+
+    @Test
+    void incremental() {
+        modelChecker.setIncremental(true);
+        // "a" leads to q1 and "b" leads to q2, and they are not connected
+        mealy = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("p").to("q1")
+                .from("q0").on("b").withOutput("p").to("q2")
+                .from("q1").on("a", "b").withOutput("p").loop()
+                .from("q2").on("a", "b").withOutput("p").loop()
+                .create();
+        assertNull(counterExample("[] ( output != \"r\" )"));
+        assertNull(counterExample("[] ( output != \"s\" )"));
+        assertEquals(0, modelChecker.getSkippedChecks());
+        // The hypothesis is not changed
+        assertNull(counterExample("[] ( output != \"r\" )"));
+        assertEquals(1, modelChecker.getSkippedChecks());
+
+        // Refine the hypothesis in place. Only q2 and q0 reach the changed transition.
+        final int q2 = mealy.getSuccessor(mealy.getInitialState(), "b");
+        final int q3 = mealy.addState();
+        mealy.setTransition(q2, "b", q3, "r");
+        mealy.setTransition(q3, "a", q3, "p");
+        mealy.setTransition(q3, "b", q3, "p");
+        assertEquals(Word.fromSymbols("b", "b"), counterExample("[] ( output != \"r\" )"));
+        assertNull(counterExample("[] ( output != \"s\" )"));
+        assertEquals(1, modelChecker.getSkippedChecks());
+        // q1 is proven in the previous round
+        assertTrue(modelChecker.getPrunedStates() > 0);
+
+        // The results are the same as those without the incremental mode
+        MealyLTLModelChecker scratch = new MealyLTLModelChecker();
+        assertNotNull(scratch.findCounterExample(mealy, alphabet, "[] ( output != \"r\" )"));
+        assertNull(scratch.findCounterExample(mealy, alphabet, "[] ( output != \"s\" )"));
+    }
+
+    @Test
+    void batch() {
+        List<String> properties = Arrays.asList(
+                "[] ( ( output == \"p\" ) )",
+                "[] ( ( output == \"p\" ) || ( output == \"q\" ) )",
+                "!( ( input == \"b\" ) )",
+                "[] ( ( ) )",
+                "( output == \"p\" ) U ( input == \"b\" )",
+                "[] ( ( input == \"a\" ) -> X ( ( input == \"a\" ) ) )");
+        List<MealyMachine<?, String, ?, String>> results = modelChecker.findCounterExamples(mealy, alphabet, properties);
+        assertEquals(properties.size(), results.size());
+        for (int i = 0; i < properties.size(); i++) {
+            MealyMachine<?, String, ?, String> expected = new MealyLTLModelChecker().findCounterExample(mealy, alphabet, properties.get(i));
+            assertEquals(Objects.isNull(expected), Objects.isNull(results.get(i)), properties.get(i));
+            if (Objects.nonNull(expected)) {
+                // Both of them are the shortest
+                assertEquals(expected.size(), results.get(i).size(), properties.get(i));
+            }
+        }
+
+        // The single-property checks of the same hypothesis use the prefetched results
+        modelChecker.prefetch(mealy, alphabet, properties);
+        assertEquals(Word.fromSymbols("a", "a"), counterExample(properties.get(0)));
+        assertNull(counterExample(properties.get(1)));
+        assertEquals(2, modelChecker.getBatchHits());
+        mealy.setTransition(mealy.getInitialState(), "a", mealy.getInitialState(), "p");
+        assertNull(counterExample(properties.get(0)));
+        assertEquals(2, modelChecker.getBatchHits());
+    }
+
+    @Test
+    void batchLimit() {
+        List<String> properties = Arrays.asList("[] ( ( output == \"p\" ) )", "X ( ( output == \"p\" ) || ( input == \"a\" ) )");
+        modelChecker.setMaxBatchProductStates(0);
+        List<MealyMachine<?, String, ?, String>> results = modelChecker.findCounterExamples(mealy, alphabet, properties);
+        assertNotNull(results.get(0));
+        assertNull(results.get(1));
+    }
+
+    @Test
+    void staticSTLList() {
+        List<Map<Character, Double>> inputMapper = Collections.singletonList(Collections.singletonMap('a', 0.0));
+        List<Map<Character, Double>> outputMapper = Collections.singletonList(Collections.singletonMap('a', 10.0));
+        List<Character> largest = Collections.singletonList('b');
+        STLFactory factory = new STLFactory();
+        List<TemporalLogic<List<Double>>> stlList = Arrays.asList(
+                        "[] (signal(0) < 10)", "signal(0) > 10", "<> (signal(0) > 10)", "signal(0) < 10")
+                .stream().map(stl -> (TemporalLogic<List<Double>>) factory.parse(stl, inputMapper, outputMapper, largest))
+                .collect(Collectors.toList());
+        CompactMealy<String, String> system = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("a").to("q1")
+                .from("q0").on("b").withOutput("a").loop()
+                .from("q1").on("a", "b").withOutput("b").loop()
+                .create();
+        StaticSTLList<List<Double>> list = new StaticSTLList<>(stlList, modelChecker);
+        list.setMemOracle(queries -> queries.forEach(query ->
+                query.answer(system.computeSuffixOutput(query.getPrefix(), query.getSuffix()))));
+        // The properties are disproved by the system itself, so no counterexample for the hypothesis is returned
+        DefaultQuery<String, Word<String>> result = list.findCounterExample(system, alphabet);
+        assertNull(result);
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), list.disprovedIndices);
+    }
+
+    @Test
+    void blackBoxVerifier() {
+        STLOutputAtomic low = new STLOutputAtomic(0, STLAbstractAtomic.Operation.lt, 1.0);
+        STLOutputAtomic high = new STLOutputAtomic(0, STLAbstractAtomic.Operation.gt, 1.0);
+        for (STLOutputAtomic atomic : Arrays.asList(low, high)) {
+            atomic.setAtomic(Collections.singletonList(Collections.singletonMap('a', 1.0)), Collections.singletonList('b'));
+        }
+        // The outputs alternate between "a" and "b"
+        List<TemporalLogic.STLCost> properties = Arrays.asList(
+                new TemporalNext.STLNext(new TemporalNext.STLNext(new TemporalNext.STLNext(high, true), true), true),
+                low,
+                new TemporalGlobally.STLGlobally(new TemporalImply.STLImply(high, new TemporalNext.STLNext(low, true))),
+                new TemporalNext.STLNext(new TemporalNext.STLNext(high, true), true));
+        Alphabet<String> inputAlphabet = Alphabets.singleton("a");
+        CompactMealy<String, String> system = AutomatonBuilders.<String, String>newMealy(inputAlphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("a").to("q1")
+                .from("q1").on("a").withOutput("b").to("q0")
+                .create();
+        SUL<String, String> sul = new MealySimulatorSUL<>(system);
+        StaticSTLList<List<Double>> stlList = new StaticSTLList<>(properties, modelChecker);
+        stlList.setMemOracle(new SULOracle<>(sul));
+        BlackBoxVerifier<List<Double>> verifier =
+                new BlackBoxVerifier<>(new SULOracle<>(sul), sul, stlList, inputAlphabet);
+
+        assertFalse(verifier.run());
+        // Only the last property is disproved by the system
+        assertEquals(Collections.singleton(3), stlList.disprovedIndices);
+        assertTrue(verifier.getCexProperty().contains(properties.get(3)));
+    }
+}
@@ -0,0 +1,78 @@
+package net.maswag.falcaun;
+
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericMembershipOracleTest {
+    private NumericSULMapper mapper;
+    private SimulationSnapshotCacheTest.AccumulatorSUL sul;
+
+    @BeforeEach
+    void setUp() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        mapper = new NumericSULMapper(Collections.singletonList(inputMapper), Collections.singletonList('h'),
+                Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        sul = new SimulationSnapshotCacheTest.AccumulatorSUL();
+    }
+
+    private static Word<String> word(String symbols) {
+        return Word.fromList(symbols.chars().mapToObj(c -> String.valueOf((char) c)).collect(Collectors.toList()));
+    }
+
+    private static List<Word<String>> words(String... symbols) {
+        return Arrays.stream(symbols).map(NumericMembershipOracleTest::word).collect(Collectors.toList());
+    }
+
+    @Test
+    void schedule() {
+        List<Word<String>> queries = words("ab", "a", "abba", "b", "abab", "abba");
+        assertEquals(words("abab", "abba", "b"), NumericMembershipOracle.schedule(queries, false));
+        // The branching node "ab" precedes the words below it
+        assertEquals(words("ab", "abab", "abba", "b"), NumericMembershipOracle.schedule(queries, true));
+    }
+
+    @Test
+    void executeMaximalWords() {
+        NumericMembershipOracle oracle = new NumericMembershipOracle(sul, mapper);
+        NumericMembershipOracle reference = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper);
+        List<DefaultQuery<String, Word<String>>> queries = new ArrayList<>();
+        for (Word<String> input : words("a", "ab", "abb", "b", "ba")) {
+            queries.add(new DefaultQuery<>(input));
+        }
+        // A query with a prefix is answered only for its suffix
+        queries.add(new DefaultQuery<>(word("a"), word("bb")));
+        oracle.processQueries(queries);
+        assertEquals(2, sul.getCounter());
+        for (DefaultQuery<String, Word<String>> query : queries) {
+            assertEquals(reference.answerQuery(query.getPrefix(), query.getSuffix()), query.getOutput());
+        }
+    }
+
+    @Test
+    void resumeFromBranchPoint() {
+        NumericMembershipOracle oracle = new NumericMembershipOracle(sul, mapper);
+        oracle.setSnapshotCache(new SimulationSnapshotCache(10));
+        List<DefaultQuery<String, Word<String>>> queries = new ArrayList<>();
+        for (Word<String> input : words("aaaa", "aaab", "aaba")) {
+            queries.add(new DefaultQuery<>(input));
+        }
+        oracle.processQueries(queries);
+        // "aa" and "aaa" are simulated once, and the rest resumes from them
+        assertEquals(2 + 1 + 1 + 1 + 2, sul.steps);
+        NumericMembershipOracle reference = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper);
+        for (DefaultQuery<String, Word<String>> query : queries) {
+            assertEquals(reference.answerQuery(query.getInput()), query.getOutput());
+        }
+    }
+}
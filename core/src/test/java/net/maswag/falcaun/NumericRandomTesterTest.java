@@ -0,0 +1,84 @@
+package net.maswag.falcaun;
+
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericRandomTesterTest {
+    private static final int POOL_SIZE = 3;
+    private static final int LENGTH = 4;
+    private NumericSULMapper mapper;
+    private final STLFactory factory = new STLFactory();
+
+    @BeforeEach
+    void setUp() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        mapper = new NumericSULMapper(Collections.singletonList(inputMapper), Collections.singletonList('h'),
+                Collections.singletonList(outputMapper), new SimpleSignalMapper());
+    }
+
+    @Test
+    void falsifyAll() throws Exception {
+        // The output is the sum of the inputs, so it reaches 5 unless most of the inputs are "a"
+        List<String> properties = Arrays.asList("[] (output(0) < 5.0)", "[] (output(0) < 7.5)");
+        List<TemporalLogic.STLCost> costFunc = new ArrayList<>();
+        properties.forEach(property -> costFunc.add(factory.parse(property)));
+        for (NumericRandomTester.Sampling sampling : NumericRandomTester.Sampling.values()) {
+            try (NumericSULPool pool = NumericSULPool.fromFactory(POOL_SIZE, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+                NumericRandomTester tester = new NumericRandomTester(pool, mapper, LENGTH, properties, costFunc);
+                tester.setSampling(sampling);
+                tester.setRandom(new Random(0));
+                tester.setMaxSimulations(1000);
+                assertFalse(tester.run(), sampling.toString());
+                assertEquals(2, tester.getCexProperty().size());
+                for (int i = 0; i < tester.getCexInput().size(); i++) {
+                    Word<String> cex = tester.getCexInput().get(i);
+                    assertEquals(LENGTH, cex.size());
+                    IOSignal<List<Double>> signal = new SimulationSnapshotCacheTest.AccumulatorSUL().execute(mapper.mapInput(cex));
+                    assertTrue(tester.getCexProperty().get(i).apply(signal) < 0);
+                }
+                assertEquals(tester.getSimulations(), pool.getCounter());
+            }
+        }
+    }
+
+    @Test
+    void stopOnBudget() throws Exception {
+        List<String> properties = Collections.singletonList("[] (output(0) < 100.0)");
+        try (NumericSULPool pool = NumericSULPool.fromFactory(POOL_SIZE, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+            NumericRandomTester tester = new NumericRandomTester(pool, mapper, LENGTH, properties,
+                    Collections.singletonList(factory.parse(properties.get(0))));
+            tester.setMaxSimulations(50);
+            assertTrue(tester.run());
+            assertTrue(tester.getCexInput().isEmpty());
+            assertEquals(50, tester.getSimulations());
+            assertEquals(50, pool.getCounter());
+        }
+    }
+
+    @Test
+    void latinHypercube() throws Exception {
+        List<String> properties = Collections.singletonList("[] (output(0) < 100.0)");
+        try (NumericSULPool pool = NumericSULPool.fromFactory(POOL_SIZE, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+            NumericRandomTester tester = new NumericRandomTester(pool, mapper, LENGTH, properties,
+                    Collections.singletonList(factory.parse(properties.get(0))));
+            tester.setSampling(NumericRandomTester.Sampling.LATIN_HYPERCUBE);
+            tester.setBatchSize(10);
+            List<Word<String>> batch = tester.generateBatch();
+            assertEquals(10, batch.size());
+            // Each symbol appears equally often at each position
+            for (int j = 0; j < LENGTH; j++) {
+                final int position = j;
+                assertEquals(5, batch.stream().filter(word -> word.getSymbol(position).equals("a")).count());
+            }
+        }
+    }
+}
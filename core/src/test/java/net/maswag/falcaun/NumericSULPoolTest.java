@@ -0,0 +1,152 @@
+package net.maswag.falcaun;
+
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericSULPoolTest {
+    private static final int POOL_SIZE = 4;
+    private NumericSULMapper mapper;
+
+    @BeforeEach
+    void setUp() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        mapper = new NumericSULMapper(Collections.singletonList(inputMapper), Collections.singletonList('h'),
+                Collections.singletonList(outputMapper), new SimpleSignalMapper());
+    }
+
+    @Test
+    void processQueriesConcurrently() throws Exception {
+        // Each execution waits until all the instances are executing
+        CountDownLatch running = new CountDownLatch(POOL_SIZE);
+        AtomicInteger timeouts = new AtomicInteger();
+        List<NumericSUL> instances = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            instances.add(new SimulationSnapshotCacheTest.AccumulatorSUL() {
+                @Override
+                public void pre() {
+                    super.pre();
+                    running.countDown();
+                    try {
+                        if (!running.await(10, TimeUnit.SECONDS)) {
+                            timeouts.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+        try (NumericSULPool pool = new NumericSULPool(instances)) {
+            NumericMembershipOracle oracle = new NumericMembershipOracle(instances.get(0), mapper);
+            oracle.setSulPool(pool);
+            List<DefaultQuery<String, Word<String>>> queries = Arrays.asList(
+                    new DefaultQuery<>(Word.fromSymbols("a", "a")),
+                    new DefaultQuery<>(Word.fromSymbols("a", "b")),
+                    new DefaultQuery<>(Word.fromSymbols("b"), Word.fromSymbols("a")),
+                    new DefaultQuery<>(Word.fromSymbols("b", "b")),
+                    // Answered by the cache or by waiting for the in-flight execution
+                    new DefaultQuery<>(Word.fromSymbols("a", "a")));
+            oracle.processQueries(queries);
+
+            assertEquals(0, timeouts.get());
+            assertEquals(4, pool.getCounter());
+            // The outputs are "l" if the sum is at most 3.0 and "h" otherwise
+            assertEquals(Word.fromSymbols("l", "l"), queries.get(0).getOutput());
+            assertEquals(Word.fromSymbols("l", "l"), queries.get(1).getOutput());
+            assertEquals(Word.fromSymbols("l"), queries.get(2).getOutput());
+            assertEquals(Word.fromSymbols("l", "h"), queries.get(3).getOutput());
+            assertEquals(Word.fromSymbols("l", "l"), queries.get(4).getOutput());
+        }
+    }
+
+    @Test
+    void executeAsync() throws Exception {
+        List<Word<List<Double>>> inputs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            inputs.add(Word.fromSymbols(Collections.singletonList(1.0), Collections.singletonList((double) i)));
+        }
+        // The executions of a single SUL are serialized
+        SimulationSnapshotCacheTest.AccumulatorSUL sul = new SimulationSnapshotCacheTest.AccumulatorSUL();
+        List<CompletableFuture<IOSignal<List<Double>>>> futures = new ArrayList<>();
+        inputs.forEach(input -> futures.add(sul.executeAsync(input)));
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(1.0 + i, futures.get(i).get(10, TimeUnit.SECONDS).getOutputSignal().lastSymbol().get(0));
+        }
+        assertEquals(inputs.size(), sul.getCounter());
+
+        try (NumericSULPool pool = NumericSULPool.fromFactory(POOL_SIZE, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+            futures.clear();
+            inputs.forEach(input -> futures.add(pool.executeAsync(input)));
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(1.0 + i, futures.get(i).get(10, TimeUnit.SECONDS).getOutputSignal().lastSymbol().get(0));
+            }
+            assertEquals(inputs.size(), pool.getCounter());
+        }
+    }
+
+    @Test
+    void processQueryWithCostAsync() throws Exception {
+        // The queries are simulated by the asynchronous execution of the SULs
+        AtomicInteger asyncExecutions = new AtomicInteger();
+        try (NumericSULPool pool = NumericSULPool.fromFactory(2, () -> new SimulationSnapshotCacheTest.AccumulatorSUL() {
+            @Override
+            public CompletableFuture<IOSignal<List<Double>>> executeAsync(Word<List<Double>> inputSignal) {
+                asyncExecutions.incrementAndGet();
+                return super.executeAsync(inputSignal);
+            }
+        })) {
+            NumericMembershipOracleCost oracle = new NumericMembershipOracleCost(pool.getInstances().get(0), mapper,
+                    signal -> signal.getOutputSignal().lastSymbol().get(0));
+            oracle.setSulPool(pool);
+            List<CompletableFuture<Double>> futures = new ArrayList<>();
+            List<DefaultQuery<String, Word<String>>> queries = Arrays.asList(
+                    new DefaultQuery<>(Word.fromSymbols("a", "a")),
+                    new DefaultQuery<>(Word.fromSymbols("a", "b")),
+                    new DefaultQuery<>(Word.fromSymbols("b", "b")));
+            queries.forEach(query -> futures.add(oracle.processQueryWithCostAsync(query, () -> false)));
+            // The skipped query is not simulated
+            futures.add(oracle.processQueryWithCostAsync(new DefaultQuery<>(Word.fromSymbols("b", "a")), () -> true));
+            assertEquals(2.0, futures.get(0).get(10, TimeUnit.SECONDS));
+            assertEquals(3.0, futures.get(1).get(10, TimeUnit.SECONDS));
+            assertEquals(4.0, futures.get(2).get(10, TimeUnit.SECONDS));
+            assertNull(futures.get(3).get(10, TimeUnit.SECONDS));
+            assertEquals(Word.fromSymbols("l", "h"), queries.get(2).getOutput());
+            assertEquals(3, asyncExecutions.get());
+            assertEquals(3, pool.getCounter());
+            assertEquals(3, oracle.getEvaluateCount());
+
+            // The cached query is answered without simulation
+            assertEquals(4.0, oracle.processQueryWithCostAsync(new DefaultQuery<>(Word.fromSymbols("b", "b")), () -> false)
+                    .get(10, TimeUnit.SECONDS));
+            assertEquals(3, asyncExecutions.get());
+        }
+    }
+
+    @Test
+    void borrowExclusively() throws Exception {
+        try (NumericSULPool pool = NumericSULPool.fromFactory(2, SimulationSnapshotCacheTest.AccumulatorSUL::new)) {
+            NumericSUL first = pool.borrow();
+            NumericSUL second = pool.borrow();
+            assertNotSame(first, second);
+            pool.giveBack(first);
+            assertSame(first, pool.borrow());
+            pool.giveBack(first);
+            pool.giveBack(second);
+            assertThrows(IllegalStateException.class, () -> pool.giveBack(second));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.maswag.falcaun;
+
+import org.junit.jupiter.api.Test;
+import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.Solution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ParallelSolutionListEvaluatorTest {
+    @Test
+    @SuppressWarnings("unchecked")
+    void waitForRunningEvaluationsOnError() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Solution<Integer>> solutions = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                solutions.add(mock(Solution.class));
+            }
+            CountDownLatch running = new CountDownLatch(1);
+            AtomicInteger started = new AtomicInteger();
+            AtomicInteger finished = new AtomicInteger();
+            AtomicInteger interrupted = new AtomicInteger();
+            Problem<Solution<Integer>> problem = mock(Problem.class);
+            doAnswer(invocation -> {
+                if (invocation.getArgument(0) == solutions.get(0)) {
+                    // Fail while the other evaluation is running
+                    running.await();
+                    throw new IllegalStateException("failure");
+                }
+                started.incrementAndGet();
+                running.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+                finished.incrementAndGet();
+                return null;
+            }).when(problem).evaluate(any());
+
+            ParallelSolutionListEvaluator<Solution<Integer>> evaluator =
+                    new ParallelSolutionListEvaluator<>(executor, () -> false);
+            assertThrows(IllegalStateException.class, () -> evaluator.evaluate(solutions, problem));
+            // The running evaluations are completed without interruption before returning
+            assertEquals(started.get(), finished.get());
+            assertTrue(finished.get() < solutions.size() - 1);
+            assertEquals(0, interrupted.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
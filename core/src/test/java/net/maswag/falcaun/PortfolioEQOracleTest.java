@@ -0,0 +1,177 @@
+package net.maswag.falcaun;
+
+import de.learnlib.oracle.PropertyOracle;
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PortfolioEQOracleTest {
+    private Alphabet<String> alphabet;
+    private CompactMealy<String, String> hypothesis;
+
+    @BeforeEach
+    void setUp() {
+        alphabet = Alphabets.fromArray("a", "b");
+        hypothesis = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("l").loop()
+                .create();
+    }
+
+    @Test
+    void cancelOthers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        AtomicBoolean finished = new AtomicBoolean(false);
+        try (PortfolioEQOracle<String, String> portfolio = new PortfolioEQOracle<>()) {
+            // Runs until it is interrupted
+            portfolio.addOracle("slow", (hyp, inputs) -> {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                finished.set(true);
+                return null;
+            }, () -> 3);
+            // Returns an invalid counterexample, which must be ignored
+            portfolio.addOracle("invalid", (hyp, inputs) -> {
+                await(started);
+                return new DefaultQuery<>(Word.epsilon(), Word.fromSymbols("a"), Word.fromSymbols("l"));
+            }, null);
+            portfolio.addOracle("fast", (hyp, inputs) -> {
+                await(started);
+                return new DefaultQuery<>(Word.epsilon(), Word.fromSymbols("b"), Word.fromSymbols("h"));
+            }, () -> 1);
+
+            DefaultQuery<String, Word<String>> cex = portfolio.findCounterExample(hypothesis, alphabet);
+            assertNotNull(cex);
+            assertEquals(Word.fromSymbols("b"), cex.getInput());
+            assertEquals("fast", portfolio.getLastWinner());
+            // The slow oracle is already stopped when the counterexample is returned
+            assertTrue(interrupted.get());
+            assertTrue(finished.get());
+            assertEquals(1, portfolio.getWinCounts().get("fast"));
+            assertEquals(0, portfolio.getWinCounts().get("slow"));
+        }
+    }
+
+    @Test
+    void failingOracle() {
+        CountDownLatch failed = new CountDownLatch(1);
+        try (PortfolioEQOracle<String, String> portfolio = new PortfolioEQOracle<>()) {
+            portfolio.addOracle("failing", (hyp, inputs) -> {
+                failed.countDown();
+                throw new IllegalStateException("failure for testing");
+            }, null);
+            portfolio.addOracle("found", (hyp, inputs) -> {
+                // Return after the other oracle fails
+                await(failed);
+                return new DefaultQuery<>(Word.epsilon(), Word.fromSymbols("b"), Word.fromSymbols("h"));
+            }, null);
+            DefaultQuery<String, Word<String>> cex = portfolio.findCounterExample(hypothesis, alphabet);
+            assertNotNull(cex);
+            assertEquals("found", portfolio.getLastWinner());
+        }
+        // The failure is rethrown if no oracle searched the counterexample
+        try (PortfolioEQOracle<String, String> portfolio = new PortfolioEQOracle<>()) {
+            portfolio.addOracle("failing", (hyp, inputs) -> {
+                throw new IllegalStateException("failure for testing");
+            }, null);
+            assertThrows(IllegalStateException.class, () -> portfolio.findCounterExample(hypothesis, alphabet));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stopSearchOracles() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', -1.0);
+        inputMapper.put('b', -2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        NumericSULMapper mapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Collections.singletonList('h'), Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        PropertyOracle.MealyPropertyOracle<String, String, String> ltlOracle =
+                mock(PropertyOracle.MealyPropertyOracle.class);
+        when(ltlOracle.isDisproved()).thenReturn(false);
+        List<Function<NumericMembershipOracleCost, EvaluationCountable.MealyEquivalenceOracle<String, String>>> losers =
+                Arrays.asList(
+                        memOracle -> new HillClimbingEQOracle(memOracle, 20, new Random(0), 1_000_000, 5, 4, false, ltlOracle),
+                        memOracle -> new GAEQOracle(memOracle, 20, 1_000_000, ArgParser.GASelectionKind.Tournament,
+                                8, 0.5, 0.1, ltlOracle));
+        for (Function<NumericMembershipOracleCost, EvaluationCountable.MealyEquivalenceOracle<String, String>> loser : losers) {
+            AtomicBoolean interrupted = new AtomicBoolean(false);
+            // The sum is always negative, so the hypothesis is correct, and the search never ends by itself
+            NumericMembershipOracleCost memOracle = new NumericMembershipOracleCost(new SimulationSnapshotCacheTest.AccumulatorSUL() {
+                @Override
+                public IOSignalPiece<List<Double>> step(List<Double> input) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.step(input);
+                }
+            }, mapper, signal -> 3.0 - signal.getOutputSignal().lastSymbol().get(0));
+            EvaluationCountable.MealyEquivalenceOracle<String, String> eqOracle = loser.apply(memOracle);
+            try (PortfolioEQOracle<String, String> portfolio = new PortfolioEQOracle<>()) {
+                portfolio.addOracle("search", eqOracle, eqOracle, (Stoppable) eqOracle);
+                portfolio.addOracle("fast", (hyp, inputs) -> {
+                    // Wait until the search is running
+                    while (eqOracle.getEvaluateCount() < 3) {
+                        Thread.yield();
+                    }
+                    return new DefaultQuery<>(Word.epsilon(), Word.fromSymbols("b"), Word.fromSymbols("h"));
+                }, null);
+
+                assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                    assertNotNull(portfolio.findCounterExample(hypothesis, alphabet));
+                });
+                assertEquals("fast", portfolio.getLastWinner());
+                // The search is stopped between the simulations without interruption
+                assertFalse(interrupted.get());
+                final int count = eqOracle.getEvaluateCount();
+                assertTrue(count < 1_000_000);
+                assertEquals(count, eqOracle.getEvaluateCount());
+            }
+        }
+    }
+
+    @Test
+    void noCounterExample() {
+        try (PortfolioEQOracle<String, String> portfolio = new PortfolioEQOracle<>()) {
+            portfolio.addOracle("first", (hyp, inputs) -> null, null);
+            portfolio.addOracle("second", (hyp, inputs) ->
+                    new DefaultQuery<>(Word.epsilon(), Word.fromSymbols("a"), Word.fromSymbols("l")), null);
+            assertNull(portfolio.findCounterExample(hypothesis, alphabet));
+            assertNull(portfolio.getLastWinner());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.maswag.falcaun;
+
+import de.learnlib.driver.simulator.MealySimulatorSUL;
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.DefaultQuery;
+import de.learnlib.query.Query;
+import de.learnlib.sul.SUL;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetchingMembershipOracleTest {
+    private final Alphabet<String> alphabet = Alphabets.fromArray("a", "b", "c");
+
+    @Test
+    void siblings() {
+        CompactMealy<String, String> system = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b", "c").withOutput("x").loop()
+                .create();
+        List<Word<String>> asked = new ArrayList<>();
+        SULOracle<String, String> oracle = new SULOracle<>(new MealySimulatorSUL<>(system));
+        PrefetchingMembershipOracle prefetching = new PrefetchingMembershipOracle(queries -> {
+            queries.stream().map(Query::getInput).forEach(asked::add);
+            oracle.processQueries(queries);
+        }, alphabet);
+
+        DefaultQuery<String, Word<String>> query = new DefaultQuery<>(Word.fromSymbols("a", "b"), Word.fromSymbols("c"));
+        prefetching.processQueries(Collections.singletonList(query));
+        assertEquals(Word.fromSymbols("x"), query.getOutput());
+        // The last symbol of the prefix is varied
+        assertEquals(new HashSet<>(Arrays.asList(Word.fromSymbols("a", "b", "c"), Word.fromSymbols("a", "a", "c"),
+                Word.fromSymbols("a", "c", "c"))), new HashSet<>(asked));
+        assertEquals(2, prefetching.getSpeculativeQueries());
+
+        asked.clear();
+        prefetching.processQueries(Collections.singletonList(new DefaultQuery<>(Word.fromSymbols("b"))));
+        assertEquals(3, asked.size());
+        assertTrue(asked.contains(Word.fromSymbols("c")));
+    }
+
+    @Test
+    void learners() {
+        for (BlackBoxVerifier.LearnerKind kind : BlackBoxVerifier.LearnerKind.values()) {
+            for (boolean batching : Arrays.asList(false, true)) {
+                learn(kind, batching);
+            }
+        }
+    }
+
+    private void learn(BlackBoxVerifier.LearnerKind kind, boolean batching) {
+        STLOutputAtomic high = new STLOutputAtomic(0, STLAbstractAtomic.Operation.gt, 1.0);
+        high.setAtomic(Collections.singletonList(Collections.singletonMap('a', 1.0)), Collections.singletonList('b'));
+        List<TemporalLogic.STLCost> properties = Arrays.asList(
+                new TemporalNext.STLNext(new TemporalNext.STLNext(high, true), true),
+                new TemporalNext.STLNext(new TemporalNext.STLNext(new TemporalNext.STLNext(high, true), true), true));
+        // The outputs are "a" except that every third one is "b"
+        Alphabet<String> inputAlphabet = Alphabets.fromArray("a", "b");
+        CompactMealy<String, String> system = AutomatonBuilders.<String, String>newMealy(inputAlphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("a").to("q1")
+                .from("q1").on("a", "b").withOutput("a").to("q2")
+                .from("q2").on("a", "b").withOutput("b").to("q0")
+                .create();
+        SUL<String, String> sul = new MealySimulatorSUL<>(system);
+        StaticSTLList<List<Double>> stlList = new StaticSTLList<>(properties, new MealyLTLModelChecker());
+        stlList.setMemOracle(new SULOracle<>(sul));
+        BlackBoxVerifier<List<Double>> verifier =
+                new BlackBoxVerifier<>(new SULOracle<>(sul), sul, stlList, inputAlphabet);
+        verifier.setLearnerKind(kind);
+        verifier.setQueryBatching(batching);
+
+        assertFalse(verifier.run(), kind + " " + batching);
+        // The first property requires refining the initial hypothesis, and the second one is disproved by the fourth output
+        assertEquals(Collections.singleton(1), stlList.disprovedIndices, kind + " " + batching);
+    }
+}
@@ -0,0 +1,142 @@
+package net.maswag.falcaun;
+
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static net.automatalib.util.automaton.Automata.stateCover;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReducingModelCheckerTest {
+    private final ReducingModelChecker modelChecker = new ReducingModelChecker(new MealyLTLModelChecker());
+    private Alphabet<String> alphabet;
+    private CompactMealy<String, String> mealy;
+
+    @BeforeEach
+    void setUp() {
+        alphabet = Alphabets.fromArray("a", "b", "c");
+        // "a" cycles the states, and "b" and "c" are self loops with various outputs
+        mealy = AutomatonBuilders.<String, String>newMealy(alphabet)
+                .withInitial("q0")
+                .from("q0").on("a").withOutput("p").to("q1")
+                .from("q0").on("b").withOutput("r").loop()
+                .from("q0").on("c").withOutput("s").loop()
+                .from("q1").on("a").withOutput("q").to("q2")
+                .from("q1").on("b").withOutput("s").loop()
+                .from("q1").on("c").withOutput("r").loop()
+                .from("q2").on("a").withOutput("p").to("q0")
+                .from("q2").on("b", "c").withOutput("r").loop()
+                .create();
+    }
+
+    @Test
+    void reduce() {
+        // No letter is relevant, so everything is merged
+        ReducingModelChecker.Reduction reduction = modelChecker.reduce(mealy, alphabet, "[] ( output != \"x\" )");
+        assertEquals(1, reduction.mealy.size());
+        assertEquals(1, reduction.inputs.size());
+
+        reduction = modelChecker.reduce(mealy, alphabet, "[] ( output != \"q\" )");
+        assertEquals(3, reduction.mealy.size());
+        assertEquals(Arrays.asList("a", "b"), reduction.inputs);
+
+        // The inputs in the property are not merged
+        reduction = modelChecker.reduce(mealy, alphabet, "[] ( input == \"c\" -> ( output == \"r\" ) )");
+        assertEquals(alphabet, reduction.inputs);
+    }
+
+    @Test
+    void counterExample() {
+        MealyMachine<?, String, ?, String> result = modelChecker.findCounterExample(mealy, alphabet, "[] ( output != \"q\" )");
+        assertNotNull(result);
+        List<Word<String>> cover = stateCover(result, alphabet);
+        Word<String> input = cover.get(cover.size() - 1);
+        assertEquals(Word.fromSymbols("a", "a"), input);
+        // The outputs are the original ones
+        assertEquals(Word.fromSymbols("p", "q"), result.computeOutput(input));
+    }
+
+    @Test
+    void sameResults() {
+        MealyLTLModelChecker direct = new MealyLTLModelChecker();
+        List<String> properties = Arrays.asList(
+                "[] ( output != \"q\" )",
+                "[] ( output != \"x\" )",
+                "[] ( ( input == \"c\" ) -> ( output == \"r\" ) )",
+                "[] ( ( input == \"b\" ) -> ( output != \"s\" ) )",
+                "X ( ( output == \"q\" ) || ( output == \"r\" ) )",
+                "<> ( output == \"q\" )");
+        for (String property : properties) {
+            MealyMachine<?, String, ?, String> expected = direct.findCounterExample(mealy, alphabet, property);
+            MealyMachine<?, String, ?, String> actual = modelChecker.findCounterExample(mealy, alphabet, property);
+            assertEquals(Objects.isNull(expected), Objects.isNull(actual), property);
+            if (Objects.nonNull(expected)) {
+                assertEquals(expected.size(), actual.size(), property);
+            }
+        }
+    }
+
+    @Test
+    void batch() {
+        MealyLTLModelChecker delegate = new MealyLTLModelChecker();
+        ReducingModelChecker batchChecker = new ReducingModelChecker(delegate);
+        List<String> properties = Arrays.asList(
+                "[] ( output != \"q\" )",
+                "[] ( output != \"x\" )",
+                "[] ( ( input == \"b\" ) -> ( output != \"s\" ) )");
+        List<MealyMachine<?, String, ?, String>> results = batchChecker.findCounterExamples(mealy, alphabet, properties);
+        for (int i = 0; i < properties.size(); i++) {
+            MealyMachine<?, String, ?, String> expected = modelChecker.findCounterExample(mealy, alphabet, properties.get(i));
+            assertEquals(Objects.isNull(expected), Objects.isNull(results.get(i)), properties.get(i));
+        }
+
+        // The single-property checks after the prefetch use the results of the delegate
+        batchChecker.prefetch(mealy, alphabet, properties);
+        for (String property : properties) {
+            MealyMachine<?, String, ?, String> expected = modelChecker.findCounterExample(mealy, alphabet, property);
+            MealyMachine<?, String, ?, String> actual = batchChecker.findCounterExample(mealy, alphabet, property);
+            assertEquals(Objects.isNull(expected), Objects.isNull(actual), property);
+        }
+        assertEquals(properties.size(), delegate.getBatchHits());
+    }
+
+    @Test
+    void prefetchWithoutBatch() {
+        List<Integer> sizes = new ArrayList<>();
+        ReducingModelChecker checker = new ReducingModelChecker(new ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>>() {
+            @Override
+            public MealyMachine<?, String, ?, String> findCounterExample(MealyMachine<?, String, ?, String> automaton,
+                                                                         Collection<? extends String> inputs,
+                                                                         String property) {
+                sizes.add(automaton.size());
+                return null;
+            }
+
+            @Override
+            public Collection<? super String> getSkipOutputs() {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public void setSkipOutputs(Collection<? super String> skipOutputs) {
+            }
+        });
+        List<String> properties = Arrays.asList(
+                "[] ( output != \"q\" )",
+                "[] ( output != \"x\" )");
+        checker.prefetch(mealy, alphabet, properties);
+        for (String property : properties) {
+            checker.findCounterExample(mealy, alphabet, property);
+        }
+        // Each property is checked on the Mealy machine reduced for it, not for both of them
+        assertEquals(Arrays.asList(3, 1), sizes);
+    }
+}
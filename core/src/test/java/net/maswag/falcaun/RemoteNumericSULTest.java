@@ -0,0 +1,108 @@
+package net.maswag.falcaun;
+
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteNumericSULTest {
+    private final Word<List<Double>> input = Word.fromSymbols(
+            Collections.singletonList(1.0), Collections.singletonList(2.0), Collections.singletonList(-0.5));
+
+    @Test
+    void executeOnWorkerThread() throws Exception {
+        try (SULWorker worker = new SULWorker(new SimulationSnapshotCacheTest.AccumulatorSUL(), 0)) {
+            Thread thread = new Thread(worker::serve);
+            thread.setDaemon(true);
+            thread.start();
+            try (RemoteNumericSUL sul = RemoteNumericSUL.localhost(worker.getPort())) {
+                IOSignal<List<Double>> expected = new SimulationSnapshotCacheTest.AccumulatorSUL().execute(input);
+                IOSignal<List<Double>> actual = sul.execute(input);
+                assertEquals(expected.getInputSignal(), actual.getInputSignal());
+                assertEquals(expected.getOutputSignal(), actual.getOutputSignal());
+
+                sul.pre();
+                assertEquals(Collections.singletonList(1.0), sul.step(Collections.singletonList(1.0)).getOutputSignal());
+                assertEquals(Collections.singletonList(3.0), sul.step(Collections.singletonList(2.0)).getOutputSignal());
+                sul.post();
+                assertEquals(2, sul.getCounter());
+            }
+        }
+    }
+
+    @Test
+    void continuousSignal() throws IOException {
+        Word<List<Double>> output = Word.fromSymbols(Collections.singletonList(0.0), Collections.singletonList(2.0));
+        ValueWithTime<List<Double>> values = new ValueWithTime<>(Arrays.asList(0.0, 0.5, 1.0),
+                Arrays.asList(Collections.singletonList(0.0), Collections.singletonList(1.0), Collections.singletonList(2.0)));
+        Word<List<Double>> twoSteps = input.prefix(2);
+        IOContinuousSignal<List<Double>> signal = new IOContinuousSignal<>(twoSteps, output, values, 1.0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SULWorkerProtocol.writeSignal(new DataOutputStream(bytes), signal);
+        IOSignal<List<Double>> decoded = SULWorkerProtocol.readSignal(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), twoSteps);
+
+        assertInstanceOf(IOContinuousSignal.class, decoded);
+        IOContinuousSignal<List<Double>> continuous = (IOContinuousSignal<List<Double>>) decoded;
+        assertEquals(output, continuous.getOutputSignal());
+        assertEquals(values.timestamps, continuous.getContinuousOutputSignal().timestamps);
+        assertEquals(values.values, continuous.getContinuousOutputSignal().values);
+        assertEquals(1.0, continuous.getSignalStep());
+    }
+
+    @Test
+    void workerProcesses() throws Exception {
+        // The test classes are not in java.class.path since surefire uses an isolated class loader
+        String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        List<String> command = Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, SULWorker.class.getName(), "0", SimulationSnapshotCacheTest.AccumulatorSUL.class.getName());
+        try (SULWorkerPool workers = new SULWorkerPool(2, command);
+             NumericSULPool pool = workers.toNumericSULPool()) {
+            List<IOSignal<List<Double>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.executeAsync(input).get());
+            }
+            for (IOSignal<List<Double>> result : results) {
+                assertEquals(Collections.singletonList(2.5), result.getOutputSignal().lastSymbol());
+            }
+            assertEquals(4, pool.getCounter());
+
+            // Kill a worker. It is spawned again, and the execution is retried.
+            Process killed = workers.getProcess(0);
+            killed.destroyForcibly().waitFor();
+            assertEquals(Collections.singletonList(2.5),
+                    workers.getInstances().get(0).execute(input).getOutputSignal().lastSymbol());
+            assertNotSame(killed, workers.getProcess(0));
+            assertTrue(workers.getProcess(0).isAlive());
+        }
+    }
+
+    @Test
+    void failedExecution() throws Exception {
+        NumericSUL failing = new SimulationSnapshotCacheTest.AccumulatorSUL() {
+            @Override
+            public IOSignal<List<Double>> execute(Word<List<Double>> inputSignal) throws ExecutionException {
+                throw new ExecutionException(new IllegalStateException("broken model"));
+            }
+        };
+        try (SULWorker worker = new SULWorker(failing, 0)) {
+            Thread thread = new Thread(worker::serve);
+            thread.setDaemon(true);
+            thread.start();
+            try (RemoteNumericSUL sul = RemoteNumericSUL.localhost(worker.getPort())) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> sul.execute(input));
+                assertTrue(e.getCause().getMessage().contains("broken model"));
+                // The connection is still usable
+                sul.pre();
+                assertEquals(Collections.singletonList(1.0), sul.step(Collections.singletonList(1.0)).getOutputSignal());
+                sul.post();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.maswag.falcaun;
+
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobustnessCacheTest {
+    private NumericSULMapper mapper;
+    private SimulationSnapshotCacheTest.AccumulatorSUL sul;
+    private int lastCalls;
+    private int firstCalls;
+    private Function<IOSignal<List<Double>>, Double> last;
+    private Function<IOSignal<List<Double>>, Double> first;
+
+    @BeforeEach
+    void setUp() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        mapper = new NumericSULMapper(Collections.singletonList(inputMapper), Collections.singletonList('h'),
+                Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        sul = new SimulationSnapshotCacheTest.AccumulatorSUL();
+        lastCalls = 0;
+        firstCalls = 0;
+        last = signal -> {
+            lastCalls++;
+            return signal.getOutputSignal().lastSymbol().get(0);
+        };
+        first = signal -> {
+            firstCalls++;
+            return signal.getOutputSignal().firstSymbol().get(0);
+        };
+    }
+
+    @Test
+    void sharedBetweenOracles() {
+        RobustnessCache cache = new RobustnessCache(mapper);
+        NumericMembershipOracleCost lastOracle = new NumericMembershipOracleCost(sul, mapper, last);
+        NumericMembershipOracleCost firstOracle = new NumericMembershipOracleCost(sul, mapper, first);
+        lastOracle.setRobustnessCache(cache);
+        firstOracle.setRobustnessCache(cache);
+        firstOracle.setCache(lastOracle.getCache());
+        assertEquals(2, cache.size());
+
+        Word<String> input = Word.fromSymbols("a", "b", "a");
+        assertEquals(4.0, lastOracle.processQueryWithCost(new DefaultQuery<>(input)));
+        // The robustness for the other property is not computed eagerly
+        assertEquals(1, lastCalls);
+        assertEquals(0, firstCalls);
+
+        assertEquals(1.0, firstOracle.processQueryWithCost(new DefaultQuery<>(input)));
+        assertEquals(1, sul.getCounter());
+        assertEquals(0, firstOracle.getEvaluateCount());
+        assertEquals(1, firstCalls);
+
+        // The prefixes are also available without simulation
+        assertEquals(3.0, lastOracle.processQueryWithCost(new DefaultQuery<>(input.prefix(2))));
+        assertEquals(1, sul.getCounter());
+        assertEquals(2, lastCalls);
+
+        // The cached values are reused
+        assertEquals(3.0, lastOracle.processQueryWithCost(new DefaultQuery<>(input.prefix(2))));
+        assertEquals(2, lastCalls);
+    }
+
+    @Test
+    void recordMembershipQueries() {
+        RobustnessCache cache = new RobustnessCache(mapper);
+        NumericMembershipOracle memOracle = new NumericMembershipOracle(sul, mapper);
+        memOracle.setRobustnessCache(cache);
+        NumericMembershipOracleCost oracle = new NumericMembershipOracleCost(sul, mapper, last);
+        oracle.setRobustnessCache(cache);
+        oracle.setCache(memOracle.getCache());
+
+        Word<String> input = Word.fromSymbols("b", "b");
+        memOracle.answerQuery(input);
+        assertEquals(4.0, oracle.processQueryWithCost(new DefaultQuery<>(input)));
+        assertEquals(1, sul.getCounter());
+        assertNull(cache.lookup(Word.fromSymbols("a"), 0));
+    }
+
+    @Test
+    void dropProvisional() {
+        RobustnessCache cache = new RobustnessCache(mapper);
+        NumericMembershipOracleCost oracle = new NumericMembershipOracleCost(sul, mapper, last);
+        oracle.setRobustnessCache(cache);
+        oracle.restoreProvisionally(Word.fromSymbols("b", "b"), simulate(new SimulationSnapshotCacheTest.AccumulatorSUL(), 2.0, 2.0));
+        oracle.restoreProvisionally(Word.fromSymbols("a", "b"), simulate(new SimulationSnapshotCacheTest.AccumulatorSUL(), 1.0, 2.0));
+        assertEquals(4.0, cache.lookup(Word.fromSymbols("b", "b"), 0));
+        assertEquals(0, sul.getCounter());
+
+        // The SUL changed since the logged run, and the simulation of "b a" contradicts the logged "b b" at "b"
+        SimulationSnapshotCacheTest.AccumulatorSUL changed = new SimulationSnapshotCacheTest.AccumulatorSUL() {
+            @Override
+            public IOSignalPiece<List<Double>> step(List<Double> input) {
+                return super.step(Collections.singletonList(2 * input.get(0)));
+            }
+        };
+        NumericMembershipOracleCost changedOracle = new NumericMembershipOracleCost(changed, mapper, last, cache);
+        changedOracle.setCache(oracle.getCache());
+        assertEquals(6.0, changedOracle.processQueryWithCost(new DefaultQuery<>(Word.fromSymbols("b", "a"))));
+        assertEquals(1, changed.getCounter());
+        // The robustness of the contradicted trace is dropped with its outputs, while the live prefix replaces it
+        assertNull(cache.lookup(Word.fromSymbols("b", "b"), 0));
+        assertEquals(4.0, cache.lookup(Word.fromSymbols("b"), 0));
+        // The logged trace not contradicted is kept
+        assertEquals(3.0, cache.lookup(Word.fromSymbols("a", "b"), 0));
+        assertEquals(5, cache.nodeCount());
+    }
+
+    private static IOSignal<List<Double>> simulate(SimulationSnapshotCacheTest.AccumulatorSUL sul, double... inputs) {
+        sul.pre();
+        List<List<Double>> inputSignal = new ArrayList<>();
+        List<List<Double>> outputSignal = new ArrayList<>();
+        for (double input : inputs) {
+            inputSignal.add(Collections.singletonList(input));
+            outputSignal.add(sul.step(Collections.singletonList(input)).getOutputSignal());
+        }
+        sul.post();
+        return new IODiscreteSignal<>(Word.fromList(inputSignal), Word.fromList(outputSignal));
+    }
+}
@@ -0,0 +1,272 @@
+package net.maswag.falcaun;
+
+import de.learnlib.driver.simulator.MealySimulatorSUL;
+import de.learnlib.oracle.MembershipOracle;
+import de.learnlib.oracle.membership.SULOracle;
+import de.learnlib.query.Query;
+import de.learnlib.sul.SUL;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.util.automaton.Automata;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunCheckpointTest {
+    @TempDir
+    Path directory;
+
+    private static NumericSULMapper mapper() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        return new NumericSULMapper(Collections.singletonList(inputMapper), Collections.singletonList('h'),
+                Collections.singletonList(outputMapper), new SimpleSignalMapper());
+    }
+
+    @Test
+    void restoreSimulations() throws IOException {
+        NumericSULMapper mapper = mapper();
+        List<Word<String>> inputs = Arrays.asList(Word.fromSymbols("a", "b"), Word.fromSymbols("b", "a"),
+                Word.fromSymbols("a", "a", "b"));
+        NumericMembershipOracle oracle = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper);
+        try (RunCheckpoint checkpoint = new RunCheckpoint(directory)) {
+            oracle.setCheckpoint(checkpoint);
+            inputs.forEach(oracle::answerQuery);
+        }
+        // A record truncated by a kill
+        try (DataOutputStream out = new DataOutputStream(
+                Files.newOutputStream(directory.resolve(RunCheckpoint.SIMULATIONS), StandardOpenOption.APPEND))) {
+            out.writeInt(100);
+            out.writeByte(0);
+        }
+
+        SimulationSnapshotCacheTest.AccumulatorSUL sul = new SimulationSnapshotCacheTest.AccumulatorSUL();
+        NumericMembershipOracle resumed = new NumericMembershipOracle(sul, mapper);
+        try (RunCheckpoint checkpoint = RunCheckpoint.resume(directory, resumed::restore)) {
+            assertEquals(3, checkpoint.getSimulationCount());
+            assertTrue(checkpoint.getLoggedCounterExamples().isEmpty());
+            resumed.setCheckpoint(checkpoint);
+            for (Word<String> input : inputs) {
+                assertEquals(oracle.answerQuery(input), resumed.answerQuery(input));
+            }
+            assertEquals(0, sul.getCounter());
+            resumed.answerQuery(Word.fromSymbols("b", "b"));
+            assertEquals(1, sul.getCounter());
+        }
+        // The new record is appended after the truncated one is discarded
+        try (RunCheckpoint checkpoint = RunCheckpoint.resume(directory, (input, signal) -> {
+        })) {
+            assertEquals(4, checkpoint.getSimulationCount());
+        }
+    }
+
+    @Test
+    void recordWhileInterrupted() throws IOException {
+        NumericMembershipOracle oracle = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper());
+        try (RunCheckpoint checkpoint = new RunCheckpoint(directory)) {
+            checkpoint.setFlushInterval(0);
+            oracle.setCheckpoint(checkpoint);
+            oracle.answerQuery(Word.fromSymbols("a", "b"));
+            // An interrupt, e.g., of a cancelled oracle, does not close the logs
+            Thread.currentThread().interrupt();
+            try {
+                oracle.answerQuery(Word.fromSymbols("b", "a"));
+            } finally {
+                Thread.interrupted();
+            }
+            oracle.answerQuery(Word.fromSymbols("a", "a"));
+            assertFalse(checkpoint.isDisabled());
+        }
+        assertEquals(3, RunCheckpoint.readSimulations(directory, (input, signal) -> {
+        }));
+    }
+
+    @Test
+    void disableOnFailure() throws IOException {
+        NumericMembershipOracle oracle = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper());
+        RunCheckpoint checkpoint = new RunCheckpoint(directory);
+        checkpoint.setFlushInterval(0);
+        oracle.setCheckpoint(checkpoint);
+        oracle.answerQuery(Word.fromSymbols("a", "b"));
+        checkpoint.close();
+        // The write to the closed log fails, and the later records are ignored
+        oracle.answerQuery(Word.fromSymbols("b", "a"));
+        assertTrue(checkpoint.isDisabled());
+        oracle.answerQuery(Word.fromSymbols("a", "a"));
+        assertEquals(1, RunCheckpoint.readSimulations(directory, (input, signal) -> {
+        }));
+    }
+
+    @Test
+    void resumeLearning() throws IOException {
+        // The outputs are "a" except that every third one is "b"
+        Alphabet<String> inputAlphabet = Alphabets.fromArray("a", "b");
+        CompactMealy<String, String> system = AutomatonBuilders.<String, String>newMealy(inputAlphabet)
+                .withInitial("q0")
+                .from("q0").on("a", "b").withOutput("a").to("q1")
+                .from("q1").on("a", "b").withOutput("a").to("q2")
+                .from("q2").on("a", "b").withOutput("b").to("q0")
+                .create();
+        Map<Word<String>, Word<String>> answers = new HashMap<>();
+        AtomicInteger executions = new AtomicInteger();
+        MembershipOracle.MealyMembershipOracle<String, String> oracle = queries -> {
+            for (Query<String, Word<String>> query : queries) {
+                Word<String> output = answers.computeIfAbsent(query.getInput(), input -> {
+                    executions.incrementAndGet();
+                    return system.computeOutput(input);
+                });
+                query.answer(output.suffix(query.getSuffix().length()));
+            }
+        };
+
+        StaticSTLList<List<Double>> properties = properties(oracle);
+        try (RunCheckpoint checkpoint = new RunCheckpoint(directory)) {
+            BlackBoxVerifier<List<Double>> verifier = new BlackBoxVerifier<>(oracle, null, properties, inputAlphabet);
+            verifier.setCheckpoint(checkpoint);
+            assertFalse(verifier.run());
+        }
+        assertTrue(Files.exists(directory.resolve(RunCheckpoint.HYPOTHESIS)));
+
+        executions.set(0);
+        StaticSTLList<List<Double>> resumedProperties = properties(oracle);
+        try (RunCheckpoint checkpoint = RunCheckpoint.resume(directory, (input, signal) -> {
+        })) {
+            assertFalse(checkpoint.getLoggedCounterExamples().isEmpty());
+            BlackBoxVerifier<List<Double>> verifier = new BlackBoxVerifier<>(oracle, null, resumedProperties, inputAlphabet);
+            verifier.setCheckpoint(checkpoint);
+            assertFalse(verifier.run());
+        }
+        // The resumed run asks only the queries answered before
+        assertEquals(0, executions.get());
+        assertEquals(properties.disprovedIndices, resumedProperties.disprovedIndices);
+    }
+
+    @Test
+    void warmStartChangedSUL() throws IOException {
+        NumericMembershipOracle oracle = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL(), mapper());
+        try (RunCheckpoint checkpoint = new RunCheckpoint(directory)) {
+            oracle.setCheckpoint(checkpoint);
+            oracle.answerQuery(Word.fromSymbols("b", "b"));
+        }
+
+        // The SUL changed since the logged run
+        SimulationSnapshotCacheTest.AccumulatorSUL changed = new SimulationSnapshotCacheTest.AccumulatorSUL() {
+            @Override
+            public IOSignalPiece<List<Double>> step(List<Double> input) {
+                return super.step(Collections.singletonList(2 * input.get(0)));
+            }
+        };
+        NumericMembershipOracle warmStarted = new NumericMembershipOracle(changed, mapper());
+        assertEquals(1, RunCheckpoint.readSimulations(directory, warmStarted::restoreProvisionally));
+        assertEquals(oracle.answerQuery(Word.fromSymbols("b", "b")), warmStarted.answerQuery(Word.fromSymbols("b", "b")));
+        assertEquals(0, changed.getCounter());
+
+        // The simulation of the changed SUL replaces the contradicted outputs instead of failing
+        NumericMembershipOracle expected = new NumericMembershipOracle(new SimulationSnapshotCacheTest.AccumulatorSUL() {
+            @Override
+            public IOSignalPiece<List<Double>> step(List<Double> input) {
+                return super.step(Collections.singletonList(2 * input.get(0)));
+            }
+        }, mapper());
+        assertEquals(expected.answerQuery(Word.fromSymbols("b", "b", "a")),
+                warmStarted.answerQuery(Word.fromSymbols("b", "b", "a")));
+        assertEquals(expected.answerQuery(Word.fromSymbols("b", "b")), warmStarted.answerQuery(Word.fromSymbols("b", "b")));
+        assertEquals(2, warmStarted.getCache().getDroppedNodes());
+        // The logged simulation contradicting the cache is skipped
+        RunCheckpoint.readSimulations(directory,
+                (abstractInput, signal) -> assertFalse(warmStarted.restoreProvisionally(abstractInput, signal)));
+    }
+
+    @Test
+    void warmStart() throws IOException {
+        CompactMealy<String, String> system = cycle("a", "a", "b");
+        Path previous = directory.resolve("previous");
+        BlackBoxVerifier<List<Double>> verifier = tautologyVerifier(system);
+        verifier.addRandomWordEQOracle(1, 6, 100, new Random(1), 1);
+        try (RunCheckpoint checkpoint = new RunCheckpoint(previous)) {
+            verifier.setCheckpoint(checkpoint);
+            assertTrue(verifier.run());
+        }
+        CompactMealy<String, String> model = RunCheckpoint.readModel(previous);
+        assertNull(Automata.findSeparatingWord(system, model, model.getInputAlphabet()));
+
+        // Without the warm start, the tautology does not refine the initial hypothesis
+        verifier = tautologyVerifier(system);
+        assertTrue(verifier.run());
+        assertEquals(1, learned(verifier).size());
+
+        // The previous hypothesis is learned without any equivalence oracle
+        verifier = tautologyVerifier(system);
+        verifier.setWarmStartHypothesis(model);
+        assertTrue(verifier.run());
+        assertNull(Automata.findSeparatingWord(system, learned(verifier), model.getInputAlphabet()));
+
+        // The warm start stops when the previous hypothesis turns out to be outdated
+        verifier = tautologyVerifier(cycle("a", "b"));
+        verifier.setWarmStartHypothesis(model);
+        assertTrue(verifier.run());
+        assertNull(verifier.getWarmStartHypothesis());
+    }
+
+    /**
+     * The system outputs the given symbols cyclically for any inputs.
+     */
+    private static CompactMealy<String, String> cycle(String... outputs) {
+        CompactMealy<String, String> system = new CompactMealy<>(Alphabets.fromArray("a", "b"));
+        system.addInitialState();
+        for (int i = 1; i < outputs.length; i++) {
+            system.addState();
+        }
+        for (int i = 0; i < outputs.length; i++) {
+            for (String input : system.getInputAlphabet()) {
+                system.addTransition(i, input, (i + 1) % outputs.length, outputs[i]);
+            }
+        }
+        return system;
+    }
+
+    private static BlackBoxVerifier<List<Double>> tautologyVerifier(CompactMealy<String, String> system) {
+        STLOutputAtomic high = new STLOutputAtomic(0, STLAbstractAtomic.Operation.gt, 1.0);
+        high.setAtomic(Collections.singletonList(Collections.singletonMap('a', 1.0)), Collections.singletonList('b'));
+        SUL<String, String> sul = new MealySimulatorSUL<>(system);
+        StaticSTLList<List<Double>> properties = new StaticSTLList<>(
+                Collections.singletonList(new TemporalOr.STLOr(high, new TemporalNot.STLNot(high))),
+                new MealyLTLModelChecker());
+        properties.setMemOracle(new SULOracle<>(sul));
+        return new BlackBoxVerifier<>(new SULOracle<>(sul), sul, properties, system.getInputAlphabet());
+    }
+
+    private static CompactMealy<String, String> learned(BlackBoxVerifier<List<Double>> verifier) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        verifier.writeBinaryLearnedMealy(os);
+        return MealyBinaryFormat.read(new ByteArrayInputStream(os.toByteArray()));
+    }
+
+    private static StaticSTLList<List<Double>> properties(MembershipOracle.MealyMembershipOracle<String, String> oracle) {
+        STLOutputAtomic high = new STLOutputAtomic(0, STLAbstractAtomic.Operation.gt, 1.0);
+        high.setAtomic(Collections.singletonList(Collections.singletonMap('a', 1.0)), Collections.singletonList('b'));
+        StaticSTLList<List<Double>> properties = new StaticSTLList<>(Arrays.asList(
+                new TemporalNext.STLNext(new TemporalNext.STLNext(high, true), true),
+                new TemporalNext.STLNext(new TemporalNext.STLNext(new TemporalNext.STLNext(high, true), true), true)),
+                new MealyLTLModelChecker());
+        properties.setMemOracle(oracle);
+        return properties;
+    }
+}
@@ -0,0 +1,120 @@
+package net.maswag.falcaun;
+
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SULCoordinatorTest {
+    private final List<SULWorker> workers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        workers.forEach(SULWorker::close);
+    }
+
+    private InetSocketAddress startWorker(NumericSUL sul) throws Exception {
+        SULWorker worker = new SULWorker(sul, 0);
+        workers.add(worker);
+        Thread thread = new Thread(worker::serve);
+        thread.setDaemon(true);
+        thread.start();
+        return new InetSocketAddress("localhost", worker.getPort());
+    }
+
+    private static List<Word<List<Double>>> inputs() {
+        Random random = new Random(0);
+        List<Word<List<Double>>> inputs = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            List<List<Double>> word = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                word.add(Collections.singletonList((double) random.nextInt(5)));
+            }
+            inputs.add(Word.fromList(word));
+        }
+        return inputs;
+    }
+
+    @Test
+    void sameAsSingleNode() throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            addresses.add(startWorker(new SimulationSnapshotCacheTest.AccumulatorSUL()));
+        }
+        List<Word<List<Double>>> inputs = inputs();
+        try (SULCoordinator coordinator = new SULCoordinator(addresses, 0)) {
+            List<IOSignal<List<Double>>> results = coordinator.executeBatch(inputs);
+            NumericSUL local = new SimulationSnapshotCacheTest.AccumulatorSUL();
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(local.execute(inputs.get(i)).getOutputSignal(), results.get(i).getOutputSignal());
+            }
+            assertEquals(0, coordinator.getRedispatchCount());
+        }
+    }
+
+    @Test
+    void redispatchOnLostWorker() throws Exception {
+        // This worker is lost at its third execution
+        AtomicReference<SULWorker> fragile = new AtomicReference<>();
+        AtomicInteger executions = new AtomicInteger();
+        InetSocketAddress fragileAddress = startWorker(new SimulationSnapshotCacheTest.AccumulatorSUL() {
+            @Override
+            public IOSignal<List<Double>> execute(Word<List<Double>> inputSignal) throws InterruptedException, ExecutionException {
+                if (executions.incrementAndGet() == 3) {
+                    fragile.get().close();
+                }
+                return super.execute(inputSignal);
+            }
+        });
+        fragile.set(workers.get(0));
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        addresses.add(fragileAddress);
+        addresses.add(startWorker(new SimulationSnapshotCacheTest.AccumulatorSUL()));
+
+        List<Word<List<Double>>> inputs = inputs();
+        try (SULCoordinator coordinator = new SULCoordinator(addresses, 1)) {
+            List<IOSignal<List<Double>>> results = coordinator.executeBatch(inputs);
+            NumericSUL local = new SimulationSnapshotCacheTest.AccumulatorSUL();
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals(local.execute(inputs.get(i)).getOutputSignal(), results.get(i).getOutputSignal());
+            }
+            assertEquals(1, coordinator.getRedispatchCount());
+        }
+    }
+
+    @Test
+    void membershipOracle() throws Exception {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        NumericSULMapper mapper = new NumericSULMapper(Collections.singletonList(inputMapper),
+                Collections.singletonList('h'), Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            addresses.add(startWorker(new SimulationSnapshotCacheTest.AccumulatorSUL()));
+        }
+        try (NumericSULPool pool = new SULCoordinator(addresses, 0).toNumericSULPool()) {
+            NumericMembershipOracle oracle = new NumericMembershipOracle(pool.getInstances().get(0), mapper);
+            oracle.setSulPool(pool);
+            List<DefaultQuery<String, Word<String>>> queries = Arrays.asList(
+                    new DefaultQuery<>(Word.fromSymbols("a", "a")),
+                    new DefaultQuery<>(Word.fromSymbols("b", "b")),
+                    new DefaultQuery<>(Word.fromSymbols("a", "b", "a")));
+            oracle.processQueries(queries);
+            assertEquals(Word.fromSymbols("l", "l"), queries.get(0).getOutput());
+            assertEquals(Word.fromSymbols("l", "h"), queries.get(1).getOutput());
+            assertEquals(Word.fromSymbols("l", "l", "h"), queries.get(2).getOutput());
+            assertEquals(3, pool.getCounter());
+        }
+    }
+}
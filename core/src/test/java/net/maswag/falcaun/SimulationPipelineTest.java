@@ -0,0 +1,57 @@
+package net.maswag.falcaun;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationPipelineTest {
+    @Test
+    void backpressure() throws Exception {
+        final int queueCapacity = 2;
+        CountDownLatch postBlocked = new CountDownLatch(1);
+        AtomicInteger simulated = new AtomicInteger();
+        try (SimulationPipeline pipeline = new SimulationPipeline(1, 1, queueCapacity)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final int value = i;
+                futures.add(pipeline.submit(() -> {
+                    simulated.incrementAndGet();
+                    return value;
+                }, v -> {
+                    try {
+                        assertTrue(postBlocked.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return v * v;
+                }));
+            }
+            // One result is being post-processed, the queue is full, and one simulation waits for the queue
+            Thread.sleep(200);
+            assertEquals(queueCapacity + 2, simulated.get());
+            postBlocked.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i * i, futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(10, simulated.get());
+        }
+    }
+
+    @Test
+    void failedSimulation() {
+        try (SimulationPipeline pipeline = new SimulationPipeline(2, 2, 4)) {
+            CompletableFuture<Integer> future = pipeline.submit(() -> {
+                throw new IllegalStateException("failed");
+            }, v -> 0);
+            Exception e = assertThrows(Exception.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+}
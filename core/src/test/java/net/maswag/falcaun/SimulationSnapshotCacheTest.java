@@ -0,0 +1,193 @@
+package net.maswag.falcaun;
+
+import de.learnlib.sul.SUL;
+import net.automatalib.word.Word;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationSnapshotCacheTest {
+    private NumericSULMapper mapper;
+    private AccumulatorSUL sul;
+
+    /**
+     * A toy SUL outputting the sum of the inputs so far.
+     */
+    static class AccumulatorSUL implements NumericSUL {
+        double sum;
+        int counter = 0;
+        int steps = 0;
+        final Set<Object> released = new HashSet<>();
+
+        @Override
+        public void pre() {
+            sum = 0;
+            counter++;
+        }
+
+        @Override
+        public IOSignalPiece<List<Double>> step(List<Double> input) {
+            steps++;
+            sum += input.get(0);
+            return new IOSignalPiece<>(input, Collections.singletonList(sum));
+        }
+
+        @Override
+        public boolean canSnapshot() {
+            return true;
+        }
+
+        @Override
+        public Object snapshot() {
+            return sum;
+        }
+
+        @Override
+        public void restore(Object handle) {
+            sum = (Double) handle;
+            counter++;
+        }
+
+        @Override
+        public void release(Object handle) {
+            released.add(handle);
+        }
+
+        @Override
+        public int getCounter() {
+            return counter;
+        }
+
+        @Override
+        public double getSimulationTimeSecond() {
+            return 0;
+        }
+
+        @Override
+        public void clear() {
+            counter = 0;
+        }
+
+        @Override
+        public boolean canFork() {
+            return false;
+        }
+
+        @Nonnull
+        @Override
+        public SUL<List<Double>, IOSignalPiece<List<Double>>> fork() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Map<Character, Double> inputMapper = new HashMap<>();
+        inputMapper.put('a', 1.0);
+        inputMapper.put('b', 2.0);
+        Map<Character, Double> outputMapper = new HashMap<>();
+        outputMapper.put('l', 3.0);
+        mapper = new NumericSULMapper(Collections.singletonList(inputMapper), Collections.singletonList('h'),
+                Collections.singletonList(outputMapper), new SimpleSignalMapper());
+        sul = new AccumulatorSUL();
+    }
+
+    @Test
+    void resumeFromDeepestPrefix() {
+        NumericMembershipOracle oracle = new NumericMembershipOracle(sul, mapper);
+        oracle.setSnapshotCache(new SimulationSnapshotCache(10));
+        NumericMembershipOracle reference = new NumericMembershipOracle(new AccumulatorSUL(), mapper);
+
+        Word<String> prefix = Word.fromSymbols("a", "a");
+        Word<String> query = Word.fromSymbols("a", "a", "b", "a");
+        assertEquals(reference.answerQuery(prefix), oracle.answerQuery(prefix));
+        assertEquals(2, sul.steps);
+        assertEquals(reference.answerQuery(query), oracle.answerQuery(query));
+        assertEquals(Word.fromSymbols("l", "l", "h", "h"), oracle.answerQuery(query));
+        // Only the suffix is simulated
+        assertEquals(4, sul.steps);
+        assertEquals(2, sul.getCounter());
+        assertEquals(1, oracle.getSnapshotCache().getHitCount());
+        assertEquals(2, oracle.getSnapshotCache().getSavedSteps());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        SimulationSnapshotCache cache = new SimulationSnapshotCache(2);
+        NumericMembershipOracle oracle = new NumericMembershipOracle(sul, mapper);
+        oracle.setSnapshotCache(cache);
+        oracle.answerQuery(Word.fromSymbols("a"));
+        oracle.answerQuery(Word.fromSymbols("b"));
+        oracle.answerQuery(Word.fromSymbols("b", "b"));
+        assertEquals(2, cache.memorySize());
+        assertTrue(sul.released.contains(1.0));
+        assertNull(cache.lookup(Word.fromSymbols("a", "a"), sul));
+        assertNotNull(cache.lookup(Word.fromSymbols("b", "a"), sul));
+        cache.clear();
+        assertEquals(0, cache.memorySize());
+    }
+
+    @Test
+    void spillToDisk(@TempDir Path directory) {
+        SimulationSnapshotCache cache = new SimulationSnapshotCache(1, directory, 1 << 20);
+        cache.save(Word.fromSymbols("a"), sul, 1.0, new IODiscreteSignal<>(
+                Word.fromLetter(Collections.singletonList(1.0)), Word.fromLetter(Collections.singletonList(1.0))));
+        cache.save(Word.fromSymbols("b"), sul, 2.0, new IODiscreteSignal<>(
+                Word.fromLetter(Collections.singletonList(2.0)), Word.fromLetter(Collections.singletonList(2.0))));
+        assertEquals(1, cache.memorySize());
+        assertEquals(1, cache.diskSize());
+        assertTrue(cache.getDiskBytes() > 0);
+
+        SimulationSnapshotCache.Snapshot snapshot = cache.lookup(Word.fromSymbols("a", "b"), sul);
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.getLength());
+        assertEquals(1.0, snapshot.getHandle());
+        // The other snapshot is written to the disk instead
+        assertEquals(1, cache.memorySize());
+        assertEquals(1, cache.diskSize());
+        cache.close();
+        assertEquals(0, cache.diskSize());
+        assertEquals(0, cache.getDiskBytes());
+    }
+
+    @Test
+    void pinnedAndDeferredRelease() {
+        AccumulatorSUL other = new AccumulatorSUL();
+        SimulationSnapshotCache cache = new SimulationSnapshotCache(1);
+        cache.save(Word.fromSymbols("a"), sul, 1.0, new IODiscreteSignal<>(
+                Word.fromLetter(Collections.singletonList(1.0)), Word.fromLetter(Collections.singletonList(1.0))));
+        SimulationSnapshotCache.Snapshot snapshot = cache.lookup(Word.fromSymbols("a", "b"), sul);
+        assertNotNull(snapshot);
+
+        // The snapshot in use is not evicted even by the other SUL
+        cache.save(Word.fromSymbols("b"), other, 2.0, new IODiscreteSignal<>(
+                Word.fromLetter(Collections.singletonList(2.0)), Word.fromLetter(Collections.singletonList(2.0))));
+        assertEquals(1, cache.memorySize());
+        assertNull(cache.lookup(Word.fromSymbols("b"), other));
+        cache.unpin(snapshot);
+        cache.releaseDeferred(sul);
+        assertTrue(sul.released.isEmpty());
+        assertTrue(other.released.isEmpty());
+        cache.releaseDeferred(other);
+        assertEquals(Collections.singleton(2.0), other.released);
+
+        // The unpinned snapshot is evicted, but it is released only by its owner
+        cache.save(Word.fromSymbols("b"), other, 3.0, new IODiscreteSignal<>(
+                Word.fromLetter(Collections.singletonList(2.0)), Word.fromLetter(Collections.singletonList(2.0))));
+        assertNull(cache.lookup(Word.fromSymbols("a"), sul));
+        cache.releaseDeferred(other);
+        assertTrue(sul.released.isEmpty());
+        cache.releaseDeferred(sul);
+        assertEquals(Collections.singleton(1.0), sul.released);
+    }
+}
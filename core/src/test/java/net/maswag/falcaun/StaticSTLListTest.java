@@ -1,10 +1,19 @@
 package net.maswag.falcaun;
 
+import de.learnlib.query.DefaultQuery;
+import net.automatalib.alphabet.Alphabet;
+import net.automatalib.alphabet.Alphabets;
+import net.automatalib.automaton.transducer.CompactMealy;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
+import net.automatalib.util.automaton.builder.AutomatonBuilders;
+import net.automatalib.word.Word;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -83,4 +92,78 @@ class StaticSTLListTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    class ParallelismTest {
+        private final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        private List<TemporalLogic<List<Double>>> stlList;
+        private Set<String> falsified;
+        private CompactMealy<String, String> system;
+        private Alphabet<String> alphabet;
+
+        @BeforeEach
+        void setUp() {
+            List<Map<Character, Double>> inputMapper = Collections.singletonList(Collections.singletonMap('a', 0.0));
+            List<Map<Character, Double>> outputMapper = Collections.singletonList(Collections.singletonMap('a', 10.0));
+            List<Character> largest = Collections.singletonList('b');
+            STLFactory factory = new STLFactory();
+            stlList = Arrays.asList("signal(0) < 10", "signal(0) > 10", "[] (signal(0) < 10)", "<> (signal(0) > 10)")
+                    .stream().map(stl -> (TemporalLogic<List<Double>>) factory.parse(stl, inputMapper, outputMapper, largest))
+                    .collect(Collectors.toList());
+            falsified = new HashSet<>(Arrays.asList(stlList.get(1).toLTLString(), stlList.get(3).toLTLString()));
+            alphabet = Alphabets.fromArray("a", "b");
+            system = AutomatonBuilders.<String, String>newMealy(alphabet)
+                    .withInitial("q0")
+                    .from("q0").on("a").withOutput("x").to("q1")
+                    .from("q0").on("b").withOutput("y").loop()
+                    .from("q1").on("a", "b").withOutput("y").loop()
+                    .create();
+        }
+
+        /**
+         * A model checker returning the given automaton as a counterexample if the property is in {@link #falsified}.
+         */
+        private ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> modelChecker() {
+            return new ModelChecker.MealyModelChecker<>() {
+                @Override
+                public MealyMachine<?, String, ?, String> findCounterExample(MealyMachine<?, String, ?, String> automaton,
+                                                                            Collection<? extends String> inputs, String property) {
+                    threadNames.add(Thread.currentThread().getName());
+                    return falsified.contains(property) ? automaton : null;
+                }
+
+                @Override
+                public Collection<? super String> getSkipOutputs() {
+                    return Collections.emptySet();
+                }
+
+                @Override
+                public void setSkipOutputs(Collection<? super String> skipOutputs) {
+                }
+            };
+        }
+
+        private DefaultQuery<String, Word<String>> findCounterExample(int parallelism, StaticSTLList<List<Double>> list) {
+            list.setParallelism(parallelism);
+            list.setMemOracle(queries -> queries.forEach(query ->
+                    query.answer(system.computeSuffixOutput(query.getPrefix(), query.getSuffix()))));
+            return list.findCounterExample(system, alphabet);
+        }
+
+        @Test
+        void sameResultAsSequential() {
+            StaticSTLList<List<Double>> sequential = new StaticSTLList<>(stlList, modelChecker());
+            // The properties are disproved by the system itself, so no counterexample for the hypothesis is returned
+            DefaultQuery<String, Word<String>> expected = findCounterExample(1, sequential);
+            assertNull(expected);
+            assertFalse(threadNames.stream().anyMatch(name -> name.startsWith("property-oracle-")));
+
+            StaticSTLList<List<Double>> parallel = new StaticSTLList<>(stlList, modelChecker());
+            DefaultQuery<String, Word<String>> actual = findCounterExample(4, parallel);
+            assertEquals(expected, actual);
+            assertEquals(new HashSet<>(Arrays.asList(1, 3)), sequential.disprovedIndices);
+            assertEquals(sequential.disprovedIndices, parallel.disprovedIndices);
+            assertTrue(threadNames.stream().anyMatch(name -> name.startsWith("property-oracle-")));
+        }
+    }
+}
@@ -5,14 +5,18 @@ import ch.qos.logback.classic.Logger;
 import lombok.extern.slf4j.Slf4j;
 import net.automatalib.modelchecker.ltsmin.LTSminVersion;
 import net.automatalib.modelchecker.ltsmin.AbstractLTSmin;
+import net.automatalib.automaton.transducer.MealyMachine;
+import net.automatalib.modelchecking.ModelChecker;
 import net.automatalib.word.Word;
 import org.apache.commons.cli.MissingOptionException;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.net.InetSocketAddress;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,6 +37,7 @@ public class FalCAuN {
         equivName.put(ArgParser.EquivType.RANDOM, "Random Test");
         equivName.put(ArgParser.EquivType.HC, "Hill Climbing");
         equivName.put(ArgParser.EquivType.GA, "Genetic Algorithm");
+        equivName.put(ArgParser.EquivType.CMAES, "CMA-ES");
 
         System.out.println(equivName.get(argParser.getEquiv()) + " is used");
 
@@ -57,6 +62,11 @@ public class FalCAuN {
             case WP:
                 System.out.println("Maximum depth:" + argParser.getMaxDepth());
                 break;
+            case CMAES:
+                System.out.println("Population size: " + argParser.getPopulationSize());
+                System.out.println("Control points: " + argParser.getCmaesControlPoints());
+                System.out.println("Sigma: " + argParser.getCmaesSigma());
+                break;
         }
     }
 
@@ -123,22 +133,84 @@ public class FalCAuN {
             log.warn("Size of the longest LTL string is " + maxLTLLength + ". This is probably too long.");
         }
 
-        AdaptiveSTLUpdater<List<Double>> adaptiveSTLUpdater;
+        ModelChecker.MealyModelChecker<String, String, String, MealyMachine<?, String, ?, String>> modelChecker;
+        if (argParser.isJvmModelChecker()) {
+            log.info("Model-check in JVM");
+            MealyLTLModelChecker jvmModelChecker = new MealyLTLModelChecker();
+            jvmModelChecker.setIncremental(argParser.isIncrementalModelChecking());
+            modelChecker = jvmModelChecker;
+        } else {
+            modelChecker = AbstractAdaptiveSTLUpdater.ltsminModelChecker();
+        }
+        if (argParser.isReduceHypothesis()) {
+            log.info("The learned Mealy machines are reduced before model checking");
+            modelChecker = new ReducingModelChecker(modelChecker);
+        }
+        AbstractAdaptiveSTLUpdater<List<Double>> adaptiveSTLUpdater;
         if (argParser.isAdaptiveSTL()) {
             log.info("adaptive STL updater is enabled");
-            adaptiveSTLUpdater = new AdaptiveSTLList<>(stl, argParser.getLength());
+            adaptiveSTLUpdater = new AdaptiveSTLList<>(stl, argParser.getLength(), modelChecker);
         } else {
             log.info("adaptive STL updater is disabled");
-            adaptiveSTLUpdater = new StaticSTLList<>(stl);
+            adaptiveSTLUpdater = new StaticSTLList<>(stl, modelChecker);
         }
+        adaptiveSTLUpdater.setParallelism(argParser.getPropertyParallelism());
 
-        SimulinkSULVerifier verifier = new SimulinkSULVerifier(
-                argParser.getInitScript(),
-                argParser.getParamNames(),
-                argParser.getStepTime(),
-                argParser.getSimulinkSimulationStep(),
-                adaptiveSTLUpdater,
-                sulMapper);
+        SimulinkSULVerifier verifier;
+        if (Objects.nonNull(argParser.getWorkers())) {
+            List<InetSocketAddress> addresses = SULCoordinator.parseAddresses(argParser.getWorkers());
+            log.info("Simulate with {} SUL workers", addresses.size());
+            // No MATLAB engine is started in this process
+            verifier = new SimulinkSULVerifier(
+                    new SULCoordinator(addresses, argParser.getWorkerReconnectAttempts()).toNumericSULPool(),
+                    argParser.getStepTime(),
+                    adaptiveSTLUpdater,
+                    sulMapper);
+        } else {
+            verifier = new SimulinkSULVerifier(
+                    argParser.getInitScript(),
+                    argParser.getParamNames(),
+                    argParser.getStepTime(),
+                    argParser.getSimulinkSimulationStep(),
+                    adaptiveSTLUpdater,
+                    sulMapper);
+            if (argParser.getSulParallelism() > 1) {
+                log.info("Simulate with {} MATLAB engines", argParser.getSulParallelism());
+                verifier.setParallelism(argParser.getSulParallelism());
+            }
+        }
+        if (Objects.nonNull(argParser.getSnapshotCacheSize())) {
+            verifier.setSnapshotCache(new SimulationSnapshotCache(argParser.getSnapshotCacheSize()));
+        }
+        if (Objects.nonNull(argParser.getCacheBudget()) || argParser.isSoftCache()) {
+            verifier.setCacheBudget(Objects.requireNonNullElse(argParser.getCacheBudget(), 0L), argParser.isSoftCache());
+        }
+        if (Objects.nonNull(argParser.getCacheBudget()) || argParser.isVerbose()) {
+            verifier.setCacheReportInterval(60);
+        }
+        if (argParser.getPipelineWorkers() > 0) {
+            verifier.setPipeline(argParser.getPipelineWorkers());
+        }
+        if (argParser.isPortfolio()) {
+            verifier.enablePortfolio();
+        }
+        verifier.setLearner(argParser.getLearnerKind(), argParser.isBatchQueries());
+        if (argParser.isShortenCex()) {
+            verifier.enableCounterExampleShortening(argParser.getBinarySearchThreshold())
+                    .setDeltaDebugging(argParser.isDeltaDebugCex());
+        }
+        if (Objects.nonNull(argParser.getCheckpointDirectory())) {
+            final Path checkpointDirectory = FileSystems.getDefault().getPath(argParser.getCheckpointDirectory());
+            if (argParser.isResume()) {
+                verifier.resume(checkpointDirectory);
+            } else {
+                verifier.setCheckpoint(checkpointDirectory);
+            }
+        }
+        if (Objects.nonNull(argParser.getWarmStartDirectory())) {
+            verifier.warmStart(FileSystems.getDefault().getPath(argParser.getWarmStartDirectory()),
+                    argParser.isRevalidateWarmStart());
+        }
 
         if (Objects.nonNull(argParser.getTimeout())) {
             if (argParser.isVerbose()) {
@@ -166,6 +238,11 @@ public class FalCAuN {
             case GA:
                 verifier.addGAEQOracleAll(argParser.getLength(), argParser.getMaxTest(), argParser.getSelectionKind(), argParser.getPopulationSize(), argParser.getCrossoverProb(), argParser.getMutationProb());
                 break;
+            case CMAES:
+                verifier.addCMAESEQOracleAll(argParser.getLength(), argParser.getCmaesControlPoints(), argParser.getMaxTest(),
+                        Objects.isNull(argParser.getPopulationSize()) ? 0 : argParser.getPopulationSize(),
+                        argParser.getCmaesSigma(), new Random());
+                break;
             case PURE_RANDOM:
                 SimulinkRandomTester tester = new SimulinkRandomTester(
                         argParser.getInitScript(),
@@ -241,6 +318,7 @@ public class FalCAuN {
             verifier.writeETFLearnedMealy(outputStream);
             outputStream.close();
         }
+        verifier.close();
     }
 
     private static <T extends TemporalLogic<List<Double>>> void printResult(int i, List<T> cexProperties, List<Signal> cexConcreteInput, List<Word<String>> cexAbstractInput, List<Word<String>> cexOutput) {
@@ -10,6 +10,7 @@ import net.automatalib.word.Word;
 import org.apache.commons.lang3.ArrayUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
@@ -42,10 +43,22 @@ public class SimulinkModel {
     private boolean isInitial = true;
     private boolean useFastRestart = true;
     @Getter
-    private int counter = 0;
+    private volatile int counter = 0;
     private final TimeMeasure simulationTime = new TimeMeasure();
     @Setter
     private InterpolationMethod interpolationMethod = InterpolationMethod.LINEAR;
+    /**
+     * Whether we save the operating point at the end of each simulation so that we can resume from it.
+     */
+    @Getter
+    @Setter
+    private boolean snapshotEnabled = false;
+    /**
+     * The MATLAB variable holding the operating point to start the next simulation. If it is null, we start from the initial state.
+     */
+    @Nullable
+    private String initialState = null;
+    private int snapshotCounter = 0;
 
     /**
      * Setter of simulinkSimulationStep
@@ -88,6 +101,7 @@ public class SimulinkModel {
     public void reset() {
         inputSignal = new Signal(signalStep);
         isInitial = true;
+        initialState = null;
     }
 
     /**
@@ -139,6 +153,10 @@ public class SimulinkModel {
             simulationTime.start();
             matlab.eval(builder.toString());
             simulationTime.stop();
+            if (snapshotEnabled) {
+                // The next step resumes from the saved operating point
+                initialState = "myOperPoint";
+            }
 
             // get the simulation result and make the result
             double[][] y = this.getResult();
@@ -245,13 +263,23 @@ public class SimulinkModel {
             builder.append("in = in.setModelParameter('SaveTime', 'on');");
             builder.append("in = in.setModelParameter('TimeSaveName', 'tout');");
         }
-        builder.append("in = in.setModelParameter('LoadInitialState', 'off');");
+        if (Objects.isNull(initialState)) {
+            builder.append("in = in.setModelParameter('LoadInitialState', 'off');");
+        } else {
+            builder.append("in = in.setInitialState(").append(initialState).append(");");
+        }
+        if (snapshotEnabled) {
+            builder.append("in = in.setModelParameter('SaveFinalState', 'on', 'SaveOperatingPoint', 'on', 'FinalStateName', 'myOperPoint');");
+        }
 
         // Execute the simulation
         builder.append("simOut = sim(in);");
         // We handle the output as double.
         builder.append("y = double(simOut.get('yout'));");
         builder.append("t = double(simOut.get('tout'));");
+        if (snapshotEnabled) {
+            builder.append("myOperPoint = simOut.get('myOperPoint');");
+        }
     }
 
     protected double[][] getResult() throws ExecutionException, InterruptedException {
@@ -365,6 +393,101 @@ public class SimulinkModel {
         return new ValueWithTime<>(Arrays.asList(ArrayUtils.toObject(t)), result);
     }
 
+    /**
+     * The operating point of the Simulink model saved in a MATLAB variable with the input signal fed so far.
+     */
+    public static class OperatingPoint {
+        private final String variable;
+        private final List<List<Double>> inputs;
+
+        OperatingPoint(String variable, List<List<Double>> inputs) {
+            this.variable = variable;
+            this.inputs = inputs;
+        }
+    }
+
+    /**
+     * Save the operating point at the end of the last simulation.
+     * <p>
+     * The snapshot must be enabled before the simulation.
+     *
+     * @return The handle of the saved operating point
+     */
+    public OperatingPoint snapshot() throws ExecutionException, InterruptedException {
+        if (!snapshotEnabled || isInitial) {
+            throw new IllegalStateException("No operating point is saved");
+        }
+        String variable = "falcaunSnapshot" + (snapshotCounter++);
+        matlab.eval(variable + " = myOperPoint;");
+        return new OperatingPoint(variable, new ArrayList<>(inputSignal.asList()));
+    }
+
+    /**
+     * Restore the operating point saved by {@link #snapshot()}. The next simulation resumes from it.
+     *
+     * @param operatingPoint The handle of the saved operating point
+     */
+    public void restore(OperatingPoint operatingPoint) {
+        reset();
+        inputSignal.addAll(operatingPoint.inputs);
+        isInitial = false;
+        initialState = operatingPoint.variable;
+        counter++;
+    }
+
+    /**
+     * Release the operating point saved by {@link #snapshot()}.
+     *
+     * @param operatingPoint The handle of the saved operating point
+     */
+    public void release(OperatingPoint operatingPoint) throws ExecutionException, InterruptedException {
+        matlab.eval("clear " + operatingPoint.variable + ";");
+    }
+
+    /**
+     * Execute the Simulink model by feeding inputSignal after the current state, i.e., the initial state or the restored operating point.
+     *
+     * @param suffix The input signal fed after the current state
+     * @return The output signal with timestamps from the current state.
+     */
+    public ValueWithTime<List<Double>> executeSuffix(Word<List<Double>> suffix) throws InterruptedException, ExecutionException {
+        if (this.isInitial) {
+            counter++;
+        }
+        this.inputSignal.addAll(suffix);
+
+        // For efficiency, we use StringBuilder to make the entire script to execute in MATLAB rather than evaluate each line.
+        StringBuilder builder = new StringBuilder();
+        makeDataSet(builder);
+        configureSimulink(builder);
+        preventHugeTempFile(builder);
+        runSimulation(builder, this.inputSignal.duration());
+
+        simulationTime.start();
+        log.trace(builder.toString());
+        matlab.eval(builder.toString());
+        simulationTime.stop();
+        isInitial = false;
+        if (snapshotEnabled) {
+            initialState = "myOperPoint";
+        }
+
+        // get the simulation result and make the result
+        double[][] y = this.getResult();
+        double[] t = this.getTimestamps();
+        if (Objects.isNull(y) || Objects.isNull(y[0])) {
+            log.error("The simulation output is null");
+            throw new SULException(new IllegalStateException("The simulation output is null"));
+        }
+        assert(t.length == y.length);
+
+        List<List<Double>> result = new ArrayList<>();
+        for (double[] outputStep: y) {
+            result.add(Arrays.asList(ArrayUtils.toObject(outputStep)));
+        }
+        return new ValueWithTime<>(Arrays.asList(ArrayUtils.toObject(t)), result);
+    }
+
     /**
      * Close the MATLAB engine. This method must be called when the object is no longer used.
      */
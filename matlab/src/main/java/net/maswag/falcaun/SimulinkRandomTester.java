@@ -14,7 +14,6 @@ import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static de.learnlib.filter.cache.sul.SULCaches.createTreeCache;
 
 /**
  * Pure Random Tester of a Simulink model
@@ -59,7 +58,7 @@ public class SimulinkRandomTester {
 
         this.properties = properties;
 
-        this.simulink = createTreeCache(concreteInputAlphabet, rawSimulink);
+        this.simulink = new ConcurrentSULCache<>(concreteInputAlphabet, rawSimulink);
         this.length = length;
         this.costFunc = costFunc;
         assert (costFunc.size() == properties.size());
@@ -108,12 +107,13 @@ public class SimulinkRandomTester {
                 Iterator<Integer> it = unfalsifiedIndex.iterator();
                 while (it.hasNext()) {
                     int i = it.next();
-                    LOGGER.debug("Robustness: " + costFunc.get(i).apply(concreteSignal));
-                    if (costFunc.get(i).apply(concreteSignal) < 0) {
+                    final double robustness = costFunc.get(i).apply(concreteSignal);
+                    LOGGER.debug("Robustness: " + robustness);
+                    if (robustness < 0) {
                         LOGGER.info("Property_violated: " + properties.get(i));
                         LOGGER.info("Counter example for property: " + abstractInput);
                         LOGGER.info("Concrete output: " + concreteSignal.getOutputSignal());
-                        LOGGER.info("Robustness: " + costFunc.get(i).apply(concreteSignal));
+                        LOGGER.info("Robustness: " + robustness);
 
                         cexInput.add(abstractInput);
                         cexProperty.add(costFunc.get(i));
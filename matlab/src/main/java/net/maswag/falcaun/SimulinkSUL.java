@@ -11,7 +11,9 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 /**
  * The System Under Learning implemented by a Simulink. We use the fixed step execution of Simulink to make sampling easier.
  */
@@ -98,6 +100,87 @@ public class SimulinkSUL implements ContinuousNumericSUL, Closeable {
                 values, model.getSignalStep());
     }
 
+    /**
+     * Enable or disable saving the operating point of Simulink at the end of each simulation.
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.model.setSnapshotEnabled(snapshotEnabled);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canSnapshot() {
+        return this.model.isSnapshotEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object snapshot() {
+        try {
+            return this.model.snapshot();
+        } catch (ExecutionException | InterruptedException e) {
+            throw new SULException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restore(Object handle) {
+        this.model.restore((SimulinkModel.OperatingPoint) handle);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(Object handle) {
+        try {
+            this.model.release((SimulinkModel.OperatingPoint) handle);
+        } catch (ExecutionException | InterruptedException e) {
+            log.warn("Failed to release the operating point: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Execute the Simulink model by feeding suffix from the saved operating point.
+     * <p>
+     * Unlike {@link #step(List)}, we run only one simulation for the entire suffix.
+     */
+    @Override
+    public IOContinuousSignal<List<Double>> executeFrom(@Nullable Object handle, @Nullable IOSignal<List<Double>> prefixSignal,
+                                                        Word<List<Double>> suffix, Consumer<Object> snapshotConsumer)
+            throws InterruptedException, ExecutionException {
+        Word<List<Double>> prefix = Word.epsilon();
+        ValueWithTime<List<Double>> values = new ValueWithTime<>();
+        if (Objects.isNull(handle)) {
+            model.reset();
+        } else {
+            restore(handle);
+            if (prefixSignal instanceof IOContinuousSignal) {
+                prefix = prefixSignal.getInputSignal();
+                values = ((IOContinuousSignal<List<Double>>) prefixSignal).continuousOutputSignal;
+            }
+        }
+        if (!suffix.isEmpty()) {
+            values = values.concat(model.executeSuffix(suffix));
+            snapshotConsumer.accept(snapshot());
+        }
+        model.reset();
+
+        Word<List<Double>> inputSignal = prefix.concat(suffix);
+        WordBuilder<List<Double>> builder = new WordBuilder<>();
+        for (int i = 0; i < inputSignal.size(); i++) {
+            builder.add(values.at(i * model.getSignalStep()));
+        }
+        return new IOContinuousSignal<>(inputSignal, builder.toWord(), values, model.getSignalStep());
+    }
+
     /**
      * Execute the Simulink model by feeding inputSignal
      */
@@ -1,8 +1,22 @@
 package net.maswag.falcaun;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 public class SimulinkSULVerifier extends NumericSULVerifier {
+    /**
+     * The initial script of the local MATLAB engines, or {@code null} if the model is simulated by the SUL workers.
+     */
+    @Nullable
+    private final String initScript;
+    @Nullable
+    private final List<String> paramName;
+    private final double signalStep;
+    private double simulinkSimulationStep;
+
     /**
      * <p>Constructor for SimulinkVerifier.</p>
      *
@@ -15,6 +29,49 @@ public class SimulinkSULVerifier extends NumericSULVerifier {
      */
     public SimulinkSULVerifier(String initScript, List<String> paramName, double signalStep, double simulinkSimulationStep, AdaptiveSTLUpdater<List<Double>> properties, NumericSULMapper mapper) throws Exception {
         super(new SimulinkSUL(initScript, paramName, signalStep, simulinkSimulationStep), signalStep, properties, mapper);
+        this.initScript = initScript;
+        this.paramName = paramName;
+        this.signalStep = signalStep;
+        this.simulinkSimulationStep = simulinkSimulationStep;
+    }
+
+    /**
+     * Constructor simulating the Simulink model only by the SUL workers, e.g., {@link SULCoordinator#toNumericSULPool()}.
+     * <p>No MATLAB engine is started in this process. The workers are usually run by {@link SimulinkSULWorker}.</p>
+     *
+     * @param sulPool    The pool of the SULs simulating the Simulink model.
+     * @param signalStep The signal step in the simulation
+     * @param properties The LTL properties to be verified
+     * @param mapper     The I/O mapepr between abstract/concrete Simulink models.
+     */
+    public SimulinkSULVerifier(NumericSULPool sulPool, double signalStep, AdaptiveSTLUpdater<List<Double>> properties, NumericSULMapper mapper) {
+        super(sulPool.getInstances().get(0), signalStep, properties, mapper);
+        this.initScript = null;
+        this.paramName = null;
+        this.signalStep = signalStep;
+        this.simulinkSimulationStep = Double.NaN;
+        setSULPool(sulPool);
+    }
+
+    /**
+     * Simulate the Simulink model concurrently using multiple MATLAB engines.
+     * <p>This must be called before adding the equivalence oracles. Each additional engine runs the initial script again.</p>
+     *
+     * @param size The number of the MATLAB engines including the one created by the constructor.
+     * @throws java.lang.Exception It can be thrown from the constructor of SimulinkSUL.
+     */
+    public void setParallelism(int size) throws Exception {
+        if (Objects.isNull(initScript)) {
+            throw new IllegalStateException("The model is simulated by the SUL workers, not by the MATLAB engines");
+        }
+        List<NumericSUL> instances = new ArrayList<>(size);
+        instances.add(this.rawSUL);
+        for (int i = 1; i < size; i++) {
+            SimulinkSUL sul = new SimulinkSUL(initScript, paramName, signalStep, simulinkSimulationStep);
+            sul.setSnapshotEnabled(this.rawSUL.canSnapshot());
+            instances.add(sul);
+        }
+        setSULPool(new NumericSULPool(instances));
     }
 
     /**
@@ -23,6 +80,36 @@ public class SimulinkSULVerifier extends NumericSULVerifier {
      * @param simulinkSimulationStep The fixed simulation step of Simulink. If this value is too large, Simulink can abort due to an computation error.
      */
     public void setSimulationStep(double simulinkSimulationStep) {
-        ((SimulinkSUL)this.rawSUL).setSimulationStep(simulinkSimulationStep);
+        this.simulinkSimulationStep = simulinkSimulationStep;
+        for (SimulinkSUL sul : simulinkSULs()) {
+            sul.setSimulationStep(simulinkSimulationStep);
+        }
+    }
+
+    /**
+     * Resume the simulations from the operating points of Simulink saved in the snapshot cache.
+     * <p>This must be called before adding the equivalence oracles. The SULs other than the local MATLAB engines, e.g.,
+     * the SUL workers, do not support snapshots.</p>
+     *
+     * @param snapshotCache The cache of the operating points.
+     */
+    @Override
+    public void setSnapshotCache(SimulationSnapshotCache snapshotCache) {
+        for (SimulinkSUL sul : simulinkSULs()) {
+            sul.setSnapshotEnabled(true);
+        }
+        super.setSnapshotCache(snapshotCache);
+    }
+
+    /**
+     * Returns the local MATLAB engines. The other SULs in the pool, e.g., the SUL workers, are skipped.
+     */
+    private List<SimulinkSUL> simulinkSULs() {
+        NumericSULPool sulPool = getSULPool();
+        List<NumericSUL> instances = Objects.isNull(sulPool) ? List.of(this.rawSUL) : sulPool.getInstances();
+        return instances.stream()
+                .filter(SimulinkSUL.class::isInstance)
+                .map(SimulinkSUL.class::cast)
+                .collect(Collectors.toList());
     }
 }
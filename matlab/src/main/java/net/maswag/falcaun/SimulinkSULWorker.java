@@ -0,0 +1,50 @@
+package net.maswag.falcaun;
+
+import org.apache.commons.cli.*;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The SUL worker simulating a Simulink model for {@link SULCoordinator}, i.e., for {@code falcaun --workers}.
+ *
+ * <p>The model is initialized by the same options as {@link FalCAuN}: {@code --init}, {@code --param-names},
+ * {@code --step-time}, and {@code --simulink-simulation-step}. The worker listens on {@code --port} of
+ * {@code --bind-address}, which is the wildcard address by default so that the coordinator can run on another host.
+ * The port is printed to the standard output after the worker starts listening.</p>
+ *
+ * @author Masaki Waga {@literal <masakiwaga@gmail.com>}
+ */
+public class SimulinkSULWorker {
+    private SimulinkSULWorker() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Print a help message");
+        options.addOption("s", "step-time", true, "The step time of the sampling");
+        options.addOption("i", "init", true, "The initial script of MATLAB");
+        options.addOption("p", "param-names", true, "The parameter names of the Simulink model");
+        options.addOption(null, "simulink-simulation-step", true, "The simulation step of Simulink model. This is 0.0025 by default.");
+        options.addOption(null, "port", true, "The port to listen on. If it is 0, an ephemeral port is used.");
+        options.addOption(null, "bind-address", true, "The address to listen on. This is 0.0.0.0 by default.");
+        CommandLine cl = new DefaultParser().parse(options, args);
+        if (cl.hasOption('h') || !cl.hasOption('s') || !cl.hasOption('i') || !cl.hasOption('p') || !cl.hasOption("port")) {
+            new HelpFormatter().printHelp("SimulinkSULWorker --port <port> -i <init> -p <param-names> -s <step-time>", options);
+            System.exit(cl.hasOption('h') ? 0 : 1);
+        }
+        final List<String> paramNames = Arrays.asList(cl.getOptionValue('p').split("\\s+"));
+        final double signalStep = Double.parseDouble(cl.getOptionValue('s'));
+        final double simulinkSimulationStep = Double.parseDouble(cl.getOptionValue("simulink-simulation-step", "0.0025"));
+        final InetAddress bindAddress = InetAddress.getByName(cl.getOptionValue("bind-address", "0.0.0.0"));
+        final int port = Integer.parseInt(cl.getOptionValue("port"));
+
+        SimulinkSUL sul = new SimulinkSUL(cl.getOptionValue('i'), paramNames, signalStep, simulinkSimulationStep);
+        try (SULWorker worker = new SULWorker(sul, port, bindAddress)) {
+            System.out.println(SULWorkerProtocol.PORT_PREFIX + worker.getPort());
+            System.out.flush();
+            worker.serve();
+        }
+    }
+}
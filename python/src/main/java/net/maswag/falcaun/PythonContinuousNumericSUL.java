@@ -11,9 +11,12 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.io.Closeable;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,7 +35,7 @@ public class PythonContinuousNumericSUL implements ContinuousNumericSUL, Closeab
     protected Signal inputSignal = null;
 
     @Getter
-    private int counter = 0;
+    private volatile int counter = 0;
 
     /**
      * @param initScript The Python script to initialize the model. It defines a
@@ -82,6 +85,64 @@ public class PythonContinuousNumericSUL implements ContinuousNumericSUL, Closeab
         counter++;
     }
 
+    /**
+     * Enable or disable the snapshots of the Python SUL by pickle. The SUL object must be picklable to enable it.
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.model.setSnapshotEnabled(snapshotEnabled);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canSnapshot() {
+        return this.model.isSnapshotEnabled();
+    }
+
+    /**
+     * The state of the Python SUL with the input signal fed so far.
+     */
+    static class Snapshot implements Serializable {
+        private final String state;
+        private final ArrayList<ArrayList<Double>> inputs = new ArrayList<>();
+
+        Snapshot(String state, Signal inputSignal) {
+            this.state = state;
+            for (List<Double> input : inputSignal.asList()) {
+                this.inputs.add(new ArrayList<>(input));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object snapshot() {
+        try {
+            return new Snapshot(this.model.snapshot(), this.inputSignal);
+        } catch (JepException e) {
+            throw new SULException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restore(Object handle) {
+        Snapshot snapshot = (Snapshot) handle;
+        try {
+            this.model.restore(snapshot.state);
+        } catch (JepException e) {
+            throw new SULException(e);
+        }
+        inputSignal = new Signal(signalStep);
+        inputSignal.addAll(snapshot.inputs);
+        counter++;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -178,6 +239,49 @@ public class PythonContinuousNumericSUL implements ContinuousNumericSUL, Closeab
         return new IOContinuousSignal<>(inputSignal, builder.toWord(), values, this.signalStep);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IOContinuousSignal<List<Double>> executeFrom(@Nullable Object handle, @Nullable IOSignal<List<Double>> prefixSignal,
+                                                        Word<List<Double>> suffix, Consumer<Object> snapshotConsumer)
+            throws InterruptedException, ExecutionException {
+        Word<List<Double>> prefix = Word.epsilon();
+        ValueWithTime<List<Double>> prefixValues = new ValueWithTime<>();
+        if (Objects.isNull(handle)) {
+            pre();
+        } else {
+            restore(handle);
+            if (prefixSignal instanceof IOContinuousSignal) {
+                prefix = prefixSignal.getInputSignal();
+                prefixValues = ((IOContinuousSignal<List<Double>>) prefixSignal).continuousOutputSignal;
+            }
+        }
+
+        @SuppressWarnings("rawtypes")
+        ArrayList<?> ret = null;
+        try {
+            for (var e : suffix) {
+                this.inputSignal.add(e);
+                ret = this.model.step(e);
+            }
+        } catch (JepException exc) {
+            throw new ExecutionException(exc);
+        }
+        snapshotConsumer.accept(snapshot());
+        post();
+
+        Word<List<Double>> inputs = prefix.concat(suffix);
+        // The returned values may or may not contain the values before the snapshot.
+        var values = Objects.isNull(ret) ? prefixValues : prefixValues.concat(constructValueWithTime(ret));
+
+        WordBuilder<List<Double>> builder = new WordBuilder<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            builder.add(values.at(i * this.signalStep));
+        }
+        return new IOContinuousSignal<>(inputs, builder.toWord(), values, this.signalStep);
+    }
+
     /**
      * {@inheritDoc}
      */
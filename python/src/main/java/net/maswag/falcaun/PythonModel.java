@@ -6,6 +6,7 @@ import jep.SharedInterpreter;
 import jep.python.PyCallable;
 import jep.python.PyObject;
 import lombok.Getter;
+import lombok.Setter;
 
 /**
  * A PythonModel class wraps a model implemented by python.
@@ -36,6 +37,13 @@ public class PythonModel<I, O> {
     @Getter
     private final TimeMeasure simulationTime = new TimeMeasure();
 
+    /**
+     * Whether the state of the Python SUL can be saved by pickle. The SUL object must be picklable to enable it.
+     */
+    @Getter
+    @Setter
+    private boolean snapshotEnabled = false;
+
     static {
         // JepConfig must be set before creating any SharedInterpreters
         var config = new JepConfig().redirectStdout(System.out)
@@ -72,16 +80,45 @@ public class PythonModel<I, O> {
             var interp = this.interpreter.get();
             interp.runScript(initScript);
             interp.eval("sul = SUL()");
-
-            var pysul = interp.getValue("sul", PyObject.class);
-            this.pyPre = pysul.getAttr("pre", PyCallable.class);
-            this.pyPost = pysul.getAttr("post", PyCallable.class);
-            this.pyStep = pysul.getAttr("step", PyCallable.class);
-            this.pyClose = pysul.getAttr("close", PyCallable.class);
+            bindMethods();
         }
         this.initialized.set(true);
     }
 
+    private void bindMethods() {
+        var pysul = this.interpreter.get().getValue("sul", PyObject.class);
+        this.pyPre = pysul.getAttr("pre", PyCallable.class);
+        this.pyPost = pysul.getAttr("post", PyCallable.class);
+        this.pyStep = pysul.getAttr("step", PyCallable.class);
+        this.pyClose = pysul.getAttr("close", PyCallable.class);
+    }
+
+    /**
+     * Saves the current state of the Python SUL by pickle.
+     *
+     * @return The pickled SUL object encoded in Base64.
+     */
+    public String snapshot() throws JepException {
+        var interp = this.interpreter.get();
+        interp.exec("import base64, pickle");
+        interp.exec("falcaun_snapshot = base64.b64encode(pickle.dumps(sul)).decode('ascii')");
+        return interp.getValue("falcaun_snapshot", String.class);
+    }
+
+    /**
+     * Restores the state of the Python SUL saved by {@link #snapshot()}. This is used instead of {@link #pre()}.
+     *
+     * @param state The pickled SUL object encoded in Base64.
+     */
+    public void restore(String state) throws JepException {
+        initialize();
+        var interp = this.interpreter.get();
+        interp.exec("import base64, pickle");
+        interp.set("falcaun_snapshot", state);
+        interp.exec("sul = pickle.loads(base64.b64decode(falcaun_snapshot))");
+        bindMethods();
+    }
+
     public void pre() {
         initialize();
         this.pyPre.call();
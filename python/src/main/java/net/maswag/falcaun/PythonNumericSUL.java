@@ -24,7 +24,7 @@ public class PythonNumericSUL implements NumericSUL, Closeable {
     protected final PythonModel<List<Double>, ArrayList> model;
 
     @Getter
-    private int counter = 0;
+    private volatile int counter = 0;
 
     /**
      * @param initScript The Python script to initialize the model. It defines a
@@ -65,6 +65,46 @@ public class PythonNumericSUL implements NumericSUL, Closeable {
         counter++;
     }
 
+    /**
+     * Enable or disable the snapshots of the Python SUL by pickle. The SUL object must be picklable to enable it.
+     */
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.model.setSnapshotEnabled(snapshotEnabled);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canSnapshot() {
+        return this.model.isSnapshotEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object snapshot() {
+        try {
+            return this.model.snapshot();
+        } catch (JepException e) {
+            throw new SULException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restore(Object handle) {
+        try {
+            this.model.restore((String) handle);
+        } catch (JepException e) {
+            throw new SULException(e);
+        }
+        counter++;
+    }
+
     /**
      * {@inheritDoc}
      */